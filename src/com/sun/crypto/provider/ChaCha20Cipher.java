@@ -1017,6 +1017,15 @@ abstract class ChaCha20Cipher extends CipherSpi {
 
         while (remainingData > 0) {
             int ksRemain = keyStream.length - keyStrOffset;
+            if (ksRemain <= 0 && ParallelChunks.enabled(remainingData) &&
+                    (in != out || inOff == outOff)) {
+                int xformLen = transformInParallel(in, inOff,
+                        remainingData, out, outOff);
+                outOff += xformLen;
+                inOff += xformLen;
+                remainingData -= xformLen;
+                continue;
+            }
             if (ksRemain <= 0) {
                 if (counter <= finalCounterValue) {
                     generateKeystream();
@@ -1038,6 +1047,39 @@ abstract class ChaCha20Cipher extends CipherSpi {
         }
     }
 
+    /**
+     * Transform the whole keystream blocks of the input in chunks that are
+     * processed in parallel, each chunk generating its own keystream from
+     * the counter value of its first block.  The keystream must be
+     * exhausted when this method is called.
+     *
+     * @return the number of bytes that have been transformed
+     */
+    private int transformInParallel(byte[] in, int inOff, int inLen,
+            byte[] out, int outOff) throws KeyException {
+        long blocks = inLen / KEYSTREAM_SIZE;
+        if (counter + blocks - 1 > finalCounterValue) {
+            throw new KeyException("Counter exhausted.  " +
+                    "Reinitialize with new key and/or nonce");
+        }
+        int len = (int)blocks * KEYSTREAM_SIZE;
+        int chunk = ParallelChunks.chunkLength(len, KEYSTREAM_SIZE);
+        int count = (len + chunk - 1) / chunk;
+        long startCounter = counter;
+        ParallelChunks.run(count, i -> {
+            byte[] chunkKeyStream = new byte[KEYSTREAM_SIZE];
+            long ctr = startCounter + (long)i * (chunk / KEYSTREAM_SIZE);
+            int end = Math.min((i + 1) * chunk, len);
+            for (int ofs = i * chunk; ofs < end; ofs += KEYSTREAM_SIZE) {
+                chaCha20Block(startState, ctr++, chunkKeyStream);
+                xor(chunkKeyStream, 0, in, inOff + ofs, out, outOff + ofs,
+                        KEYSTREAM_SIZE);
+            }
+        });
+        counter += blocks;
+        return len;
+    }
+
     private static void xor(byte[] in1, int off1, byte[] in2, int off2,
             byte[] out, int outOff, int len) {
         while (len >= 8) {
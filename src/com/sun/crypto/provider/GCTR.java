@@ -91,6 +91,46 @@ final class GCTR extends CounterMode {
             throw new RuntimeException("output buffer too small");
         }
 
+        // chunks may be processed in any order unless in and out overlap
+        // at different offsets
+        if (ParallelChunks.enabled(inLen) && (in != out || inOfs == outOfs)) {
+            return updateInParallel(in, inOfs, inLen, out, outOfs);
+        }
+        return updateBlocks(in, inOfs, inLen, out, outOfs);
+    }
+
+    // encrypts the chunks with their own GCTR objects, each starting
+    // from the counter value of its first block
+    private int updateInParallel(byte[] in, int inOfs, int inLen,
+                                 byte[] out, int outOfs) {
+        int chunk = ParallelChunks.chunkLength(inLen, AES_BLOCK_SIZE);
+        int count = (inLen + chunk - 1) / chunk;
+        byte[] base = counter.clone();
+        ParallelChunks.run(count, i -> {
+            int ofs = i * chunk;
+            byte[] chunkCounter = base.clone();
+            add32(chunkCounter, ofs / AES_BLOCK_SIZE);
+            new GCTR(embeddedCipher, chunkCounter).updateBlocks(in,
+                inOfs + ofs, Math.min(chunk, inLen - ofs), out, outOfs + ofs);
+        });
+        add32(counter, inLen / AES_BLOCK_SIZE);
+        return inLen;
+    }
+
+    // adds n to the lower 32 bits of the counter block, as n calls
+    // of GaloisCounterMode.increment32() would
+    private static void add32(byte[] value, int n) {
+        int ctr32 = ((value[12] & 0xFF) << 24) | ((value[13] & 0xFF) << 16) |
+                    ((value[14] & 0xFF) << 8) | (value[15] & 0xFF);
+        ctr32 += n;
+        value[12] = (byte)(ctr32 >>> 24);
+        value[13] = (byte)(ctr32 >>> 16);
+        value[14] = (byte)(ctr32 >>> 8);
+        value[15] = (byte)ctr32;
+    }
+
+    private int updateBlocks(byte[] in, int inOfs, int inLen,
+                             byte[] out, int outOfs) {
         long blocksLeft = blocksUntilRollover();
         int numOfCompleteBlocks = inLen / AES_BLOCK_SIZE;
         if (numOfCompleteBlocks >= blocksLeft) {
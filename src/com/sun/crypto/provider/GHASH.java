@@ -195,7 +195,49 @@ final class GHASH {
             return;
         }
         ghashRangeCheck(in, inOfs, inLen, state, subkeyH);
-        processBlocks(in, inOfs, inLen/AES_BLOCK_SIZE, state, subkeyH);
+        if (ParallelChunks.enabled(inLen)) {
+            updateInParallel(in, inOfs, inLen);
+        } else {
+            processBlocks(in, inOfs, inLen/AES_BLOCK_SIZE, state, subkeyH);
+        }
+    }
+
+    /*
+     * Hashes the chunks from a blank state in parallel. Processing k
+     * blocks X1..Xk sequentially turns the state S into
+     * S*H^k + X1*H^k + ... + Xk*H, so each chunk result is added to the
+     * state multiplied by the power of H for the chunk's block count.
+     */
+    private void updateInParallel(byte[] in, int inOfs, int inLen) {
+        int chunk = ParallelChunks.chunkLength(inLen, AES_BLOCK_SIZE);
+        int count = (inLen + chunk - 1) / chunk;
+        long[][] partial = new long[count][2];
+        ParallelChunks.run(count, i -> {
+            int ofs = i * chunk;
+            int blocks = Math.min(chunk, inLen - ofs) / AES_BLOCK_SIZE;
+            processBlocks(in, inOfs + ofs, blocks, partial[i], subkeyH);
+        });
+
+        long[] chunkPower = subkeyPower(chunk / AES_BLOCK_SIZE);
+        for (int i = 0; i < count; i++) {
+            int blocks = Math.min(chunk, inLen - i * chunk) / AES_BLOCK_SIZE;
+            blockMult(state, blocks == chunk / AES_BLOCK_SIZE ?
+                    chunkPower : subkeyPower(blocks));
+            state[0] ^= partial[i][0];
+            state[1] ^= partial[i][1];
+        }
+    }
+
+    // returns H^n for n > 0
+    private long[] subkeyPower(int n) {
+        long[] result = subkeyH.clone();
+        for (int bit = Integer.highestOneBit(n) >>> 1; bit != 0; bit >>>= 1) {
+            blockMult(result, result.clone());
+            if ((n & bit) != 0) {
+                blockMult(result, subkeyH);
+            }
+        }
+        return result;
     }
 
     private static void ghashRangeCheck(byte[] in, int inOfs, int inLen, long[] st, long[] subH) {
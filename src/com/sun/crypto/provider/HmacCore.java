@@ -34,6 +34,8 @@ import javax.crypto.SecretKey;
 import java.security.*;
 import java.security.spec.*;
 
+import sun.security.util.RestorableDigest;
+
 /**
  * This class constitutes the core of HMAC-<MD> algorithms, where
  * <MD> can be SHA1 or MD5, etc. See RFC 2104 for spec.
@@ -52,6 +54,16 @@ abstract class HmacCore extends MacSpi implements Cloneable {
 
     private final int blockLen;
 
+    // whether md can be restored to a saved state
+    private final boolean restorable;
+    // clones of md right after k_ipad and k_opad, which md is restored to
+    // instead of hashing the pads again; saved when a key is used for more
+    // than one MAC, e.g. by PBKDF2
+    private MessageDigest innerState;
+    private MessageDigest outerState;
+    // has a MAC been completed with the current key?
+    private boolean reused;
+
     /**
      * Standard constructor, creates a new HmacCore instance instantiating
      * a MessageDigest of the specified name.
@@ -86,6 +98,9 @@ abstract class HmacCore extends MacSpi implements Cloneable {
         }
         this.md = md;
         this.blockLen = bl;
+        // restoring md from itself leaves it unchanged
+        this.restorable = md instanceof RestorableDigest &&
+                ((RestorableDigest)md).restoreFrom(md);
         this.k_ipad = new byte[blockLen];
         this.k_opad = new byte[blockLen];
         first = true;
@@ -147,9 +162,48 @@ abstract class HmacCore extends MacSpi implements Cloneable {
         Arrays.fill(secret, (byte)0);
         secret = null;
 
+        innerState = null;
+        outerState = null;
+        reused = false;
         engineReset();
     }
 
+    /**
+     * Starts the inner digest with the inner pad.
+     */
+    private void startInner() {
+        if (innerState != null) {
+            ((RestorableDigest)md).restoreFrom(innerState);
+        } else {
+            md.update(k_ipad);
+            if (reused) {
+                innerState = saveState();
+            }
+        }
+    }
+
+    /**
+     * Starts the outer digest with the outer pad.
+     */
+    private void startOuter() {
+        if (outerState != null) {
+            ((RestorableDigest)md).restoreFrom(outerState);
+        } else {
+            md.update(k_opad);
+            if (reused) {
+                outerState = saveState();
+            }
+        }
+    }
+
+    private MessageDigest saveState() {
+        try {
+            return (MessageDigest)md.clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
     /**
      * Processes the given byte.
      *
@@ -158,7 +212,7 @@ abstract class HmacCore extends MacSpi implements Cloneable {
     protected void engineUpdate(byte input) {
         if (first == true) {
             // compute digest for 1st pass; start with inner pad
-            md.update(k_ipad);
+            startInner();
             first = false;
         }
 
@@ -177,7 +231,7 @@ abstract class HmacCore extends MacSpi implements Cloneable {
     protected void engineUpdate(byte input[], int offset, int len) {
         if (first == true) {
             // compute digest for 1st pass; start with inner pad
-            md.update(k_ipad);
+            startInner();
             first = false;
         }
 
@@ -194,7 +248,7 @@ abstract class HmacCore extends MacSpi implements Cloneable {
     protected void engineUpdate(ByteBuffer input) {
         if (first == true) {
             // compute digest for 1st pass; start with inner pad
-            md.update(k_ipad);
+            startInner();
             first = false;
         }
 
@@ -210,7 +264,7 @@ abstract class HmacCore extends MacSpi implements Cloneable {
     protected byte[] engineDoFinal() {
         if (first == true) {
             // compute digest for 1st pass; start with inner pad
-            md.update(k_ipad);
+            startInner();
         } else {
             first = true;
         }
@@ -220,11 +274,12 @@ abstract class HmacCore extends MacSpi implements Cloneable {
             byte[] tmp = md.digest();
 
             // compute digest for 2nd pass; start with outer pad
-            md.update(k_opad);
+            startOuter();
             // add result of 1st hash
             md.update(tmp);
 
             md.digest(tmp, 0, tmp.length);
+            reused = restorable;
             return tmp;
         } catch (DigestException e) {
             // should never occur
@@ -251,6 +306,7 @@ abstract class HmacCore extends MacSpi implements Cloneable {
         copy.md = (MessageDigest) md.clone();
         copy.k_ipad = k_ipad.clone();
         copy.k_opad = k_opad.clone();
+        // innerState and outerState are never modified, so can be shared
         return copy;
     }
 
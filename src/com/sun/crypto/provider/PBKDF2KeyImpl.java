@@ -38,6 +38,7 @@ import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.PBEKeySpec;
 
@@ -64,6 +65,11 @@ final class PBKDF2KeyImpl implements javax.crypto.interfaces.PBEKey {
 
     private Mac prf;
 
+    // the smallest iteration count for which the blocks of a key longer
+    // than one PRF output are derived in parallel, if ParallelChunks is
+    // enabled
+    private static final int MIN_PARALLEL_ITERATIONS = 1000;
+
     private static byte[] getPasswordBytes(char[] passwd) {
         Charset utf8 = Charset.forName("UTF-8");
         CharBuffer cb = CharBuffer.wrap(passwd);
@@ -143,8 +149,6 @@ final class PBKDF2KeyImpl implements javax.crypto.interfaces.PBEKey {
             int hlen = prf.getMacLength();
             int intL = (keyLength + hlen - 1)/hlen; // ceiling
             int intR = keyLength - (intL - 1)*hlen; // residue
-            byte[] ui = new byte[hlen];
-            byte[] ti = new byte[hlen];
             // SecretKeySpec cannot be used, since password can be empty here.
             SecretKey macKey = new SecretKey() {
                 private static final long serialVersionUID = 7874493593505141603L;
@@ -177,29 +181,28 @@ final class PBKDF2KeyImpl implements javax.crypto.interfaces.PBEKey {
             };
             prf.init(macKey);
 
-            byte[] ibytes = new byte[4];
-            for (int i = 1; i <= intL; i++) {
-                prf.update(salt);
-                ibytes[3] = (byte) i;
-                ibytes[2] = (byte) ((i >> 8) & 0xff);
-                ibytes[1] = (byte) ((i >> 16) & 0xff);
-                ibytes[0] = (byte) ((i >> 24) & 0xff);
-                prf.update(ibytes);
-                prf.doFinal(ui, 0);
-                System.arraycopy(ui, 0, ti, 0, ui.length);
-
-                for (int j = 2; j <= iterCount; j++) {
-                    prf.update(ui);
-                    prf.doFinal(ui, 0);
-                    // XOR the intermediate Ui's together.
-                    for (int k = 0; k < ui.length; k++) {
-                        ti[k] ^= ui[k];
+            // The blocks are independent of each other, derive them in
+            // parallel with a clone of prf each if there are several
+            Mac[] prfs = null;
+            if (intL > 1 && iterCount >= MIN_PARALLEL_ITERATIONS &&
+                    ParallelChunks.enabled()) {
+                try {
+                    prfs = new Mac[intL];
+                    prfs[0] = prf;
+                    for (int i = 1; i < intL; i++) {
+                        prfs[i] = (Mac)prf.clone();
                     }
+                } catch (CloneNotSupportedException e) {
+                    prfs = null;
                 }
-                if (i == intL) {
-                    System.arraycopy(ti, 0, key, (i-1)*hlen, intR);
-                } else {
-                    System.arraycopy(ti, 0, key, (i-1)*hlen, hlen);
+            }
+            if (prfs != null) {
+                Mac[] blockPrfs = prfs;
+                ParallelChunks.run(intL, i -> deriveBlock(blockPrfs[i], salt,
+                        iterCount, i + 1, key, intL, intR));
+            } else {
+                for (int i = 1; i <= intL; i++) {
+                    deriveBlock(prf, salt, iterCount, i, key, intL, intR);
                 }
             }
         } catch (GeneralSecurityException gse) {
@@ -208,6 +211,45 @@ final class PBKDF2KeyImpl implements javax.crypto.interfaces.PBEKey {
         return key;
     }
 
+    /**
+     * Computes block i (counting from 1) of the key, the XOR of the
+     * iterCount chained PRF values, into its place in key.
+     */
+    private static void deriveBlock(Mac prf, byte[] salt, int iterCount,
+            int i, byte[] key, int intL, int intR) {
+        int hlen = prf.getMacLength();
+        byte[] ui = new byte[hlen];
+        byte[] ti = new byte[hlen];
+        byte[] ibytes = new byte[4];
+        try {
+            prf.update(salt);
+            ibytes[3] = (byte) i;
+            ibytes[2] = (byte) ((i >> 8) & 0xff);
+            ibytes[1] = (byte) ((i >> 16) & 0xff);
+            ibytes[0] = (byte) ((i >> 24) & 0xff);
+            prf.update(ibytes);
+            prf.doFinal(ui, 0);
+            System.arraycopy(ui, 0, ti, 0, ui.length);
+
+            for (int j = 2; j <= iterCount; j++) {
+                prf.update(ui);
+                prf.doFinal(ui, 0);
+                // XOR the intermediate Ui's together.
+                for (int k = 0; k < ui.length; k++) {
+                    ti[k] ^= ui[k];
+                }
+            }
+        } catch (ShortBufferException sbe) {
+            // not gonna happen, ui is hlen bytes long
+            throw new RuntimeException("Error deriving PBKDF2 keys");
+        }
+        if (i == intL) {
+            System.arraycopy(ti, 0, key, (i-1)*hlen, intR);
+        } else {
+            System.arraycopy(ti, 0, key, (i-1)*hlen, hlen);
+        }
+    }
+
     public byte[] getEncoded() {
         // The key is zeroized by finalize()
         // The reachability fence ensures finalize() isn't called early
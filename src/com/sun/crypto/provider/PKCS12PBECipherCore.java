@@ -59,6 +59,10 @@ final class PKCS12PBECipherCore {
     private static final int DEFAULT_SALT_LENGTH = 20;
     private static final int DEFAULT_COUNT = 1024;
 
+    // the smallest iteration count for which the key and the IV are
+    // derived in parallel, if ParallelChunks is enabled
+    private static final int MIN_PARALLEL_COUNT = 1000;
+
     static final int CIPHER_KEY = 1;
     static final int CIPHER_IV = 2;
     static final int MAC_KEY = 3;
@@ -114,8 +118,10 @@ final class PKCS12PBECipherCore {
                 sha.update(D);
                 sha.update(I);
                 Ai = sha.digest();
-                for (int r = 1; r < ic; r++)
-                    Ai = sha.digest(Ai);
+                for (int r = 1; r < ic; r++) {
+                    sha.update(Ai);
+                    sha.digest(Ai, 0, u);
+                }
                 System.arraycopy(Ai, 0, key, u * i, Math.min(n, u));
                 if (i + 1 == c)
                     break;
@@ -335,16 +341,32 @@ final class PKCS12PBECipherCore {
             throw new InvalidAlgorithmParameterException
                 ("IterationCount must be a positive number");
         }
-        byte[] derivedKey = derive(passwdChars, salt, iCount,
-                                   keySize, CIPHER_KEY);
-        SecretKey cipherKey = new SecretKeySpec(derivedKey, algo);
-
         if (cipherImpl != null && cipherImpl instanceof ARCFOURCipher) {
+            byte[] derivedKey = derive(passwdChars, salt, iCount,
+                                       keySize, CIPHER_KEY);
+            SecretKey cipherKey = new SecretKeySpec(derivedKey, algo);
             ((ARCFOURCipher)cipherImpl).engineInit(opmode, cipherKey, random);
 
         } else {
-            byte[] derivedIv = derive(passwdChars, salt, iCount, 8,
-                                  CIPHER_IV);
+            byte[] derivedKey;
+            byte[] derivedIv;
+            if (iCount >= MIN_PARALLEL_COUNT && ParallelChunks.enabled()) {
+                // the key and the IV are derived independently of each
+                // other, each with iCount iterations
+                char[] chars = passwdChars;
+                byte[][] derived = new byte[2][];
+                ParallelChunks.run(2, i -> derived[i] = (i == 0)
+                        ? derive(chars, salt, iCount, keySize, CIPHER_KEY)
+                        : derive(chars, salt, iCount, 8, CIPHER_IV));
+                derivedKey = derived[0];
+                derivedIv = derived[1];
+            } else {
+                derivedKey = derive(passwdChars, salt, iCount,
+                                    keySize, CIPHER_KEY);
+                derivedIv = derive(passwdChars, salt, iCount, 8,
+                                   CIPHER_IV);
+            }
+            SecretKey cipherKey = new SecretKeySpec(derivedKey, algo);
             IvParameterSpec ivSpec = new IvParameterSpec(derivedIv, 0, 8);
 
             // initialize the underlying cipher
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.crypto.provider;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+import sun.security.action.GetIntegerAction;
+
+/**
+ * Support for processing large inputs of the GCTR, GHASH, ChaCha20 and
+ * Poly1305 functions in independent chunks on the common fork/join pool.
+ * Each user combines the chunk results so that the output is identical
+ * to processing the input sequentially.  The blocks of a PBKDF2 key and
+ * the key and IV of a PKCS#12 PBE cipher, which are derived with many
+ * iterations each, are computed in parallel the same way.
+ *
+ * <p>Splitting is opt-in: only inputs of at least the number of bytes
+ * given by the jdk.crypto.parallelThreshold system property are split,
+ * and the property is not set (0) by default.  The key derivations are
+ * only run in parallel when the property is set.
+ */
+final class ParallelChunks {
+
+    // the smallest input to split, in bytes; 0 if splitting is disabled
+    private static final int THRESHOLD = initThreshold();
+
+    // the smallest chunk worth a task of its own
+    private static final int MIN_CHUNK_LENGTH = 64 * 1024;
+
+    private static int initThreshold() {
+        Integer tmp = GetIntegerAction.privilegedGetProperty(
+                "jdk.crypto.parallelThreshold", 0);
+        if (tmp == null || tmp <= 0) {
+            return 0;
+        }
+        return Math.max(tmp, 2 * MIN_CHUNK_LENGTH);
+    }
+
+    private ParallelChunks() { }
+
+    /**
+     * Returns true if an input of len bytes should be split.
+     */
+    static boolean enabled(int len) {
+        return enabled() && len >= THRESHOLD;
+    }
+
+    /**
+     * Returns true if work may be run in parallel at all, for inputs
+     * that are not measured in bytes.
+     */
+    static boolean enabled() {
+        return THRESHOLD > 0 && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**
+     * Returns the length of the chunks to split len bytes into. It is a
+     * multiple of unit, which must be a power of two.
+     */
+    static int chunkLength(int len, int unit) {
+        int pieces = ForkJoinPool.getCommonPoolParallelism() * 4;
+        int chunk = Math.max(len / pieces, MIN_CHUNK_LENGTH);
+        return chunk & -unit;
+    }
+
+    /**
+     * Runs task for every index in [0, count) in parallel and returns
+     * when all have completed. An exception thrown by a task is rethrown.
+     */
+    static void run(int count, IntConsumer task) {
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[count];
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            tasks[i] = ForkJoinTask.adapt(() -> task.accept(index));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+}
@@ -25,6 +25,7 @@
 
 package com.sun.crypto.provider;
 
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.Key;
 import java.security.InvalidKeyException;
@@ -165,6 +166,12 @@ final class Poly1305 {
                 blockOffset = 0;
             }
         }
+        if (ParallelChunks.enabled(len)) {
+            int blocksLen = len & -BLOCK_LENGTH;
+            processBlocksInParallel(input, offset, blocksLen);
+            offset += blocksLen;
+            len -= blocksLen;
+        }
         while (len >= BLOCK_LENGTH) {
             processBlock(input, offset, BLOCK_LENGTH);
             offset += BLOCK_LENGTH;
@@ -235,6 +242,41 @@ final class Poly1305 {
         a.setProduct(r);                // a = (a * r) % p
     }
 
+    /**
+     * Process whole blocks in chunks that are accumulated in parallel.
+     * Processing k blocks sequentially turns the accumulator a into
+     * a*r^k + h, where h is the accumulator of the same blocks started
+     * at zero, so the chunk accumulators are combined in order that way.
+     */
+    private void processBlocksInParallel(byte[] input, int offset, int len) {
+        int chunk = ParallelChunks.chunkLength(len, BLOCK_LENGTH);
+        int count = (len + chunk - 1) / chunk;
+        IntegerModuloP[] partial = new IntegerModuloP[count];
+        ParallelChunks.run(count, i -> {
+            int ofs = offset + i * chunk;
+            int end = ofs + Math.min(chunk, len - i * chunk);
+            MutableIntegerModuloP h = ipl1305.get0().mutable();
+            MutableIntegerModuloP m = ipl1305.get0().mutable();
+            for (; ofs < end; ofs += BLOCK_LENGTH) {
+                m.setValue(input, ofs, BLOCK_LENGTH, (byte)0x01);
+                h.setSum(m);
+                h.setProduct(r);
+            }
+            partial[i] = h.fixed();
+        });
+
+        IntegerModuloP chunkPower =
+                r.pow(BigInteger.valueOf(chunk / BLOCK_LENGTH));
+        for (int i = 0; i < count; i++) {
+            int blocks = Math.min(chunk, len - i * chunk) / BLOCK_LENGTH;
+            a.setProduct(blocks == chunk / BLOCK_LENGTH ?
+                    chunkPower : r.pow(BigInteger.valueOf(blocks)));
+            a.setSum(partial[i]);
+        }
+        // reduce the last sum, as processBlock leaves a after a product
+        a.setProduct(ipl1305.get1());
+    }
+
     /**
      * Partition the authentication key into the R and S components, clamp
      * the R value, and instantiate IntegerModuloP objects to R and S's
@@ -374,6 +374,23 @@ public class BufferedReader extends Reader {
             ensureOpen();
             boolean omitLF = ignoreLF || skipLF; //忽略换行符（一次）
 
+            /*
+             * 快速路径：缓冲区为空且没有标记时，如果底层是UTF-8/ISO-8859-1/US-ASCII的InputStreamReader，
+             * 直接从其字节缓冲区中扫描出一行ASCII文本，并构造为Latin-1编码的紧凑字符串，不经过解码器和char[]缓冲区。
+             * 遇到非ASCII字节等情形时返回null，此时退回到下面的常规路径。
+             * 只用于InputStreamReader与FileReader本身，子类可能重写了read()（过滤、计数等），不能绕过。
+             */
+            if (nextChar >= nChars && markedChar <= UNMARKED
+                    && (in.getClass() == InputStreamReader.class
+                        || in.getClass() == FileReader.class)) {
+                InputStreamReader isr = (InputStreamReader) in;
+                String line = isr.readAsciiLine(omitLF);
+                if (line != null) {
+                    skipLF = isr.lastLineEndedWithCR();
+                    return line;
+                }
+            }
+
         bufferLoop:
             for (;;) {
 
@@ -196,6 +196,24 @@ public class InputStreamReader extends Reader {
         return sd.ready();
     }
 
+    /**
+     * Reads a line of ASCII text, bypassing the charset decoder; see
+     * {@link StreamDecoder#readAsciiLine}.  Used by BufferedReader.
+     * Returns null, having consumed no input, if the line must be read
+     * through the decoder instead.
+     */
+    String readAsciiLine(boolean omitLF) throws IOException {
+        return sd.readAsciiLine(omitLF);
+    }
+
+    /**
+     * Tells whether the line most recently returned by readAsciiLine was
+     * terminated by a carriage return.
+     */
+    boolean lastLineEndedWithCR() {
+        return sd.lastLineEndedWithCR();
+    }
+
     public void close() throws IOException {
         sd.close();
     }
@@ -57,6 +57,7 @@ import jdk.internal.misc.Unsafe;
 import jdk.internal.reflect.CallerSensitive;
 import jdk.internal.reflect.Reflection;
 import jdk.internal.reflect.ReflectionFactory;
+import jdk.internal.reflect.SerializationFieldAccessorImpl;
 import sun.reflect.misc.ReflectUtil;
 import jdk.internal.misc.SharedSecrets;
 import jdk.internal.misc.JavaSecurityAccess;
@@ -93,6 +94,15 @@ public class ObjectStreamClass implements Serializable {
         AccessController.doPrivileged(
             new ReflectionFactory.GetReflectionFactoryAction());
 
+    /**
+     * value of "jdk.serialGenerateFieldAccessors" property, as true or false
+     * for whether field reflectors spin bytecode-based field accessors
+     */
+    private static final boolean generateFieldAccessors =
+        AccessController.doPrivileged(
+            new sun.security.action.GetBooleanAction(
+                "jdk.serialGenerateFieldAccessors")).booleanValue();
+
     private static class Caches {
         /** cache mapping local classes -> descriptors */
         static final ConcurrentMap<WeakClassKey,Reference<?>> localDescs =
@@ -1940,8 +1950,10 @@ public class ObjectStreamClass implements Serializable {
 
     /**
      * Class for setting and retrieving serializable field values in batch.
+     * If the "jdk.serialGenerateFieldAccessors" property is set, the values
+     * are moved by an accessor class generated for the field layout rather
+     * than by the table-driven loops below.
      */
-    // REMIND: dynamically generate these?
     private static class FieldReflector {
 
         /** handle for performing unsafe operations */
@@ -1961,15 +1973,19 @@ public class ObjectStreamClass implements Serializable {
         private final char[] typeCodes;
         /** field types */
         private final Class<?>[] types;
+        /** generated accessor for the fields, or null if none */
+        private final SerializationFieldAccessorImpl accessor;
 
         /**
          * Constructs FieldReflector capable of setting/getting values from the
          * subset of fields whose ObjectStreamFields contain non-null
          * reflective Field objects.  ObjectStreamFields with null Fields are
          * treated as filler, for which get operations return default values
-         * and set operations discard given values.
+         * and set operations discard given values.  If field accessor
+         * generation is enabled and any field is bound, an accessor is
+         * generated for class cl.
          */
-        FieldReflector(ObjectStreamField[] fields) {
+        FieldReflector(ObjectStreamField[] fields, Class<?> cl) {
             this.fields = fields;
             int nfields = fields.length;
             readKeys = new long[nfields];
@@ -1978,7 +1994,7 @@ public class ObjectStreamClass implements Serializable {
             typeCodes = new char[nfields];
             ArrayList<Class<?>> typeList = new ArrayList<>();
             Set<Long> usedKeys = new HashSet<>();
-
+            boolean bound = false;
 
             for (int i = 0; i < nfields; i++) {
                 ObjectStreamField f = fields[i];
@@ -1993,10 +2009,15 @@ public class ObjectStreamClass implements Serializable {
                 if (!f.isPrimitive()) {
                     typeList.add((rf != null) ? rf.getType() : null);
                 }
+                bound |= (rf != null);
             }
 
             types = typeList.toArray(new Class<?>[typeList.size()]);
             numPrimFields = nfields - types.length;
+            accessor = (generateFieldAccessors && bound && cl != null) ?
+                reflFactory.newFieldAccessorForSerialization(
+                    cl, typeCodes, readKeys, writeKeys, offsets, numPrimFields) :
+                null;
         }
 
         /**
@@ -2018,6 +2039,10 @@ public class ObjectStreamClass implements Serializable {
             if (obj == null) {
                 throw new NullPointerException();
             }
+            if (accessor != null) {
+                accessor.getPrimFieldValues(obj, buf);
+                return;
+            }
             /* assuming checkDefaultSerialize() has been called on the class
              * descriptor this FieldReflector was obtained from, no field keys
              * in array should be equal to Unsafe.INVALID_FIELD_OFFSET.
@@ -2073,6 +2098,10 @@ public class ObjectStreamClass implements Serializable {
             if (obj == null) {
                 throw new NullPointerException();
             }
+            if (accessor != null) {
+                accessor.setPrimFieldValues(obj, buf);
+                return;
+            }
             for (int i = 0; i < numPrimFields; i++) {
                 long key = writeKeys[i];
                 if (key == Unsafe.INVALID_FIELD_OFFSET) {
@@ -2127,6 +2156,10 @@ public class ObjectStreamClass implements Serializable {
             if (obj == null) {
                 throw new NullPointerException();
             }
+            if (accessor != null) {
+                accessor.getObjFieldValues(obj, vals);
+                return;
+            }
             /* assuming checkDefaultSerialize() has been called on the class
              * descriptor this FieldReflector was obtained from, no field keys
              * in array should be equal to Unsafe.INVALID_FIELD_OFFSET.
@@ -2161,6 +2194,12 @@ public class ObjectStreamClass implements Serializable {
          * ClassCastException.
          */
         void setObjFieldValues(Object obj, Object[] vals) {
+            if (accessor != null) {
+                // generated code stores values unchecked
+                setObjFieldValues(obj, vals, true);
+                accessor.setObjFieldValues(obj, vals);
+                return;
+            }
             setObjFieldValues(obj, vals, false);
         }
 
@@ -2248,7 +2287,7 @@ public class ObjectStreamClass implements Serializable {
             entry = ((EntryFuture) entry).get();
         } else if (entry == null) {
             try {
-                entry = new FieldReflector(matchFields(fields, localDesc));
+                entry = new FieldReflector(matchFields(fields, localDesc), cl);
             } catch (Throwable th) {
                 entry = th;
             }
@@ -25,11 +25,18 @@
 
 package java.net;
 
-import java.util.NavigableSet;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Scanner;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.ObjectStreamException;
@@ -41,12 +48,19 @@ import java.io.ObjectOutputStream;
 import java.io.ObjectOutputStream.PutField;
 import java.lang.annotation.Native;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.internal.misc.InnocuousThread;
 import jdk.internal.misc.JavaNetInetAddressAccess;
 import jdk.internal.misc.SharedSecrets;
+import jdk.internal.misc.VM;
 import sun.security.action.*;
 import sun.net.InetAddressCachePolicy;
 import sun.net.util.IPAddressUtil;
@@ -186,6 +200,29 @@ import sun.net.util.IPAddressUtil;
  * </dd>
  * </dl>
  *
+ * <p> The cache holds at most a bounded number of host names; when it is
+ * full, expired and then least recently used entries are removed. A host name
+ * that is looked up again shortly before its successful resolution expires
+ * is resolved again in the background, so that callers keep getting cached
+ * addresses while it is refreshed. Two system properties control this
+ * behavior:
+ *
+ * <dl style="margin-left:2em">
+ * <dt><b>jdk.net.inetaddr.cache.maxSize</b> (default: 4096)</dt>
+ * <dd>The maximum number of host names in the cache. A value of 0 indicates
+ * "unbounded"; expired entries are still removed from time to time. Entries
+ * cached forever are never removed.
+ * </dd>
+ * <dt><b>jdk.net.inetaddr.cache.refreshAhead</b> (default: 5)</dt>
+ * <dd>The number of seconds before a successful lookup expires, but at most
+ * half of its time-to-live, within which a lookup of the host name starts a
+ * refresh. A value of 0 disables refreshing.
+ * </dd>
+ * </dl>
+ *
+ * <p> Host names and addresses are resolved by the operating system, or by
+ * the resolver of an installed {@link java.net.spi.InetAddressResolverProvider}.
+ *
  * @author  Chris Warth
  * @see     java.net.InetAddress#getByAddress(byte[])
  * @see     java.net.InetAddress#getByAddress(java.lang.String, byte[])
@@ -287,8 +324,14 @@ class InetAddress implements java.io.Serializable {
         return holder;
     }
 
-    /* Used to store the name service provider */
-    private static transient NameService nameService = null;
+    /* Used to store the built-in name service */
+    private static transient NameService builtinNameService = null;
+
+    /* Used to store the name service in use, see nameService() */
+    private static transient volatile NameService nameService = null;
+
+    /* Set while the InetAddressResolverProvider is being located */
+    private static boolean loadingNameService;
 
     /**
      * Used to store the best available hostname.
@@ -655,7 +698,7 @@ class InetAddress implements java.io.Serializable {
         String host = null;
             try {
                 // first lookup the hostname
-                host = nameService.getHostByAddr(addr.getAddress());
+                host = nameService().getHostByAddr(addr.getAddress());
 
                 /* check to see if calling code is allowed to know
                  * the hostname for this IP address, ie, connect to the host
@@ -762,14 +805,36 @@ class InetAddress implements java.io.Serializable {
     }
 
     // mapping from host name to Addresses - either NameServiceAddresses (while
-    // still being looked-up by NameService(s)) or CachedAddresses when cached
+    // still being looked-up by NameService(s)) or CachedAddresses when cached.
+    // An expired CachedAddresses is removed when its host name is next looked
+    // up, when the cache grows beyond CACHE_MAX_SIZE entries, or by the purge
+    // run at most every CACHE_PURGE_INTERVAL when a lookup result is cached
     private static final ConcurrentMap<String, Addresses> cache =
         new ConcurrentHashMap<>();
 
-    // CachedAddresses that have to expire are kept ordered in this NavigableSet
-    // which is scanned on each access
-    private static final NavigableSet<CachedAddresses> expirySet =
-        new ConcurrentSkipListSet<>();
+    // the lookups started by getAllByNameAsync that have not completed yet,
+    // by host name
+    private static final ConcurrentMap<String, CompletableFuture<InetAddress[]>>
+        pendingLookups = new ConcurrentHashMap<>();
+
+    // maximum number of host names kept in the cache, 0 means unbounded
+    private static final int CACHE_MAX_SIZE = Math.max(0,
+        GetIntegerAction.privilegedGetProperty("jdk.net.inetaddr.cache.maxSize", 4096));
+
+    // number of seconds before a successful lookup expires within which
+    // looking the host name up again refreshes it in the background,
+    // 0 disables refreshing
+    private static final int CACHE_REFRESH_AHEAD = Math.max(0,
+        GetIntegerAction.privilegedGetProperty("jdk.net.inetaddr.cache.refreshAhead", 5));
+
+    // minimum time between two purges of the expired entries of the cache [ns]
+    private static final long CACHE_PURGE_INTERVAL = TimeUnit.SECONDS.toNanos(30);
+
+    // set while a thread is evicting entries from the cache
+    private static final AtomicBoolean evicting = new AtomicBoolean();
+
+    // time of the next purge of the expired entries (in terms of System.nanoTime())
+    private static volatile long nextPurgeTime = System.nanoTime() + CACHE_PURGE_INTERVAL;
 
     // common interface
     private interface Addresses {
@@ -777,17 +842,26 @@ class InetAddress implements java.io.Serializable {
     }
 
     // a holder for cached addresses with required metadata
-    private static final class CachedAddresses  implements Addresses, Comparable<CachedAddresses> {
-        private static final AtomicLong seq = new AtomicLong();
+    private static final class CachedAddresses implements Addresses {
         final String host;
         final InetAddress[] inetAddresses;
+        final boolean expires; // false when cached forever
         final long expiryTime; // time of expiry (in terms of System.nanoTime())
-        final long id = seq.incrementAndGet(); // each instance is unique
+        final long refreshTime; // time after which a lookup triggers a refresh
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile long lastAccessTime;
 
-        CachedAddresses(String host, InetAddress[] inetAddresses, long expiryTime) {
+        CachedAddresses(String host, InetAddress[] inetAddresses, int cachePolicy) {
+            long now = System.nanoTime();
             this.host = host;
             this.inetAddresses = inetAddresses;
-            this.expiryTime = expiryTime;
+            this.expires = cachePolicy != InetAddressCachePolicy.FOREVER;
+            // cachePolicy is in [s] - we need [ns]
+            this.expiryTime = now + 1000_000_000L * Math.max(cachePolicy, 0);
+            // refresh no earlier than half way through the time to live
+            this.refreshTime = expiryTime - 1000_000_000L *
+                Math.min(CACHE_REFRESH_AHEAD, Math.max(cachePolicy, 0) / 2);
+            this.lastAccessTime = now;
         }
 
         @Override
@@ -798,17 +872,27 @@ class InetAddress implements java.io.Serializable {
             return inetAddresses;
         }
 
-        @Override
-        public int compareTo(CachedAddresses other) {
-            // natural order is expiry time -
-            // compare difference of expiry times rather than
-            // expiry times directly, to avoid possible overflow.
-            // (see System.nanoTime() recommendations...)
-            long diff = this.expiryTime - other.expiryTime;
-            if (diff < 0L) return -1;
-            if (diff > 0L) return 1;
-            // ties are broken using unique id
-            return Long.compare(this.id, other.id);
+        // compare difference of time instants rather than
+        // time instants directly, to avoid possible overflow.
+        // (see System.nanoTime() recommendations...)
+        boolean isExpired(long now) {
+            return expires && (expiryTime - now) < 0L;
+        }
+
+        // Records an access and tells whether the caller should refresh the
+        // addresses: only successful lookups that expire are refreshed, and
+        // only by the first caller after the refresh time
+        boolean accessed(long now) {
+            // avoid writing the shared field on each access of a hot name
+            if (now - lastAccessTime > 1000_000_000L) {
+                lastAccessTime = now;
+            }
+            return expires
+                && inetAddresses != null
+                && CACHE_REFRESH_AHEAD > 0
+                && (refreshTime - now) < 0L
+                && !refreshing.get()
+                && refreshing.compareAndSet(false, true);
         }
     }
 
@@ -857,17 +941,9 @@ class InetAddress implements java.io.Serializable {
                         cache.remove(host, this);
                     } else {
                         CachedAddresses cachedAddresses = new CachedAddresses(
-                            host,
-                            inetAddresses,
-                            cachePolicy == InetAddressCachePolicy.FOREVER
-                            ? 0L
-                            // cachePolicy is in [s] - we need [ns]
-                            : System.nanoTime() + 1000_000_000L * cachePolicy
-                        );
-                        if (cache.replace(host, this, cachedAddresses) &&
-                            cachePolicy != InetAddressCachePolicy.FOREVER) {
-                            // schedule expiry
-                            expirySet.add(cachedAddresses);
+                            host, inetAddresses, cachePolicy);
+                        if (cache.replace(host, this, cachedAddresses)) {
+                            evictEntries();
                         }
                     }
                     if (inetAddresses == null) {
@@ -883,6 +959,112 @@ class InetAddress implements java.io.Serializable {
         }
     }
 
+    /*
+     * Looks up the host name of the given cached addresses again and replaces
+     * them with the result. Runs in the background, before the addresses
+     * expire, so that callers looking up a frequently used host name are
+     * not blocked on the name service each time its addresses expire.
+     * If the lookup fails the current addresses are kept until they expire,
+     * and a later lookup of the host name may start another refresh.
+     */
+    private static void refresh(CachedAddresses caddrs) {
+        try {
+            InetAddress[] inetAddresses = getAddressesFromNameService(caddrs.host, null);
+            int cachePolicy = InetAddressCachePolicy.get();
+            if (cachePolicy != InetAddressCachePolicy.NEVER) {
+                cache.replace(caddrs.host, caddrs,
+                    new CachedAddresses(caddrs.host, inetAddresses, cachePolicy));
+            }
+        } catch (UnknownHostException | RuntimeException e) {
+            // keep the current addresses, the first lookup after they
+            // have expired goes to the name service
+        } finally {
+            caddrs.refreshing.set(false);
+        }
+    }
+
+    /*
+     * Removes entries from the cache once it holds more than CACHE_MAX_SIZE
+     * host names: first the expired ones, then the least recently used ones
+     * until the cache is a tenth below its maximum size, so that eviction
+     * runs once per many insertions. Addresses cached forever are kept.
+     * Independently of the size of the cache, the expired entries are
+     * removed once every CACHE_PURGE_INTERVAL, so that an unbounded cache
+     * does not keep the host names that are never looked up again.
+     */
+    private static void evictEntries() {
+        long now = System.nanoTime();
+        boolean full = CACHE_MAX_SIZE > 0 && cache.size() > CACHE_MAX_SIZE;
+        if ((!full && (nextPurgeTime - now) > 0L)
+                || !evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            nextPurgeTime = now + CACHE_PURGE_INTERVAL;
+            int excess = full
+                ? cache.size() - (CACHE_MAX_SIZE - CACHE_MAX_SIZE / 10)
+                : 0;
+            // the least recently used entries, most recently used at the head
+            PriorityQueue<CachedAddresses> lru = new PriorityQueue<>(
+                Math.max(excess, 1) + 1, new Comparator<CachedAddresses>() {
+                    @Override
+                    public int compare(CachedAddresses a, CachedAddresses b) {
+                        long diff = a.lastAccessTime - b.lastAccessTime;
+                        return diff < 0L ? 1 : (diff > 0L ? -1 : 0);
+                    }
+                });
+            for (Addresses addrs : cache.values()) {
+                if (!(addrs instanceof CachedAddresses)) {
+                    continue;
+                }
+                CachedAddresses caddrs = (CachedAddresses) addrs;
+                if (caddrs.isExpired(now)) {
+                    if (cache.remove(caddrs.host, caddrs)) {
+                        excess--;
+                    }
+                } else if (caddrs.expires && excess > 0) {
+                    lru.add(caddrs);
+                    if (lru.size() > excess) {
+                        lru.poll();
+                    }
+                }
+            }
+            while (excess > 0 && !lru.isEmpty()) {
+                CachedAddresses caddrs = lru.remove();
+                if (cache.remove(caddrs.host, caddrs)) {
+                    excess--;
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /*
+     * The executor that resolves host names for getAllByNameAsync and
+     * refreshes cached addresses, created on first use. Its threads are
+     * daemon threads without permissions that terminate when idle.
+     */
+    private static final class ResolverExecutor {
+        static final ThreadPoolExecutor INSTANCE;
+
+        static {
+            ThreadFactory factory = new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = InnocuousThread.newThread(
+                        "InetAddress-Resolver-" + count.incrementAndGet(), r);
+                    t.setDaemon(true);
+                    return t;
+                }
+            };
+            INSTANCE = new ThreadPoolExecutor(8, 8, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory);
+            INSTANCE.allowCoreThreadTimeOut(true);
+        }
+    }
+
     /**
      * NameService provides host and address lookup service
      *
@@ -1131,7 +1313,7 @@ class InetAddress implements java.io.Serializable {
         impl = InetAddressImplFactory.create();
 
         // create name service
-        nameService = createNameService();
+        builtinNameService = createNameService();
         }
 
     /**
@@ -1162,6 +1344,125 @@ class InetAddress implements java.io.Serializable {
         return theNameService;
     }
 
+    /**
+     * Returns the NameService used for lookups. The first time this method
+     * is called after the VM has booted, it locates an
+     * {@link InetAddressResolverProvider} as specified by that class and,
+     * if one is found, wraps the resolver it provides. Otherwise the
+     * built-in NameService is used. Lookups made while the provider is being
+     * located (e.g. by the provider itself) use the built-in NameService.
+     *
+     * @return the NameService
+     */
+    private static NameService nameService() {
+        NameService ns = nameService;
+        if (ns != null) {
+            return ns;
+        }
+        if (!VM.isBooted()) {
+            return builtinNameService;
+        }
+        synchronized (InetAddressResolverProvider.class) {
+            ns = nameService;
+            if (ns == null) {
+                if (loadingNameService) {
+                    return builtinNameService;
+                }
+                loadingNameService = true;
+                try {
+                    ns = loadNameService();
+                } finally {
+                    loadingNameService = false;
+                }
+                nameService = ns;
+            }
+            return ns;
+        }
+    }
+
+    private static NameService loadNameService() {
+        InetAddressResolverProvider provider = AccessController.doPrivileged(
+            new PrivilegedAction<InetAddressResolverProvider>() {
+                public InetAddressResolverProvider run() {
+                    String cn = System.getProperty(
+                        "java.net.spi.InetAddressResolverProvider");
+                    if (cn != null) {
+                        try {
+                            Object tmp = Class.forName(cn, true,
+                                ClassLoader.getSystemClassLoader())
+                                .getConstructor().newInstance();
+                            return (InetAddressResolverProvider)tmp;
+                        } catch (ReflectiveOperationException |
+                                 ClassCastException | SecurityException x) {
+                            throw new ServiceConfigurationError(null, x);
+                        }
+                    }
+                    Iterator<InetAddressResolverProvider> providers =
+                        ServiceLoader.load(InetAddressResolverProvider.class,
+                                           ClassLoader.getSystemClassLoader())
+                                     .iterator();
+                    return providers.hasNext() ? providers.next() : null;
+                }
+            });
+        if (provider == null) {
+            return builtinNameService;
+        }
+        final NameService builtin = builtinNameService;
+        InetAddressResolver resolver = provider.get(new InetAddressResolver() {
+            public InetAddress[] lookupByName(String host)
+                throws UnknownHostException {
+                return builtin.lookupAllHostAddr(host);
+            }
+            public String lookupByAddress(byte[] addr)
+                throws UnknownHostException {
+                return builtin.getHostByAddr(addr);
+            }
+        });
+        if (resolver == null) {
+            throw new ServiceConfigurationError(
+                provider.name() + " provided a null InetAddressResolver");
+        }
+        return new ResolverNameService(resolver);
+    }
+
+    /**
+     * A NameService that delegates to an {@link InetAddressResolver}
+     * obtained from an {@link InetAddressResolverProvider}.
+     */
+    private static final class ResolverNameService implements NameService {
+        private final InetAddressResolver resolver;
+
+        ResolverNameService(InetAddressResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        public InetAddress[] lookupAllHostAddr(String host)
+            throws UnknownHostException
+        {
+            InetAddress[] addresses = resolver.lookupByName(host);
+            if (addresses == null || addresses.length == 0) {
+                throw new UnknownHostException(host);
+            }
+            addresses = addresses.clone();
+            for (InetAddress address : addresses) {
+                if (address == null) {
+                    throw new UnknownHostException(host);
+                }
+            }
+            return addresses;
+        }
+
+        public String getHostByAddr(byte[] addr)
+            throws UnknownHostException
+        {
+            String host = resolver.lookupByAddress(addr.clone());
+            if (host == null) {
+                throw new UnknownHostException();
+            }
+            return host;
+        }
+    }
+
     /**
      * Creates an InetAddress based on the provided host name and IP address.
      * No name service is checked for the validity of the address.
@@ -1297,6 +1598,87 @@ class InetAddress implements java.io.Serializable {
         return getAllByName(host, null);
     }
 
+    /**
+     * Asynchronously looks up all the IP addresses of a host, given the
+     * host's name.
+     *
+     * <p> The result is the same as that of {@link #getAllByName(String)},
+     * but the calling thread never waits for the name service: if {@code host}
+     * is {@code null}, empty or an IP address literal, or if its addresses are
+     * cached, the returned future is already completed; otherwise the lookup
+     * is performed by a background thread, and concurrent lookups of the same
+     * host name share a single background lookup. Each returned future is
+     * distinct, and completes with its own copy of the array.
+     *
+     * <p> If there is a security manager, its {@code checkConnect} method is
+     * called in the calling thread, with the host name and {@code -1} as its
+     * arguments, before the lookup starts.
+     *
+     * @param      host   the name of the host, or {@code null}.
+     * @return     a {@code CompletableFuture} that completes with an array of
+     *             all the IP addresses for the given host name, or
+     *             completes exceptionally with an {@link UnknownHostException}
+     *             if no IP address for the {@code host} could be found, or if
+     *             a scope_id was specified for a global IPv6 address.
+     * @exception  SecurityException  if a security manager exists and its
+     *               {@code checkConnect} method doesn't allow the operation.
+     *
+     * @see #getAllByName(String)
+     * @since 11
+     */
+    public static CompletableFuture<InetAddress[]> getAllByNameAsync(String host) {
+        if (host == null || host.isEmpty()
+            || host.charAt(0) == '['
+            || IPAddressUtil.isIPv4LiteralAddress(host)
+            || IPAddressUtil.isIPv6LiteralAddress(host)) {
+            // no lookup needed
+            try {
+                return CompletableFuture.completedFuture(getAllByName(host));
+            } catch (UnknownHostException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        SecurityManager security = System.getSecurityManager();
+        if (security != null) {
+            security.checkConnect(host, -1);
+        }
+        Addresses addrs = cache.get(host);
+        if (addrs instanceof CachedAddresses
+            && !((CachedAddresses) addrs).isExpired(System.nanoTime())) {
+            try {
+                // already checked, also records the access
+                return CompletableFuture.completedFuture(
+                    getAllByName0(host, null, false, true));
+            } catch (UnknownHostException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        CompletableFuture<InetAddress[]> cf = new CompletableFuture<>();
+        CompletableFuture<InetAddress[]> pending = pendingLookups.putIfAbsent(host, cf);
+        if (pending == null) {
+            pending = cf;
+            ResolverExecutor.INSTANCE.execute(() -> {
+                try {
+                    cf.complete(getAllByName0(host, null, false, true));
+                } catch (Throwable t) {
+                    cf.completeExceptionally(t);
+                } finally {
+                    pendingLookups.remove(host, cf);
+                }
+            });
+        }
+        // callers can neither complete the shared future nor see each other's array
+        CompletableFuture<InetAddress[]> result = new CompletableFuture<>();
+        pending.whenComplete((addresses, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(addresses.clone());
+            }
+        });
+        return result;
+    }
+
     private static InetAddress[] getAllByName(String host, InetAddress reqAddr)
         throws UnknownHostException {
 
@@ -1453,39 +1835,23 @@ class InetAddress implements java.io.Serializable {
             }
         }
 
-        // remove expired addresses from cache - expirySet keeps them ordered
-        // by expiry time so we only need to iterate the prefix of the NavigableSet...
-        long now = System.nanoTime();
-        for (CachedAddresses caddrs : expirySet) {
-            // compare difference of time instants rather than
-            // time instants directly, to avoid possible overflow.
-            // (see System.nanoTime() recommendations...)
-            if ((caddrs.expiryTime - now) < 0L) {
-                // ConcurrentSkipListSet uses weakly consistent iterator,
-                // so removing while iterating is OK...
-                if (expirySet.remove(caddrs)) {
-                    // ... remove from cache
-                    cache.remove(caddrs.host, caddrs);
-                }
-            } else {
-                // we encountered 1st element that expires in future
-                break;
-            }
-        }
-
         // look-up or remove from cache
         Addresses addrs;
         if (useCache) {
             addrs = cache.get(host);
-        } else {
-            addrs = cache.remove(host);
-            if (addrs != null) {
-                if (addrs instanceof CachedAddresses) {
-                    // try removing from expirySet too if CachedAddresses
-                    expirySet.remove(addrs);
+            if (addrs instanceof CachedAddresses) {
+                CachedAddresses caddrs = (CachedAddresses) addrs;
+                long now = System.nanoTime();
+                if (caddrs.isExpired(now)) {
+                    cache.remove(host, caddrs);
+                    addrs = null;
+                } else if (caddrs.accessed(now)) {
+                    ResolverExecutor.INSTANCE.execute(() -> refresh(caddrs));
                 }
-                addrs = null;
             }
+        } else {
+            cache.remove(host);
+            addrs = null;
         }
 
         if (addrs == null) {
@@ -1511,7 +1877,7 @@ class InetAddress implements java.io.Serializable {
         UnknownHostException ex = null;
 
             try {
-                addresses = nameService.lookupAllHostAddr(host);
+                addresses = nameService().lookupAllHostAddr(host);
             } catch (UnknownHostException uhe) {
                 if (host.equalsIgnoreCase("localhost")) {
                     addresses = new InetAddress[] { impl.loopbackAddress() };
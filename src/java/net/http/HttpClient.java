@@ -347,6 +347,30 @@ public abstract class HttpClient {
          */
         public Builder authenticator(Authenticator authenticator);
 
+        /**
+         * Sets the number of selector threads that perform the network I/O
+         * of clients built by this builder. Each thread owns a selector and
+         * a share of the client's connections; all the I/O events of a given
+         * connection are handled by the same thread.
+         *
+         * @implSpec The default implementation of this method throws
+         * {@code UnsupportedOperationException}. Builders obtained through
+         * {@link HttpClient#newBuilder()} implement this method.
+         *
+         * @implNote If this method is not invoked prior to {@linkplain
+         * #build() building}, the number of selector threads is taken from
+         * the {@code jdk.httpclient.selectorThreads} networking property,
+         * and defaults to {@code 1}.
+         *
+         * @param threads the number of selector threads
+         * @return this builder
+         * @throws IllegalArgumentException if {@code threads} is less than
+         *         {@code 1}
+         */
+        default Builder selectorThreads(int threads) {
+            throw new UnsupportedOperationException();
+        }
+
         /**
          * Returns a new {@link HttpClient} built from the current state of this
          * builder.
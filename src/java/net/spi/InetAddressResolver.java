@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.net.spi;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * A resolver of host names and IP addresses, as used by {@link InetAddress}
+ * for forward and reverse lookups.
+ *
+ * <p> A resolver is obtained from an {@link InetAddressResolverProvider}.
+ * Results of {@link #lookupByName(String) lookupByName} are cached by
+ * {@code InetAddress} according to its caching policy; a resolver need not
+ * implement caching itself.
+ *
+ * <p> A resolver may be invoked concurrently from multiple threads, including
+ * threads internal to {@code InetAddress} that resolve names asynchronously or
+ * refresh cached names in the background.
+ *
+ * @since 11
+ */
+public interface InetAddressResolver {
+
+    /**
+     * Looks up the IP addresses of the given host name.
+     *
+     * @param host the host name, which is neither {@code null}, empty nor
+     *             an IP address literal
+     * @return a non-empty array of IP addresses for the host
+     * @throws UnknownHostException if no IP address for the host could be found
+     */
+    InetAddress[] lookupByName(String host) throws UnknownHostException;
+
+    /**
+     * Looks up the host name of the given IP address.
+     *
+     * @param addr the IP address in network byte order, 4 bytes long for an
+     *             IPv4 address and 16 bytes long for an IPv6 address
+     * @return the host name
+     * @throws UnknownHostException if no host name for the address could be found
+     */
+    String lookupByAddress(byte[] addr) throws UnknownHostException;
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.net.spi;
+
+/**
+ * Service-provider class for {@linkplain InetAddressResolver resolvers} used
+ * by {@link java.net.InetAddress}.
+ *
+ * <p> An {@code InetAddress} resolver provider is a concrete subclass of this
+ * class that has a zero-argument constructor. The provider is located the
+ * first time {@code InetAddress} needs to look up a host name or address:
+ *
+ * <ol>
+ *   <li> If the system property {@code java.net.spi.InetAddressResolverProvider}
+ *   is defined then it is taken to be the fully-qualified name of a concrete
+ *   provider class, which is loaded and instantiated using the system class
+ *   loader. </li>
+ *   <li> Otherwise, the provider is located with {@link java.util.ServiceLoader}
+ *   using the system class loader: it identifies itself with a
+ *   provider-configuration file named
+ *   {@code java.net.spi.InetAddressResolverProvider} in the resource directory
+ *   {@code META-INF/services}. The first provider found is used. </li>
+ *   <li> Otherwise, the built-in resolver is used. </li>
+ * </ol>
+ *
+ * <p> A provider that only wants to intercept some lookups may delegate the
+ * others to the built-in resolver, which is passed to {@link #get}.
+ *
+ * @since 11
+ */
+public abstract class InetAddressResolverProvider {
+
+    private static Void checkPermission() {
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null)
+            sm.checkPermission(new RuntimePermission("inetAddressResolverProvider"));
+        return null;
+    }
+    private InetAddressResolverProvider(Void ignore) { }
+
+    /**
+     * Initializes a new {@code InetAddress} resolver provider.
+     *
+     * @throws  SecurityException
+     *          If a security manager has been installed and it denies
+     *          {@link RuntimePermission}{@code ("inetAddressResolverProvider")}.
+     */
+    protected InetAddressResolverProvider() {
+        this(checkPermission());
+    }
+
+    /**
+     * Returns the resolver to be used by {@code InetAddress}. This method is
+     * invoked once, when the provider is installed.
+     *
+     * @param builtinResolver the built-in resolver, which resolves names with
+     *        the hosts file named by the {@code jdk.net.hosts.file} system
+     *        property if it is set, or with the operating system otherwise
+     * @return the resolver, not {@code null}
+     */
+    public abstract InetAddressResolver get(InetAddressResolver builtinResolver);
+
+    /**
+     * Returns the name of this provider, used for diagnostics.
+     *
+     * @return the name of this provider
+     */
+    public abstract String name();
+}
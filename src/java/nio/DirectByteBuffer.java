@@ -148,6 +148,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     /*▼ 创建新缓冲区，新旧缓冲区共享内部的存储容器 ████████████████████████████████████████████████████████████████████████████████┓ */
     
     public ByteBuffer slice() {
+        viewCreated();
         int pos = this.position();
         int lim = this.limit();
         assert (pos <= lim);
@@ -158,6 +159,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     }
     
     public ByteBuffer slice(int pos, int lim) {
+        viewCreated();
         assert (pos >= 0);
         assert (pos <= lim);
         int rem = lim - pos;
@@ -165,10 +167,12 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     }
     
     public ByteBuffer duplicate() {
+        viewCreated();
         return new DirectByteBuffer(this, this.markValue(), this.position(), this.limit(), this.capacity(), 0);
     }
     
     public ByteBuffer asReadOnlyBuffer() {
+        viewCreated();
         return new DirectByteBufferR(this, this.markValue(), this.position(), this.limit(), this.capacity(), 0);
     }
     
@@ -588,6 +592,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     /*▼ asXXXBuffer ████████████████████████████████████████████████████████████████████████████████┓ */
     
     public CharBuffer asCharBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -606,6 +611,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     }
     
     public ShortBuffer asShortBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -624,6 +630,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     }
     
     public IntBuffer asIntBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -642,6 +649,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     }
     
     public LongBuffer asLongBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -660,6 +668,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     }
     
     public FloatBuffer asFloatBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -678,6 +687,7 @@ class DirectByteBuffer extends MappedByteBuffer implements DirectBuffer {
     }
     
     public DoubleBuffer asDoubleBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
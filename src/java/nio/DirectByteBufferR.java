@@ -73,6 +73,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     /*▼ 创建新缓冲区，新旧缓冲区共享内部的存储容器 ████████████████████████████████████████████████████████████████████████████████┓ */
     
     public ByteBuffer slice() {
+        viewCreated();
         int pos = this.position();
         int lim = this.limit();
         assert (pos <= lim);
@@ -83,6 +84,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     }
     
     public ByteBuffer slice(int pos, int lim) {
+        viewCreated();
         assert (pos >= 0);
         assert (pos <= lim);
         int rem = lim - pos;
@@ -90,6 +92,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     }
     
     public ByteBuffer duplicate() {
+        viewCreated();
         return new DirectByteBufferR(this, this.markValue(), this.position(), this.limit(), this.capacity(), 0);
     }
     
@@ -198,6 +201,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     /*▼ asXXXBuffer ████████████████████████████████████████████████████████████████████████████████┓ */
     
     public CharBuffer asCharBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -216,6 +220,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     }
     
     public ShortBuffer asShortBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -234,6 +239,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     }
     
     public IntBuffer asIntBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -252,6 +258,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     }
     
     public LongBuffer asLongBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -270,6 +277,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     }
     
     public FloatBuffer asFloatBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -288,6 +296,7 @@ class DirectByteBufferR extends DirectByteBuffer implements DirectBuffer {
     }
     
     public DoubleBuffer asDoubleBuffer() {
+        viewCreated();
         int off = this.position();
         int lim = this.limit();
         assert (off <= lim);
@@ -29,6 +29,10 @@ import jdk.internal.misc.Unsafe;
 
 import java.io.FileDescriptor;
 import java.lang.ref.Reference;
+import java.util.Objects;
+
+import jdk.internal.ref.Cleaner;
+import sun.nio.ch.DirectBuffer;
 
 /**
  * A direct byte buffer whose content is a memory-mapped region of a file.
@@ -39,7 +43,8 @@ import java.lang.ref.Reference;
  * memory-mapped file regions.
  *
  * <p> A mapped byte buffer and the file mapping that it represents remain
- * valid until the buffer itself is garbage-collected.
+ * valid until the buffer itself is garbage-collected, or until the mapping
+ * is released explicitly by invoking {@link #unmap unmap}.
  *
  * <p> The content of a mapped byte buffer can change at any time, for example
  * if the content of the corresponding region of the mapped file is changed by
@@ -77,6 +82,9 @@ public abstract class MappedByteBuffer extends ByteBuffer {
     // For mapped buffers, a FileDescriptor that may be used for mapping operations if valid; null if the buffer is not mapped.
     private final FileDescriptor fd;
     
+    // Whether a slice, duplicate or view sharing the content of this buffer has been created; if so the mapping may not be released by unmap()
+    private volatile boolean hasViews;
+    
     
     
     // This should only be invoked by the DirectByteBuffer constructors
@@ -226,10 +234,126 @@ public abstract class MappedByteBuffer extends ByteBuffer {
         return this;
     }
     
+    /**
+     * Forces any changes made to a region of this buffer's content to be
+     * written to the storage device containing the mapped file.  The region
+     * starts at the given {@code index} in this buffer and is {@code length}
+     * bytes.
+     *
+     * <p> If the file mapped into this buffer resides on a local storage
+     * device then when this method returns it is guaranteed that all changes
+     * made to the buffer since it was created, or since this method was last
+     * invoked, will have been written to that device. The force operation is
+     * of page granularity: the region is widened to the enclosing pages, so
+     * changes to bytes adjacent to the region may be written too.
+     *
+     * <p> If the file does not reside on a local device then no such guarantee
+     * is made.
+     *
+     * <p> If this buffer was not mapped in read/write mode ({@link
+     * java.nio.channels.FileChannel.MapMode#READ_WRITE}) then invoking this
+     * method has no effect. </p>
+     *
+     * @param index
+     *        The index of the first byte in the buffer region that is
+     *        to be written back to storage; must be non-negative
+     *        and less than limit()
+     *
+     * @param length
+     *        The length of the region in bytes; must be non-negative
+     *        and no larger than limit() - index
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the preconditions on the index and length do not
+     *         hold.
+     *
+     * @return This buffer
+     *
+     * @since 11
+     */
+    /*
+     * 只将[index, index+length)范围内的更改应用到磁盘存储器上，范围会被扩展到所在的整页。
+     * 对于只追加写入的大文件，每次只需刷新新写入的部分，而不必刷新整个映射区域。
+     */
+    public final MappedByteBuffer force(int index, int length) {
+        if(fd == null) {
+            return this;
+        }
+        if((address != 0) && (limit() != 0)) {
+            // check inputs
+            Objects.checkFromIndexSize(index, length, limit());
+            long offset = mappingOffset(index);
+            force0(fd, mappingAddress(offset, index), mappingLength(offset, length));
+        }
+        return this;
+    }
+    
     /*▲ 加载文件 ████████████████████████████████████████████████████████████████████████████████┛ */
     
     
     
+    /*▼ 解除映射 ████████████████████████████████████████████████████████████████████████████████┓ */
+    
+    /**
+     * Releases the file mapping of this buffer without waiting for the buffer
+     * to be garbage-collected.
+     *
+     * <p> Upon return this buffer has a capacity, limit and position of zero,
+     * so that any further attempt to access its content through it fails
+     * with an exception.  This method may be invoked only on a buffer
+     * returned by {@link java.nio.channels.FileChannel#map FileChannel.map},
+     * and only if no slice, duplicate, read-only copy or view buffer has
+     * been created from it, since those could not be invalidated.  Invoking
+     * it more than once has no further effect.
+     *
+     * <p> <b>This method is unsafe.</b>  The mapping is released at once,
+     * with no coordination with other threads: if another thread accesses
+     * this buffer concurrently with, or after, the release, and has not yet
+     * observed its new capacity, then the behavior is unspecified and the
+     * virtual machine may crash.  The caller must ensure that the buffer is
+     * confined to the invoking thread, or otherwise no longer in use, when
+     * this method is invoked.
+     *
+     * @throws UnsupportedOperationException
+     *         If this buffer is not a buffer returned by {@code FileChannel.map}
+     *
+     * @throws IllegalStateException
+     *         If a buffer sharing the content of this buffer has been created
+     *
+     * @since 11
+     */
+    /*
+     * 主动解除映射，不必等待缓冲区被GC后由清理器解除映射。
+     * 先将当前缓冲区的容量清零，使后续的访问抛出异常，然后立即执行清理器（即FileChannelImpl中的Unmapper）。
+     * 注：由当前缓冲区派生出的切片/副本/视图无法失效，因此派生过缓冲区的映射不允许主动解除；
+     * 解除映射时不与其他线程同步，调用者需保证此时没有其他线程在访问该缓冲区。
+     */
+    public final void unmap() {
+        DirectBuffer db = (DirectBuffer) this;
+        if(fd == null || db.attachment() != null) {
+            throw new UnsupportedOperationException("Not a buffer returned by FileChannel.map");
+        }
+        if(hasViews) {
+            throw new IllegalStateException("Buffers sharing the mapping have been created");
+        }
+        Cleaner cleaner = db.cleaner();
+        truncate();
+        if(cleaner != null) {
+            cleaner.clean();
+        }
+    }
+    
+    // Invoked by the direct buffer implementations whenever a buffer sharing the content of this buffer is created
+    final void viewCreated() {
+        if(fd != null && !hasViews) {
+            hasViews = true;
+        }
+    }
+    
+    /*▲ 解除映射 ████████████████████████████████████████████████████████████████████████████████┛ */
+    
+    
+    
     /*▼ 标记操作 ████████████████████████████████████████████████████████████████████████████████┓ */
     
     /**
@@ -314,14 +438,33 @@ public abstract class MappedByteBuffer extends ByteBuffer {
         return (offset >= 0) ? offset : (ps + offset);
     }
     
+    // Returns the distance (in bytes) of the buffer element identified by index from the page aligned address of the mapping.
+    private long mappingOffset(int index) {
+        int ps = Bits.pageSize();
+        long indexAddress = address + index;
+        long offset = indexAddress % ps;
+        return (offset >= 0) ? offset : (ps + offset);
+    }
+    
     private long mappingAddress(long mappingOffset) {
         return address - mappingOffset;
     }
     
+    // Returns the page aligned address of the mapping that contains the buffer element identified by index.
+    private long mappingAddress(long mappingOffset, long index) {
+        long indexAddress = address + index;
+        return indexAddress - mappingOffset;
+    }
+    
     private long mappingLength(long mappingOffset) {
         return (long) capacity() + mappingOffset;
     }
     
+    // Returns the length of the region, extended back to the page aligned address given by the mapping offset.
+    private long mappingLength(long mappingOffset, long length) {
+        return length + mappingOffset;
+    }
+    
     private native boolean isLoaded0(long address, long length, int pageCount);
     
     private native void load0(long address, long length);
@@ -226,6 +226,15 @@ import java.util.Objects;
  * Calling {@link SecureRandom#generateSeed(int)} will directly read
  * from this system default entropy source.
  * <p>
+ * If {@code securerandom.drbg.config} contains {@code per_thread}, each
+ * thread calling {@code nextBytes} or {@code reseed} on a DRBG
+ * {@code SecureRandom} object uses its own DRBG instance, so that threads
+ * sharing the object do not wait for each other. These instances have the
+ * same mechanism, algorithm, strength, capability and personalization
+ * string as the object, get their own nonce, and are seeded by a master
+ * instance that reads the system default entropy source (which is read
+ * directly when prediction resistance is requested).
+ * <p>
  * This implementation has passed all tests included in the 20151104 version of
  * <a href="http://csrc.nist.gov/groups/STM/cavp/documents/drbg/drbgtestvectors.zip">
  * The DRBG Test Vectors</a>.
@@ -32,6 +32,7 @@ import java.nio.ByteBuffer;
 
 import sun.security.util.Debug;
 import sun.security.util.MessageDigestSpi2;
+import sun.security.util.RestorableDigest;
 
 import javax.crypto.SecretKey;
 
@@ -564,7 +565,8 @@ public abstract class MessageDigest extends MessageDigestSpi {
      * and its original parent (Object).
      */
 
-    static class Delegate extends MessageDigest implements MessageDigestSpi2 {
+    static class Delegate extends MessageDigest
+            implements MessageDigestSpi2, RestorableDigest {
 
         // The provider implementation (delegate)
         private MessageDigestSpi digestSpi;
@@ -637,5 +639,19 @@ public abstract class MessageDigest extends MessageDigestSpi {
         protected void engineReset() {
             digestSpi.engineReset();
         }
+
+        public boolean restoreFrom(Object saved) {
+            if (!(saved instanceof Delegate) ||
+                    !(digestSpi instanceof RestorableDigest)) {
+                return false;
+            }
+            MessageDigest that = (MessageDigest)saved;
+            if (!((RestorableDigest)digestSpi).restoreFrom(
+                    ((Delegate)saved).digestSpi)) {
+                return false;
+            }
+            ((MessageDigest)this).state = that.state;
+            return true;
+        }
     }
 }
@@ -917,6 +917,7 @@ public abstract class Provider extends Properties {
         }
 
         legacyChanged = true;
+        sun.security.jca.ServiceCache.servicesChanged();
         if (legacyStrings == null) {
             legacyStrings = new LinkedHashMap<>();
         }
@@ -980,6 +981,7 @@ public abstract class Provider extends Properties {
     private void implReplaceAll(BiFunction<? super Object, ? super Object,
             ? extends Object> function) {
         legacyChanged = true;
+        sun.security.jca.ServiceCache.servicesChanged();
         if (legacyStrings == null) {
             legacyStrings = new LinkedHashMap<>();
         } else {
@@ -1074,6 +1076,7 @@ public abstract class Provider extends Properties {
         legacyChanged = false;
         servicesChanged = false;
         serviceSet = null;
+        sun.security.jca.ServiceCache.servicesChanged();
         super.clear();
         putId();
     }
@@ -1349,6 +1352,7 @@ public abstract class Provider extends Properties {
             serviceMap = new LinkedHashMap<>();
         }
         servicesChanged = true;
+        sun.security.jca.ServiceCache.servicesChanged();
         String type = s.getType();
         String algorithm = s.getAlgorithm();
         ServiceKey key = new ServiceKey(type, algorithm, true);
@@ -1448,6 +1452,7 @@ public abstract class Provider extends Properties {
             return;
         }
         servicesChanged = true;
+        sun.security.jca.ServiceCache.servicesChanged();
         serviceMap.remove(key);
         for (String alias : s.getAliases()) {
             serviceMap.remove(new ServiceKey(type, alias, false));
@@ -41,6 +41,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.BadPaddingException;
 import javax.crypto.NoSuchPaddingException;
 
+import sun.security.util.BatchVerifier;
 import sun.security.util.Debug;
 import sun.security.jca.*;
 import sun.security.jca.GetInstance.Instance;
@@ -727,6 +728,48 @@ public abstract class Signature extends SignatureSpi {
                                      "verification");
     }
 
+    /**
+     * Verifies many independent signatures of the specified algorithm,
+     * e.g. the certificate signatures of a burst of TLS handshakes.
+     *
+     * <p> The entries are verified in parallel using the common
+     * {@link java.util.concurrent.ForkJoinPool ForkJoinPool}. Consecutive
+     * entries with the same key share a {@code Signature} object that is
+     * initialized once, so a batch ordered by key (e.g. all certificates
+     * issued by the same CA next to each other) avoids most of the key
+     * setup. Each signature is verified on its own, so the result for an
+     * entry is the same as verifying it with a new {@code Signature}
+     * object.
+     *
+     * @param algorithm the standard name of the signature algorithm.
+     * See the Signature section in the <a href=
+     * "{@docRoot}/../specs/security/standard-names.html#signature-algorithms">
+     * Java Security Standard Algorithm Names Specification</a>
+     * for information about standard algorithm names.
+     * @param keys the public key of each entry.
+     * @param data the signed data of each entry.
+     * @param signatures the signature of each entry.
+     *
+     * @return whether the signature of each entry was verified. An entry
+     * whose key is inappropriate or whose signature is improperly encoded
+     * is not verified.
+     *
+     * @exception NoSuchAlgorithmException if no {@code Provider} supports
+     * a {@code Signature} implementation for the specified algorithm.
+     * @exception IllegalArgumentException if the arrays do not have the
+     * same length.
+     * @exception NullPointerException if {@code algorithm} or any of
+     * the arrays or their elements is {@code null}.
+     *
+     * @since 11
+     */
+    public static boolean[] verifyBatch(String algorithm, PublicKey[] keys,
+            byte[][] data, byte[][] signatures)
+            throws NoSuchAlgorithmException {
+        return BatchVerifier.getInstance(algorithm)
+                .verify(keys, data, signatures);
+    }
+
     /**
      * Updates the data to be signed or verified by a byte.
      *
@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.logging;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@code Handler} that hands {@code LogRecords} to a background thread,
+ * which publishes them to a target {@code Handler}.
+ * <p>
+ * Publishing a record only stores it into a preallocated, lock-free ring
+ * buffer; the calling thread neither formats the record nor waits for any
+ * I/O.  A single writer thread drains the buffer and passes the records to
+ * the target in batches.  {@link StreamHandler} targets (which includes
+ * {@link FileHandler}, {@link ConsoleHandler} and {@link SocketHandler})
+ * format a whole batch and write it to their output stream with a single
+ * write, flushing once per batch.
+ * <p>
+ * When the buffer is full, an incoming record is dealt with according to
+ * the {@linkplain OverflowPolicy overflow policy}.  The number of records
+ * published, dropped and written can be queried for monitoring.
+ * <p>
+ * Since records are published on another thread, the source class and
+ * method name of each record are inferred before it is buffered.
+ * <p>
+ * <b>Configuration:</b>
+ * By default each {@code AsyncHandler} is initialized using the following
+ * {@code LogManager} configuration properties where {@code <handler-name>}
+ * refers to the fully-qualified class name of the handler.
+ * If properties are not defined
+ * (or have invalid values) then the specified default values are used.
+ * If no default value is defined then a RuntimeException is thrown.
+ * <ul>
+ * <li>   &lt;handler-name&gt;.level
+ *        specifies the level for the {@code Handler}
+ *        (defaults to {@code Level.ALL}). </li>
+ * <li>   &lt;handler-name&gt;.filter
+ *        specifies the name of a {@code Filter} class to use
+ *        (defaults to no {@code Filter}). </li>
+ * <li>   &lt;handler-name&gt;.target
+ *        specifies the name of the target {@code Handler } class.
+ *        (no default). </li>
+ * <li>   &lt;handler-name&gt;.capacity
+ *        defines the buffer capacity, rounded up to a power of two
+ *        (defaults to 8192). </li>
+ * <li>   &lt;handler-name&gt;.batchSize
+ *        defines the maximum number of records published to the target
+ *        at once (defaults to 256). </li>
+ * <li>   &lt;handler-name&gt;.overflow
+ *        specifies the overflow policy, one of {@code BLOCK}, {@code DROP}
+ *        or {@code SAMPLE} (defaults to {@code BLOCK}). </li>
+ * <li>   &lt;handler-name&gt;.sampleRate
+ *        for the {@code SAMPLE} policy, keep one record out of this many
+ *        (defaults to 10). </li>
+ * </ul>
+ * <p>
+ * For example, to make the output of a {@code FileHandler} asynchronous:
+ * <ul>
+ * <li>   handlers=java.util.logging.AsyncHandler </li>
+ * <li>   java.util.logging.AsyncHandler.target=java.util.logging.FileHandler </li>
+ * <li>   java.util.logging.AsyncHandler.overflow=DROP </li>
+ * </ul>
+ * The target is itself configured from its own properties, as usual.
+ *
+ * @since 11
+ */
+
+public class AsyncHandler extends Handler {
+    private final static int DEFAULT_CAPACITY = 8192;
+    private final static int DEFAULT_BATCH_SIZE = 256;
+    private final static int DEFAULT_SAMPLE_RATE = 10;
+
+    // how long producers wait when the buffer is full
+    private final static long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // longest the idle writer sleeps; producers wake it up when they store a record
+    private final static long IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // set in tail once the handler is closed, after which no sequence can be claimed
+    private final static long CLOSED = 1L << 62;
+
+    /**
+     * What to do with a record published while the buffer is full.
+     *
+     * @since 11
+     */
+    public enum OverflowPolicy {
+        /**
+         * The publishing thread waits until there is room in the buffer.
+         * No record is lost.
+         */
+        BLOCK,
+
+        /**
+         * The record is dropped.
+         */
+        DROP,
+
+        /**
+         * Once the buffer is three quarters full, only one record out of
+         * every {@code sampleRate} is kept, the others are dropped; records
+         * are dropped outright when the buffer is full.  This keeps a
+         * representative trace of a burst while letting the writer catch up.
+         */
+        SAMPLE
+    }
+
+    private final Handler target;
+    private final OverflowPolicy overflow;
+    private final int batchSize;
+    private final int sampleRate;
+
+    /*
+     * Bounded multi-producer ring buffer.  Each slot carries a sequence
+     * number: slot i is free for the producer claiming sequence s when its
+     * sequence equals s, and holds a record for the consumer when it equals
+     * s + 1.  Once consumed, it is released for sequence s + capacity.
+     * Closing sets the CLOSED bit in tail: every sequence claimed before
+     * is still written to the target, and no sequence is claimed after.
+     */
+    private final LogRecord[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // next sequence to claim, | CLOSED
+    private volatile long head;                         // next sequence to consume
+    private volatile long written;                      // sequences passed to the target
+
+    private final Thread writer;
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+
+    // statistics
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private volatile long batchCount;
+
+    /**
+     * Create an {@code AsyncHandler} and configure it based on
+     * {@code LogManager} configuration properties.
+     */
+    public AsyncHandler() {
+        // configure with specific defaults for AsyncHandler
+        super(Level.ALL, new SimpleFormatter(), null);
+
+        LogManager manager = LogManager.getLogManager();
+        String cname = getClass().getName();
+        int capacity = manager.getIntProperty(cname + ".capacity", DEFAULT_CAPACITY);
+        if (capacity <= 0) {
+            capacity = DEFAULT_CAPACITY;
+        }
+        int batch = manager.getIntProperty(cname + ".batchSize", DEFAULT_BATCH_SIZE);
+        batchSize = (batch > 0) ? batch : DEFAULT_BATCH_SIZE;
+        int rate = manager.getIntProperty(cname + ".sampleRate", DEFAULT_SAMPLE_RATE);
+        sampleRate = (rate > 0) ? rate : DEFAULT_SAMPLE_RATE;
+        OverflowPolicy policy;
+        try {
+            policy = OverflowPolicy.valueOf(manager.getStringProperty(cname + ".overflow",
+                                                                      OverflowPolicy.BLOCK.name()));
+        } catch (IllegalArgumentException ex) {
+            policy = OverflowPolicy.BLOCK;
+        }
+        overflow = policy;
+
+        String targetName = manager.getProperty(cname+".target");
+        if (targetName == null) {
+            throw new RuntimeException("The handler " + cname
+                    + " does not specify a target");
+        }
+        Class<?> clz;
+        try {
+            clz = ClassLoader.getSystemClassLoader().loadClass(targetName);
+            @SuppressWarnings("deprecation")
+            Object o = clz.newInstance();
+            target = (Handler) o;
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("AsyncHandler can't load handler target \"" + targetName + "\"" , e);
+        }
+
+        slots = new LogRecord[roundUpToPowerOfTwo(capacity)];
+        sequences = new AtomicLongArray(slots.length);
+        mask = slots.length - 1;
+        writer = startWriter();
+    }
+
+    /**
+     * Create an {@code AsyncHandler}.
+     * <p>
+     * The {@code AsyncHandler} is configured based on {@code LogManager}
+     * properties (or their default values) except that the given target,
+     * capacity and overflow policy are used.
+     *
+     * @param target    the Handler to which to publish output.
+     * @param capacity  the number of log records to buffer (must be greater
+     *                  than zero); rounded up to a power of two
+     * @param overflow  what to do when the buffer is full
+     *
+     * @throws IllegalArgumentException if {@code capacity is <= 0}
+     */
+    public AsyncHandler(Handler target, int capacity, OverflowPolicy overflow) {
+        // configure with specific defaults for AsyncHandler
+        super(Level.ALL, new SimpleFormatter(), null);
+
+        if (target == null || overflow == null) {
+            throw new NullPointerException();
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.target = target;
+        this.overflow = overflow;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.sampleRate = DEFAULT_SAMPLE_RATE;
+
+        slots = new LogRecord[roundUpToPowerOfTwo(capacity)];
+        sequences = new AtomicLongArray(slots.length);
+        mask = slots.length - 1;
+        writer = startWriter();
+    }
+
+    private static int roundUpToPowerOfTwo(int n) {
+        return (n >= (1 << 30)) ? (1 << 30) : Integer.highestOneBit(Math.max(1, n - 1) << 1);
+    }
+
+    private Thread startWriter() {
+        for (int i = 0; i < slots.length; i++) {
+            sequences.set(i, i);
+        }
+        return AccessController.doPrivileged(new PrivilegedAction<Thread>() {
+            @Override
+            public Thread run() {
+                Thread t = new Thread(null, AsyncHandler.this::writeLoop,
+                                      "AsyncHandler-writer", 0, false);
+                t.setDaemon(true);
+                t.start();
+                return t;
+            }
+        }, null, LogManager.controlPermission);
+    }
+
+    /**
+     * Store a {@code LogRecord} in the buffer, to be published to the
+     * target {@code Handler} by the writer thread.
+     * <p>
+     * If there is a {@code Filter}, its {@code isLoggable}
+     * method is called to check if the given log record is loggable.
+     * If not we return.  Otherwise the record is stored into the buffer,
+     * or handled according to the overflow policy if the buffer is full.
+     *
+     * @param  record  description of the log event. A null record is
+     *                 silently ignored and is not published
+     */
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        if (Thread.currentThread() == writer) {
+            // logged by the target itself; queueing could deadlock
+            target.publish(record);
+            return;
+        }
+        // the caller is only known on the publishing thread
+        record.getSourceClassName();
+
+        if (overflow == OverflowPolicy.SAMPLE
+                && getQueueSize() >= slots.length - (slots.length >> 2)
+                && sampleCounter.getAndIncrement() % sampleRate != 0) {
+            droppedCount.increment();
+            return;
+        }
+        while (!offer(record)) {
+            if (overflow != OverflowPolicy.BLOCK || closed) {
+                droppedCount.increment();
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+        publishedCount.increment();
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    // Claims the next sequence and stores the record; false if full or closed.
+    private boolean offer(LogRecord record) {
+        long t = tail.get();
+        for (;;) {
+            if ((t & CLOSED) != 0) {
+                return false;
+            }
+            int ix = (int) t & mask;
+            long seq = sequences.getAcquire(ix);
+            if (seq == t) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    slots[ix] = record;
+                    // volatile, so that either the writer sees the record
+                    // or this producer sees writerParked and wakes it up
+                    sequences.set(ix, t + 1);
+                    return true;
+                }
+                t = tail.get();
+            } else if (seq < t) {
+                return false;   // slot still holds the record of the previous lap
+            } else {
+                t = tail.get(); // another producer claimed t
+            }
+        }
+    }
+
+    // Moves up to batch.length records into batch; writer thread only.
+    private int drain(LogRecord[] batch) {
+        long h = head;
+        int n = 0;
+        while (n < batch.length) {
+            int ix = (int) h & mask;
+            if (sequences.getAcquire(ix) != h + 1) {
+                break;
+            }
+            batch[n++] = slots[ix];
+            slots[ix] = null;
+            sequences.setRelease(ix, h + slots.length);
+            h++;
+        }
+        head = h;
+        return n;
+    }
+
+    private void writeLoop() {
+        LogRecord[] batch = new LogRecord[batchSize];
+        for (;;) {
+            int n = drain(batch);
+            if (n > 0) {
+                try {
+                    target.publishAll(batch, n);
+                } catch (Exception ex) {
+                    reportError(null, ex, ErrorManager.WRITE_FAILURE);
+                }
+                Arrays.fill(batch, 0, n, null);
+                batchCount++;
+                written = head;
+                continue;
+            }
+            long t = tail.get();
+            if ((t & CLOSED) != 0 && head == (t & ~CLOSED)) {
+                return;     // all records claimed before closing are written
+            }
+            writerParked = true;
+            if (sequences.get((int) head & mask) != head + 1 && (tail.get() & CLOSED) == 0) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+            writerParked = false;
+        }
+    }
+
+    // Waits until every record published so far has reached the target.
+    private void awaitWritten() {
+        long t = tail.get() & ~CLOSED;
+        while (written < t && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, PARK_NANOS);
+        }
+    }
+
+    /**
+     * Wait for the buffered records to be published to the target
+     * {@code Handler}, then flush the target.
+     */
+    @Override
+    public void flush() {
+        if (Thread.currentThread() != writer) {
+            awaitWritten();
+        }
+        target.flush();
+    }
+
+    /**
+     * Close the {@code Handler} and free all associated resources.
+     * The buffered records are published to the target {@code Handler},
+     * the writer thread terminates, and the target is closed.
+     *
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have {@code LoggingPermission("control")}.
+     */
+    @Override
+    public void close() throws SecurityException {
+        checkPermission();
+        closed = true;
+        long t;
+        while (((t = tail.get()) & CLOSED) == 0 && !tail.compareAndSet(t, t | CLOSED)) {
+            // retry, a producer claimed a sequence
+        }
+        if (Thread.currentThread() != writer) {
+            // the writer drains every claimed record before it terminates
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        target.close();
+        setLevel(Level.OFF);
+    }
+
+    /**
+     * Return the overflow policy of this {@code Handler}.
+     *
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflow;
+    }
+
+    /**
+     * Return the number of records currently held in the buffer.
+     *
+     * @return the number of buffered records
+     */
+    public int getQueueSize() {
+        return (int) Math.max(0, (tail.get() & ~CLOSED) - head);
+    }
+
+    /**
+     * Return the number of records accepted into the buffer.
+     *
+     * @return the number of published records
+     */
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    /**
+     * Return the number of records dropped because the buffer was full,
+     * or skipped by sampling.
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Return the number of records passed on to the target {@code Handler}.
+     *
+     * @return the number of written records
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Return the number of batches passed on to the target {@code Handler}.
+     *
+     * @return the number of batches
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+}
@@ -96,6 +96,13 @@ public class ConsoleHandler extends StreamHandler {
         flush();
     }
 
+    // flush once per batch rather than once per record
+    @Override
+    void publishAll(LogRecord[] records, int count) {
+        super.publishAll(records, count);
+        flush();
+    }
+
     /**
      * Override {@code StreamHandler.close} to do a flush but not
      * to close the output stream.  That is, we do <b>not</b>
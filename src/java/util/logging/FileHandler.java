@@ -750,6 +750,21 @@ public class FileHandler extends StreamHandler {
         }
         super.publish(record);
         flush();
+        rotateIfNeeded();
+    }
+
+    /*
+     * Write the whole batch before checking the limit, so a file may
+     * exceed it by up to one batch.
+     */
+    @Override
+    synchronized void publishAll(LogRecord[] records, int count) {
+        super.publishAll(records, count);
+        flush();
+        rotateIfNeeded();
+    }
+
+    private void rotateIfNeeded() {
         if (limit > 0 && (meter.written >= limit || meter.written < 0)) {
             // We performed access checks in the "init" method to make sure
             // we are only initialized from trusted code.  So we assume
@@ -135,6 +135,19 @@ public abstract class Handler {
      */
     public abstract void publish(LogRecord record);
 
+    /**
+     * Publish the first {@code count} records of the given array, in order.
+     * Used by {@link AsyncHandler} to hand over a batch of records at once;
+     * subclasses may override it to amortize their per-record output costs,
+     * but must then still honor an application subclass that overrides
+     * {@link #publish publish}, as {@link StreamHandler} does.
+     */
+    void publishAll(LogRecord[] records, int count) {
+        for (int i = 0; i < count; i++) {
+            publish(records[i]);
+        }
+    }
+
     /**
      * Flush any buffered output.
      */
@@ -182,4 +182,11 @@ public class SocketHandler extends StreamHandler {
         super.publish(record);
         flush();
     }
+
+    // flush once per batch rather than once per record
+    @Override
+    synchronized void publishAll(LogRecord[] records, int count) {
+        super.publishAll(records, count);
+        flush();
+    }
 }
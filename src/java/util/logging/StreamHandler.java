@@ -217,6 +217,79 @@ public class StreamHandler extends Handler {
         }
     }
 
+    // Upper bound on the initial capacity of the buffer a batch is formatted into
+    private static final int MAX_BATCH_CAPACITY = 64 * 1024;
+
+    // Whether a class overrides publish(LogRecord) outside of java.util.logging
+    private static final ClassValue<Boolean> OVERRIDES_PUBLISH = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            PrivilegedAction<Boolean> pa = () -> {
+                for (Class<?> c = type; c != StreamHandler.class; c = c.getSuperclass()) {
+                    if (c.getModule() == StreamHandler.class.getModule()) {
+                        continue;
+                    }
+                    try {
+                        c.getDeclaredMethod("publish", LogRecord.class);
+                        return true;
+                    } catch (NoSuchMethodException e) {
+                        // look in the superclass
+                    }
+                }
+                return false;
+            };
+            return AccessController.doPrivileged(pa);
+        }
+    };
+
+    /*
+     * Format the loggable records of the batch into a single string,
+     * so that it reaches the output stream with one write.  A subclass
+     * that overrides publish(LogRecord) gets each record through it
+     * instead, one at a time.
+     */
+    @Override
+    synchronized void publishAll(LogRecord[] records, int count) {
+        if (OVERRIDES_PUBLISH.get(getClass())) {
+            super.publishAll(records, count);
+            return;
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < count; i++) {
+            LogRecord record = records[i];
+            if (!isLoggable(record)) {
+                continue;
+            }
+            try {
+                String msg = getFormatter().format(record);
+                if (sb == null) {
+                    // estimate from the first record, the builder grows as needed
+                    sb = new StringBuilder((int) Math.min(
+                            (long) msg.length() * (count - i), MAX_BATCH_CAPACITY));
+                }
+                sb.append(msg);
+            } catch (Exception ex) {
+                // We don't want to throw an exception here, but we
+                // report the exception to any registered ErrorManager.
+                reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+            }
+        }
+        if (sb == null) {
+            return;
+        }
+
+        try {
+            if (!doneHeader) {
+                writer.write(getFormatter().getHead(this));
+                doneHeader = true;
+            }
+            writer.write(sb.toString());
+        } catch (Exception ex) {
+            // We don't want to throw an exception here, but we
+            // report the exception to any registered ErrorManager.
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
 
     /**
      * Check if this {@code Handler} would actually log a given {@code LogRecord}.
@@ -0,0 +1,927 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.regex;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern.BmpCharPropertyGreedy;
+import java.util.regex.Pattern.CharPredicate;
+import java.util.regex.Pattern.Node;
+import java.util.regex.Pattern.Qtype;
+
+/**
+ * A matcher for patterns compiled with {@link Pattern#LINEAR}, whose time
+ * is linear in the length of the input.
+ *
+ * <p> The object tree of the pattern is translated into a small program
+ * for a non-deterministic automaton, which is simulated one char at a time
+ * with a list of threads kept in priority order (the Pike VM).  Threads
+ * that reach the same instruction at the same index are merged, keeping
+ * the one the backtracking nodes would have tried first, so the match and
+ * the groups found are those of the object tree.
+ *
+ * <p> Before a simulation is run, the input is scanned by a lazily built
+ * deterministic automaton of the same program, ignoring the groups and
+ * the zero-width assertions.  It accepts a superset of the matches, so an
+ * input it rejects cannot match, and most input is rejected after a single
+ * table lookup per char.  The states are built on demand and shared by
+ * all matchers of the pattern; if there are too many of them, the scan is
+ * left to the simulation.
+ */
+final class LinearEngine {
+
+    // The instructions of the program. A consuming instruction at pc
+    // continues at pc + 1.
+    private static final int CHAR = 0;          // the char args[pc]
+    private static final int BMP = 1;           // a char matching preds[pc]
+    private static final int CODEPOINT = 2;     // a code point matching preds[pc]
+    private static final int CODEPOINT_IN = 3;  // the same, not crossing to
+    private static final int SPLIT = 4;         // args[pc], then args2[pc]
+    private static final int JMP = 5;           // args[pc]
+    private static final int SAVE = 6;          // group slot args[pc]
+    private static final int ASSERT = 7;        // the zero-width nodes[pc]
+    private static final int MATCH = 8;         // of the pattern args[pc]
+
+    // Where a search may start a match
+    private static final int ANYWHERE = 0;      // at every char, as Start
+    private static final int ANYWHERE_S = 1;    // at every code point, as StartS
+    private static final int AT_FROM = 2;       // only at from, as Begin
+
+    /**
+     * The maximum number of instructions of a program. Larger patterns,
+     * such as those with large repetition counts, are left to the
+     * backtracking nodes.
+     */
+    private static final int MAX_PROGRAM = 10000;
+
+    /**
+     * The maximum number of states of a deterministic automaton. When it
+     * is reached the automaton is discarded and built again.
+     */
+    private static final int MAX_DFA_STATES = 1024;
+
+    /**
+     * The number of times an automaton may be discarded before the
+     * deterministic scan is disabled for the pattern.
+     */
+    private static final int MAX_DFA_RESETS = 8;
+
+    /**
+     * The continuation of the assertion nodes evaluated by the program.
+     */
+    private static final Node PASS = new Node() {
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            return true;
+        }
+    };
+
+    private static final CharPredicate LINE_TERMINATOR =
+        ch -> ch == 0x0A || ch == 0x0B || ch == 0x0C || ch == 0x0D ||
+              ch == 0x85 || ch == 0x2028 || ch == 0x2029;
+
+    private final int[] ops;
+    private final int[] args;
+    private final int[] args2;
+    private final CharPredicate[] preds;
+    private final Node[] nodes;
+    private final int size;
+
+    private final int slots;        // the number of group slots
+    private final int startMode;
+    private final int minLength;    // of a match, for a search
+
+    private volatile Dfa floatingDfa;
+    private volatile Dfa anchoredDfa;
+    private volatile int dfaResets;
+
+    /**
+     * Creates the engine of a program of one or more patterns, for its
+     * deterministic automata only.
+     */
+    LinearEngine(Compiler c) {
+        this(c, 0, ANYWHERE, 0);
+    }
+
+    private LinearEngine(Compiler c, int slots, int startMode, int minLength) {
+        this.ops = Arrays.copyOf(c.ops, c.size);
+        this.args = Arrays.copyOf(c.args, c.size);
+        this.args2 = Arrays.copyOf(c.args2, c.size);
+        this.preds = Arrays.copyOf(c.preds, c.size);
+        this.nodes = Arrays.copyOf(c.nodes, c.size);
+        this.size = c.size;
+        this.slots = slots;
+        this.startMode = startMode;
+        this.minLength = minLength;
+    }
+
+    /**
+     * Returns the linear-time matcher of the compiled object tree of the
+     * pattern, or null if it uses a construct that is not supported.
+     */
+    static LinearEngine compile(Pattern pattern) {
+        Node root = pattern.root;
+        int startMode;
+        if (root instanceof Pattern.StartS) {
+            startMode = ANYWHERE_S;
+        } else if (root instanceof Pattern.Start) {
+            startMode = ANYWHERE;
+        } else if (root instanceof Pattern.Begin) {
+            startMode = AT_FROM;
+        } else if (root instanceof Pattern.BnMS) {
+            // The literal prefix is matched by the program, at every
+            // index as the Boyer-Moore search would have tried it
+            startMode = ANYWHERE_S;
+        } else if (root instanceof Pattern.BnM) {
+            startMode = ANYWHERE;
+        } else {
+            return null;
+        }
+        Compiler c = new Compiler();
+        if (!c.compile(pattern, 0)) {
+            return null;
+        }
+        int minLength = 0;
+        if (root instanceof Pattern.Start) {
+            minLength = ((Pattern.Start)root).minLength;
+        } else if (startMode != AT_FROM) {
+            Pattern.TreeInfo info = new Pattern.TreeInfo();
+            root.study(info);
+            minLength = info.minLength;
+        }
+        return new LinearEngine(c, pattern.capturingGroupCount * 2,
+                                startMode, minLength);
+    }
+
+    /**
+     * Searches for a match starting at or after from, as the root node
+     * of the pattern does.
+     */
+    boolean search(Matcher matcher, int from, CharSequence seq) {
+        boolean anchored = startMode == AT_FROM;
+        if (!mayMatch(matcher, from, anchored, false, seq)) {
+            if (!anchored)
+                matcher.hitEnd = true;
+            return false;
+        }
+        return run(matcher, from, anchored, seq);
+    }
+
+    /**
+     * Matches at from, as the match root node of the pattern does.
+     */
+    boolean match(Matcher matcher, int from, CharSequence seq) {
+        if (!mayMatch(matcher, from, true,
+                      matcher.acceptMode == Matcher.ENDANCHOR, seq)) {
+            return false;
+        }
+        return run(matcher, from, true, seq);
+    }
+
+    /**
+     * Runs the threads of the program over the input, and stores the
+     * leftmost match found, with its groups, in the matcher.
+     */
+    private boolean run(Matcher matcher, int from, boolean anchored,
+                        CharSequence seq) {
+        Threads t = matcher.linearThreads;
+        if (t == null || t.engine != this) {
+            matcher.linearThreads = t = new Threads(this);
+        }
+        ThreadList clist = t.clist;
+        ThreadList nlist = t.nlist;
+        clist.clear();
+        int to = matcher.to;
+        int mode = anchored ? AT_FROM : startMode;
+        int guard = (mode == AT_FROM) ? from : to - minLength;
+        int start = from;           // where the next thread starts, or -1
+        int[] found = null;
+        int end = -1;
+        for (int i = from; ; i++) {
+            if (found == null && i == start && i <= guard) {
+                int[] caps = new int[slots];
+                Arrays.fill(caps, -1);
+                caps[0] = i;
+                addThread(t, clist, 0, caps, i, matcher, seq);
+                if (mode == AT_FROM || i == guard) {
+                    start = -1;
+                } else if (mode == ANYWHERE_S &&
+                           Character.isHighSurrogate(seq.charAt(i)) &&
+                           i + 1 < seq.length() &&
+                           Character.isLowSurrogate(seq.charAt(i + 1))) {
+                    start = i + 2;
+                } else {
+                    start = i + 1;
+                }
+            }
+            if (clist.count == 0) {
+                if (found != null || start < 0 || start > guard)
+                    break;
+                // Nothing is running, skip to the next start
+                clist.clear();
+                i = start - 1;
+                continue;
+            }
+            nlist.clear();
+        step:
+            for (int n = 0; n < clist.count; n++) {
+                int pc = clist.pcs[n];
+                int[] caps = clist.caps[n];
+                if (pc >= size) {
+                    // The low surrogate of a pair matched at i - 1
+                    addThread(t, nlist, pc - size, caps, i + 1, matcher, seq);
+                    continue;
+                }
+                int op = ops[pc];
+                if (op == MATCH) {
+                    if (matcher.acceptMode == Matcher.ENDANCHOR && i != to)
+                        continue;
+                    found = caps;
+                    end = i;
+                    // Cut the threads of lower priority
+                    break step;
+                }
+                if (i >= to) {
+                    matcher.hitEnd = true;
+                    continue;
+                }
+                if (op == CHAR || op == BMP) {
+                    char c = seq.charAt(i);
+                    if (op == CHAR ? c == args[pc] : preds[pc].is(c))
+                        addThread(t, nlist, pc + 1, caps, i + 1, matcher, seq);
+                } else {
+                    int ch = Character.codePointAt(seq, i);
+                    if (!preds[pc].is(ch))
+                        continue;
+                    if (Character.charCount(ch) == 1) {
+                        addThread(t, nlist, pc + 1, caps, i + 1, matcher, seq);
+                    } else if (op == CODEPOINT_IN && i + 2 > to) {
+                        matcher.hitEnd = true;
+                    } else {
+                        nlist.addOnce(size + pc + 1, caps);
+                    }
+                }
+            }
+            ThreadList tmp = clist;
+            clist = nlist;
+            nlist = tmp;
+        }
+        t.clist.release();
+        t.nlist.release();
+        if (found == null) {
+            if (mode != AT_FROM)
+                matcher.hitEnd = true;
+            return false;
+        }
+        System.arraycopy(found, 0, matcher.groups, 0, slots);
+        matcher.groups[1] = end;
+        matcher.first = found[0];
+        matcher.last = end;
+        return true;
+    }
+
+    /**
+     * Adds the thread at pc, and those it leads to without consuming
+     * input, to the list, in the order the backtracking nodes would try
+     * them. The caps of a thread are copied when it saves a group.
+     */
+    private void addThread(Threads t, ThreadList list, int pc, int[] caps,
+                           int i, Matcher matcher, CharSequence seq) {
+        int sp = t.push(0, pc, caps);
+        while (sp > 0) {
+            sp--;
+            pc = t.stackPcs[sp];
+            caps = t.stackCaps[sp];
+            t.stackCaps[sp] = null;
+            if (!list.mark(pc))
+                continue;
+            switch (ops[pc]) {
+            case JMP:
+                sp = t.push(sp, args[pc], caps);
+                break;
+            case SPLIT:
+                sp = t.push(sp, args2[pc], caps);
+                sp = t.push(sp, args[pc], caps);
+                break;
+            case SAVE:
+                caps = caps.clone();
+                caps[args[pc]] = i;
+                sp = t.push(sp, pc + 1, caps);
+                break;
+            case ASSERT:
+                if (nodes[pc].match(matcher, i, seq))
+                    sp = t.push(sp, pc + 1, caps);
+                break;
+            default:
+                list.add(pc, caps);
+            }
+        }
+    }
+
+    /**
+     * Returns false if the deterministic automaton shows that there is no
+     * match in the input.
+     */
+    private boolean mayMatch(Matcher matcher, int from, boolean anchored,
+                             boolean toEnd, CharSequence seq) {
+        Dfa dfa = dfa(!anchored);
+        if (dfa == null)
+            return true;
+        DState s = dfa.start;
+        int to = matcher.to;
+        for (int i = from; i < to; i++) {
+            if (s.match && !toEnd)
+                return true;
+            s = dfa.next(s, seq.charAt(i));
+            if (s == null) {
+                if (dfa.full)
+                    discard(dfa);
+                return true;
+            }
+            if (s == DState.DEAD)
+                return false;
+        }
+        if (s.match) {
+            // The simulation finds whether more input could change it
+            return true;
+        }
+        matcher.hitEnd = true;
+        return false;
+    }
+
+    private Dfa dfa(boolean floating) {
+        Dfa dfa = floating ? floatingDfa : anchoredDfa;
+        if (dfa == null && dfaResets < MAX_DFA_RESETS) {
+            dfa = new Dfa(new int[] { 0 }, floating, MAX_DFA_STATES);
+            if (floating) {
+                floatingDfa = dfa;
+            } else {
+                anchoredDfa = dfa;
+            }
+        }
+        return dfa;
+    }
+
+    /**
+     * Discards an automaton that has too many states.
+     */
+    private void discard(Dfa dfa) {
+        if (dfa.floating) {
+            if (floatingDfa == dfa)
+                floatingDfa = null;
+        } else {
+            if (anchoredDfa == dfa)
+                anchoredDfa = null;
+        }
+        dfaResets++;
+    }
+
+    /**
+     * Returns a new floating automaton of the program, starting at each of
+     * the given pcs, with at most maxStates states.
+     */
+    Dfa newDfa(int[] starts, int maxStates) {
+        return new Dfa(starts, true, maxStates);
+    }
+
+    /**
+     * A deterministic automaton of the program, whose states are the sets
+     * of consuming instructions that threads could be at.  A floating
+     * automaton starts new threads at every char.
+     */
+    final class Dfa {
+        final int[] starts;
+        final boolean floating;
+        final int maxStates;
+        final ConcurrentHashMap<DState, DState> states = new ConcurrentHashMap<>();
+        final DState start;
+        volatile boolean full;      // set when maxStates is reached
+
+        private Dfa(int[] starts, boolean floating, int maxStates) {
+            this.starts = starts;
+            this.floating = floating;
+            this.maxStates = maxStates;
+            this.start = state(starts, starts.length);
+        }
+
+        /**
+         * Returns the state following s on c, or null if c is a surrogate
+         * or there are too many states.
+         */
+        DState next(DState s, char c) {
+            if (s == DState.DEAD)
+                return s;
+            DState n;
+            if (c < 256) {
+                DState[] table = s.latin1;
+                if (table == null)
+                    s.latin1 = table = new DState[256];
+                if ((n = table[c]) == null && (n = step(s, c)) != null)
+                    table[c] = n;
+                return n;
+            }
+            if (Character.isSurrogate(c))
+                return null;
+            Edge[] edges = s.edges;
+            if (edges == null)
+                s.edges = edges = new Edge[64];
+            Edge e = edges[c & 63];
+            if (e != null && e.c == c)
+                return e.target;
+            if ((n = step(s, c)) != null)
+                edges[c & 63] = new Edge(c, n);
+            return n;
+        }
+
+        private DState step(DState s, char c) {
+            int[] pcs = s.pcs;
+            int[] seeds = new int[pcs.length + starts.length];
+            int n = 0;
+            for (int pc : pcs) {
+                boolean matches;
+                switch (ops[pc]) {
+                case CHAR:
+                    matches = c == args[pc];
+                    break;
+                case MATCH:
+                    matches = false;
+                    break;
+                default:
+                    matches = preds[pc].is(c);
+                }
+                if (matches)
+                    seeds[n++] = pc + 1;
+            }
+            if (floating) {
+                for (int pc : starts)
+                    seeds[n++] = pc;
+            }
+            return state(seeds, n);
+        }
+
+        /**
+         * Returns the state of the instructions reached from the seeds,
+         * taking every SPLIT and passing every assertion.
+         */
+        private DState state(int[] seeds, int count) {
+            boolean[] seen = new boolean[size];
+            int[] stack = new int[count + 2 * size];
+            int sp = 0;
+            for (int n = count - 1; n >= 0; n--)
+                stack[sp++] = seeds[n];
+            int found = 0;
+            int matches = 0;
+            while (sp > 0) {
+                int pc = stack[--sp];
+                if (seen[pc])
+                    continue;
+                seen[pc] = true;
+                switch (ops[pc]) {
+                case JMP:
+                    stack[sp++] = args[pc];
+                    break;
+                case SPLIT:
+                    stack[sp++] = args2[pc];
+                    stack[sp++] = args[pc];
+                    break;
+                case SAVE:
+                case ASSERT:
+                    stack[sp++] = pc + 1;
+                    break;
+                case MATCH:
+                    matches++;
+                    found++;
+                    break;
+                default:
+                    found++;
+                }
+            }
+            if (found == 0)
+                return DState.DEAD;
+            // The MATCH ids are in the order of the patterns of the program
+            int[] pcs = new int[found];
+            int[] ids = new int[matches];
+            for (int pc = 0, n = 0, m = 0; n < found; pc++) {
+                int op = ops[pc];
+                if (seen[pc] && op != JMP && op != SPLIT && op != SAVE && op != ASSERT) {
+                    pcs[n++] = pc;
+                    if (op == MATCH)
+                        ids[m++] = args[pc];
+                }
+            }
+            DState s = new DState(pcs, ids);
+            DState old = states.get(s);
+            if (old != null)
+                return old;
+            if (states.size() >= maxStates) {
+                full = true;
+                return null;
+            }
+            old = states.putIfAbsent(s, s);
+            return (old != null) ? old : s;
+        }
+    }
+
+    static final class DState {
+        static final DState DEAD = new DState(new int[0], new int[0]);
+
+        final int[] pcs;
+        final int[] matches;    // the ids of the patterns matched
+        final boolean match;
+        final int hash;
+        DState[] latin1;        // the transitions on chars below 256
+        Edge[] edges;           // a cache of the transitions on other chars
+
+        DState(int[] pcs, int[] matches) {
+            this.pcs = pcs;
+            this.matches = matches;
+            this.match = matches.length != 0;
+            this.hash = Arrays.hashCode(pcs);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof DState && Arrays.equals(pcs, ((DState)o).pcs);
+        }
+    }
+
+    private static final class Edge {
+        final char c;
+        final DState target;
+
+        Edge(char c, DState target) {
+            this.c = c;
+            this.target = target;
+        }
+    }
+
+    /**
+     * The working storage of a matcher running the program.
+     */
+    static final class Threads {
+        final LinearEngine engine;
+        ThreadList clist;
+        ThreadList nlist;
+        int[] stackPcs = new int[16];
+        int[][] stackCaps = new int[16][];
+
+        Threads(LinearEngine engine) {
+            this.engine = engine;
+            // A pc may also be at the low surrogate of a pair
+            this.clist = new ThreadList(2 * engine.size);
+            this.nlist = new ThreadList(2 * engine.size);
+        }
+
+        int push(int sp, int pc, int[] caps) {
+            if (sp == stackPcs.length) {
+                stackPcs = Arrays.copyOf(stackPcs, sp * 2);
+                stackCaps = Arrays.copyOf(stackCaps, sp * 2);
+            }
+            stackPcs[sp] = pc;
+            stackCaps[sp] = caps;
+            return sp + 1;
+        }
+    }
+
+    /**
+     * The threads at an index of the input, in priority order, with a
+     * sparse set of the pcs seen while adding them.
+     */
+    private static final class ThreadList {
+        final int[] pcs;
+        final int[][] caps;
+        final int[] marks;
+        int generation;
+        int count;
+
+        ThreadList(int capacity) {
+            pcs = new int[capacity];
+            caps = new int[capacity][];
+            marks = new int[capacity];
+        }
+
+        void clear() {
+            count = 0;
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /**
+         * Marks pc as seen, returning false if it already was.
+         */
+        boolean mark(int pc) {
+            if (marks[pc] == generation)
+                return false;
+            marks[pc] = generation;
+            return true;
+        }
+
+        void add(int pc, int[] cap) {
+            pcs[count] = pc;
+            caps[count++] = cap;
+        }
+
+        void addOnce(int pc, int[] cap) {
+            if (mark(pc))
+                add(pc, cap);
+        }
+
+        void release() {
+            Arrays.fill(caps, 0, count, null);
+            count = 0;
+        }
+    }
+
+    /**
+     * Translates the object trees of patterns into a program.
+     */
+    static final class Compiler {
+        int[] ops = new int[16];
+        int[] args = new int[16];
+        int[] args2 = new int[16];
+        CharPredicate[] preds = new CharPredicate[16];
+        Node[] nodes = new Node[16];
+        int size;
+        int start;          // of the pattern being compiled
+        int id;             // of the pattern being compiled
+        boolean exact;      // if the pattern has no assertions
+
+        /**
+         * Appends the program of a pattern, whose MATCH instruction has the
+         * given id, returning false and leaving the program as it was if
+         * the pattern is not supported. The program of the pattern starts
+         * at the previous size.
+         */
+        boolean compile(Pattern pattern, int id) {
+            this.start = size;
+            this.id = id;
+            this.exact = true;
+            if (emit(pattern.matchRoot, null) && !isTooLarge())
+                return true;
+            Arrays.fill(preds, start, size, null);
+            Arrays.fill(nodes, start, size, null);
+            size = start;
+            return false;
+        }
+
+        private boolean isTooLarge() {
+            return size - start > MAX_PROGRAM;
+        }
+
+        int add(int op, int arg, CharPredicate pred, Node node) {
+            if (size == ops.length) {
+                int n = size * 2;
+                ops = Arrays.copyOf(ops, n);
+                args = Arrays.copyOf(args, n);
+                args2 = Arrays.copyOf(args2, n);
+                preds = Arrays.copyOf(preds, n);
+                nodes = Arrays.copyOf(nodes, n);
+            }
+            ops[size] = op;
+            args[size] = arg;
+            preds[size] = pred;
+            nodes[size] = node;
+            return size++;
+        }
+
+        /**
+         * Emits the nodes from node up to, but not including, stop.
+         */
+        boolean emit(Node node, Node stop) {
+            while (node != stop) {
+                if (isTooLarge())
+                    return false;
+                if (node instanceof Pattern.LastNode) {
+                    add(MATCH, id, null, null);
+                    return true;
+                } else if (node instanceof Pattern.SliceNode) {
+                    emitSlice((Pattern.SliceNode)node);
+                } else if (node instanceof Pattern.CharProperty) {
+                    // Only the BMP subclasses match a single char
+                    boolean bmp = node.getClass() != Pattern.CharProperty.class;
+                    add(bmp ? BMP : CODEPOINT, 0,
+                        ((Pattern.CharProperty)node).predicate, null);
+                } else if (node instanceof Pattern.CharPropertyGreedy) {
+                    Pattern.CharPropertyGreedy g = (Pattern.CharPropertyGreedy)node;
+                    int op = (g instanceof BmpCharPropertyGreedy) ? BMP : CODEPOINT;
+                    repeat(() -> add(op, 0, g.predicate, null) >= 0,
+                           g.cmin, Pattern.MAX_REPS, true);
+                } else if (node instanceof Pattern.Ques) {
+                    Pattern.Ques q = (Pattern.Ques)node;
+                    if (!isQuantifiable(q.atom, q.type, 0) ||
+                        !repeat(() -> emit(q.atom, Pattern.accept), 0, 1,
+                                q.type == Qtype.GREEDY))
+                        return false;
+                } else if (node instanceof Pattern.Curly) {
+                    Pattern.Curly c = (Pattern.Curly)node;
+                    if (!isQuantifiable(c.atom, c.type, c.cmax) ||
+                        !repeat(() -> emit(c.atom, Pattern.accept), c.cmin,
+                                c.cmax, c.type == Qtype.GREEDY))
+                        return false;
+                } else if (node instanceof Pattern.GroupCurly) {
+                    // The atom ends with the tail of the group, which saves
+                    // its end
+                    Pattern.GroupCurly gc = (Pattern.GroupCurly)node;
+                    if (!isQuantifiable(gc.atom, gc.type, gc.cmax) ||
+                        !repeat(() -> (!gc.capture ||
+                                       add(SAVE, gc.groupIndex, null, null) >= 0) &&
+                                      emit(gc.atom, Pattern.accept),
+                                gc.cmin, gc.cmax, gc.type == Qtype.GREEDY))
+                        return false;
+                } else if (node instanceof Pattern.Prolog) {
+                    Pattern.Loop loop = ((Pattern.Prolog)node).loop;
+                    if (!isQuantifiable(loop.body, Qtype.GREEDY, loop.cmax) ||
+                        !repeat(() -> emit(loop.body, loop), loop.cmin, loop.cmax,
+                                !(loop instanceof Pattern.LazyLoop)))
+                        return false;
+                    node = loop.next;
+                    continue;
+                } else if (node instanceof Pattern.Branch) {
+                    Pattern.Branch b = (Pattern.Branch)node;
+                    if (!emitBranch(b))
+                        return false;
+                    node = b.conn.next;
+                    continue;
+                } else if (node instanceof Pattern.GroupHead) {
+                    int groupIndex = ((Pattern.GroupHead)node).tail.groupIndex;
+                    if (groupIndex > 0)
+                        add(SAVE, groupIndex, null, null);
+                } else if (node instanceof Pattern.GroupTail) {
+                    int groupIndex = ((Pattern.GroupTail)node).groupIndex;
+                    if (groupIndex > 0)
+                        add(SAVE, groupIndex + 1, null, null);
+                } else if (node instanceof Pattern.LineEnding) {
+                    // \r\n is tried before a single line terminator
+                    int split = add(SPLIT, size + 1, null, null);
+                    add(CHAR, '\r', null, null);
+                    add(CHAR, '\n', null, null);
+                    int jmp = add(JMP, 0, null, null);
+                    args2[split] = size;
+                    add(BMP, 0, LINE_TERMINATOR, null);
+                    args[jmp] = size;
+                } else {
+                    Node assertion = assertion(node);
+                    if (assertion == null)
+                        return false;
+                    add(ASSERT, 0, null, assertion);
+                    exact = false;
+                }
+                node = node.next;
+            }
+            return true;
+        }
+
+        private void emitSlice(Pattern.SliceNode slice) {
+            for (int b : slice.buffer) {
+                if (slice instanceof Pattern.SliceS) {
+                    add(CODEPOINT_IN, 0, ch -> ch == b, null);
+                } else if (slice instanceof Pattern.Slice) {
+                    add(CHAR, b, null, null);
+                } else if (slice instanceof Pattern.SliceI) {
+                    add(BMP, 0, ch -> ch == b || ASCII.toLower(ch) == b, null);
+                } else if (slice instanceof Pattern.SliceU) {
+                    add(BMP, 0, ch -> ch == b ||
+                        Character.toLowerCase(Character.toUpperCase(ch)) == b, null);
+                } else {
+                    Pattern.SliceIS s = (Pattern.SliceIS)slice;
+                    add(CODEPOINT_IN, 0, ch -> ch == b || s.toLower(ch) == b, null);
+                }
+            }
+        }
+
+        private boolean emitBranch(Pattern.Branch b) {
+            int[] jumps = new int[b.size];
+            for (int n = 0; n < b.size; n++) {
+                boolean last = n == b.size - 1;
+                int split = last ? -1 : add(SPLIT, size + 1, null, null);
+                // A null atom is an empty alternative
+                if (b.atoms[n] != null && !emit(b.atoms[n], b.conn))
+                    return false;
+                if (!last) {
+                    jumps[n] = add(JMP, 0, null, null);
+                    args2[split] = size;
+                }
+            }
+            for (int n = 0; n < b.size - 1; n++)
+                args[jumps[n]] = size;
+            return true;
+        }
+
+        /**
+         * Emits cmin copies of the body and then cmax - cmin optional ones,
+         * or a loop if cmax is unbounded.
+         */
+        private boolean repeat(BooleanSupplier body, int cmin, int cmax,
+                               boolean greedy) {
+            if (cmin > MAX_PROGRAM ||
+                (cmax != Pattern.MAX_REPS && cmax - cmin > MAX_PROGRAM))
+                return false;
+            for (int n = 0; n < cmin; n++) {
+                if (isTooLarge() || !body.getAsBoolean())
+                    return false;
+            }
+            if (cmax == Pattern.MAX_REPS) {
+                int split = add(SPLIT, 0, null, null);
+                if (!body.getAsBoolean())
+                    return false;
+                add(JMP, split, null, null);
+                setTargets(split, greedy);
+                return true;
+            }
+            int[] splits = new int[cmax - cmin];
+            for (int n = 0; n < splits.length; n++) {
+                if (isTooLarge())
+                    return false;
+                splits[n] = add(SPLIT, 0, null, null);
+                if (!body.getAsBoolean())
+                    return false;
+            }
+            for (int split : splits)
+                setTargets(split, greedy);
+            return true;
+        }
+
+        /**
+         * Points the split at its body, which follows it, and past the
+         * end of the program so far, in the order given by greedy.
+         */
+        private void setTargets(int split, boolean greedy) {
+            args[split] = greedy ? split + 1 : size;
+            args2[split] = greedy ? size : split + 1;
+        }
+
+        /**
+         * Checks that a repeated atom always consumes input, because the
+         * program has no check for empty iterations, and that it does not
+         * need to be matched atomically.
+         */
+        private static boolean isQuantifiable(Node atom, Qtype type, int cmax) {
+            if (type != Qtype.GREEDY && type != Qtype.LAZY)
+                return false;
+            if (cmax <= 1)
+                return true;
+            Pattern.TreeInfo info = new Pattern.TreeInfo();
+            atom.study(info);
+            return info.minLength > 0;
+        }
+
+        /**
+         * Returns a copy of a zero-width assertion node that succeeds
+         * where the node would call its next node, or null if the node is
+         * not supported.
+         */
+        private static Node assertion(Node node) {
+            Node a;
+            if (node instanceof Pattern.Begin) {
+                a = new Pattern.Begin();
+            } else if (node instanceof Pattern.End) {
+                a = new Pattern.End();
+            } else if (node instanceof Pattern.Caret) {
+                a = new Pattern.Caret();
+            } else if (node instanceof Pattern.UnixCaret) {
+                a = new Pattern.UnixCaret();
+            } else if (node instanceof Pattern.LastMatch) {
+                a = new Pattern.LastMatch();
+            } else if (node instanceof Pattern.Dollar) {
+                a = new Pattern.Dollar(((Pattern.Dollar)node).multiline);
+            } else if (node instanceof Pattern.UnixDollar) {
+                a = new Pattern.UnixDollar(((Pattern.UnixDollar)node).multiline);
+            } else if (node instanceof Pattern.Bound) {
+                Pattern.Bound b = (Pattern.Bound)node;
+                a = new Pattern.Bound(b.type, b.useUWORD);
+            } else {
+                return null;
+            }
+            a.next = PASS;
+            return a;
+        }
+    }
+}
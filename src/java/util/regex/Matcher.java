@@ -185,6 +185,12 @@ public final class Matcher implements MatchResult {
      */
     IntHashSet[] localsPos;
 
+    /**
+     * Storage used by the linear-time matcher of a pattern compiled with
+     * the LINEAR flag, allocated on first use.
+     */
+    LinearEngine.Threads linearThreads;
+
     /**
      * Boolean indicating whether or not more input could change
      * the results of the last match.
@@ -1726,7 +1732,18 @@ public final class Matcher implements MatchResult {
                 localsPos[i].clear();
         }
         acceptMode = NOANCHOR;
-        boolean result = parentPattern.root.match(this, from, text);
+        boolean result;
+        Prefilter prefilter = parentPattern.prefilter;
+        LinearEngine linear = parentPattern.linear;
+        if (prefilter != null && !prefilter.mayMatch(text, from, to)) {
+            // No literal that every match contains is in the region
+            this.hitEnd = true;
+            result = false;
+        } else if (linear != null) {
+            result = linear.search(this, from, text);
+        } else {
+            result = parentPattern.root.match(this, from, text);
+        }
         if (!result)
             this.first = -1;
         this.oldLast = this.last;
@@ -1753,7 +1770,10 @@ public final class Matcher implements MatchResult {
                 localsPos[i].clear();
         }
         acceptMode = anchor;
-        boolean result = parentPattern.matchRoot.match(this, from, text);
+        LinearEngine linear = parentPattern.linear;
+        boolean result = (linear != null)
+            ? linear.match(this, from, text)
+            : parentPattern.matchRoot.match(this, from, text);
         if (!result)
             this.first = -1;
         this.oldLast = this.last;
@@ -921,12 +921,42 @@ public final class Pattern
      */
     public static final int UNICODE_CHARACTER_CLASS = 0x100;
 
+    /**
+     * Enables linear-time matching.
+     *
+     * <p> When this flag is specified, and the expression only uses
+     * constructs that can be matched without backtracking, matches are
+     * found by simulating all alternatives of the expression in a single
+     * pass over the input instead of by a backtracking search.  The time
+     * taken by a match operation is then bounded by the product of the
+     * length of the input and the size of the expression, even for
+     * expressions such as {@code (a|aa)+?b} that take exponential time to
+     * fail with backtracking.  A lazily built deterministic automaton
+     * rejects most non-matching input without running the simulation.
+     *
+     * <p> The matches found, including the contents of capturing groups,
+     * are the same as without this flag, except that a group nested in a
+     * repeated group always holds what it captured in the last repetition
+     * of the enclosing group.  Back references, lookahead and
+     * lookbehind, possessive quantifiers, independent groups, canonical
+     * equivalence, grapheme clusters, and repetition of sub-expressions
+     * that can match the empty string, are not supported by the
+     * linear-time matcher; expressions using them are matched by
+     * backtracking as if this flag were not specified.
+     *
+     * <p> There is no embedded flag character for enabling linear-time
+     * matching.
+     *
+     * @since 11
+     */
+    public static final int LINEAR = 0x200;
+
     /**
      * Contains all possible flags for compile(regex, flags).
      */
     private static final int ALL_FLAGS = CASE_INSENSITIVE | MULTILINE |
             DOTALL | UNICODE_CASE | CANON_EQ | UNIX_LINES | LITERAL |
-            UNICODE_CHARACTER_CLASS | COMMENTS;
+            UNICODE_CHARACTER_CLASS | COMMENTS | LINEAR;
 
     /* Pattern has only two serialized components: The pattern string
      * and the flags, which are all that is needed to recompile the pattern
@@ -980,6 +1010,19 @@ public final class Pattern
      */
     transient Node matchRoot;
 
+    /**
+     * The linear-time matcher used instead of the object tree by the find
+     * and match operations, or null if LINEAR was not specified or the
+     * pattern is not supported by it.
+     */
+    transient LinearEngine linear;
+
+    /**
+     * The literals of which every match contains one, checked before a
+     * search from the Start root, or null.
+     */
+    transient Prefilter prefilter;
+
     /**
      * Temporary storage used by parsing pattern slice.
      */
@@ -1079,8 +1122,8 @@ public final class Pattern
      *         Match flags, a bit mask that may include
      *         {@link #CASE_INSENSITIVE}, {@link #MULTILINE}, {@link #DOTALL},
      *         {@link #UNICODE_CASE}, {@link #CANON_EQ}, {@link #UNIX_LINES},
-     *         {@link #LITERAL}, {@link #UNICODE_CHARACTER_CLASS}
-     *         and {@link #COMMENTS}
+     *         {@link #LITERAL}, {@link #UNICODE_CHARACTER_CLASS},
+     *         {@link #COMMENTS} and {@link #LINEAR}
      *
      * @return the given regular expression compiled into a pattern with the given flags
      * @throws  IllegalArgumentException
@@ -1124,14 +1167,22 @@ public final class Pattern
      * @return  A new matcher for this pattern
      */
     public Matcher matcher(CharSequence input) {
+        ensureCompiled();
+        Matcher m = new Matcher(this, input);
+        return m;
+    }
+
+    /**
+     * Compiles the object tree of a deserialized pattern, if that has not
+     * been done yet.
+     */
+    void ensureCompiled() {
         if (!compiled) {
             synchronized(this) {
                 if (!compiled)
                     compile();
             }
         }
-        Matcher m = new Matcher(this, input);
-        return m;
     }
 
     /**
@@ -1798,6 +1849,18 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
             root = hasSupplementary ? new StartS(matchRoot) : new Start(matchRoot);
         }
 
+        // Literal prefiltering of a search at every index, which reports
+        // hitEnd whenever it fails, as the prefilter does
+        if (root instanceof Start) {
+            Prefilter pf = Prefilter.of(matchRoot);
+            if (pf != null) {
+                if (pf.hasLiterals())
+                    prefilter = pf;
+                if (pf.hasFirstChars())
+                    ((Start)root).prefilter = pf;
+            }
+        }
+
         // Optimize the greedy Loop to prevent exponential backtracking, IF there
         // is no group ref in this pattern. With a non-negative localTCNCount value,
         // the greedy type Loop, Curly will skip the backtracking for any starting
@@ -1811,6 +1874,10 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
             }
         }
 
+        if ((flags & LINEAR) != 0) {
+            linear = LinearEngine.compile(this);
+        }
+
         // Release temporary storage
         temp = null;
         buffer = null;
@@ -3590,6 +3657,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      */
     static class Start extends Node {
         int minLength;
+        Prefilter prefilter;    // of the first chars, or null
         Start(Node node) {
             this.next = node;
             TreeInfo info = new TreeInfo();
@@ -3602,7 +3670,12 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
                 return false;
             }
             int guard = matcher.to - minLength;
+            // With first chars, a match is known to start with a char
+            int last = Math.min(guard, matcher.to - 1);
             for (; i <= guard; i++) {
+                if (prefilter != null &&
+                    (i = prefilter.nextStart(seq, i, last)) > last)
+                    break;
                 if (next.match(matcher, i, seq)) {
                     matcher.first = i;
                     matcher.groups[0] = matcher.first;
@@ -3634,7 +3707,20 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
                 return false;
             }
             int guard = matcher.to - minLength;
+            int last = Math.min(guard, matcher.to - 1);
             while (i <= guard) {
+                if (prefilter != null) {
+                    int j = prefilter.nextStart(seq, i, last);
+                    if (j > last)
+                        break;
+                    // Not within a pair
+                    if (j > i && Character.isLowSurrogate(seq.charAt(j)) &&
+                        Character.isHighSurrogate(seq.charAt(j - 1))) {
+                        i = j + 1;
+                        continue;
+                    }
+                    i = j;
+                }
                 //if ((ret = next.match(matcher, i, seq)) || i == guard)
                 if (next.match(matcher, i, seq)) {
                     matcher.first = i;
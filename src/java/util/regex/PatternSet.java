@@ -0,0 +1,540 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * A set of compiled regular expressions that are searched for together,
+ * in a single pass over the input.
+ *
+ * <p> A pattern set reports which of its patterns are found in an input
+ * sequence, that is, the patterns for which {@link Matcher#find() find}
+ * would return {@code true} on a new matcher of the input.  When there are
+ * many patterns this is much faster than calling {@code find} for each of
+ * them:
+ *
+ * <blockquote><pre>
+ * PatternSet rules = PatternSet.compile(
+ *     List.of("union\\s+select", "&lt;script", "\\.\\./"), Pattern.CASE_INSENSITIVE);
+ * BitSet hits = rules.matches(requestLine);
+ * </pre></blockquote>
+ *
+ * <p> Patterns that are strings of literal characters are searched for
+ * with an Aho-Corasick automaton.  Other patterns that the linear-time
+ * matcher of {@link Pattern#LINEAR} supports are combined into a single
+ * deterministic automaton, whose states are built as the input needs them
+ * and shared by all threads using the set.  Both automata examine each
+ * char of the input once, whatever the number of patterns.  A pattern
+ * with boundary matchers, such as {@code ^} or {@code \b}, is confirmed by
+ * a matcher when the automaton finds it, and the remaining patterns, for
+ * example those with back references or lookaround, are searched for by
+ * their own matchers.
+ *
+ * <p> Instances of this class are immutable and are safe for use by
+ * multiple concurrent threads.
+ *
+ * @see Pattern
+ * @since 11
+ */
+public final class PatternSet {
+
+    /**
+     * The maximum number of states of the combined automaton. When it is
+     * reached the automaton is discarded and built again.
+     */
+    private static final int MAX_DFA_STATES = 10000;
+
+    /**
+     * The number of times the combined automaton may be discarded before
+     * its patterns are left to their own matchers.
+     */
+    private static final int MAX_DFA_RESETS = 8;
+
+    /**
+     * The maximum size of the transition table of the literal patterns,
+     * beyond which they are added to the combined automaton instead.
+     */
+    private static final int MAX_LITERAL_TABLE = 1 << 22;
+
+    private final Pattern[] patterns;
+
+    // The automaton of the literal patterns, or null
+    private final Literals literals;
+
+    // The combined program of the other supported patterns, or null
+    private final LinearEngine engine;
+    private final int[] starts;         // the pcs of their programs
+    private final int[] combined;       // their indices
+    private final boolean[] confirm;    // if a pattern must be confirmed
+
+    // The indices of the patterns searched for by their own matchers
+    private final int[] others;
+
+    private volatile LinearEngine.Dfa dfa;
+    private volatile int dfaResets;
+
+    private PatternSet(Pattern[] patterns) {
+        this.patterns = patterns;
+        this.confirm = new boolean[patterns.length];
+        List<int[]> words = new ArrayList<>();
+        List<Integer> wordIds = new ArrayList<>();
+        LinearEngine.Compiler c = new LinearEngine.Compiler();
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> combined = new ArrayList<>();
+        List<Integer> others = new ArrayList<>();
+        long length = 0;
+        BitSet chars = new BitSet();
+        for (Pattern p : patterns) {
+            p.ensureCompiled();
+            if (isLiteral(p)) {
+                for (int ch : ((Pattern.Slice)p.matchRoot).buffer) {
+                    chars.set(ch);
+                    length++;
+                }
+            }
+        }
+        // The table has a row for each prefix and a column for each char
+        boolean useTable =
+            (length + 1) * (chars.cardinality() + 1) <= MAX_LITERAL_TABLE;
+        for (int i = 0; i < patterns.length; i++) {
+            Pattern p = patterns[i];
+            if (useTable && isLiteral(p)) {
+                words.add(((Pattern.Slice)p.matchRoot).buffer);
+                wordIds.add(i);
+            } else if (c.compile(p, i)) {
+                starts.add(c.start);
+                combined.add(i);
+                confirm[i] = !c.exact;
+            } else {
+                others.add(i);
+            }
+        }
+        this.literals = words.isEmpty() ? null : new Literals(words, wordIds);
+        this.engine = combined.isEmpty() ? null : new LinearEngine(c);
+        this.starts = toArray(starts);
+        this.combined = toArray(combined);
+        this.others = toArray(others);
+    }
+
+    /**
+     * Tells whether a pattern is a string of literal BMP chars.
+     */
+    private static boolean isLiteral(Pattern p) {
+        Pattern.Node root = p.matchRoot;
+        return root.getClass() == Pattern.Slice.class &&
+               root.next == Pattern.lastAccept;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] a = new int[list.size()];
+        for (int i = 0; i < a.length; i++)
+            a[i] = list.get(i);
+        return a;
+    }
+
+    /**
+     * Compiles the given regular expressions into a pattern set.
+     *
+     * @param  regexes
+     *         The expressions to be compiled
+     * @return the given regular expressions compiled into a pattern set,
+     *         in the given order
+     * @throws  PatternSyntaxException
+     *          If the syntax of an expression is invalid
+     */
+    public static PatternSet compile(String... regexes) {
+        return compile(Arrays.asList(regexes), 0);
+    }
+
+    /**
+     * Compiles the given regular expressions into a pattern set with the
+     * given flags.
+     *
+     * @param  regexes
+     *         The expressions to be compiled
+     * @param  flags
+     *         Match flags of all the patterns, a bit mask that may include
+     *         the flags accepted by {@link Pattern#compile(String, int)}
+     * @return the given regular expressions compiled into a pattern set,
+     *         in the iteration order of the collection
+     * @throws  IllegalArgumentException
+     *          If bit values other than those corresponding to the defined
+     *          match flags are set in {@code flags}
+     * @throws  PatternSyntaxException
+     *          If the syntax of an expression is invalid
+     */
+    public static PatternSet compile(Collection<String> regexes, int flags) {
+        Pattern[] patterns = new Pattern[regexes.size()];
+        int i = 0;
+        for (String regex : regexes) {
+            patterns[i++] = Pattern.compile(regex, flags);
+        }
+        return new PatternSet(patterns);
+    }
+
+    /**
+     * Returns a pattern set of the given compiled patterns.
+     *
+     * @param  patterns
+     *         The patterns of the set
+     * @return a pattern set of the given patterns, in the iteration order
+     *         of the collection
+     */
+    public static PatternSet of(Collection<Pattern> patterns) {
+        Pattern[] a = patterns.toArray(new Pattern[0]);
+        for (Pattern p : a) {
+            Objects.requireNonNull(p);
+        }
+        return new PatternSet(a);
+    }
+
+    /**
+     * Returns the number of patterns in this set.
+     *
+     * @return the number of patterns in this set
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * Returns the pattern of this set at the given index.
+     *
+     * @param  index
+     *         The index of a pattern
+     * @return the pattern at the index
+     * @throws IndexOutOfBoundsException
+     *         If the index is negative or not less than {@link #size()}
+     */
+    public Pattern pattern(int index) {
+        Objects.checkIndex(index, patterns.length);
+        return patterns[index];
+    }
+
+    /**
+     * Returns the indices of the patterns of this set that are found in
+     * the given input sequence.
+     *
+     * @param  input
+     *         The character sequence to be searched
+     * @return a bit set of the indices of the patterns found
+     */
+    public BitSet matches(CharSequence input) {
+        BitSet found = new BitSet(patterns.length);
+        scan(Objects.requireNonNull(input), found, false);
+        return found;
+    }
+
+    /**
+     * Returns the indices of the patterns of this set that are found in
+     * the given bytes, read as ISO-8859-1 (Latin-1) characters.
+     *
+     * @param  input
+     *         The bytes to be searched
+     * @param  off
+     *         The index of the first byte to search
+     * @param  len
+     *         The number of bytes to search
+     * @return a bit set of the indices of the patterns found
+     * @throws IndexOutOfBoundsException
+     *         If {@code off} or {@code len} is negative, or
+     *         {@code off + len} is greater than {@code input.length}
+     */
+    public BitSet matches(byte[] input, int off, int len) {
+        Objects.checkFromIndexSize(off, len, input.length);
+        BitSet found = new BitSet(patterns.length);
+        scan(new Latin1(input, off, len), found, false);
+        return found;
+    }
+
+    /**
+     * Tells whether any pattern of this set is found in the given input
+     * sequence.
+     *
+     * @param  input
+     *         The character sequence to be searched
+     * @return {@code true} if, and only if, a pattern is found
+     */
+    public boolean matchesAny(CharSequence input) {
+        BitSet found = new BitSet(patterns.length);
+        scan(Objects.requireNonNull(input), found, true);
+        return !found.isEmpty();
+    }
+
+    /**
+     * Sets the bits of the patterns found in the input, stopping at the
+     * first if any is true.
+     */
+    private void scan(CharSequence seq, BitSet found, boolean any) {
+        BitSet candidates = new BitSet();
+        Literals lit = literals;
+        int ls = 0;
+        LinearEngine.Dfa dfa = (engine != null) ? dfa() : null;
+        LinearEngine.DState ds = (dfa != null) ? dfa.start : null;
+        // Whether the combined automaton has seen all of the input
+        boolean complete = ds != null;
+        boolean hit = ds != null && ds.match && report(ds, found, candidates);
+        for (int i = 0, len = seq.length(); i < len; i++) {
+            if (hit && any)
+                return;
+            char c = seq.charAt(i);
+            if (lit != null) {
+                ls = lit.next(ls, c);
+                int[] ids = lit.outputs[ls];
+                if (ids != null) {
+                    for (int id : ids)
+                        found.set(id);
+                    hit = true;
+                }
+            }
+            if (ds != null) {
+                ds = dfa.next(ds, c);
+                if (ds == null) {
+                    // A surrogate, or too many states
+                    if (dfa.full)
+                        discard(dfa);
+                    complete = false;
+                    if (lit == null)
+                        break;
+                } else if (ds.match && report(ds, found, candidates)) {
+                    hit = true;
+                }
+            }
+        }
+        if (hit && any)
+            return;
+        for (int id : combined) {
+            if (!found.get(id) && (!complete || candidates.get(id)) &&
+                patterns[id].matcher(seq).find()) {
+                found.set(id);
+                if (any)
+                    return;
+            }
+        }
+        for (int id : others) {
+            if (patterns[id].matcher(seq).find()) {
+                found.set(id);
+                if (any)
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Records the patterns matched in a state of the combined automaton,
+     * as found or as candidates to confirm, returning true if any is
+     * found.
+     */
+    private boolean report(LinearEngine.DState ds, BitSet found, BitSet candidates) {
+        boolean hit = false;
+        for (int id : ds.matches) {
+            if (confirm[id]) {
+                candidates.set(id);
+            } else {
+                found.set(id);
+                hit = true;
+            }
+        }
+        return hit;
+    }
+
+    private LinearEngine.Dfa dfa() {
+        LinearEngine.Dfa dfa = this.dfa;
+        if (dfa == null && dfaResets < MAX_DFA_RESETS) {
+            this.dfa = dfa = engine.newDfa(starts, MAX_DFA_STATES);
+        }
+        return dfa;
+    }
+
+    private void discard(LinearEngine.Dfa dfa) {
+        if (this.dfa == dfa)
+            this.dfa = null;
+        dfaResets++;
+    }
+
+    /**
+     * An Aho-Corasick automaton of the literal patterns, with the failure
+     * transitions resolved into a table.  The chars of the literals are
+     * numbered from 1, and all other chars are 0.
+     */
+    private static final class Literals {
+        final int[] latin1Classes = new int[256];
+        final char[] wideChars;         // sorted
+        final int[] wideClasses;
+        final int classes;
+        final int[] delta;              // [state * classes + class]
+        final int[][] outputs;          // the ids found at each state
+
+        Literals(List<int[]> words, List<Integer> ids) {
+            TreeSet<Integer> chars = new TreeSet<>();
+            for (int[] word : words) {
+                for (int ch : word)
+                    chars.add(ch);
+            }
+            Map<Integer, Integer> classOf = new HashMap<>();
+            int wide = 0;
+            for (int ch : chars) {
+                int cls = classOf.size() + 1;
+                classOf.put(ch, cls);
+                if (ch < 256) {
+                    latin1Classes[ch] = cls;
+                } else {
+                    wide++;
+                }
+            }
+            wideChars = new char[wide];
+            wideClasses = new int[wide];
+            int n = 0;
+            for (int ch : chars) {
+                if (ch >= 256) {
+                    wideChars[n] = (char)ch;
+                    wideClasses[n++] = classOf.get(ch);
+                }
+            }
+            classes = chars.size() + 1;
+
+            // The trie, with -1 for missing transitions
+            int states = 1;
+            int[] trie = new int[classes * 16];
+            Arrays.fill(trie, -1);
+            List<int[]> outs = new ArrayList<>();
+            outs.add(null);
+            for (int w = 0; w < words.size(); w++) {
+                int s = 0;
+                for (int ch : words.get(w)) {
+                    int t = s * classes + classOf.get(ch);
+                    if (trie[t] < 0) {
+                        if ((states + 1) * classes > trie.length) {
+                            int length = trie.length;
+                            trie = Arrays.copyOf(trie, length * 2);
+                            Arrays.fill(trie, length, trie.length, -1);
+                        }
+                        trie[t] = states++;
+                        outs.add(null);
+                    }
+                    s = trie[t];
+                }
+                outs.set(s, append(outs.get(s), ids.get(w)));
+            }
+
+            // Resolve the failure transitions breadth first
+            int[] fail = new int[states];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int cls = 0; cls < classes; cls++) {
+                int t = trie[cls];
+                if (t < 0) {
+                    trie[cls] = 0;
+                } else {
+                    queue.add(t);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int s = queue.poll();
+                int f = fail[s];
+                for (int cls = 0; cls < classes; cls++) {
+                    int t = trie[s * classes + cls];
+                    if (t < 0) {
+                        trie[s * classes + cls] = trie[f * classes + cls];
+                    } else {
+                        fail[t] = trie[f * classes + cls];
+                        int[] inherited = outs.get(fail[t]);
+                        if (inherited != null) {
+                            for (int id : inherited)
+                                outs.set(t, append(outs.get(t), id));
+                        }
+                        queue.add(t);
+                    }
+                }
+            }
+            delta = Arrays.copyOf(trie, states * classes);
+            outputs = outs.toArray(new int[0][]);
+        }
+
+        private static int[] append(int[] a, int id) {
+            if (a == null)
+                return new int[] { id };
+            a = Arrays.copyOf(a, a.length + 1);
+            a[a.length - 1] = id;
+            return a;
+        }
+
+        int next(int state, char c) {
+            int cls;
+            if (c < 256) {
+                cls = latin1Classes[c];
+            } else {
+                int i = Arrays.binarySearch(wideChars, c);
+                cls = (i >= 0) ? wideClasses[i] : 0;
+            }
+            return delta[state * classes + cls];
+        }
+    }
+
+    /**
+     * A view of ISO-8859-1 bytes as chars.
+     */
+    private static final class Latin1 implements CharSequence {
+        private final byte[] bytes;
+        private final int off;
+        private final int len;
+
+        Latin1(byte[] bytes, int off, int len) {
+            this.bytes = bytes;
+            this.off = off;
+            this.len = len;
+        }
+
+        public int length() {
+            return len;
+        }
+
+        public char charAt(int index) {
+            Objects.checkIndex(index, len);
+            return (char)(bytes[off + index] & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            Objects.checkFromToIndex(start, end, len);
+            return new Latin1(bytes, off + start, end - start);
+        }
+
+        public String toString() {
+            return new String(bytes, off, len, ISO_8859_1);
+        }
+    }
+}
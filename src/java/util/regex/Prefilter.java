@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern.CharPredicate;
+import java.util.regex.Pattern.Node;
+
+/**
+ * Literal facts about the matches of a pattern, used to skip input that
+ * cannot match without running the nodes.
+ *
+ * <p> The required literals are strings of which every match contains at
+ * least one, such as {@code ERROR} in {@code .*ERROR.*} or the two
+ * methods in {@code (GET|POST) /api}, where {@code " /api"} is preferred
+ * as it is a single string.  A search that does not find any of them in
+ * the region fails at once.  They are found with {@link String#indexOf},
+ * which the VM compiles to a vectorized scan of the chars, or of the
+ * Latin-1 bytes, of a string.
+ *
+ * <p> The first chars are the chars a match can start with.  The Start
+ * node only tries to match where one of them is.
+ */
+final class Prefilter {
+
+    /**
+     * The maximum number of strings in a set of required literals.
+     */
+    private static final int MAX_LITERALS = 8;
+
+    /**
+     * The maximum number of nodes visited to find the first chars.
+     */
+    private static final int MAX_NODES = 1000;
+
+    private final String[] literals;    // required, or null
+    private final boolean[] first;      // the Latin-1 first chars, or null
+    private final boolean firstWide;    // if other chars can be first
+
+    private Prefilter(String[] literals, boolean[] first, boolean firstWide) {
+        this.literals = literals;
+        this.first = first;
+        this.firstWide = firstWide;
+    }
+
+    /**
+     * Returns the prefilter of the object tree of a pattern, or null if
+     * nothing is known about its matches.
+     */
+    static Prefilter of(Node matchRoot) {
+        String[] literals = requiredLiterals(matchRoot);
+        FirstChars fc = new FirstChars();
+        boolean[] first = null;
+        if (fc.add(matchRoot, null)) {
+            // Not worth checking if most chars can start a match
+            int count = 0;
+            for (boolean b : fc.chars) {
+                if (b)
+                    count++;
+            }
+            if (count < 64)
+                first = fc.chars;
+        }
+        if (literals == null && first == null)
+            return null;
+        return new Prefilter(literals, first, fc.wide);
+    }
+
+    /**
+     * Tells whether the prefilter has required literals.
+     */
+    boolean hasLiterals() {
+        return literals != null;
+    }
+
+    /**
+     * Tells whether the prefilter has first chars.
+     */
+    boolean hasFirstChars() {
+        return first != null;
+    }
+
+    /**
+     * Returns false if none of the required literals is in the region
+     * from from to to, where a match starting at or after from would be.
+     */
+    boolean mayMatch(CharSequence seq, int from, int to) {
+        if (literals == null)
+            return true;
+        for (String literal : literals) {
+            if (indexOf(seq, literal, from, to) >= 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first index from i up to last where a match may start,
+     * or last + 1 if there is none.
+     */
+    int nextStart(CharSequence seq, int i, int last) {
+        boolean[] first = this.first;
+        for (; i <= last; i++) {
+            char c = seq.charAt(i);
+            if (c < 256 ? first[c] : firstWide)
+                return i;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index of the literal in the region, or -1.
+     */
+    private static int indexOf(CharSequence seq, String literal, int from, int to) {
+        int max = to - literal.length();
+        if (from > max)
+            return -1;
+        int j;
+        if (seq instanceof String) {
+            j = ((String)seq).indexOf(literal, from);
+        } else if (seq instanceof StringBuilder) {
+            j = ((StringBuilder)seq).indexOf(literal, from);
+        } else {
+            char c = literal.charAt(0);
+            int n = literal.length();
+        next:
+            for (j = from; j <= max; j++) {
+                if (seq.charAt(j) != c)
+                    continue;
+                for (int k = 1; k < n; k++) {
+                    if (seq.charAt(j + k) != literal.charAt(k))
+                        continue next;
+                }
+                return j;
+            }
+            return -1;
+        }
+        return (j <= max) ? j : -1;
+    }
+
+    /**
+     * Returns the literals of which a match contains at least one, or null.
+     * Only nodes that every match goes through are looked at: those from
+     * the match root following next, and the branches of a Branch there.
+     */
+    private static String[] requiredLiterals(Node node) {
+        String best = null;
+        String[] bestSet = null;
+        int bestSetLength = 0;      // of its shortest string
+        while (node != null) {
+            if (node.getClass() == Pattern.Slice.class) {
+                String s = literal((Pattern.Slice)node);
+                if (best == null || s.length() > best.length())
+                    best = s;
+            } else if (node instanceof Pattern.Branch) {
+                Pattern.Branch b = (Pattern.Branch)node;
+                String[] set = literals(b);
+                if (set != null) {
+                    int length = Integer.MAX_VALUE;
+                    for (String s : set)
+                        length = Math.min(length, s.length());
+                    if (length > bestSetLength) {
+                        bestSet = set;
+                        bestSetLength = length;
+                    }
+                }
+                node = b.conn.next;
+                continue;
+            } else if (node instanceof Pattern.Prolog) {
+                node = ((Pattern.Prolog)node).loop.next;
+                continue;
+            } else if (!continuesWithNext(node)) {
+                break;
+            }
+            node = node.next;
+        }
+        // A single string is checked faster than a set
+        if (best != null && (best.length() >= 2 || bestSet == null))
+            return new String[] { best };
+        if (bestSet != null && bestSetLength >= 2)
+            return bestSet;
+        return null;
+    }
+
+    /**
+     * Returns the strings of a Branch whose branches are all Slices, or
+     * null.
+     */
+    private static String[] literals(Pattern.Branch b) {
+        if (b.size > MAX_LITERALS)
+            return null;
+        String[] set = new String[b.size];
+        for (int i = 0; i < b.size; i++) {
+            Node atom = b.atoms[i];
+            if (atom == null || atom.getClass() != Pattern.Slice.class ||
+                atom.next != b.conn)
+                return null;
+            set[i] = literal((Pattern.Slice)atom);
+        }
+        return set;
+    }
+
+    private static String literal(Pattern.Slice slice) {
+        StringBuilder sb = new StringBuilder(slice.buffer.length);
+        for (int c : slice.buffer)
+            sb.append((char)c);
+        return sb.toString();
+    }
+
+    /**
+     * Tells whether a node only ever continues a match with its next node.
+     * Lookaheads and lookbehinds are not looked past: they may read the
+     * input up to its end, and so set hitEnd and requireEnd, at an index
+     * the prefilter would skip.
+     */
+    private static boolean continuesWithNext(Node node) {
+        return node instanceof Pattern.SliceNode ||
+               node instanceof Pattern.CharProperty ||
+               node instanceof Pattern.CharPropertyGreedy ||
+               node instanceof Pattern.Ques ||
+               node instanceof Pattern.Curly ||
+               node instanceof Pattern.GroupCurly ||
+               node instanceof Pattern.GroupHead ||
+               node instanceof Pattern.GroupTail ||
+               node instanceof Pattern.BranchConn ||
+               node instanceof Pattern.LineEnding ||
+               isAssertion(node);
+    }
+
+    private static boolean isAssertion(Node node) {
+        return node instanceof Pattern.Begin ||
+               node instanceof Pattern.End ||
+               node instanceof Pattern.Caret ||
+               node instanceof Pattern.UnixCaret ||
+               node instanceof Pattern.LastMatch ||
+               node instanceof Pattern.Dollar ||
+               node instanceof Pattern.UnixDollar ||
+               node instanceof Pattern.Bound;
+    }
+
+    /**
+     * What follows the end of an atom, that is the accept node.
+     */
+    private static final class Cont {
+        final Node node;
+        final Cont next;
+
+        Cont(Node node, Cont next) {
+            this.node = node;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Collects the chars a match can start with.
+     */
+    private static final class FirstChars {
+        final boolean[] chars = new boolean[256];
+        boolean wide;
+        int nodes;
+
+        /**
+         * Adds the chars that the match from node, continued by cont at
+         * the end of an atom, can start with, returning false if they are
+         * not known or the match can be empty.
+         */
+        boolean add(Node node, Cont cont) {
+            while (true) {
+                if (++nodes > MAX_NODES)
+                    return false;
+                if (node == Pattern.accept) {
+                    if (cont == null)
+                        return false;
+                    node = cont.node;
+                    cont = cont.next;
+                } else if (node.getClass() == Pattern.Slice.class ||
+                           node instanceof Pattern.SliceS) {
+                    int c = ((Pattern.SliceNode)node).buffer[0];
+                    add(ch -> ch == c, c >= 256);
+                    return true;
+                } else if (node instanceof Pattern.SliceNode) {
+                    // Case insensitive
+                    int c = ((Pattern.SliceNode)node).buffer[0];
+                    add(ch -> ch == c || ASCII.toLower(ch) == c ||
+                              Character.toLowerCase(Character.toUpperCase(ch)) == c,
+                        true);
+                    return true;
+                } else if (node instanceof Pattern.CharProperty) {
+                    add(((Pattern.CharProperty)node).predicate, true);
+                    return true;
+                } else if (node instanceof Pattern.CharPropertyGreedy) {
+                    Pattern.CharPropertyGreedy g = (Pattern.CharPropertyGreedy)node;
+                    add(g.predicate, true);
+                    if (g.cmin > 0)
+                        return true;
+                    node = node.next;
+                } else if (node instanceof Pattern.LineEnding) {
+                    add(ch -> ch >= 0x0A && ch <= 0x0D || ch == 0x85, true);
+                    return true;
+                } else if (node instanceof Pattern.Ques) {
+                    Pattern.Ques q = (Pattern.Ques)node;
+                    if (!add(q.atom, new Cont(node.next, cont)))
+                        return false;
+                    node = node.next;
+                } else if (node instanceof Pattern.Curly) {
+                    Pattern.Curly c = (Pattern.Curly)node;
+                    if (!add(c.atom, new Cont(node.next, cont)))
+                        return false;
+                    if (c.cmin > 0)
+                        return true;
+                    node = node.next;
+                } else if (node instanceof Pattern.GroupCurly) {
+                    Pattern.GroupCurly gc = (Pattern.GroupCurly)node;
+                    if (!add(gc.atom, new Cont(node.next, cont)))
+                        return false;
+                    if (gc.cmin > 0)
+                        return true;
+                    node = node.next;
+                } else if (node instanceof Pattern.Prolog) {
+                    // The body ends at the loop, which goes on to its next
+                    Pattern.Loop loop = ((Pattern.Prolog)node).loop;
+                    if (!add(loop.body, cont))
+                        return false;
+                    if (loop.cmin > 0)
+                        return true;
+                    node = loop.next;
+                } else if (node instanceof Pattern.Loop) {
+                    node = node.next;
+                } else if (node instanceof Pattern.Branch) {
+                    Pattern.Branch b = (Pattern.Branch)node;
+                    for (int i = 0; i < b.size; i++) {
+                        Node atom = b.atoms[i];
+                        if (!add((atom != null) ? atom : b.conn, cont))
+                            return false;
+                    }
+                    return true;
+                } else if (node instanceof Pattern.GroupHead ||
+                           node instanceof Pattern.GroupTail ||
+                           node instanceof Pattern.BranchConn ||
+                           isAssertion(node)) {
+                    // Zero width
+                    node = node.next;
+                } else {
+                    // Including lookarounds, see continuesWithNext
+                    return false;
+                }
+            }
+        }
+
+        private void add(CharPredicate p, boolean wide) {
+            for (int c = 0; c < 256; c++) {
+                if (p.is(c))
+                    chars[c] = true;
+            }
+            this.wide |= wide;
+        }
+    }
+}
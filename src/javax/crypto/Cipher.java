@@ -467,6 +467,26 @@ public class Cipher {
         }
     }
 
+    /**
+     * The result of a getInstance(String) call that found a service
+     * supporting the mode and padding, cached by transformation.
+     */
+    private static final class CachedService {
+        final Service service;
+        final List<Transform> transforms;
+        final List<ServiceId> serviceIds;
+
+        CachedService(Service service, List<Transform> transforms,
+                List<ServiceId> serviceIds) {
+            this.service = service;
+            this.transforms = transforms;
+            this.serviceIds = serviceIds;
+        }
+    }
+
+    private static final ServiceCache<CachedService> serviceCache =
+        new ServiceCache<>();
+
     // get the transform matching the specified service
     private static Transform getTransform(Service s,
                                           List<Transform> transforms) {
@@ -525,6 +545,17 @@ public class Cipher {
         if ((transformation == null) || transformation.equals("")) {
             throw new NoSuchAlgorithmException("Null or empty transformation");
         }
+        CachedService cached = serviceCache.get(transformation);
+        if (cached != null) {
+            // the services before the cached one cannot be used,
+            // fail over to the ones after it
+            Iterator<Service> t = ServiceCache.servicesAfter(
+                    GetInstance.getServices(cached.serviceIds),
+                    cached.service);
+            return new Cipher(null, cached.service, t, transformation,
+                    cached.transforms);
+        }
+        ServiceCache.Snapshot snapshot = ServiceCache.snapshot();
         List<Transform> transforms = getTransforms(transformation);
         List<ServiceId> cipherServices = new ArrayList<>(transforms.size());
         for (Transform transform : transforms) {
@@ -551,6 +582,8 @@ public class Cipher {
                 continue;
             }
             if (canuse == S_YES) {
+                serviceCache.put(transformation, snapshot,
+                        new CachedService(s, transforms, cipherServices));
                 return new Cipher(null, s, t, transformation, transforms);
             } else { // S_MAYBE, try out if it works
                 try {
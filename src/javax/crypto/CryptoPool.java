@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javax.crypto;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProviderException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread-safe pool of reusable {@code Cipher}, {@code Mac} or
+ * {@code MessageDigest} objects.
+ *
+ * <p> Creating these objects involves looking up the provider
+ * implementing the algorithm, and initializing a {@code Cipher} or
+ * {@code Mac} involves processing its key. An application performing many
+ * short, independent operations with the same algorithm can instead
+ * {@linkplain #acquire acquire} an object from a pool, use it in a single
+ * thread, and {@linkplain #release release} it to the pool when done:
+ *
+ * <pre>
+ *     CryptoPool&lt;Mac&gt; macs = CryptoPool.ofMac("HmacSHA256", key, 64);
+ *     ...
+ *     Mac mac = macs.acquire();
+ *     try {
+ *         tag = mac.doFinal(message);
+ *     } finally {
+ *         macs.release(mac);
+ *     }
+ * </pre>
+ *
+ * <p> An object is reset when it is released, so that the next user
+ * starts from a clean state: a {@code MessageDigest} is
+ * {@linkplain MessageDigest#reset reset}, and a {@code Cipher} or
+ * {@code Mac} is initialized again with the key the pool was created
+ * with, which also discards a key set by the previous user. A
+ * {@code Cipher} is initialized for encryption without parameters, so
+ * the provider generates new ones (e.g., a random IV) for each user. An
+ * object that cannot be initialized again is not returned to the pool.
+ *
+ * <p> At most {@code maxIdle} released objects are kept; further objects
+ * are released to the garbage collector. New objects are created when
+ * the pool is empty, so the number of objects in use is not limited.
+ *
+ * @param <T> the type of the pooled objects
+ *
+ * @since 11
+ */
+public final class CryptoPool<T> {
+
+    /**
+     * Creates a new object for the pool.
+     */
+    private interface Factory<T> {
+        T create() throws GeneralSecurityException;
+    }
+
+    /**
+     * Restores the state of a released object.
+     */
+    private interface Reset<T> {
+        void reset(T obj) throws GeneralSecurityException;
+    }
+
+    private final Factory<T> factory;
+    private final Reset<T> reset;
+    private final int maxIdle;
+
+    private final ConcurrentLinkedDeque<T> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private CryptoPool(Factory<T> factory, Reset<T> reset, int maxIdle)
+            throws GeneralSecurityException {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle must not be negative");
+        }
+        this.factory = factory;
+        this.reset = reset;
+        this.maxIdle = maxIdle;
+        // fail early if the algorithm is not available
+        release(factory.create());
+    }
+
+    /**
+     * Returns a pool of {@code Cipher} objects implementing the specified
+     * transformation, as returned by {@link Cipher#getInstance(String)},
+     * and initialized for encryption with the specified key.
+     *
+     * <p> An acquired {@code Cipher} is ready to encrypt with parameters
+     * generated by the provider, which are returned by
+     * {@link Cipher#getParameters getParameters}. A user that needs other
+     * parameters, or decryption, initializes it again.
+     *
+     * @param transformation the name of the transformation, e.g.,
+     * <i>AES/GCM/NoPadding</i>
+     * @param key the key to initialize the {@code Cipher} objects with
+     * @param maxIdle the maximum number of released objects kept in the pool
+     *
+     * @return the pool
+     *
+     * @throws IllegalArgumentException if {@code maxIdle} is negative
+     * @throws NoSuchAlgorithmException if {@code transformation}
+     *         is {@code null}, empty, in an invalid format,
+     *         or if no {@code Provider} supports a {@code CipherSpi}
+     *         implementation for the specified algorithm
+     * @throws NoSuchPaddingException if {@code transformation}
+     *         contains a padding scheme that is not available
+     * @throws InvalidKeyException if the given key is inappropriate for
+     *         initializing the {@code Cipher} objects, or if they cannot be
+     *         initialized for encryption without parameters
+     * @throws NullPointerException if {@code key} is {@code null}
+     */
+    public static CryptoPool<Cipher> ofCipher(String transformation,
+            Key key, int maxIdle) throws NoSuchAlgorithmException,
+            NoSuchPaddingException, InvalidKeyException {
+        Objects.requireNonNull(key, "null key");
+        try {
+            return new CryptoPool<>(() -> {
+                Cipher cipher = Cipher.getInstance(transformation);
+                cipher.init(Cipher.ENCRYPT_MODE, key);
+                return cipher;
+            }, c -> c.init(Cipher.ENCRYPT_MODE, key), maxIdle);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException
+                | InvalidKeyException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new ProviderException(e);
+        }
+    }
+
+    /**
+     * Returns a pool of {@code Mac} objects implementing the specified
+     * algorithm, as returned by {@link Mac#getInstance(String)}, and
+     * initialized with the specified key.
+     *
+     * @param algorithm the standard name of the requested MAC algorithm
+     * @param key the key to initialize the {@code Mac} objects with
+     * @param maxIdle the maximum number of released objects kept in the pool
+     *
+     * @return the pool
+     *
+     * @throws IllegalArgumentException if {@code maxIdle} is negative
+     * @throws NoSuchAlgorithmException if no {@code Provider} supports a
+     *         {@code MacSpi} implementation for the specified algorithm
+     * @throws InvalidKeyException if the given key is inappropriate for
+     *         initializing the {@code Mac} objects
+     * @throws NullPointerException if {@code algorithm} or {@code key}
+     *         is {@code null}
+     */
+    public static CryptoPool<Mac> ofMac(String algorithm, Key key,
+            int maxIdle) throws NoSuchAlgorithmException, InvalidKeyException {
+        Objects.requireNonNull(key, "null key");
+        try {
+            return new CryptoPool<>(() -> {
+                Mac mac = Mac.getInstance(algorithm);
+                mac.init(key);
+                return mac;
+            }, m -> m.init(key), maxIdle);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new ProviderException(e);
+        }
+    }
+
+    /**
+     * Returns a pool of {@code MessageDigest} objects implementing the
+     * specified algorithm, as returned by
+     * {@link MessageDigest#getInstance(String)}.
+     *
+     * @param algorithm the name of the algorithm requested
+     * @param maxIdle the maximum number of released objects kept in the pool
+     *
+     * @return the pool
+     *
+     * @throws IllegalArgumentException if {@code maxIdle} is negative
+     * @throws NoSuchAlgorithmException if no {@code Provider} supports a
+     *         {@code MessageDigestSpi} implementation for the
+     *         specified algorithm
+     * @throws NullPointerException if {@code algorithm} is {@code null}
+     */
+    public static CryptoPool<MessageDigest> ofMessageDigest(String algorithm,
+            int maxIdle) throws NoSuchAlgorithmException {
+        try {
+            return new CryptoPool<>(() -> MessageDigest.getInstance(algorithm),
+                    MessageDigest::reset, maxIdle);
+        } catch (NoSuchAlgorithmException e) {
+            throw e;
+        } catch (GeneralSecurityException e) {
+            throw new ProviderException(e);
+        }
+    }
+
+    /**
+     * Returns an object from this pool, or a new object if the pool is
+     * empty. The object must only be used by one thread at a time until
+     * it is released.
+     *
+     * @return an object ready to be used
+     *
+     * @throws ProviderException if a new object cannot be created
+     */
+    public T acquire() {
+        T obj = idle.pollFirst();
+        if (obj != null) {
+            idleCount.decrementAndGet();
+            return obj;
+        }
+        try {
+            return factory.create();
+        } catch (GeneralSecurityException e) {
+            throw new ProviderException("Cannot create a pooled object", e);
+        }
+    }
+
+    /**
+     * Resets the specified object and returns it to this pool. The object
+     * must have been acquired from this pool and must not be used after it
+     * is released. An object that cannot be reset is discarded.
+     *
+     * @param obj the object to release
+     *
+     * @throws NullPointerException if {@code obj} is {@code null}
+     */
+    public void release(T obj) {
+        Objects.requireNonNull(obj);
+        try {
+            reset.reset(obj);
+        } catch (GeneralSecurityException e) {
+            // its state cannot be restored, leave it to the GC
+            return;
+        }
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            // most recently used objects first
+            idle.offerFirst(obj);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -119,6 +119,10 @@ public class Mac implements Cloneable {
         lock = null;
     }
 
+    // the first service from a signed provider, by algorithm
+    private static final ServiceCache<Service> serviceCache =
+        new ServiceCache<>();
+
     private Mac(Service s, Iterator<Service> t, String algorithm) {
         firstService = s;
         serviceIterator = t;
@@ -178,6 +182,13 @@ public class Mac implements Cloneable {
     public static final Mac getInstance(String algorithm)
             throws NoSuchAlgorithmException {
         Objects.requireNonNull(algorithm, "null algorithm name");
+        Service first = serviceCache.get(algorithm);
+        if (first != null) {
+            return new Mac(first, ServiceCache.servicesAfter(
+                    GetInstance.getServices("Mac", algorithm), first),
+                    algorithm);
+        }
+        ServiceCache.Snapshot snapshot = ServiceCache.snapshot();
         List<Service> services = GetInstance.getServices("Mac", algorithm);
         // make sure there is at least one service from a signed provider
         Iterator<Service> t = services.iterator();
@@ -186,6 +197,7 @@ public class Mac implements Cloneable {
             if (JceSecurity.canUseProvider(s.getProvider()) == false) {
                 continue;
             }
+            serviceCache.put(algorithm, snapshot, s);
             return new Mac(s, t, algorithm);
         }
         throw new NoSuchAlgorithmException
@@ -106,6 +106,11 @@ class AsyncSSLConnection extends AbstractAsyncSSLConnection {
         plainConnection.close();
     }
 
+    @Override
+    boolean onClosed(Runnable action) {
+        return plainConnection.onClosed(action);
+    }
+
     @Override
     SSLTube getConnectionFlow() {
        return flow;
@@ -113,6 +113,11 @@ class AsyncSSLTunnelConnection extends AbstractAsyncSSLConnection {
         plainConnection.close();
     }
 
+    @Override
+    boolean onClosed(Runnable action) {
+        return plainConnection.onClosed(action);
+    }
+
     @Override
     SocketChannel channel() {
         return plainConnection.channel();
@@ -38,12 +38,25 @@ final class AsyncTriggerEvent extends AsyncEvent{
 
     private final Runnable trigger;
     private final Consumer<? super IOException> errorHandler;
+    private final SelectableChannel owner;
     AsyncTriggerEvent(Consumer<? super IOException> errorHandler,
                       Runnable trigger) {
+        this(null, errorHandler, trigger);
+    }
+    /**
+     * Creates an event that is triggered from the selector manager
+     * thread that handles the given channel, if not null.
+     */
+    AsyncTriggerEvent(SelectableChannel owner,
+                      Consumer<? super IOException> errorHandler,
+                      Runnable trigger) {
         super(0);
         this.trigger = Objects.requireNonNull(trigger);
         this.errorHandler = Objects.requireNonNull(errorHandler);
+        this.owner = owner;
     }
+    /** Returns the channel whose selector manager thread handles this event */
+    SelectableChannel owner() { return owner; }
     /** Returns null */
     @Override
     public SelectableChannel channel() { return null; }
@@ -26,28 +26,46 @@
 package jdk.internal.net.http;
 
 import java.io.IOException;
-import java.lang.System.Logger.Level;
 import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
 import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Flow;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import jdk.internal.net.http.common.FlowTube;
 import jdk.internal.net.http.common.Logger;
+import jdk.internal.net.http.common.MinimalFuture;
 import jdk.internal.net.http.common.Utils;
 
 /**
  * Http 1.1 connection pool.
+ *
+ * Idle connections are kept in one lock-free deque per route (see
+ * {@link CacheKey}), oldest first, so that checking out
+ * and returning connections to the same host do not contend on a common
+ * lock. Connections idle for longer than the keep-alive timeout are
+ * reaped by the selector manager thread.
+ *
+ * When {@code jdk.httpclient.maxConnectionsPerRoute} is set, at most
+ * that many HTTP/1.1 connections are open to each route; a request
+ * that finds none idle while the limit is reached waits in a queue,
+ * and is handed the next connection returned to the pool, or allowed
+ * to open a new one once a connection to that route is closed.
+ *
+ * Every HTTP/1.1 connection handed out by, or returned to, the pool is
+ * counted against its route until it is closed, and a route is removed
+ * from the pool once it has no open connections and no waiting requests.
  */
 final class ConnectionPool {
 
@@ -55,15 +73,19 @@ final class ConnectionPool {
             "jdk.httpclient.keepalive.timeout", 1200); // seconds
     static final long MAX_POOL_SIZE = Utils.getIntegerNetProperty(
             "jdk.httpclient.connectionPoolSize", 0); // unbounded
+    static final int MAX_CONNECTIONS_PER_ROUTE = Utils.getIntegerNetProperty(
+            "jdk.httpclient.maxConnectionsPerRoute", 0); // unbounded
     final Logger debug = Utils.getDebugLogger(this::dbgString, Utils.DEBUG);
 
-    // Pools of idle connections
+    // Routes, each with its pool of idle connections
 
-    private final HashMap<CacheKey,LinkedList<HttpConnection>> plainPool;
-    private final HashMap<CacheKey,LinkedList<HttpConnection>> sslPool;
-    private final ExpiryList expiryList;
+    private final ConcurrentHashMap<CacheKey,Route> plainPool;
+    private final ConcurrentHashMap<CacheKey,Route> sslPool;
+    private final AtomicInteger idleCount = new AtomicInteger();
+    // earliest expiry of an idle connection (epoch millis), or Long.MAX_VALUE
+    private final AtomicLong nextExpiry = new AtomicLong(Long.MAX_VALUE);
     private final String dbgTag; // used for debug
-    boolean stopped;
+    volatile boolean stopped;
 
     /**
      * Entries in connection pool are keyed by destination address and/or
@@ -106,6 +128,57 @@ final class ConnectionPool {
         }
     }
 
+    /**
+     * The idle connections, open connection count and waiting requests
+     * of one route. Once the last connection of a route is closed while
+     * no request waits, the route is retired: its count is set to -1 and
+     * it is removed from the pool. A retired route is never used again;
+     * whoever finds one looks the route up anew. Since every idle
+     * connection is counted, a route with idle connections is never
+     * retired.
+     */
+    private static final class Route {
+        final boolean secure;
+        final CacheKey key;
+        // idle connections, in the order they were returned; a connection
+        // the server has just closed is then the last one to be reused
+        final ConcurrentLinkedDeque<PooledConnection> idle =
+                new ConcurrentLinkedDeque<>();
+        // open connections counted against the route, or -1 once retired
+        final AtomicInteger open = new AtomicInteger();
+        final ConcurrentLinkedQueue<Waiter> waiters =
+                new ConcurrentLinkedQueue<>();
+        Route(boolean secure, CacheKey key) {
+            this.secure = secure;
+            this.key = key;
+        }
+    }
+
+    static final class PooledConnection {
+        final HttpConnection connection;
+        final long expiry; // epoch millis
+        final CleanupTrigger cleanup;
+        PooledConnection(HttpConnection connection, long expiry,
+                         CleanupTrigger cleanup) {
+            this.connection = connection;
+            this.expiry = expiry;
+            this.cleanup = cleanup;
+        }
+    }
+
+    /**
+     * A request waiting for a connection to a route at its limit. It is
+     * completed with an idle connection, or with a new connection
+     * created by its supplier once a permit is available.
+     */
+    private static final class Waiter {
+        final MinimalFuture<HttpConnection> cf = new MinimalFuture<>();
+        final Supplier<HttpConnection> connector;
+        Waiter(Supplier<HttpConnection> connector) {
+            this.connector = connector;
+        }
+    }
+
     ConnectionPool(long clientId) {
         this("ConnectionPool("+clientId+")");
     }
@@ -115,16 +188,15 @@ final class ConnectionPool {
      */
     private ConnectionPool(String tag) {
         dbgTag = tag;
-        plainPool = new HashMap<>();
-        sslPool = new HashMap<>();
-        expiryList = new ExpiryList();
+        plainPool = new ConcurrentHashMap<>();
+        sslPool = new ConcurrentHashMap<>();
     }
 
     final String dbgString() {
         return dbgTag;
     }
 
-    synchronized void start() {
+    void start() {
         assert !stopped : "Already stopped";
     }
 
@@ -134,17 +206,208 @@ final class ConnectionPool {
         return new CacheKey(destination, proxy);
     }
 
-    synchronized HttpConnection getConnection(boolean secure,
-                                              InetSocketAddress addr,
-                                              InetSocketAddress proxy) {
+    // Returns the route for the given key, which was not yet retired
+    private Route route(boolean secure, CacheKey key) {
+        ConcurrentHashMap<CacheKey,Route> pool = secure ? sslPool : plainPool;
+        for (;;) {
+            Route r = pool.get(key);
+            if (r == null) {
+                r = pool.computeIfAbsent(key, k -> new Route(secure, k));
+            }
+            if (r.open.get() >= 0) return r;
+            pool.remove(key, r);
+        }
+    }
+
+    HttpConnection getConnection(boolean secure,
+                                 InetSocketAddress addr,
+                                 InetSocketAddress proxy) {
         if (stopped) return null;
         CacheKey key = new CacheKey(addr, proxy);
-        HttpConnection c = secure ? findConnection(key, sslPool)
-                                  : findConnection(key, plainPool);
-        //System.out.println ("getConnection returning: " + c);
+        Route r = (secure ? sslPool : plainPool).get(key);
+        return r == null ? null : findConnection(r);
+    }
+
+    /**
+     * Gets a connection for the given route, respecting the
+     * {@code jdk.httpclient.maxConnectionsPerRoute} limit. The returned
+     * future is completed with an idle connection from the pool, or with
+     * a new connection obtained from {@code connector}, which must not be
+     * connected yet. If the route is at its limit, the future completes
+     * when a connection becomes available, or exceptionally if
+     * {@code timeoutMillis} elapses first. Completing the future
+     * exceptionally withdraws the request.
+     */
+    CompletableFuture<HttpConnection> leaseConnection(boolean secure,
+                                                      CacheKey key,
+                                                      Supplier<HttpConnection> connector,
+                                                      long timeoutMillis) {
+        assert MAX_CONNECTIONS_PER_ROUTE > 0;
+        if (stopped) {
+            return MinimalFuture.failedFuture(new IOException("connection pool stopped"));
+        }
+        for (;;) {
+            Route r = route(secure, key);
+            HttpConnection c = findConnection(r);
+            if (c != null) {
+                return MinimalFuture.completedFuture(c);
+            }
+            if (tryAcquire(r)) {
+                try {
+                    return MinimalFuture.completedFuture(newConnection(r, connector));
+                } catch (Throwable t) {
+                    return MinimalFuture.failedFuture(t);
+                }
+            }
+            if (r.open.get() < 0) continue; // retired meanwhile
+            Waiter w = new Waiter(connector);
+            r.waiters.add(w);
+            // a connection may have been released before we were queued
+            serveWaiters(r);
+            if (r.open.get() < 0 && r.waiters.remove(w)) {
+                // the route was retired before it could see the waiter
+                continue;
+            }
+            if (debug.on()) debug.log("route at limit: waiting for a connection");
+            w.cf.whenComplete((x, t) -> {
+                // a withdrawn waiter must not keep the route alive
+                if (t != null && r.waiters.remove(w)) retireIfUnused(r);
+            });
+            if (timeoutMillis > 0) {
+                CompletableFuture.delayedExecutor(timeoutMillis, TimeUnit.MILLISECONDS)
+                        .execute(() -> w.cf.completeExceptionally(new HttpTimeoutException(
+                                "timed out waiting for a connection")));
+            }
+            return w.cf;
+        }
+    }
+
+    /**
+     * Counts a connection that was not obtained from {@link #leaseConnection},
+     * such as one that ALPN negotiated down to HTTP/1.1, against the
+     * limit of its route. Returns false, and leaves the connection
+     * uncounted, if the route is at its limit.
+     */
+    boolean adopt(HttpConnection c) {
+        assert MAX_CONNECTIONS_PER_ROUTE > 0;
+        if (stopped) return false;
+        for (;;) {
+            Route r = route(c.isSecure(), c.cacheKey());
+            if (tryAcquire(r)) {
+                attach(r, c);
+                return true;
+            }
+            if (r.open.get() >= 0) return false;
+        }
+    }
+
+    /**
+     * Takes back a connection obtained from {@link #leaseConnection}
+     * that could not be used: it is returned to the pool if connected,
+     * closed otherwise.
+     */
+    void abandon(HttpConnection c) {
+        if (c.connected() && c.isOpen()) {
+            returnToPool(c);
+        } else {
+            c.close();
+        }
+    }
+
+    // Takes a permit of a route below its limit; fails if it is retired
+    private boolean tryAcquire(Route r) {
+        int n;
+        do {
+            n = r.open.get();
+            if (n < 0 || n >= MAX_CONNECTIONS_PER_ROUTE) return false;
+        } while (!r.open.compareAndSet(n, n + 1));
+        return true;
+    }
+
+    // Creates a connection counted against the limit of the route;
+    // the permit is held until the connection is closed.
+    private HttpConnection newConnection(Route r, Supplier<HttpConnection> connector) {
+        HttpConnection c;
+        try {
+            c = connector.get();
+        } catch (Throwable t) {
+            release(r);
+            throw t;
+        }
+        attach(r, c);
         return c;
     }
 
+    // Hands the permit just taken on the route over to the connection,
+    // to be released when it is closed. A connection that holds one
+    // already keeps it, and the new permit is given back.
+    private void attach(Route r, HttpConnection c) {
+        if (!c.onClosed(() -> release(r))) {
+            r.open.decrementAndGet();
+        }
+    }
+
+    // Counts a connection returned to the pool against its route, unless
+    // it is counted already; unlike a lease, this may exceed the limit.
+    private Route attach(HttpConnection c) {
+        for (;;) {
+            Route r = route(c.isSecure(), c.cacheKey());
+            int n = r.open.get();
+            if (n >= 0 && r.open.compareAndSet(n, n + 1)) {
+                attach(r, c);
+                return r;
+            }
+        }
+    }
+
+    private void release(Route r) {
+        r.open.decrementAndGet();
+        serveWaiters(r);
+    }
+
+    // Retires the route if it has no open connection and no waiter
+    private void retireIfUnused(Route r) {
+        if (r.waiters.isEmpty() && r.open.compareAndSet(0, -1)) {
+            (r.secure ? sslPool : plainPool).remove(r.key, r);
+        }
+    }
+
+    /*
+     * Hands idle connections, or permits to open new ones, to the waiters
+     * of the route, for as long as there are both. Called whenever either
+     * may have become available, and after a waiter is queued.
+     */
+    private void serveWaiters(Route r) {
+        while (!r.waiters.isEmpty()) {
+            HttpConnection c = findConnection(r);
+            if (c == null && !tryAcquire(r)) {
+                return;
+            }
+            Waiter w = r.waiters.poll();
+            if (w == null || w.cf.isDone()) {
+                // lost the race for the waiter, or it was withdrawn
+                if (c != null) {
+                    returnToPool(c);
+                    return;
+                }
+                r.open.decrementAndGet();
+                continue;
+            }
+            if (c == null) {
+                try {
+                    c = newConnection(r, w.connector);
+                } catch (Throwable t) {
+                    w.cf.completeExceptionally(t);
+                    continue;
+                }
+            }
+            if (!w.cf.complete(c)) {
+                abandon(c);
+            }
+        }
+        retireIfUnused(r);
+    }
+
     /**
      * Returns the connection to the pool.
      */
@@ -155,41 +418,44 @@ final class ConnectionPool {
     // Called also by whitebox tests
     void returnToPool(HttpConnection conn, Instant now, long keepAlive) {
 
-        // Don't call registerCleanupTrigger while holding a lock,
-        // but register it before the connection is added to the pool,
-        // since we don't want to trigger the cleanup if the connection
-        // is not in the pool.
+        // Register the cleanup trigger before the connection is added
+        // to the pool, since we don't want to trigger the cleanup if the
+        // connection is not in the pool.
         CleanupTrigger cleanup = registerCleanupTrigger(conn);
 
         // it's possible that cleanup may have been called.
-        HttpConnection toClose = null;
-        synchronized(this) {
-            if (cleanup.isDone()) {
-                return;
-            } else if (stopped) {
-                conn.close();
-                return;
-            }
-            if (MAX_POOL_SIZE > 0 && expiryList.size() >= MAX_POOL_SIZE) {
-                toClose = expiryList.removeOldest();
-                if (toClose != null) removeFromPool(toClose);
-            }
-            if (conn instanceof PlainHttpConnection) {
-                putConnection(conn, plainPool);
-            } else {
-                assert conn.isSecure();
-                putConnection(conn, sslPool);
-            }
-            expiryList.add(conn, now, keepAlive);
+        if (cleanup.isDone()) {
+            return;
+        } else if (stopped) {
+            conn.close();
+            return;
         }
-        if (toClose != null) {
-            if (debug.on()) {
-                debug.log("Maximum pool size reached: removing oldest connection %s",
-                          toClose.dbgString());
+        long expiry = now.truncatedTo(ChronoUnit.SECONDS)
+                .plus(keepAlive, ChronoUnit.SECONDS).toEpochMilli();
+        Route r = attach(conn);
+        PooledConnection entry = new PooledConnection(conn, expiry, cleanup);
+        cleanup.pooled(r, entry);
+        r.idle.addLast(entry);
+        int size = idleCount.incrementAndGet();
+        updateNextExpiry(expiry);
+        if (cleanup.isDone()) {
+            // closed before it could see the entry
+            if (r.idle.removeLastOccurrence(entry)) idleCount.decrementAndGet();
+            return;
+        }
+        if (MAX_POOL_SIZE > 0 && size > MAX_POOL_SIZE) {
+            HttpConnection toClose = removeOldest();
+            if (toClose != null) {
+                if (debug.on()) {
+                    debug.log("Maximum pool size reached: removing oldest connection %s",
+                              toClose.dbgString());
+                }
+                close(toClose);
             }
-            close(toClose);
         }
-        //System.out.println("Return to pool: " + conn);
+        if (MAX_CONNECTIONS_PER_ROUTE > 0) {
+            serveWaiters(r);
+        }
     }
 
     private CleanupTrigger registerCleanupTrigger(HttpConnection conn) {
@@ -203,44 +469,46 @@ final class ConnectionPool {
         return cleanup;
     }
 
-    private HttpConnection
-    findConnection(CacheKey key,
-                   HashMap<CacheKey,LinkedList<HttpConnection>> pool) {
-        LinkedList<HttpConnection> l = pool.get(key);
-        if (l == null || l.isEmpty()) {
-            return null;
-        } else {
-            HttpConnection c = l.removeFirst();
-            expiryList.remove(c);
-            return c;
+    // Takes the least recently returned connection that is still open
+    private HttpConnection findConnection(Route r) {
+        PooledConnection entry;
+        while ((entry = r.idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            HttpConnection c = entry.connection;
+            if (c.isOpen()) {
+                return c;
+            }
         }
+        return null;
     }
 
-    /* called from cache cleaner only  */
-    private boolean
-    removeFromPool(HttpConnection c,
-                   HashMap<CacheKey,LinkedList<HttpConnection>> pool) {
-        //System.out.println("cacheCleaner removing: " + c);
-        assert Thread.holdsLock(this);
-        CacheKey k = c.cacheKey();
-        List<HttpConnection> l = pool.get(k);
-        if (l == null || l.isEmpty()) {
-            pool.remove(k);
-            return false;
+    private void updateNextExpiry(long expiry) {
+        long next;
+        while (expiry < (next = nextExpiry.get())) {
+            if (nextExpiry.compareAndSet(next, expiry)) return;
         }
-        return l.remove(c);
     }
 
-    private void
-    putConnection(HttpConnection c,
-                  HashMap<CacheKey,LinkedList<HttpConnection>> pool) {
-        CacheKey key = c.cacheKey();
-        LinkedList<HttpConnection> l = pool.get(key);
-        if (l == null) {
-            l = new LinkedList<>();
-            pool.put(key, l);
+    // Removes the idle connection with the closest expiry, if any
+    private HttpConnection removeOldest() {
+        for (;;) {
+            Route oldestRoute = null;
+            PooledConnection oldest = null;
+            for (ConcurrentHashMap<CacheKey,Route> pool : List.of(plainPool, sslPool)) {
+                for (Route r : pool.values()) {
+                    PooledConnection e = r.idle.peekFirst();
+                    if (e != null && (oldest == null || e.expiry < oldest.expiry)) {
+                        oldest = e;
+                        oldestRoute = r;
+                    }
+                }
+            }
+            if (oldest == null) return null;
+            if (oldestRoute.idle.removeFirstOccurrence(oldest)) {
+                idleCount.decrementAndGet();
+                return oldest.connection;
+            }
         }
-        l.add(c);
     }
 
     /**
@@ -251,38 +519,40 @@ final class ConnectionPool {
      *         expire.
      */
     long purgeExpiredConnectionsAndReturnNextDeadline() {
-        if (!expiryList.purgeMaybeRequired()) return 0;
+        if (nextExpiry.get() == Long.MAX_VALUE) return 0;
         return purgeExpiredConnectionsAndReturnNextDeadline(Instant.now());
     }
 
     // Used for whitebox testing
     long purgeExpiredConnectionsAndReturnNextDeadline(Instant now) {
-        long nextPurge = 0;
-
-        // We may be in the process of adding new elements
-        // to the expiry list - but those elements will not
-        // have outlast their keep alive timer yet since we're
-        // just adding them.
-        if (!expiryList.purgeMaybeRequired()) return nextPurge;
-
-        List<HttpConnection> closelist;
-        synchronized (this) {
-            closelist = expiryList.purgeUntil(now);
-            for (HttpConnection c : closelist) {
-                if (c instanceof PlainHttpConnection) {
-                    boolean wasPresent = removeFromPool(c, plainPool);
-                    assert wasPresent;
-                } else {
-                    boolean wasPresent = removeFromPool(c, sslPool);
-                    assert wasPresent;
+        long nowMillis = now.toEpochMilli();
+        long next = nextExpiry.get();
+        if (next == Long.MAX_VALUE) return 0;
+        if (next > nowMillis) return next - nowMillis;
+
+        // Connections returned while we scan lower nextExpiry themselves.
+        nextExpiry.set(Long.MAX_VALUE);
+        List<HttpConnection> closelist = new ArrayList<>();
+        long earliest = Long.MAX_VALUE;
+        for (ConcurrentHashMap<CacheKey,Route> pool : List.of(plainPool, sslPool)) {
+            for (Route r : pool.values()) {
+                // the oldest connections are at the head
+                PooledConnection e;
+                while ((e = r.idle.peekFirst()) != null) {
+                    if (e.expiry > nowMillis) {
+                        earliest = Math.min(earliest, e.expiry);
+                        break;
+                    }
+                    if (r.idle.removeFirstOccurrence(e)) {
+                        idleCount.decrementAndGet();
+                        closelist.add(e.connection);
+                    }
                 }
             }
-            nextPurge = now.until(
-                    expiryList.nextExpiryDeadline().orElse(now),
-                    ChronoUnit.MILLIS);
         }
+        updateNextExpiry(earliest);
         closelist.forEach(this::close);
-        return nextPurge;
+        return earliest == Long.MAX_VALUE ? 0 : earliest - nowMillis;
     }
 
     private void close(HttpConnection c) {
@@ -292,189 +562,52 @@ final class ConnectionPool {
     }
 
     void stop() {
-        List<HttpConnection> closelist = Collections.emptyList();
+        stopped = true;
+        List<HttpConnection> closelist = new ArrayList<>();
+        List<Waiter> waiting = new ArrayList<>();
         try {
-            synchronized (this) {
-                stopped = true;
-                closelist = expiryList.stream()
-                    .map(e -> e.connection)
-                    .collect(Collectors.toList());
-                expiryList.clear();
-                plainPool.clear();
-                sslPool.clear();
+            for (ConcurrentHashMap<CacheKey,Route> pool : List.of(plainPool, sslPool)) {
+                for (Route r : pool.values()) {
+                    PooledConnection e;
+                    while ((e = r.idle.pollFirst()) != null) {
+                        closelist.add(e.connection);
+                    }
+                    Waiter w;
+                    while ((w = r.waiters.poll()) != null) {
+                        waiting.add(w);
+                    }
+                }
+                pool.clear();
             }
+            idleCount.set(0);
+            nextExpiry.set(Long.MAX_VALUE);
         } finally {
             closelist.forEach(this::close);
-        }
-    }
-
-    static final class ExpiryEntry {
-        final HttpConnection connection;
-        final Instant expiry; // absolute time in seconds of expiry time
-        ExpiryEntry(HttpConnection connection, Instant expiry) {
-            this.connection = connection;
-            this.expiry = expiry;
-        }
-    }
-
-    /**
-     * Manages a LinkedList of sorted ExpiryEntry. The entry with the closer
-     * deadline is at the tail of the list, and the entry with the farther
-     * deadline is at the head. In the most common situation, new elements
-     * will need to be added at the head (or close to it), and expired elements
-     * will need to be purged from the tail.
-     */
-    private static final class ExpiryList {
-        private final LinkedList<ExpiryEntry> list = new LinkedList<>();
-        private volatile boolean mayContainEntries;
-
-        int size() { return list.size(); }
-
-        // A loosely accurate boolean whose value is computed
-        // at the end of each operation performed on ExpiryList;
-        // Does not require synchronizing on the ConnectionPool.
-        boolean purgeMaybeRequired() {
-            return mayContainEntries;
-        }
-
-        // Returns the next expiry deadline
-        // should only be called while holding a synchronization
-        // lock on the ConnectionPool
-        Optional<Instant> nextExpiryDeadline() {
-            if (list.isEmpty()) return Optional.empty();
-            else return Optional.of(list.getLast().expiry);
-        }
-
-        // should only be called while holding a synchronization
-        // lock on the ConnectionPool
-        HttpConnection removeOldest() {
-            ExpiryEntry entry = list.pollLast();
-            return entry == null ? null : entry.connection;
-        }
-
-        // should only be called while holding a synchronization
-        // lock on the ConnectionPool
-        void add(HttpConnection conn) {
-            add(conn, Instant.now(), KEEP_ALIVE);
-        }
-
-        // Used by whitebox test.
-        void add(HttpConnection conn, Instant now, long keepAlive) {
-            Instant then = now.truncatedTo(ChronoUnit.SECONDS)
-                    .plus(keepAlive, ChronoUnit.SECONDS);
-
-            // Elements with the farther deadline are at the head of
-            // the list. It's more likely that the new element will
-            // have the farthest deadline, and will need to be inserted
-            // at the head of the list, so we're using an ascending
-            // list iterator to find the right insertion point.
-            ListIterator<ExpiryEntry> li = list.listIterator();
-            while (li.hasNext()) {
-                ExpiryEntry entry = li.next();
-
-                if (then.isAfter(entry.expiry)) {
-                    li.previous();
-                    // insert here
-                    li.add(new ExpiryEntry(conn, then));
-                    mayContainEntries = true;
-                    return;
-                }
-            }
-            // last (or first) element of list (the last element is
-            // the first when the list is empty)
-            list.add(new ExpiryEntry(conn, then));
-            mayContainEntries = true;
-        }
-
-        // should only be called while holding a synchronization
-        // lock on the ConnectionPool
-        void remove(HttpConnection c) {
-            if (c == null || list.isEmpty()) return;
-            ListIterator<ExpiryEntry> li = list.listIterator();
-            while (li.hasNext()) {
-                ExpiryEntry e = li.next();
-                if (e.connection.equals(c)) {
-                    li.remove();
-                    mayContainEntries = !list.isEmpty();
-                    return;
-                }
-            }
-        }
-
-        // should only be called while holding a synchronization
-        // lock on the ConnectionPool.
-        // Purge all elements whose deadline is before now (now included).
-        List<HttpConnection> purgeUntil(Instant now) {
-            if (list.isEmpty()) return Collections.emptyList();
-
-            List<HttpConnection> closelist = new ArrayList<>();
-
-            // elements with the closest deadlines are at the tail
-            // of the queue, so we're going to use a descending iterator
-            // to remove them, and stop when we find the first element
-            // that has not expired yet.
-            Iterator<ExpiryEntry> li = list.descendingIterator();
-            while (li.hasNext()) {
-                ExpiryEntry entry = li.next();
-                // use !isAfter instead of isBefore in order to
-                // remove the entry if its expiry == now
-                if (!entry.expiry.isAfter(now)) {
-                    li.remove();
-                    HttpConnection c = entry.connection;
-                    closelist.add(c);
-                } else break; // the list is sorted
-            }
-            mayContainEntries = !list.isEmpty();
-            return closelist;
-        }
-
-        // should only be called while holding a synchronization
-        // lock on the ConnectionPool
-        java.util.stream.Stream<ExpiryEntry> stream() {
-            return list.stream();
-        }
-
-        // should only be called while holding a synchronization
-        // lock on the ConnectionPool
-        void clear() {
-            list.clear();
-            mayContainEntries = false;
-        }
-    }
-
-    // Remove a connection from the pool.
-    // should only be called while holding a synchronization
-    // lock on the ConnectionPool
-    private void removeFromPool(HttpConnection c) {
-        assert Thread.holdsLock(this);
-        if (c instanceof PlainHttpConnection) {
-            removeFromPool(c, plainPool);
-        } else {
-            assert c.isSecure();
-            removeFromPool(c, sslPool);
+            IOException stopped = new IOException("connection pool stopped");
+            waiting.forEach(w -> w.cf.completeExceptionally(stopped));
         }
     }
 
     // Used by tests
-    synchronized boolean contains(HttpConnection c) {
+    boolean contains(HttpConnection c) {
         final CacheKey key = c.cacheKey();
-        List<HttpConnection> list;
-        if ((list = plainPool.get(key)) != null) {
-            if (list.contains(c)) return true;
-        }
-        if ((list = sslPool.get(key)) != null) {
-            if (list.contains(c)) return true;
+        for (ConcurrentHashMap<CacheKey,Route> pool : List.of(plainPool, sslPool)) {
+            Route r = pool.get(key);
+            if (r != null) {
+                for (PooledConnection e : r.idle) {
+                    if (e.connection == c) return true;
+                }
+            }
         }
         return false;
     }
 
-    void cleanup(HttpConnection c, Throwable error) {
+    void cleanup(HttpConnection c, Route r, PooledConnection entry, Throwable error) {
         if (debug.on())
             debug.log("%s : ConnectionPool.cleanup(%s)",
                     String.valueOf(c.getConnectionFlow()), error);
-        synchronized(this) {
-            removeFromPool(c);
-            expiryList.remove(c);
+        if (r != null && r.idle.removeFirstOccurrence(entry)) {
+            idleCount.decrementAndGet();
         }
         c.close();
     }
@@ -490,6 +623,8 @@ final class ConnectionPool {
 
         private final HttpConnection connection;
         private volatile boolean done;
+        private volatile Route route;
+        private volatile PooledConnection entry;
 
         public CleanupTrigger(HttpConnection connection) {
             this.connection = connection;
@@ -497,9 +632,14 @@ final class ConnectionPool {
 
         public boolean isDone() { return done;}
 
+        void pooled(Route route, PooledConnection entry) {
+            this.entry = entry;
+            this.route = route;
+        }
+
         private void triggerCleanup(Throwable error) {
             done = true;
-            cleanup(connection, error);
+            cleanup(connection, route, entry, error);
         }
 
         @Override public void request(long n) {}
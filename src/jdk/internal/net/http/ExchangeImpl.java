@@ -150,6 +150,21 @@ abstract class ExchangeImpl<T> {
     private static <T> CompletableFuture<Http1Exchange<T>>
     createHttp1Exchange(Exchange<T> ex, HttpConnection as)
     {
+        HttpRequestImpl request = ex.request();
+        if (ConnectionPool.MAX_CONNECTIONS_PER_ROUTE > 0 && !request.isWebSocket()) {
+            if (as != null && !ex.client().connectionPool().adopt(as)) {
+                // the route is at its limit: drop the connection that ALPN
+                // fell back on, and queue for one like any other request
+                as.close();
+                as = null;
+            }
+            if (as == null) {
+                // the connection may have to wait for the route to drop
+                // below its limit
+                return leaseHttp1Exchange(ex, HttpConnection.leaseConnection(
+                        request.getAddress(), ex.client(), request));
+            }
+        }
         try {
             return MinimalFuture.completedFuture(new Http1Exchange<>(ex, as));
         } catch (Throwable e) {
@@ -157,6 +172,34 @@ abstract class ExchangeImpl<T> {
         }
     }
 
+    private static <T> CompletableFuture<Http1Exchange<T>>
+    leaseHttp1Exchange(Exchange<T> ex, CompletableFuture<HttpConnection> lease)
+    {
+        MinimalFuture<Http1Exchange<T>> cf = new MinimalFuture<>();
+        // if the exchange is cancelled while waiting, withdraw the lease
+        cf.whenComplete((r, t) -> {
+            if (t != null) lease.completeExceptionally(t);
+        });
+        lease.whenComplete((c, t) -> {
+            if (t != null) {
+                cf.completeExceptionally(t);
+                return;
+            }
+            Http1Exchange<T> e;
+            try {
+                e = new Http1Exchange<>(ex, c);
+            } catch (Throwable x) {
+                ex.client().connectionPool().abandon(c);
+                cf.completeExceptionally(x);
+                return;
+            }
+            if (!cf.complete(e)) {
+                ex.client().connectionPool().abandon(c);
+            }
+        });
+        return cf;
+    }
+
     /* The following methods have separate HTTP/1.1 and HTTP/2 implementations */
 
     abstract CompletableFuture<ExchangeImpl<T>> sendHeadersAsync();
@@ -1131,15 +1131,21 @@ class Http2Connection  {
      *     header field names MUST be converted to lowercase prior to their
      *     encoding in HTTP/2...
      */
+    // Header fields carrying credentials; they are encoded as never indexed,
+    // and their values are kept out of the encoder's caches
+    private static final Set<String> SENSITIVE_HEADERS =
+            Set.of("authorization", "proxy-authorization", "cookie");
+
     private List<ByteBuffer> encodeHeadersImpl(int maxFrameSize, HttpHeaders... headers) {
         ByteBuffer buffer = getHeaderBuffer(maxFrameSize);
         List<ByteBuffer> buffers = new ArrayList<>();
         for(HttpHeaders header : headers) {
             for (Map.Entry<String, List<String>> e : header.map().entrySet()) {
                 String lKey = e.getKey().toLowerCase(Locale.US);
+                boolean sensitive = SENSITIVE_HEADERS.contains(lKey);
                 List<String> values = e.getValue();
                 for (String value : values) {
-                    hpackOut.header(lKey, value);
+                    hpackOut.header(lKey, value, sensitive);
                     while (!hpackOut.encode(buffer)) {
                         buffer.flip();
                         buffers.add(buffer);
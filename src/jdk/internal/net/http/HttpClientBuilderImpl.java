@@ -49,6 +49,7 @@ public class HttpClientBuilderImpl implements HttpClient.Builder {
     SSLContext sslContext;
     SSLParameters sslParams;
     int priority = -1;
+    int selectorThreads = -1;
 
     @Override
     public HttpClientBuilderImpl cookieHandler(CookieHandler cookieHandler) {
@@ -115,6 +116,15 @@ public class HttpClientBuilderImpl implements HttpClient.Builder {
         return this;
     }
 
+    @Override
+    public HttpClientBuilderImpl selectorThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("selector threads must be at least 1");
+        }
+        this.selectorThreads = threads;
+        return this;
+    }
+
     @Override
     public HttpClientBuilderImpl proxy(ProxySelector proxy) {
         requireNonNull(proxy);
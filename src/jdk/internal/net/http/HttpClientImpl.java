@@ -168,7 +168,12 @@ final class HttpClientImpl extends HttpClient implements Trackable {
     // Security parameters
     private final SSLContext sslContext;
     private final SSLParameters sslParams;
-    private final SelectorManager selmgr;
+    // The connections are spread over the selector managers: all the
+    // events of a given channel are handled by the same one. Timers and
+    // the expiry of pooled connections are handled by the first one.
+    private final SelectorManager[] selmgrs;
+    // number of selector managers that have not exited yet
+    private final AtomicInteger runningSelectors = new AtomicInteger();
     private final FilterFactory filters;
     private final Http2ClientImpl client2;
     private final long id;
@@ -177,9 +182,10 @@ final class HttpClientImpl extends HttpClient implements Trackable {
     // The SSL DirectBuffer Supplier provides the ability to recycle
     // buffers used between the socket reader and the SSLEngine, or
     // more precisely between the SocketTube publisher and the
-    // SSLFlowDelegate reader.
-    private final SSLDirectBufferSupplier sslBufferSupplier
-            = new SSLDirectBufferSupplier(this);
+    // SSLFlowDelegate reader. It hands out the buffers of the
+    // selector manager thread it is called from.
+    private final SelectorBufferSupplier sslBufferSupplier
+            = new SelectorBufferSupplier(this);
 
     // This reference is used to keep track of the facade HttpClient
     // that was returned to the application code.
@@ -304,23 +310,58 @@ final class HttpClientImpl extends HttpClient implements Trackable {
         connections = new ConnectionPool(id);
         connections.start();
         timeouts = new TreeSet<>();
+        int nselectors = builder.selectorThreads > 0
+                ? builder.selectorThreads
+                : Math.max(1, Utils.getIntegerNetProperty(
+                        "jdk.httpclient.selectorThreads", 1));
+        selmgrs = new SelectorManager[nselectors];
         try {
-            selmgr = new SelectorManager(this);
+            for (int i = 0; i < nselectors; i++) {
+                selmgrs[i] = new SelectorManager(this, i);
+                selmgrs[i].setDaemon(true);
+            }
         } catch (IOException e) {
             // unlikely
+            for (SelectorManager sm : selmgrs) {
+                if (sm != null) sm.closeSelector();
+            }
             throw new InternalError(e);
         }
-        selmgr.setDaemon(true);
         filters = new FilterFactory();
         initFilters();
         assert facadeRef.get() != null;
     }
 
     private void start() {
-        selmgr.start();
+        runningSelectors.set(selmgrs.length);
+        for (SelectorManager sm : selmgrs) {
+            sm.start();
+        }
+    }
+
+    // Called from each SelectorManager thread, just before exiting.
+    // The last one to exit stops the client.
+    private void selectorStopped() {
+        if (runningSelectors.decrementAndGet() == 0) {
+            stop();
+        }
+    }
+
+    // Called when a SelectorManager thread dies of a fatal error:
+    // the client is unusable, so the other threads are stopped too.
+    private void shutdownSelectors() {
+        for (SelectorManager sm : selmgrs) {
+            sm.shutdown();
+        }
+    }
+
+    private void wakeupSelectors() {
+        for (SelectorManager sm : selmgrs) {
+            sm.wakeupSelector();
+        }
     }
 
-    // Called from the SelectorManager thread, just before exiting.
+    // Called from the last SelectorManager thread, just before exiting.
     // Clears the HTTP/1.1 and HTTP/2 cache, ensuring that the connections
     // that may be still lingering there are properly closed (and their
     // possibly still opened SocketChannel released).
@@ -372,7 +413,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
         final long http2Count = pendingHttp2StreamCount.get();
         final long webSocketCount = pendingWebSocketCount.get();
         if (count == 0 && facade() == null) {
-            selmgr.wakeupSelector();
+            wakeupSelectors();
         }
         assert httpCount >= 0 : "count of HTTP/1.1 operations < 0";
         assert http2Count >= 0 : "count of HTTP/2 operations < 0";
@@ -394,7 +435,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
         final long httpCount = pendingHttpRequestCount.get();
         final long webSocketCount = pendingWebSocketCount.get();
         if (count == 0 && facade() == null) {
-            selmgr.wakeupSelector();
+            wakeupSelectors();
         }
         assert httpCount >= 0 : "count of HTTP/1.1 operations < 0";
         assert http2Count >= 0 : "count of HTTP/2 operations < 0";
@@ -416,7 +457,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
         final long httpCount = pendingHttpRequestCount.get();
         final long http2Count = pendingHttp2StreamCount.get();
         if (count == 0 && facade() == null) {
-            selmgr.wakeupSelector();
+            wakeupSelectors();
         }
         assert httpCount >= 0 : "count of HTTP/1.1 operations < 0";
         assert http2Count >= 0 : "count of HTTP/2 operations < 0";
@@ -501,7 +542,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
      * If exchange needs to change interest ops, then call registerEvent() again.
      */
     void registerEvent(AsyncEvent exchange) throws IOException {
-        selmgr.register(exchange);
+        selectorFor(exchange).register(exchange);
     }
 
     /**
@@ -510,11 +551,35 @@ final class HttpClientImpl extends HttpClient implements Trackable {
      */
     void eventUpdated(AsyncEvent event) throws ClosedChannelException {
         assert !(event instanceof AsyncTriggerEvent);
-        selmgr.eventUpdated(event);
+        selectorFor(event.channel()).eventUpdated(event);
+    }
+
+    // Returns the selector manager that handles the events of the
+    // channel of the given event.
+    private SelectorManager selectorFor(AsyncEvent event) {
+        SelectableChannel chan = event instanceof AsyncTriggerEvent
+                ? ((AsyncTriggerEvent) event).owner()
+                : event.channel();
+        return selectorFor(chan);
+    }
+
+    // A channel is bound to one selector manager for its whole life, so
+    // that its reads and writes are never handed over to another thread.
+    private SelectorManager selectorFor(SelectableChannel chan) {
+        SelectorManager[] managers = selmgrs;
+        if (chan == null || managers.length == 1) {
+            return managers[0];
+        }
+        return managers[Math.floorMod(System.identityHashCode(chan), managers.length)];
     }
 
+    /**
+     * Tells whether the current thread is one of the selector manager
+     * threads of this client.
+     */
     boolean isSelectorThread() {
-        return Thread.currentThread() == selmgr;
+        Thread t = Thread.currentThread();
+        return t instanceof SelectorManager && ((SelectorManager) t).owner == this;
     }
 
     Http2ClientImpl client2() {
@@ -683,16 +748,23 @@ final class HttpClientImpl extends HttpClient implements Trackable {
         private final List<AsyncTriggerEvent> deregistrations;
         private final Logger debug;
         private final Logger debugtimeout;
+        // whether this manager handles the timers and the connection pool
+        private final boolean handlesTimers;
+        // only used from this thread
+        final SSLDirectBufferSupplier sslBufferSupplier;
         HttpClientImpl owner;
         ConnectionPool pool;
 
-        SelectorManager(HttpClientImpl ref) throws IOException {
+        SelectorManager(HttpClientImpl ref, int index) throws IOException {
             super(null, null,
-                  "HttpClient-" + ref.id + "-SelectorManager",
+                  "HttpClient-" + ref.id + "-SelectorManager"
+                          + (index == 0 ? "" : "-" + index),
                   0, false);
             owner = ref;
             debug = ref.debug;
             debugtimeout = ref.debugtimeout;
+            handlesTimers = index == 0;
+            sslBufferSupplier = new SSLDirectBufferSupplier(ref);
             pool = ref.connectionPool();
             registrations = new ArrayList<>();
             deregistrations = new ArrayList<>();
@@ -738,7 +810,15 @@ final class HttpClientImpl extends HttpClient implements Trackable {
             selector.wakeup();
         }
 
+        void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+
         synchronized void shutdown() {
+            if (closed) return;
             Log.logTrace("{0}: shutting down", getName());
             if (debug.on()) debug.log("SelectorManager shutting down");
             closed = true;
@@ -746,7 +826,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
                 selector.close();
             } catch (IOException ignored) {
             } finally {
-                owner.stop();
+                owner.selectorStopped();
             }
         }
 
@@ -833,14 +913,16 @@ final class HttpClientImpl extends HttpClient implements Trackable {
 
                     // Timeouts will have milliseconds granularity. It is important
                     // to handle them in a timely fashion.
-                    long nextTimeout = owner.purgeTimeoutsAndReturnNextDeadline();
+                    long nextTimeout = handlesTimers
+                            ? owner.purgeTimeoutsAndReturnNextDeadline() : 0;
                     if (debugtimeout.on())
                         debugtimeout.log("next timeout: %d", nextTimeout);
 
                     // Keep-alive have seconds granularity. It's not really an
                     // issue if we keep connections linger a bit more in the keep
                     // alive cache.
-                    long nextExpiry = pool.purgeExpiredConnectionsAndReturnNextDeadline();
+                    long nextExpiry = handlesTimers
+                            ? pool.purgeExpiredConnectionsAndReturnNextDeadline() : 0;
                     if (debugtimeout.on())
                         debugtimeout.log("next expired: %d", nextExpiry);
 
@@ -874,7 +956,9 @@ final class HttpClientImpl extends HttpClient implements Trackable {
                                     "HttpClient no longer referenced. Exiting...");
                             return;
                         }
-                        owner.purgeTimeoutsAndReturnNextDeadline();
+                        if (handlesTimers) {
+                            owner.purgeTimeoutsAndReturnNextDeadline();
+                        }
                         continue;
                     }
 
@@ -927,6 +1011,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
                     String err = Utils.stackTrace(e);
                     Log.logError("{0}: {1}: {2}", getName(),
                             "HttpClientImpl shutting down due to fatal error", err);
+                    owner.shutdownSelectors();
                 }
                 if (debug.on()) debug.log("shutting down", e);
                 if (Utils.ASSERTIONSENABLED && !debug.on()) {
@@ -961,7 +1046,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
 
     final String debugInterestOps(SelectableChannel channel) {
         try {
-            SelectionKey key = channel.keyFor(selmgr.selector);
+            SelectionKey key = channel.keyFor(selectorFor(channel).selector);
             if (key == null) return "channel not registered with selector";
             String keyInterestOps = key.isValid()
                     ? "key.interestOps=" + key.interestOps() : "invalid key";
@@ -1194,7 +1279,7 @@ final class HttpClientImpl extends HttpClient implements Trackable {
     synchronized void registerTimer(TimeoutEvent event) {
         Log.logTrace("Registering timer {0}", event);
         timeouts.add(event);
-        selmgr.wakeupSelector();
+        selmgrs[0].wakeupSelector();
     }
 
     synchronized void cancelTimer(TimeoutEvent event) {
@@ -1281,13 +1366,38 @@ final class HttpClientImpl extends HttpClient implements Trackable {
     // content has been copied in the SSLFlowDelegate::Reader
     // readBuf.
     // Because allocating, reading, copying, and recycling
-    // all happen in the SelectorManager thread,
-    // then this BufferSupplier can be shared between all
-    // the SSL connections managed by this client.
+    // all happen in the SelectorManager thread that handles
+    // the connection, then the buffers of each SelectorManager
+    // can be shared between all the SSL connections it handles.
     BufferSupplier getSSLBufferSupplier() {
         return sslBufferSupplier;
     }
 
+    // A BufferSupplier that delegates to the SSLDirectBufferSupplier
+    // of the calling SelectorManager thread.
+    private static final class SelectorBufferSupplier implements BufferSupplier {
+        private final HttpClientImpl client;
+
+        SelectorBufferSupplier(HttpClientImpl client) {
+            this.client = Objects.requireNonNull(client);
+        }
+
+        private SSLDirectBufferSupplier current() {
+            assert client.isSelectorThread();
+            return ((SelectorManager) Thread.currentThread()).sslBufferSupplier;
+        }
+
+        @Override
+        public ByteBuffer get() {
+            return current().get();
+        }
+
+        @Override
+        public void recycle(ByteBuffer buffer) {
+            current().recycle(buffer);
+        }
+    }
+
     // An implementation of BufferSupplier that manages a pool of
     // maximum 3 direct byte buffers (SocketTube.MAX_BUFFERS) that
     // are used for reading encrypted bytes off the channel before
@@ -352,6 +352,39 @@ abstract class HttpConnection implements Closeable {
 
     abstract ConnectionPool.CacheKey cacheKey();
 
+    /**
+     * Runs the given action once the underlying TCP connection is closed,
+     * whichever of the layered connections closes it; or right away if it
+     * is closed already. Only one action may be registered: returns false,
+     * without registering it, if the connection already has one.
+     */
+    abstract boolean onClosed(Runnable action);
+
+    /**
+     * Gets an HTTP/1.1 connection for the given request, honoring the
+     * per route limit of the connection pool. See
+     * {@link ConnectionPool#leaseConnection}.
+     */
+    static CompletableFuture<HttpConnection> leaseConnection(InetSocketAddress addr,
+                                                             HttpClientImpl client,
+                                                             HttpRequestImpl request) {
+        InetSocketAddress proxy = Utils.resolveAddress(request.proxy());
+        boolean secure = request.secure();
+        ConnectionPool.CacheKey key;
+        if (secure) {
+            key = ConnectionPool.cacheKey(addr, proxy);
+        } else if (proxy == null) {
+            key = ConnectionPool.cacheKey(addr, null);
+        } else {
+            // PlainProxyConnection
+            key = ConnectionPool.cacheKey(null, proxy);
+        }
+        long timeout = request.timeout().map(d -> d.toMillis()).orElse(0L);
+        return client.connectionPool().leaseConnection(secure, key, () -> secure
+                ? getSSLConnection(addr, proxy, null, request, client)
+                : getPlainConnection(addr, proxy, request, client), timeout);
+    }
+
     /**
      * Closes this connection, by returning the socket to its connection pool.
      */
@@ -55,6 +55,7 @@ class PlainHttpConnection extends HttpConnection {
     private final PlainHttpPublisher writePublisher = new PlainHttpPublisher(reading);
     private volatile boolean connected;
     private boolean closed;
+    private Runnable closeAction; // guarded by this
     private volatile ConnectTimerEvent connectTimerEvent;  // may be null
 
     // should be volatile to provide proper synchronization(visibility) action
@@ -261,11 +262,14 @@ class PlainHttpConnection extends HttpConnection {
      */
     @Override
     public void close() {
+        Runnable action;
         synchronized (this) {
             if (closed) {
                 return;
             }
             closed = true;
+            action = closeAction;
+            closeAction = null;
         }
         try {
             Log.logTrace("Closing: " + toString());
@@ -277,9 +281,24 @@ class PlainHttpConnection extends HttpConnection {
             tube.signalClosed();
         } catch (IOException e) {
             Log.logTrace("Closing resulted in " + e);
+        } finally {
+            if (action != null) action.run();
         }
     }
 
+    @Override
+    boolean onClosed(Runnable action) {
+        synchronized (this) {
+            if (!closed) {
+                if (closeAction != null) return false;
+                closeAction = action;
+                return true;
+            }
+        }
+        action.run();
+        return true;
+    }
+
 
     @Override
     ConnectionPool.CacheKey cacheKey() {
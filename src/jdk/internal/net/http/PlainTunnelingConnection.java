@@ -161,6 +161,11 @@ final class PlainTunnelingConnection extends HttpConnection {
         connected = false;
     }
 
+    @Override
+    boolean onClosed(Runnable action) {
+        return delegate.onClosed(action);
+    }
+
     @Override
     boolean isSecure() {
         return false;
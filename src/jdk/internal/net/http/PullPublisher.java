@@ -25,10 +25,12 @@
 
 package jdk.internal.net.http;
 
+import java.io.Closeable;
 import java.util.Iterator;
 import java.util.concurrent.Flow;
 import jdk.internal.net.http.common.Demand;
 import jdk.internal.net.http.common.SequentialScheduler;
+import jdk.internal.net.http.common.Utils;
 
 /**
  * A Publisher that publishes items obtained from the given Iterable. Each new
@@ -103,13 +105,30 @@ class PullPublisher<T> implements Flow.Publisher<T> {
                 }
 
                 while (demand.tryDecrement() && !cancelled) {
-                    if (!iter.hasNext()) {
-                        break;
-                    } else {
-                        subscriber.onNext(iter.next());
+                    T next;
+                    try {
+                        if (!iter.hasNext()) {
+                            break;
+                        }
+                        next = iter.next();
+                    } catch (Throwable t1) {
+                        completed = true;
+                        pullScheduler.stop();
+                        subscriber.onError(t1);
+                        return;
                     }
+                    subscriber.onNext(next);
                 }
-                if (!iter.hasNext() && !cancelled) {
+                boolean hasNext;
+                try {
+                    hasNext = iter.hasNext();
+                } catch (Throwable t1) {
+                    completed = true;
+                    pullScheduler.stop();
+                    subscriber.onError(t1);
+                    return;
+                }
+                if (!hasNext && !cancelled) {
                     completed = true;
                     pullScheduler.stop();
                     subscriber.onComplete();
@@ -133,6 +152,10 @@ class PullPublisher<T> implements Flow.Publisher<T> {
         @Override
         public void cancel() {
             cancelled = true;
+            // release what the iterator holds, e.g. an open file
+            if (iter instanceof Closeable) {
+                Utils.close((Closeable) iter);
+            }
         }
     }
 }
@@ -25,14 +25,15 @@
 
 package jdk.internal.net.http;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FilePermission;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -221,7 +222,8 @@ public final class RequestPublishers {
     }
 
     /**
-     * Publishes the content of a given file.
+     * Publishes the content of a given file, as read-only slices of memory
+     * mapped regions of the file (see {@link FileChannelIterator}).
      *
      * Privileged actions are performed within a limited doPrivileged that only
      * asserts the specific, read, file permission that was checked during the
@@ -271,24 +273,24 @@ public final class RequestPublishers {
 
         @Override
         public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
-            InputStream is;
+            FileChannel channel;
             if (System.getSecurityManager() == null) {
                 try {
-                    is = new FileInputStream(file);
+                    channel = FileChannel.open(file.toPath());
                 } catch (IOException ioe) {
                     throw new UncheckedIOException(ioe);
                 }
             } else {
                 try {
-                    PrivilegedExceptionAction<FileInputStream> pa =
-                            () -> new FileInputStream(file);
-                    is = AccessController.doPrivileged(pa, null, filePermissions);
+                    PrivilegedExceptionAction<FileChannel> pa =
+                            () -> FileChannel.open(file.toPath());
+                    channel = AccessController.doPrivileged(pa, null, filePermissions);
                 } catch (PrivilegedActionException pae) {
                     throw new UncheckedIOException((IOException) pae.getCause());
                 }
             }
             PullPublisher<ByteBuffer> publisher =
-                    new PullPublisher<>(() -> new StreamIterator(is));
+                    new PullPublisher<>(() -> new FileChannelIterator(channel));
             publisher.subscribe(subscriber);
         }
 
@@ -303,6 +305,100 @@ public final class RequestPublishers {
         }
     }
 
+    /**
+     * Iterates over the content of a file as read-only slices of memory
+     * mapped regions. The slices are direct buffers backed by the page
+     * cache: a plain connection writes them to the socket, and the SSLEngine
+     * encrypts them, without the file content being first copied to the
+     * Java heap. Large slices also cut the number of body buffers, hence
+     * of writes, that an upload goes through.
+     *
+     * The channel is closed once its last region has been mapped, when the
+     * subscription is cancelled, or if a region cannot be mapped, in which
+     * case the iteration fails with an UncheckedIOException.
+     *
+     * The file must not shrink while it is being published. Before each
+     * region is mapped the size of the file is checked again, and the
+     * iteration fails if it has decreased; but a truncation that happens
+     * after a region has been mapped makes the pages past the new end of
+     * the file inaccessible, and reading them then fails with an
+     * InternalError, or an unspecified exception, in the thread that
+     * writes the slice.
+     */
+    public static class FileChannelIterator implements Iterator<ByteBuffer>, Closeable {
+        // size of the regions mapped at once
+        static final long REGION_SIZE = 16L * 1024 * 1024;
+        // size of the published slices
+        static final int SLICE_SIZE = 1024 * 1024;
+
+        final FileChannel channel;
+        long position;     // in the file, of the next region to map
+        long size = -1;    // of the file, once known
+        ByteBuffer region; // the region being sliced
+        boolean closed;
+
+        FileChannelIterator(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        // Maps the next region of the file, returns false once the last
+        // region has been mapped or the iterator has been closed.
+        private boolean map() {
+            if (closed) {
+                return false;
+            }
+            try {
+                long current = channel.size();
+                if (size < 0) {
+                    size = current;
+                } else if (current < size) {
+                    throw new IOException("File size changed from " + size
+                            + " to " + current + " bytes while being sent");
+                }
+                if (position >= size) {
+                    close();
+                    return false;
+                }
+                long len = Math.min(REGION_SIZE, size - position);
+                region = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+                position += len;
+                if (position >= size) {
+                    // the mapping remains valid after the channel is closed
+                    close();
+                }
+                return true;
+            } catch (IOException ex) {
+                close();
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                Utils.close(channel);
+            }
+        }
+
+        @Override
+        public synchronized boolean hasNext() {
+            return region != null && region.hasRemaining() || map();
+        }
+
+        @Override
+        public synchronized ByteBuffer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ByteBuffer slice = region.slice();
+            int n = Math.min(SLICE_SIZE, region.remaining());
+            slice.limit(n);
+            region.position(region.position() + n);
+            return slice;
+        }
+    }
+
     /**
      * Reads one buffer ahead all the time, blocking in hasNext()
      */
@@ -196,11 +196,18 @@ public class ResponseSubscribers {
         @Override
         public void onNext(List<ByteBuffer> items) {
             try {
-                out.write(items.toArray(Utils.EMPTY_BB_ARRAY));
+                // one gathering write for all the buffers received; a
+                // FileChannel may write fewer bytes than requested
+                ByteBuffer[] srcs = items.toArray(Utils.EMPTY_BB_ARRAY);
+                long remaining = Utils.remaining(srcs);
+                while (remaining > 0) {
+                    remaining -= out.write(srcs);
+                }
             } catch (IOException ex) {
                 Utils.close(out);
                 subscription.cancel();
                 result.completeExceptionally(ex);
+                return;
             }
             subscription.request(1);
         }
@@ -273,7 +273,7 @@ final class SocketTube implements FlowTube {
         volatile List<ByteBuffer> current;
         volatile boolean completed;
         final AsyncTriggerEvent startSubscription =
-                new AsyncTriggerEvent(this::signalError, this::startSubscription);
+                new AsyncTriggerEvent(channel, this::signalError, this::startSubscription);
         final WriteEvent writeEvent = new WriteEvent(channel, this);
         final Demand writeDemand = new Demand();
 
@@ -657,7 +657,7 @@ final class SocketTube implements FlowTube {
 
             InternalReadSubscription() {
                 readScheduler = new SequentialScheduler(new SocketFlowTask(this::read));
-                subscribeEvent = new AsyncTriggerEvent(this::signalError,
+                subscribeEvent = new AsyncTriggerEvent(channel, this::signalError,
                                                        this::handleSubscribeEvent);
                 readEvent = new ReadEvent(channel, this);
             }
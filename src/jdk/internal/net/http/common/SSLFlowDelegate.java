@@ -95,6 +95,8 @@ public class SSLFlowDelegate {
     private static final ByteBuffer HS_TRIGGER = ByteBuffer.allocate(0);
     // When handshake is in progress trying to wrap may produce no bytes.
     private static final ByteBuffer NOTHING = ByteBuffer.allocate(0);
+    // Maximum number of encrypted bytes the writer sends downstream at once
+    private static final int MAX_WRITE_BATCH = 256 * 1024;
     private static final String monProp = Utils.getProperty("jdk.internal.httpclient.monitorFlowDelegate");
     private static final boolean isMonitored =
             monProp != null && (monProp.equals("") || monProp.equalsIgnoreCase("true"));
@@ -731,6 +733,11 @@ public class SSLFlowDelegate {
                                 + Utils.remaining(writeList) + ", hsTriggered:"
                                 + hsTriggered() + ", needWrap:" + needWrap());
 
+                // Records wrapped from application data are sent downstream
+                // together, so that the socket writes them with a single
+                // gathering write, rather than one write per record.
+                List<ByteBuffer> batch = null;
+                long batched = 0;
                 while (Utils.remaining(writeList) > 0 || hsTriggered() || needWrap()) {
                     ByteBuffer[] outbufs = writeList.toArray(Utils.EMPTY_BB_ARRAY);
                     EngineResult result = wrapBuffers(outbufs);
@@ -742,8 +749,10 @@ public class SSLFlowDelegate {
                             upstreamCompleted = true;
                             upstreamSubscription.cancel();
                         }
-                        if (result.bytesProduced() <= 0)
+                        if (result.bytesProduced() <= 0) {
+                            sendBatch(batch);
                             return;
+                        }
 
                         if (!completing && !completed) {
                             completing = this.completing = true;
@@ -755,6 +764,9 @@ public class SSLFlowDelegate {
                     boolean handshaking = false;
                     if (result.handshaking()) {
                         if (debugw.on()) debugw.log("handshaking");
+                        sendBatch(batch);
+                        batch = null;
+                        batched = 0;
                         doHandshake(result, WRITER);  // ok to ignore return
                         handshaking = true;
                     } else {
@@ -766,15 +778,26 @@ public class SSLFlowDelegate {
                         }
                     }
                     cleanList(writeList); // tidy up the source list
-                    sendResultBytes(result);
                     if (handshaking) {
+                        sendResultBytes(result);
                         if (!completing && needWrap()) {
                             continue;
                         } else {
                             return;
                         }
                     }
+                    if (result.bytesProduced() > 0) {
+                        if (batch == null) batch = new ArrayList<>();
+                        batch.add(result.destBuffer);
+                        batched += result.bytesProduced();
+                        if (batched >= MAX_WRITE_BATCH) {
+                            sendBatch(batch);
+                            batch = null;
+                            batched = 0;
+                        }
+                    }
                 }
+                sendBatch(batch);
                 if (completing && Utils.remaining(writeList) == 0) {
                     if (!completed) {
                         completed = true;
@@ -877,6 +900,14 @@ public class SSLFlowDelegate {
             return engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP;
         }
 
+        private void sendBatch(List<ByteBuffer> batch) {
+            if (batch != null) {
+                if (debugw.on())
+                    debugw.log("Sending %d records downstream", batch.size());
+                outgoing(batch, false);
+            }
+        }
+
         private void sendResultBytes(EngineResult result) {
             if (result.bytesProduced() > 0) {
                 if (debugw.on())
@@ -99,6 +99,13 @@ public final class Decoder {
         states = List.of(s);
     }
 
+    /*
+     * The number of literal values remembered by a decoder, and the maximum
+     * length of a value that is remembered.
+     */
+    private static final int RECENT_VALUES = 64;
+    private static final int MAX_RECENT_VALUE_LENGTH = 128;
+
     private final long id;
     private final SimpleHeaderTable table;
 
@@ -107,6 +114,8 @@ public final class Decoder {
     private final StringReader stringReader;
     private final StringBuilder name;
     private final StringBuilder value;
+    /* Recently decoded literal values, see literalValue() */
+    private final String[] recentValues = new String[RECENT_VALUES];
     private int intValue;
     private boolean firstValueRead;
     private boolean firstValueIndex;
@@ -397,14 +406,14 @@ public final class Decoder {
                             intValue, value, valueHuffmanEncoded));
                 }
                 SimpleHeaderTable.HeaderField f = getHeaderFieldAt(intValue);
-                action.onLiteral(intValue, f.name, value, valueHuffmanEncoded);
+                action.onLiteral(intValue, f.name, literalValue(), valueHuffmanEncoded);
             } else {
                 if (logger.isLoggable(NORMAL)) {
                     logger.log(NORMAL, () -> format(
                             "literal without indexing ('%s', huffman=%b, '%s', huffman=%b)",
                             name, nameHuffmanEncoded, value, valueHuffmanEncoded));
                 }
-                action.onLiteral(name, nameHuffmanEncoded, value, valueHuffmanEncoded);
+                action.onLiteral(literalName(), nameHuffmanEncoded, literalValue(), valueHuffmanEncoded);
             }
         } finally {
             cleanUpAfterReading();
@@ -448,7 +457,7 @@ public final class Decoder {
             //    Let's create those string beforehand (and only once!) to benefit everyone
             //
             String n;
-            String v = value.toString();
+            String v = literalValue();
             if (firstValueIndex) {
                 if (logger.isLoggable(NORMAL)) {
                     logger.log(NORMAL, () -> format(
@@ -459,7 +468,8 @@ public final class Decoder {
                 n = f.name;
                 action.onLiteralWithIndexing(intValue, n, v, valueHuffmanEncoded);
             } else {
-                n = name.toString();
+                String common = SimpleHeaderTable.commonName(name);
+                n = common != null ? common : name.toString();
                 if (logger.isLoggable(NORMAL)) {
                     logger.log(NORMAL, () -> format(
                             "literal with incremental indexing ('%s', huffman=%b, '%s', huffman=%b)",
@@ -516,7 +526,7 @@ public final class Decoder {
                             "literal never indexed ('%s', huffman=%b, '%s', huffman=%b)",
                             name, nameHuffmanEncoded, value, valueHuffmanEncoded));
                 }
-                action.onLiteralNeverIndexed(name, nameHuffmanEncoded, value, valueHuffmanEncoded);
+                action.onLiteralNeverIndexed(literalName(), nameHuffmanEncoded, value, valueHuffmanEncoded);
             }
         } finally {
             cleanUpAfterReading();
@@ -580,6 +590,40 @@ public final class Decoder {
         return true;
     }
 
+    /*
+     * Returns the decoded literal name as a shared String if it is a common
+     * header name, otherwise returns the builder itself.
+     */
+    private CharSequence literalName() {
+        String n = SimpleHeaderTable.commonName(name);
+        return n != null ? n : name;
+    }
+
+    /*
+     * Returns the decoded literal value as a String. A value equal to one of
+     * the recently decoded values is returned as the same instance, which
+     * saves an allocation for each header that a peer repeats as a literal
+     * (e.g. a content-type or a server name sent without indexing). Values
+     * that are never indexed are not remembered.
+     */
+    private String literalValue() {
+        int len = value.length();
+        if (len > MAX_RECENT_VALUE_LENGTH) {
+            return value.toString();
+        }
+        int h = 0;
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + value.charAt(i);
+        }
+        int idx = (h ^ (h >>> 16)) & (RECENT_VALUES - 1);
+        String v = recentValues[idx];
+        if (v == null || !v.contentEquals(value)) {
+            v = value.toString();
+            recentValues[idx] = v;
+        }
+        return v;
+    }
+
     private void cleanUpAfterReading() {
         name.setLength(0);
         value.setLength(0);
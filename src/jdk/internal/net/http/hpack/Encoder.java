@@ -108,14 +108,17 @@ public class Encoder {
     /* Used to calculate the number of bytes required for Huffman encoding */
     private final QuickHuffman.Writer huffmanWriter = new QuickHuffman.Writer();
 
+    /* Encoded forms of the strings this encoder has seen */
+    private final StringWriter.Cache encodedStrings = new StringWriter.Cache();
+
     private final Logger logger;
     private final long id;
     private final IndexedWriter indexedWriter = new IndexedWriter();
-    private final LiteralWriter literalWriter = new LiteralWriter();
+    private final LiteralWriter literalWriter = new LiteralWriter(encodedStrings);
     private final LiteralNeverIndexedWriter literalNeverIndexedWriter
-            = new LiteralNeverIndexedWriter();
+            = new LiteralNeverIndexedWriter(encodedStrings);
     private final LiteralWithIndexingWriter literalWithIndexingWriter
-            = new LiteralWithIndexingWriter();
+            = new LiteralWithIndexingWriter(encodedStrings);
     private final SizeUpdateWriter sizeUpdateWriter = new SizeUpdateWriter();
     private final BulkSizeUpdateWriter bulkSizeUpdateWriter
             = new BulkSizeUpdateWriter();
@@ -242,7 +245,7 @@ public class Encoder {
         if (index > 0) {
             indexed(index);
         } else {
-            boolean huffmanValue = isHuffmanBetterFor(value);
+            boolean huffmanValue = isHuffmanBetterFor(value, sensitive);
             if (index < 0) {
                 if (sensitive) {
                     literalNeverIndexed(-index, value, huffmanValue);
@@ -250,7 +253,7 @@ public class Encoder {
                     literal(-index, value, huffmanValue);
                 }
             } else {
-                boolean huffmanName = isHuffmanBetterFor(name);
+                boolean huffmanName = isHuffmanBetterFor(name, false);
                 if (sensitive) {
                     literalNeverIndexed(name, huffmanName, value, huffmanValue);
                 } else {
@@ -260,7 +263,12 @@ public class Encoder {
         }
     }
 
-    private boolean isHuffmanBetterFor(CharSequence value) {
+    private boolean isHuffmanBetterFor(CharSequence value, boolean sensitive) {
+        // Sensitive values are never kept in the cache of encoded forms
+        StringWriter.EncodedString e = sensitive ? null : encodedStrings.encodedForm(value);
+        if (e != null) {
+            return e.isHuffmanBetter();
+        }
         // prefer Huffman encoding only if it is strictly smaller than Latin-1
         return huffmanWriter.lengthOf(value) < value.length();
     }
@@ -26,9 +26,9 @@ package jdk.internal.net.http.hpack;
 
 import jdk.internal.net.http.hpack.HPACK.Logger;
 
+import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 
 /*
@@ -105,16 +105,21 @@ final class HeaderTable extends SimpleHeaderTable {
 
     /* An immutable map of static header fields' indexes */
     private static final Map<String, Map<String, Integer>> staticIndexes;
+    /* An immutable map of static header names to the index of their first entry */
+    private static final Map<String, Integer> staticNameIndexes;
 
     static {
         Map<String, Map<String, Integer>> map
                 = new HashMap<>(STATIC_TABLE_LENGTH);
+        Map<String, Integer> names = new HashMap<>(STATIC_TABLE_LENGTH);
         for (int i = 1; i <= STATIC_TABLE_LENGTH; i++) {
             HeaderField f = staticTable.get(i);
             Map<String, Integer> values
                     = map.computeIfAbsent(f.name, k -> new HashMap<>());
             values.put(f.value, i);
+            names.putIfAbsent(f.name, i);
         }
+        staticNameIndexes = Map.copyOf(names);
         // create an immutable deep copy
         Map<String, Map<String, Integer>> copy = new HashMap<>(map.size());
         for (Map.Entry<String, Map<String, Integer>> e : map.entrySet()) {
@@ -169,7 +174,7 @@ final class HeaderTable extends SimpleHeaderTable {
         } else if (didx < 0) {
             if (values != null) {
                 // 3. Return name match from the static region
-                return -values.values().iterator().next(); // Iterator allocation
+                return -staticNameIndexes.get(n);
             } else {
                 // 4. Return name match from the dynamic region
                 return -STATIC_TABLE_LENGTH + didx;
@@ -177,7 +182,7 @@ final class HeaderTable extends SimpleHeaderTable {
         } else {
             if (values != null) {
                 // 3. Return name match from the static region
-                return -values.values().iterator().next(); // Iterator allocation
+                return -staticNameIndexes.get(n);
             } else {
                 return 0;
             }
@@ -188,7 +193,7 @@ final class HeaderTable extends SimpleHeaderTable {
     protected void add(HeaderField f) {
         super.add(f);
         Map<String, Deque<Long>> values = map.computeIfAbsent(f.name, k -> new HashMap<>());
-        Deque<Long> indexes = values.computeIfAbsent(f.value, k -> new LinkedList<>());
+        Deque<Long> indexes = values.computeIfAbsent(f.value, k -> new ArrayDeque<>(1));
         long counterSnapshot = counter++;
         indexes.add(counterSnapshot);
         assert indexesUniqueAndOrdered(indexes);
@@ -31,8 +31,8 @@ abstract class IndexNameValueWriter implements BinaryRepresentationWriter {
     private final int pattern;
     private final int prefix;
     private final IntegerWriter intWriter = new IntegerWriter();
-    private final StringWriter nameWriter = new StringWriter();
-    private final StringWriter valueWriter = new StringWriter();
+    private final StringWriter nameWriter;
+    private final StringWriter valueWriter;
 
     protected boolean indexedRepresentation;
 
@@ -42,9 +42,13 @@ abstract class IndexNameValueWriter implements BinaryRepresentationWriter {
 
     private int state = NEW;
 
-    protected IndexNameValueWriter(int pattern, int prefix) {
+    protected IndexNameValueWriter(int pattern, int prefix,
+                                   StringWriter.Cache nameCache,
+                                   StringWriter.Cache valueCache) {
         this.pattern = pattern;
         this.prefix = prefix;
+        this.nameWriter = new StringWriter(nameCache);
+        this.valueWriter = new StringWriter(valueCache);
     }
 
     IndexNameValueWriter index(int index) {
@@ -26,7 +26,8 @@ package jdk.internal.net.http.hpack;
 
 final class LiteralNeverIndexedWriter extends IndexNameValueWriter {
 
-    LiteralNeverIndexedWriter() {
-        super(0b0001_0000, 4);
+    // values written with this representation are sensitive: never cached
+    LiteralNeverIndexedWriter(StringWriter.Cache cache) {
+        super(0b0001_0000, 4, cache, null);
     }
 }
@@ -34,8 +34,8 @@ final class LiteralWithIndexingWriter extends IndexNameValueWriter {
     private CharSequence value;
     private int index;
 
-    LiteralWithIndexingWriter() {
-        super(0b0100_0000, 6);
+    LiteralWithIndexingWriter(StringWriter.Cache cache) {
+        super(0b0100_0000, 6, cache, cache);
     }
 
     @Override
@@ -26,7 +26,7 @@ package jdk.internal.net.http.hpack;
 
 final class LiteralWriter extends IndexNameValueWriter {
 
-    LiteralWriter() {
-        super(0b0000_0000, 4);
+    LiteralWriter(StringWriter.Cache cache) {
+        super(0b0000_0000, 4, cache, cache);
     }
 }
@@ -110,6 +110,49 @@ class SimpleHeaderTable {
     protected static final int STATIC_TABLE_LENGTH = staticTable.size() - 1;
     protected static final int ENTRY_SIZE = 32;
 
+    /*
+     * Header names a decoder will most likely see as literals: the names of
+     * the static table (a peer may choose not to refer to them by index) and
+     * a few response header names that are not in the static table. Decoded
+     * names equal to one of these are replaced with the shared instance, so
+     * that consumers calling toString() on them do not allocate.
+     */
+    private static final String[] commonNames;
+
+    static {
+        String[] extra = {
+                "access-control-allow-credentials",
+                "access-control-allow-headers",
+                "access-control-allow-methods",
+                "access-control-expose-headers",
+                "access-control-max-age",
+                "alt-svc",
+                "content-security-policy",
+                "grpc-encoding",
+                "grpc-message",
+                "grpc-status",
+                "origin",
+                "te",
+                "trailer",
+                "x-content-type-options",
+                "x-frame-options",
+                "x-request-id",
+                "x-xss-protection"
+        };
+        String[] names = new String[256];
+        for (int i = 1; i <= STATIC_TABLE_LENGTH + extra.length; i++) {
+            String n = i <= STATIC_TABLE_LENGTH
+                    ? staticTable.get(i).name
+                    : extra[i - STATIC_TABLE_LENGTH - 1];
+            int idx = n.hashCode() & (names.length - 1);
+            while (names[idx] != null && !names[idx].equals(n)) {
+                idx = (idx + 1) & (names.length - 1);
+            }
+            names[idx] = n;
+        }
+        commonNames = names;
+    }
+
     private final Logger logger;
 
     private int maxSize;
@@ -141,6 +184,25 @@ class SimpleHeaderTable {
         }
     }
 
+    /*
+     * Returns the shared String for the given header name if it is one of the
+     * common names, otherwise returns null. Does not allocate.
+     */
+    static String commonName(CharSequence name) {
+        int h = 0;
+        for (int i = 0, len = name.length(); i < len; i++) {
+            h = 31 * h + name.charAt(i);
+        }
+        String[] names = commonNames;
+        for (int idx = h & (names.length - 1); names[idx] != null;
+             idx = (idx + 1) & (names.length - 1)) {
+            if (names[idx].contentEquals(name)) {
+                return names[idx];
+            }
+        }
+        return null;
+    }
+
     void put(CharSequence name, CharSequence value) {
         // Invoking toString() will possibly allocate Strings. But that's
         // unavoidable at this stage. If a CharSequence is going to be stored in
@@ -44,6 +44,14 @@ import java.util.Arrays;
 //
 //     configure write* (reset configure write*)*
 //
+// Huffman-encoded forms of strings an Encoder has seen are kept in a small
+// cache owned by that Encoder, so that a value sent with every request on a
+// connection (e.g. a user-agent, or a content-type that is not indexed) is not
+// re-encoded bit by bit each time. Values of sensitive headers are neither
+// looked up in nor added to the cache. The cache is a direct-mapped array of
+// immutable entries; reads and writes of its slots race benignly, the worst
+// outcome being a miss.
+//
 final class StringWriter {
 
     private static final int NEW            = 0;
@@ -51,12 +59,22 @@ final class StringWriter {
     private static final int LENGTH_WRITTEN = 2;
     private static final int DONE           = 4;
 
+    private static final int CACHE_SIZE = 256;
+    private static final int MAX_CACHED_LENGTH = 256;
+
+    private final Cache cache; // null if this writer must not use one
     private final IntegerWriter intWriter = new IntegerWriter();
     private final Huffman.Writer huffmanWriter = new QuickHuffman.Writer();
     private final ISO_8859_1.Writer plainWriter = new ISO_8859_1.Writer();
 
     private int state = NEW;
     private boolean huffman;
+    private byte[] encoded;
+    private int encodedPos;
+
+    StringWriter(Cache cache) {
+        this.cache = cache;
+    }
 
     StringWriter configure(CharSequence input, boolean huffman) {
         return configure(input, 0, input.length(), huffman);
@@ -74,6 +92,9 @@ final class StringWriter {
         if (!huffman) {
             plainWriter.configure(input, start, end);
             intWriter.configure(end - start, 7, 0b0000_0000);
+        } else if (cache != null && start == 0 && end == input.length()
+                && (encoded = cache.huffman(input)) != null) {
+            intWriter.configure(encoded.length, 7, 0b1000_0000);
         } else {
             huffmanWriter.from(input, start, end);
             intWriter.configure(huffmanWriter.lengthOf(input, start, end),
@@ -103,9 +124,17 @@ final class StringWriter {
             }
         }
         if (state == LENGTH_WRITTEN) {
-            boolean written = huffman
-                    ? huffmanWriter.write(output)
-                    : plainWriter.write(output);
+            boolean written;
+            if (encoded != null) {
+                int n = Math.min(output.remaining(), encoded.length - encodedPos);
+                output.put(encoded, encodedPos, n);
+                encodedPos += n;
+                written = encodedPos == encoded.length;
+            } else {
+                written = huffman
+                        ? huffmanWriter.write(output)
+                        : plainWriter.write(output);
+            }
             if (written) {
                 state = DONE;
                 return true;
@@ -123,6 +152,75 @@ final class StringWriter {
         } else {
             plainWriter.reset();
         }
+        encoded = null;
+        encodedPos = 0;
         state = NEW;
     }
+
+    //
+    // The encoded forms of strings seen by one Encoder.
+    //
+    static final class Cache {
+
+        private final EncodedString[] entries = new EncodedString[CACHE_SIZE];
+
+        //
+        // Returns the cached form of the given string, encoding and caching
+        // it first if necessary. Returns null if the string is not cacheable:
+        // only Strings are, since other CharSequences may change after being
+        // cached.
+        //
+        EncodedString encodedForm(CharSequence input) {
+            if (!(input instanceof String) || input.length() > MAX_CACHED_LENGTH) {
+                return null;
+            }
+            String s = (String) input;
+            int idx = slot(s);
+            EncodedString e = entries[idx];
+            if (e == null || !e.string.equals(s)) {
+                e = new EncodedString(s);
+                entries[idx] = e;
+            }
+            return e;
+        }
+
+        private byte[] huffman(CharSequence input) {
+            if (!(input instanceof String)) {
+                return null;
+            }
+            EncodedString e = entries[slot((String) input)];
+            return e != null && e.string.equals(input) ? e.huffman : null;
+        }
+
+        private static int slot(String s) {
+            int h = s.hashCode();
+            return (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+        }
+    }
+
+    static final class EncodedString {
+
+        final String string;
+        /* Huffman-encoded string data, null if it is not shorter than Latin-1 */
+        final byte[] huffman;
+
+        EncodedString(String string) {
+            this.string = string;
+            QuickHuffman.Writer writer = new QuickHuffman.Writer();
+            int length = writer.lengthOf(string);
+            if (length < string.length()) {
+                byte[] bytes = new byte[length];
+                boolean done = writer.from(string, 0, string.length())
+                        .write(ByteBuffer.wrap(bytes));
+                assert done;
+                huffman = bytes;
+            } else {
+                huffman = null;
+            }
+        }
+
+        boolean isHuffmanBetter() {
+            return huffman != null;
+        }
+    }
 }
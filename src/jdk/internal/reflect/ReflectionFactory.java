@@ -674,6 +674,34 @@ public class ReflectionFactory {
         }
     }
 
+    /**
+     * Returns a generated accessor which reads and writes the serializable
+     * fields of class cl in the layout described by the given arrays, as
+     * computed by java.io.ObjectStreamClass.  Primitive fields come first;
+     * their offsets index into the marshalled primitive data, while the
+     * offsets of the object fields index into the object value array.
+     * Keys equal to Unsafe.INVALID_FIELD_OFFSET denote skipped fields.
+     *
+     * @param cl the class whose fields are accessed
+     * @param typeCodes the field type codes
+     * @param readKeys the unsafe field offsets used for reading
+     * @param writeKeys the unsafe field offsets used for writing
+     * @param offsets the data offsets of the fields
+     * @param numPrimFields the number of primitive fields
+     * @return the generated accessor
+     */
+    public final SerializationFieldAccessorImpl newFieldAccessorForSerialization(Class<?> cl,
+                                                                                char[] typeCodes,
+                                                                                long[] readKeys,
+                                                                                long[] writeKeys,
+                                                                                int[] offsets,
+                                                                                int numPrimFields)
+    {
+        return new SerializationFieldAccessorGenerator(cl, typeCodes,
+                                                       readKeys, writeKeys,
+                                                       offsets, numPrimFields).generate();
+    }
+
     //--------------------------------------------------------------------------
     //
     // Internals only below this point
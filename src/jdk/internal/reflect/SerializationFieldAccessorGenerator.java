@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.internal.reflect;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import jdk.internal.misc.Unsafe;
+import jdk.internal.org.objectweb.asm.ClassWriter;
+import jdk.internal.org.objectweb.asm.MethodVisitor;
+
+import static jdk.internal.org.objectweb.asm.Opcodes.*;
+
+/** Generator for SerializationFieldAccessorImpl subclasses. The
+    generated class carries one straight-line method per marshalling
+    direction, with the unsafe field offsets and the data offsets
+    emitted as constants; the class is defined into a
+    DelegatingClassLoader parented by the loader of the serializable
+    class, so that it may be unloaded together with that class. */
+
+class SerializationFieldAccessorGenerator {
+
+    private static final int CLASSFILE_VERSION = 52;
+
+    private static final String NAME_BASE = "jdk/internal/reflect/SerializationFieldAccessorImpl";
+    private static final String NAME_UNSAFE = "jdk/internal/misc/Unsafe";
+    private static final String DESC_UNSAFE = "L" + NAME_UNSAFE + ";";
+    private static final String DESC_PRIM_ACCESS = "(Ljava/lang/Object;[B)V";
+    private static final String DESC_OBJ_ACCESS = "(Ljava/lang/Object;[Ljava/lang/Object;)V";
+
+    private static int serializationFieldAccessorSymnum;
+
+    private final Class<?> cl;
+    private final char[] typeCodes;
+    private final long[] readKeys;
+    private final long[] writeKeys;
+    private final int[] offsets;
+    private final int numPrimFields;
+
+    /**
+     * Creates a generator for the given field layout, as computed by
+     * ObjectStreamClass.FieldReflector: fields [0, numPrimFields) are
+     * primitive and their offsets index into the primitive data buffer,
+     * the remaining fields are objects and their offsets index into the
+     * object value array.  Read or write keys equal to
+     * Unsafe.INVALID_FIELD_OFFSET denote fields which are skipped.
+     */
+    SerializationFieldAccessorGenerator(Class<?> cl,
+                                        char[] typeCodes,
+                                        long[] readKeys,
+                                        long[] writeKeys,
+                                        int[] offsets,
+                                        int numPrimFields)
+    {
+        this.cl = cl;
+        this.typeCodes = typeCodes;
+        this.readKeys = readKeys;
+        this.writeKeys = writeKeys;
+        this.offsets = offsets;
+        this.numPrimFields = numPrimFields;
+    }
+
+    SerializationFieldAccessorImpl generate() {
+        final String generatedName = generateName();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(CLASSFILE_VERSION, ACC_PUBLIC | ACC_SUPER | ACC_FINAL | ACC_SYNTHETIC,
+                 generatedName, null, NAME_BASE, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, NAME_BASE, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        emitGetPrimFieldValues(cw);
+        emitSetPrimFieldValues(cw);
+        emitGetObjFieldValues(cw);
+        emitSetObjFieldValues(cw);
+        cw.visitEnd();
+
+        final byte[] bytes = cw.toByteArray();
+        return AccessController.doPrivileged(
+            new PrivilegedAction<SerializationFieldAccessorImpl>() {
+                @SuppressWarnings("deprecation") // Class.newInstance
+                public SerializationFieldAccessorImpl run() {
+                    try {
+                        return (SerializationFieldAccessorImpl)
+                            ClassDefiner.defineClass(generatedName,
+                                                     bytes,
+                                                     0,
+                                                     bytes.length,
+                                                     cl.getClassLoader()).newInstance();
+                    } catch (InstantiationException | IllegalAccessException e) {
+                        throw new InternalError(e);
+                    }
+                }
+            });
+    }
+
+    /*
+     * for each primitive field:  Base.putX(buf, off, unsafe.getX(obj, key))
+     */
+    private void emitGetPrimFieldValues(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getPrimFieldValues",
+                                          DESC_PRIM_ACCESS, null, null);
+        mv.visitCode();
+        for (int i = 0; i < numPrimFields; i++) {
+            long key = readKeys[i];
+            if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                continue;
+            }
+            char tc = typeCodes[i];
+            mv.visitVarInsn(ALOAD, 2);
+            emitIntConstant(mv, offsets[i]);
+            emitUnsafeGet(mv, key, tc);
+            if (tc == 'B') {
+                mv.visitInsn(BASTORE);
+            } else {
+                mv.visitMethodInsn(INVOKESTATIC, NAME_BASE, "put" + typeName(tc),
+                                   "([BI" + tc + ")V", false);
+            }
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /*
+     * for each primitive field:  unsafe.putX(obj, key, Base.getX(buf, off))
+     */
+    private void emitSetPrimFieldValues(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "setPrimFieldValues",
+                                          DESC_PRIM_ACCESS, null, null);
+        mv.visitCode();
+        for (int i = 0; i < numPrimFields; i++) {
+            long key = writeKeys[i];
+            if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                continue;           // discard value
+            }
+            char tc = typeCodes[i];
+            mv.visitFieldInsn(GETSTATIC, NAME_BASE, "unsafe", DESC_UNSAFE);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(key);
+            mv.visitVarInsn(ALOAD, 2);
+            emitIntConstant(mv, offsets[i]);
+            if (tc == 'B') {
+                mv.visitInsn(BALOAD);
+            } else {
+                mv.visitMethodInsn(INVOKESTATIC, NAME_BASE, "get" + typeName(tc),
+                                   "([BI)" + tc, false);
+            }
+            mv.visitMethodInsn(INVOKEVIRTUAL, NAME_UNSAFE, "put" + typeName(tc),
+                               "(Ljava/lang/Object;J" + tc + ")V", false);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /*
+     * for each object field:  vals[off] = unsafe.getObject(obj, key)
+     */
+    private void emitGetObjFieldValues(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getObjFieldValues",
+                                          DESC_OBJ_ACCESS, null, null);
+        mv.visitCode();
+        for (int i = numPrimFields; i < typeCodes.length; i++) {
+            long key = readKeys[i];
+            if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                continue;
+            }
+            mv.visitVarInsn(ALOAD, 2);
+            emitIntConstant(mv, offsets[i]);
+            emitUnsafeGet(mv, key, 'L');
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /*
+     * for each object field:  unsafe.putObject(obj, key, vals[off])
+     */
+    private void emitSetObjFieldValues(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "setObjFieldValues",
+                                          DESC_OBJ_ACCESS, null, null);
+        mv.visitCode();
+        for (int i = numPrimFields; i < typeCodes.length; i++) {
+            long key = writeKeys[i];
+            if (key == Unsafe.INVALID_FIELD_OFFSET) {
+                continue;           // discard value
+            }
+            mv.visitFieldInsn(GETSTATIC, NAME_BASE, "unsafe", DESC_UNSAFE);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(key);
+            mv.visitVarInsn(ALOAD, 2);
+            emitIntConstant(mv, offsets[i]);
+            mv.visitInsn(AALOAD);
+            mv.visitMethodInsn(INVOKEVIRTUAL, NAME_UNSAFE, "putObject",
+                               "(Ljava/lang/Object;JLjava/lang/Object;)V", false);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** Pushes unsafe.getX(obj, key), with obj in local slot 1. */
+    private static void emitUnsafeGet(MethodVisitor mv, long key, char tc) {
+        mv.visitFieldInsn(GETSTATIC, NAME_BASE, "unsafe", DESC_UNSAFE);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitLdcInsn(key);
+        if (tc == 'L') {
+            mv.visitMethodInsn(INVOKEVIRTUAL, NAME_UNSAFE, "getObject",
+                               "(Ljava/lang/Object;J)Ljava/lang/Object;", false);
+        } else {
+            mv.visitMethodInsn(INVOKEVIRTUAL, NAME_UNSAFE, "get" + typeName(tc),
+                               "(Ljava/lang/Object;J)" + tc, false);
+        }
+    }
+
+    private static void emitIntConstant(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static String typeName(char tc) {
+        switch (tc) {
+            case 'Z': return "Boolean";
+            case 'B': return "Byte";
+            case 'C': return "Char";
+            case 'S': return "Short";
+            case 'I': return "Int";
+            case 'F': return "Float";
+            case 'J': return "Long";
+            case 'D': return "Double";
+            default:
+                throw new InternalError("unexpected type code: " + tc);
+        }
+    }
+
+    private static synchronized String generateName() {
+        int num = ++serializationFieldAccessorSymnum;
+        return "jdk/internal/reflect/GeneratedSerializationFieldAccessor" + num;
+    }
+}
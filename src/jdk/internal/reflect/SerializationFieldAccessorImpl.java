@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package jdk.internal.reflect;
+
+import jdk.internal.misc.Unsafe;
+
+/** <P> Base class for dynamically-generated accessors which move the
+    serializable field values of one class in and out of the
+    marshalled representation used by java.io.ObjectStreamClass:
+    primitive values packed big-endian into a byte array, and object
+    values stored in an Object array. </P>
+
+    <P> Generated subclasses contain straight-line code with the field
+    offsets and data offsets baked in as constants, in place of the
+    table-driven loop of ObjectStreamClass.FieldReflector. As with the
+    other subclasses of MagicAccessorImpl the generated code is not
+    verified; callers are responsible for passing a non-null object of
+    the proper type, and for checking the types of object field values
+    before they are stored. </P> */
+
+public abstract class SerializationFieldAccessorImpl extends MagicAccessorImpl {
+
+    /** handle for performing unsafe operations; used by generated code */
+    protected static final Unsafe unsafe = Unsafe.getUnsafe();
+
+    private static final long BYTE_BASE = Unsafe.ARRAY_BYTE_BASE_OFFSET;
+
+    /**
+     * Fetches the serializable primitive field values of object obj and
+     * marshals them into byte array buf starting at offset 0.
+     */
+    public abstract void getPrimFieldValues(Object obj, byte[] buf);
+
+    /**
+     * Sets the serializable primitive fields of object obj using values
+     * unmarshalled from byte array buf starting at offset 0.
+     */
+    public abstract void setPrimFieldValues(Object obj, byte[] buf);
+
+    /**
+     * Fetches the serializable object field values of object obj and
+     * stores them in array vals starting at offset 0.
+     */
+    public abstract void getObjFieldValues(Object obj, Object[] vals);
+
+    /**
+     * Sets the serializable object fields of object obj using values from
+     * array vals starting at offset 0.  No type checks are performed.
+     */
+    public abstract void setObjFieldValues(Object obj, Object[] vals);
+
+    //
+    // Big-endian marshalling helpers invoked by generated code; these
+    // mirror the package-private java.io.Bits routines.
+    //
+
+    protected static boolean getBoolean(byte[] b, int off) {
+        return b[off] != 0;
+    }
+
+    protected static char getChar(byte[] b, int off) {
+        return unsafe.getCharUnaligned(b, BYTE_BASE + off, true);
+    }
+
+    protected static short getShort(byte[] b, int off) {
+        return unsafe.getShortUnaligned(b, BYTE_BASE + off, true);
+    }
+
+    protected static int getInt(byte[] b, int off) {
+        return unsafe.getIntUnaligned(b, BYTE_BASE + off, true);
+    }
+
+    protected static float getFloat(byte[] b, int off) {
+        return Float.intBitsToFloat(getInt(b, off));
+    }
+
+    protected static long getLong(byte[] b, int off) {
+        return unsafe.getLongUnaligned(b, BYTE_BASE + off, true);
+    }
+
+    protected static double getDouble(byte[] b, int off) {
+        return Double.longBitsToDouble(getLong(b, off));
+    }
+
+    protected static void putBoolean(byte[] b, int off, boolean val) {
+        b[off] = (byte) (val ? 1 : 0);
+    }
+
+    protected static void putChar(byte[] b, int off, char val) {
+        unsafe.putCharUnaligned(b, BYTE_BASE + off, val, true);
+    }
+
+    protected static void putShort(byte[] b, int off, short val) {
+        unsafe.putShortUnaligned(b, BYTE_BASE + off, val, true);
+    }
+
+    protected static void putInt(byte[] b, int off, int val) {
+        unsafe.putIntUnaligned(b, BYTE_BASE + off, val, true);
+    }
+
+    protected static void putFloat(byte[] b, int off, float val) {
+        putInt(b, off, Float.floatToIntBits(val));
+    }
+
+    protected static void putLong(byte[] b, int off, long val) {
+        unsafe.putLongUnaligned(b, BYTE_BASE + off, val, true);
+    }
+
+    protected static void putDouble(byte[] b, int off, double val) {
+        putLong(b, off, Double.doubleToLongBits(val));
+    }
+}
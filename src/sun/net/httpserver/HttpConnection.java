@@ -52,9 +52,18 @@ class HttpConnection {
     InputStream raw;
     OutputStream rawout;
 
+    /* plain HTTP only: the channel stream, into which the dispatcher
+     * reads request heads ahead of the exchange
+     */
+    Request.ReadStream readStream;
+    boolean holdsPermit; // guarded by this; see ServerImpl.exchangePermits
+
     SocketChannel chan;
     SelectionKey selectionKey;
     String protocol;
+    ServerImpl.Dispatcher dispatcher; // the selector thread serving this connection
+    long timerGeneration; // guarded by the dispatcher's TimerWheel
+    final char[] lineBuf = new char [Request.BUF_LEN]; // reused by each Request
     long time;
     volatile long creationTime; // time this connection was created
     volatile long rspStartedTime; // time we started writing the response
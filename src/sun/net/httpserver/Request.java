@@ -44,8 +44,17 @@ class Request {
     private OutputStream os;
 
     Request (InputStream rawInputStream, OutputStream rawout) throws IOException {
+        this (rawInputStream, rawout, new char [BUF_LEN]);
+    }
+
+    /* lineBuf is a scratch buffer of BUF_LEN chars, reused across the
+     * requests of a connection. Lines and headers that fit into it are
+     * parsed without any other temporary allocation.
+     */
+    Request (InputStream rawInputStream, OutputStream rawout, char[] lineBuf) throws IOException {
         is = rawInputStream;
         os = rawout;
+        buf = lineBuf;
         do {
             startLine = readLine();
             if (startLine == null) {
@@ -56,9 +65,9 @@ class Request {
     }
 
 
-    char[] buf = new char [BUF_LEN];
+    char[] buf;
     int pos;
-    StringBuffer lineBuf;
+    StringBuilder lineBuf;  /* only used for lines longer than BUF_LEN */
 
     public InputStream inputStream () {
         return is;
@@ -75,7 +84,7 @@ class Request {
 
     public String readLine () throws IOException {
         boolean gotCR = false, gotLF = false;
-        pos = 0; lineBuf = new StringBuffer();
+        pos = 0; lineBuf = null;
         while (!gotLF) {
             int c = is.read();
             if (c == -1) {
@@ -97,12 +106,18 @@ class Request {
                 }
             }
         }
+        if (lineBuf == null) {
+            return new String (buf, 0, pos);
+        }
         lineBuf.append (buf, 0, pos);
-        return new String (lineBuf);
+        return lineBuf.toString();
     }
 
     private void consume (int c) {
         if (pos == BUF_LEN) {
+            if (lineBuf == null) {
+                lineBuf = new StringBuilder (2 * BUF_LEN);
+            }
             lineBuf.append (buf);
             pos = 0;
         }
@@ -124,7 +139,7 @@ class Request {
         }
         hdrs = new Headers();
 
-        char s[] = new char[10];
+        char s[] = buf;
         int len = 0;
 
         int firstc = is.read();
@@ -197,7 +212,7 @@ class Request {
             }
             String v;
             if (keyend >= len)
-                v = new String();
+                v = "";
             else
                 v = String.copyValueOf(s, keyend, len - keyend);
 
@@ -223,6 +238,7 @@ class Request {
         byte[] one;
         private boolean closed = false, eof = false;
         ByteBuffer markBuf; /* reads may be satisfied from this buffer */
+        ByteBuffer aheadBuf; /* data read ahead by readAhead(), in read mode */
         boolean marked;
         boolean reset;
         int readlimit;
@@ -234,7 +250,7 @@ class Request {
             this.channel = chan;
             this.server = server;
             chanbuf = ByteBuffer.allocate (BUFSIZE);
-            chanbuf.clear();
+            chanbuf.limit (0); /* nothing buffered until the first read */
             one = new byte[1];
             closed = marked = reset = false;
         }
@@ -276,6 +292,19 @@ class Request {
                 if (canreturn == willreturn) {
                     reset = false;
                 }
+            } else if (aheadBuf != null && aheadBuf.hasRemaining()) {
+                /* satisfy from the data read ahead */
+                canreturn = aheadBuf.remaining ();
+                willreturn = canreturn>srclen ? srclen : canreturn;
+                aheadBuf.get(b, off, willreturn);
+
+                if (marked) { /* copy into markBuf */
+                    try {
+                        markBuf.put (b, off, willreturn);
+                    } catch (BufferOverflowException e) {
+                        marked = false;
+                    }
+                }
             } else { /* satisfy from channel */
                 chanbuf.clear ();
                 if (srclen <  BUFSIZE) {
@@ -317,9 +346,62 @@ class Request {
             if (reset)
                 return markBuf.remaining();
 
+            if (aheadBuf != null)
+                return chanbuf.remaining() + aheadBuf.remaining();
+
             return chanbuf.remaining();
         }
 
+        /**
+         * Reads whatever is available from the channel, which must be in
+         * non-blocking mode, and keeps it for the following reads.
+         * Used by the dispatcher so that no thread is held while a slow
+         * client sends its request head.
+         *
+         * @return -1 at end of stream, 1 if the data read ahead holds a
+         *         complete request head (or fills the buffer), 0 if more
+         *         is needed
+         */
+        synchronized int readAhead () throws IOException {
+            if (closed)
+                throw new IOException ("Stream closed");
+
+            if (aheadBuf == null) {
+                aheadBuf = ByteBuffer.allocate (BUFSIZE);
+                aheadBuf.flip ();
+            }
+            aheadBuf.compact ();
+            int n;
+            try {
+                n = channel.read (aheadBuf);
+            } finally {
+                aheadBuf.flip ();
+            }
+            if (n == -1) {
+                eof = true;
+                return -1;
+            }
+            if (aheadBuf.remaining() == aheadBuf.capacity()) {
+                return 1;
+            }
+            /* look for the empty line ending the head; a bare LF
+             * ends a line too, as in Request.readLine
+             */
+            int lim = aheadBuf.limit ();
+            for (int i = aheadBuf.position(); i < lim; i++) {
+                if (aheadBuf.get (i) == LF) {
+                    int j = i + 1;
+                    if (j < lim && aheadBuf.get (j) == CR) {
+                        j++;
+                    }
+                    if (j < lim && aheadBuf.get (j) == LF) {
+                        return 1;
+                    }
+                }
+            }
+            return 0;
+        }
+
         public void close () throws IOException {
             if (closed) {
                 return;
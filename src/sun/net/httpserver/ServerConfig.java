@@ -47,6 +47,8 @@ class ServerConfig {
     private static final long DEFAULT_TIMER_MILLIS = 1000;
     private static final int  DEFAULT_MAX_REQ_HEADERS = 200;
     private static final long DEFAULT_DRAIN_AMOUNT = 64 * 1024;
+    private static final int  DEFAULT_SELECTOR_THREADS = 1;
+    private static final int  DEFAULT_MAX_EXCHANGES = 0; // default: unbounded
 
     private static int clockTick;
     private static long idleInterval;
@@ -59,6 +61,10 @@ class ServerConfig {
     private static long maxReqTime;
     private static long maxRspTime;
     private static long timerMillis;
+    // number of dispatcher threads, each with its own selector
+    private static int selectorThreads;
+    // max number of exchanges handed to the executor at any time
+    private static int maxExchanges;
     private static boolean debug;
 
     // the value of the TCP_NODELAY socket-level option
@@ -95,6 +101,17 @@ class ServerConfig {
                     timerMillis = Long.getLong("sun.net.httpserver.timerMillis",
                             DEFAULT_TIMER_MILLIS);
 
+                    selectorThreads = Integer.getInteger(
+                            "sun.net.httpserver.selectorThreads",
+                            DEFAULT_SELECTOR_THREADS);
+                    if (selectorThreads < 1) {
+                        selectorThreads = DEFAULT_SELECTOR_THREADS;
+                    }
+
+                    maxExchanges = Integer.getInteger(
+                            "sun.net.httpserver.maxExchanges",
+                            DEFAULT_MAX_EXCHANGES);
+
                     debug = Boolean.getBoolean("sun.net.httpserver.debug");
 
                     noDelay = Boolean.getBoolean("sun.net.httpserver.nodelay");
@@ -181,6 +198,14 @@ class ServerConfig {
         return timerMillis;
     }
 
+    static int getSelectorThreads() {
+        return selectorThreads;
+    }
+
+    static int getMaxExchanges() {
+        return maxExchanges;
+    }
+
     static boolean noDelay() {
         return noDelay;
     }
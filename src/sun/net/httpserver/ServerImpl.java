@@ -51,25 +51,24 @@ class ServerImpl implements TimeSource {
     private ContextList contexts;
     private InetSocketAddress address;
     private ServerSocketChannel schan;
-    private Selector selector;
+    /* one dispatcher per selector thread; dispatchers[0] also accepts */
+    private Dispatcher[] dispatchers;
+    private int nextDispatcher;
     private SelectionKey listenerKey;
     private Set<HttpConnection> idleConnections;
     private Set<HttpConnection> allConnections;
-    /* following two are used to keep track of the times
-     * when a connection/request is first received
-     * and when we start to send the response
+    /* bounds the number of exchanges in flight, null if unbounded.
+     * A connection whose request head is complete while no permit is
+     * available waits in pendingConnections, without being read from.
      */
-    private Set<HttpConnection> reqConnections;
-    private Set<HttpConnection> rspConnections;
-    private List<Event> events;
-    private Object lolock = new Object();
+    private final Semaphore exchangePermits;
+    private final Queue<HttpConnection> pendingConnections;
+    private ExecutorService exchangeExecutor; /* built-in executor, if used */
     private volatile boolean finished = false;
     private volatile boolean terminating = false;
     private boolean bound = false;
     private boolean started = false;
     private volatile long time;  /* current time */
-    private volatile long subticks = 0;
-    private volatile long ticks; /* number of clock ticks since server started */
     private HttpServer wrapper;
 
     final static int CLOCK_TICK = ServerConfig.getClockTick();
@@ -79,10 +78,12 @@ class ServerImpl implements TimeSource {
     final static long MAX_REQ_TIME=getTimeMillis(ServerConfig.getMaxReqTime());
     final static long MAX_RSP_TIME=getTimeMillis(ServerConfig.getMaxRspTime());
     final static boolean timer1Enabled = MAX_REQ_TIME != -1 || MAX_RSP_TIME != -1;
+    final static int MAX_EXCHANGES = ServerConfig.getMaxExchanges();
+    /* granularity of the idle, request and response timeouts */
+    final static long WHEEL_TICK =
+        timer1Enabled ? Math.min (CLOCK_TICK, TIMER_MILLIS) : CLOCK_TICK;
 
-    private Timer timer, timer1;
     private final Logger logger;
-    private Thread dispatcherThread;
 
     ServerImpl (
         HttpServer wrapper, String protocol, InetSocketAddress addr, int backlog
@@ -101,26 +102,30 @@ class ServerImpl implements TimeSource {
             socket.bind (addr, backlog);
             bound = true;
         }
-        selector = Selector.open ();
-        schan.configureBlocking (false);
-        listenerKey = schan.register (selector, SelectionKey.OP_ACCEPT);
-        dispatcher = new Dispatcher();
-        idleConnections = Collections.synchronizedSet (new HashSet<HttpConnection>());
-        allConnections = Collections.synchronizedSet (new HashSet<HttpConnection>());
-        reqConnections = Collections.synchronizedSet (new HashSet<HttpConnection>());
-        rspConnections = Collections.synchronizedSet (new HashSet<HttpConnection>());
         time = System.currentTimeMillis();
-        timer = new Timer ("server-timer", true);
-        timer.schedule (new ServerTimerTask(), CLOCK_TICK, CLOCK_TICK);
+        dispatchers = new Dispatcher [ServerConfig.getSelectorThreads()];
+        for (int i=0; i<dispatchers.length; i++) {
+            dispatchers[i] = new Dispatcher (i);
+        }
+        dispatcher = dispatchers[0];
+        schan.configureBlocking (false);
+        listenerKey = schan.register (dispatcher.selector, SelectionKey.OP_ACCEPT);
+        idleConnections = ConcurrentHashMap.newKeySet();
+        allConnections = ConcurrentHashMap.newKeySet();
+        if (MAX_EXCHANGES > 0) {
+            exchangePermits = new Semaphore (MAX_EXCHANGES);
+            pendingConnections = new ConcurrentLinkedQueue<HttpConnection>();
+        } else {
+            exchangePermits = null;
+            pendingConnections = null;
+        }
         if (timer1Enabled) {
-            timer1 = new Timer ("server-timer1", true);
-            timer1.schedule (new ServerTimerTask1(),TIMER_MILLIS,TIMER_MILLIS);
-            logger.log (Level.DEBUG, "HttpServer timer1 enabled period in ms: ", TIMER_MILLIS);
+            logger.log (Level.DEBUG, "HttpServer timer1 enabled period in ms: ", WHEEL_TICK);
             logger.log (Level.DEBUG, "MAX_REQ_TIME:  "+MAX_REQ_TIME);
             logger.log (Level.DEBUG, "MAX_RSP_TIME:  "+MAX_RSP_TIME);
         }
-        events = new LinkedList<Event>();
-        logger.log (Level.DEBUG, "HttpServer created "+protocol+" "+ addr);
+        logger.log (Level.DEBUG, "HttpServer created "+protocol+" "+ addr
+                    + " with " + dispatchers.length + " selector thread(s)");
     }
 
     public void bind (InetSocketAddress addr, int backlog) throws IOException {
@@ -140,11 +145,17 @@ class ServerImpl implements TimeSource {
             throw new IllegalStateException ("server in wrong state");
         }
         if (executor == null) {
-            executor = new DefaultExecutor();
+            if (MAX_EXCHANGES > 0) {
+                exchangeExecutor = newExchangeExecutor();
+                executor = exchangeExecutor;
+            } else {
+                executor = new DefaultExecutor();
+            }
         }
-        dispatcherThread = new Thread(null, dispatcher, "HTTP-Dispatcher", 0, false);
         started = true;
-        dispatcherThread.start();
+        for (Dispatcher d : dispatchers) {
+            d.start();
+        }
     }
 
     public void setExecutor (Executor executor) {
@@ -160,6 +171,28 @@ class ServerImpl implements TimeSource {
         }
     }
 
+    /* The executor used when maxExchanges is set and the application
+     * did not provide one: a pool of up to maxExchanges daemon threads,
+     * which are only created on demand and time out when idle. The
+     * exchange permits keep the number of queued tasks small.
+     */
+    private static ExecutorService newExchangeExecutor () {
+        ThreadFactory factory = new ThreadFactory() {
+            private int count;
+            public synchronized Thread newThread (Runnable r) {
+                Thread t = new Thread (null, r, "HTTP-Exchange-" + (++count), 0, false);
+                t.setDaemon (true);
+                return t;
+            }
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor (
+            MAX_EXCHANGES, MAX_EXCHANGES, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), factory
+        );
+        pool.allowCoreThreadTimeOut (true);
+        return pool;
+    }
+
     public Executor getExecutor () {
         return executor;
     }
@@ -189,7 +222,7 @@ class ServerImpl implements TimeSource {
         }
         terminating = true;
         try { schan.close(); } catch (IOException e) {}
-        selector.wakeup();
+        dispatcher.selector.wakeup();
         long latest = System.currentTimeMillis() + delay * 1000;
         while (System.currentTimeMillis() < latest) {
             delay();
@@ -198,24 +231,25 @@ class ServerImpl implements TimeSource {
             }
         }
         finished = true;
-        selector.wakeup();
-        synchronized (allConnections) {
-            for (HttpConnection c : allConnections) {
-                c.close();
-            }
+        for (Dispatcher d : dispatchers) {
+            d.selector.wakeup();
+        }
+        for (HttpConnection c : allConnections) {
+            c.close();
         }
         allConnections.clear();
         idleConnections.clear();
-        timer.cancel();
-        if (timer1Enabled) {
-            timer1.cancel();
+        if (exchangeExecutor != null) {
+            exchangeExecutor.shutdown();
         }
-        if (dispatcherThread != null) {
-            try {
-                dispatcherThread.join();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.log (Level.TRACE, "ServerImpl.stop: ", e);
+        for (Dispatcher d : dispatchers) {
+            if (d.thread != null) {
+                try {
+                    d.thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.log (Level.TRACE, "ServerImpl.stop: ", e);
+                }
             }
         }
     }
@@ -269,21 +303,62 @@ class ServerImpl implements TimeSource {
                 });
     }
 
-    Selector getSelector () {
-        return selector;
-    }
-
     void addEvent (Event r) {
-        synchronized (lolock) {
-            events.add (r);
-            selector.wakeup();
-        }
+        r.exchange.getConnection().dispatcher.addEvent (r);
     }
 
-    /* main server listener task */
+    /* main server listener task. There is one per selector thread.
+     * The first one also accepts new connections and hands them out to
+     * all the dispatchers in turn. A connection stays with the dispatcher
+     * it was handed to, which owns its selection key and its timeouts.
+     */
 
     class Dispatcher implements Runnable {
 
+        final Selector selector;
+        final TimerWheel wheel;
+        private final String name;
+        Thread thread;
+
+        private final Object lolock = new Object();
+        private List<Event> events = new LinkedList<Event>();
+        private List<SocketChannel> newChannels = new LinkedList<SocketChannel>();
+        private List<HttpConnection> resumed = new LinkedList<HttpConnection>();
+
+        Dispatcher (int index) throws IOException {
+            selector = Selector.open ();
+            wheel = new TimerWheel (WHEEL_TICK, time);
+            name = index == 0 ? "HTTP-Dispatcher" : "HTTP-Dispatcher-" + index;
+        }
+
+        void start () {
+            thread = new Thread(null, this, name, 0, false);
+            thread.start();
+        }
+
+        void addEvent (Event r) {
+            synchronized (lolock) {
+                events.add (r);
+                selector.wakeup();
+            }
+        }
+
+        /* hand over a newly accepted channel */
+        void addChannel (SocketChannel chan) {
+            synchronized (lolock) {
+                newChannels.add (chan);
+                selector.wakeup();
+            }
+        }
+
+        /* hand back a pending connection, for which a permit was acquired */
+        void resume (HttpConnection c) {
+            synchronized (lolock) {
+                resumed.add (c);
+                selector.wakeup();
+            }
+        }
+
         private void handleEvent (Event r) {
             ExchangeImpl t = r.exchange;
             HttpConnection c = t.getConnection();
@@ -295,6 +370,7 @@ class ServerImpl implements TimeSource {
                         finished = true;
                     }
                     responseCompleted (c);
+                    releaseExchangePermit (c);
                     LeftOverInputStream is = t.getOriginalInputStream();
                     if (!is.isEOF()) {
                         t.close = true;
@@ -306,7 +382,7 @@ class ServerImpl implements TimeSource {
                         if (is.isDataBuffered()) {
                             /* don't re-enable the interestops, just handle it */
                             requestStarted (c);
-                            handle (c.getChannel(), c);
+                            dispatch (c);
                         } else {
                             connsToRegister.add (c);
                         }
@@ -333,6 +409,7 @@ class ServerImpl implements TimeSource {
                 c.selectionKey = key;
                 c.time = getTime() + IDLE_INTERVAL;
                 idleConnections.add (c);
+                wheel.schedule (c, c.time);
             } catch (IOException e) {
                 dprint(e);
                 logger.log (Level.TRACE, "Dispatcher(8)", e);
@@ -344,11 +421,21 @@ class ServerImpl implements TimeSource {
             while (!finished) {
                 try {
                     List<Event> list = null;
+                    List<SocketChannel> chans = null;
+                    List<HttpConnection> conns = null;
                     synchronized (lolock) {
                         if (events.size() > 0) {
                             list = events;
                             events = new LinkedList<Event>();
                         }
+                        if (newChannels.size() > 0) {
+                            chans = newChannels;
+                            newChannels = new LinkedList<SocketChannel>();
+                        }
+                        if (resumed.size() > 0) {
+                            conns = resumed;
+                            resumed = new LinkedList<HttpConnection>();
+                        }
                     }
 
                     if (list != null) {
@@ -357,6 +444,22 @@ class ServerImpl implements TimeSource {
                         }
                     }
 
+                    if (chans != null) {
+                        for (SocketChannel chan : chans) {
+                            register (chan);
+                        }
+                    }
+
+                    if (conns != null) {
+                        for (HttpConnection c : conns) {
+                            if (c.closed) {
+                                releaseExchangePermit (c);
+                            } else {
+                                exchange (c);
+                            }
+                        }
+                    }
+
                     for (HttpConnection c : connsToRegister) {
                         reRegister(c);
                     }
@@ -364,6 +467,9 @@ class ServerImpl implements TimeSource {
 
                     selector.select(1000);
 
+                    time = System.currentTimeMillis();
+                    expireTimeouts (time);
+
                     /* process the selected list now  */
                     Set<SelectionKey> selected = selector.selectedKeys();
                     Iterator<SelectionKey> iter = selected.iterator();
@@ -374,38 +480,46 @@ class ServerImpl implements TimeSource {
                             if (terminating) {
                                 continue;
                             }
-                            SocketChannel chan = schan.accept();
-
-                            // optimist there's a channel
-                            if (chan != null) {
+                            SocketChannel chan;
+                            // take the whole accept backlog in one go
+                            while ((chan = schan.accept()) != null) {
                                 // Set TCP_NODELAY, if appropriate
                                 if (ServerConfig.noDelay()) {
                                     chan.socket().setTcpNoDelay(true);
                                 }
-                                chan.configureBlocking (false);
-                                SelectionKey newkey =
-                                    chan.register (selector, SelectionKey.OP_READ);
-                                HttpConnection c = new HttpConnection ();
-                                c.selectionKey = newkey;
-                                c.setChannel (chan);
-                                newkey.attach (c);
-                                requestStarted (c);
-                                allConnections.add (c);
+                                Dispatcher d = dispatchers[nextDispatcher];
+                                nextDispatcher = (nextDispatcher + 1) % dispatchers.length;
+                                if (d == this) {
+                                    register (chan);
+                                } else {
+                                    d.addChannel (chan);
+                                }
                             }
                         } else {
                             try {
                                 if (key.isReadable()) {
-                                    SocketChannel chan = (SocketChannel)key.channel();
                                     HttpConnection conn = (HttpConnection)key.attachment();
 
-                                    key.cancel();
-                                    chan.configureBlocking (true);
+                                    /* for plain HTTP, read the request head
+                                     * here and only start the exchange once
+                                     * it is complete
+                                     */
+                                    int r = 1;
+                                    if (conn.readStream != null) {
+                                        r = conn.readStream.readAhead();
+                                        if (r < 0) {
+                                            closeConnection (conn);
+                                            continue;
+                                        }
+                                    }
                                     if (idleConnections.remove(conn)) {
-                                        // was an idle connection so add it
-                                        // to reqConnections set.
+                                        // was an idle connection so start
+                                        // the request timer.
                                         requestStarted (conn);
                                     }
-                                    handle (chan, conn);
+                                    if (r > 0) {
+                                        dispatch (conn);
+                                    }
                                 } else {
                                     assert false : "Unexpected non-readable key:" + key;
                                 }
@@ -424,9 +538,80 @@ class ServerImpl implements TimeSource {
                     logger.log (Level.TRACE, "Dispatcher (7)", e);
                 }
             }
+            synchronized (lolock) {
+                for (SocketChannel chan : newChannels) {
+                    try { chan.close(); } catch (IOException e) {}
+                }
+                newChannels.clear();
+            }
             try {selector.close(); } catch (Exception e) {}
         }
 
+        private void register (SocketChannel chan) {
+            try {
+                chan.configureBlocking (false);
+                SelectionKey newkey = chan.register (selector, SelectionKey.OP_READ);
+                HttpConnection c = new HttpConnection ();
+                c.selectionKey = newkey;
+                c.setChannel (chan);
+                c.dispatcher = this;
+                if (!https) {
+                    c.readStream = new Request.ReadStream (ServerImpl.this, chan);
+                }
+                newkey.attach (c);
+                requestStarted (c);
+                allConnections.add (c);
+            } catch (IOException e) {
+                logger.log (Level.TRACE, "Dispatcher (9)", e);
+                try { chan.close(); } catch (IOException e1) {}
+            }
+        }
+
+        /* start the exchange of a connection with a complete request,
+         * or leave it pending until an exchange permit is released
+         */
+        private void dispatch (HttpConnection c) throws IOException {
+            if (!acquireExchangePermit (c)) {
+                SelectionKey key = c.selectionKey;
+                if (key.isValid()) {
+                    key.interestOps (0);
+                }
+                pendingConnections.add (c);
+                resumePending();
+                return;
+            }
+            exchange (c);
+        }
+
+        private void exchange (HttpConnection c) throws IOException {
+            SelectionKey key = c.selectionKey;
+            if (key.isValid()) {
+                key.cancel();
+                c.getChannel().configureBlocking (true);
+            }
+            handle (c.getChannel(), c);
+        }
+
+        /* close the connections whose idle, request or response
+         * timeout has expired
+         */
+        private void expireTimeouts (long now) {
+            List<TimerWheel.Entry> expired = wheel.expire (now);
+            if (expired == null) {
+                return;
+            }
+            for (TimerWheel.Entry e : expired) {
+                HttpConnection c = e.conn;
+                State s = c.getState();
+                if (s == State.REQUEST) {
+                    logger.log (Level.DEBUG, "closing: no request: " + c);
+                } else if (s == State.RESPONSE) {
+                    logger.log (Level.DEBUG, "closing: no response: " + c);
+                }
+                closeConnection (c);
+            }
+        }
+
         private void handleException (SelectionKey key, Exception e) {
             HttpConnection conn = (HttpConnection)key.attachment();
             if (e != null) {
@@ -475,20 +660,57 @@ class ServerImpl implements TimeSource {
     private void closeConnection(HttpConnection conn) {
         conn.close();
         allConnections.remove(conn);
-        switch (conn.getState()) {
-        case REQUEST:
-            reqConnections.remove(conn);
-            break;
-        case RESPONSE:
-            rspConnections.remove(conn);
-            break;
-        case IDLE:
-            idleConnections.remove(conn);
-            break;
-        }
-        assert !reqConnections.remove(conn);
-        assert !rspConnections.remove(conn);
-        assert !idleConnections.remove(conn);
+        idleConnections.remove(conn);
+        if (conn.dispatcher != null) {
+            conn.dispatcher.wheel.cancel(conn);
+        }
+        releaseExchangePermit(conn);
+    }
+
+    private boolean acquireExchangePermit (HttpConnection c) {
+        if (exchangePermits == null) {
+            return true;
+        }
+        if (!exchangePermits.tryAcquire()) {
+            return false;
+        }
+        synchronized (c) {
+            c.holdsPermit = true;
+        }
+        return true;
+    }
+
+    /* called when the exchange of the connection ends, normally or not */
+    private void releaseExchangePermit (HttpConnection c) {
+        if (exchangePermits == null) {
+            return;
+        }
+        synchronized (c) {
+            if (!c.holdsPermit) {
+                return;
+            }
+            c.holdsPermit = false;
+        }
+        exchangePermits.release();
+        resumePending();
+    }
+
+    /* Passes free permits on to pending connections. Called after a
+     * connection is queued as well as after a permit is released, so
+     * that a connection cannot be left pending while permits are free.
+     */
+    private void resumePending () {
+        while (!pendingConnections.isEmpty() && exchangePermits.tryAcquire()) {
+            HttpConnection c = pendingConnections.poll();
+            if (c == null) {
+                exchangePermits.release();
+                break;
+            }
+            synchronized (c) {
+                c.holdsPermit = true;
+            }
+            c.dispatcher.resume (c);
+        }
     }
 
         /* per exchange task */
@@ -537,10 +759,7 @@ class ServerImpl implements TimeSource {
                         engine = sslStreams.getSSLEngine();
                         connection.sslStreams = sslStreams;
                     } else {
-                        rawin = new BufferedInputStream(
-                            new Request.ReadStream (
-                                ServerImpl.this, chan
-                        ));
+                        rawin = new BufferedInputStream(connection.readStream);
                         rawout = new Request.WriteStream (
                             ServerImpl.this, chan
                         );
@@ -548,7 +767,7 @@ class ServerImpl implements TimeSource {
                     connection.raw = rawin;
                     connection.rawout = rawout;
                 }
-                Request req = new Request (rawin, rawout);
+                Request req = new Request (rawin, rawout, connection.lineBuf);
                 requestLine = req.requestLine();
                 if (requestLine == null) {
                     /* connection closed */
@@ -755,10 +974,6 @@ class ServerImpl implements TimeSource {
         logger.log (Level.DEBUG, message);
     }
 
-    long getTicks() {
-        return ticks;
-    }
-
     public long getTime() {
         return time;
     }
@@ -789,7 +1004,11 @@ class ServerImpl implements TimeSource {
     void requestStarted (HttpConnection c) {
         c.creationTime = getTime();
         c.setState (State.REQUEST);
-        reqConnections.add (c);
+        if (MAX_REQ_TIME != -1) {
+            c.dispatcher.wheel.schedule (c, c.creationTime + MAX_REQ_TIME);
+        } else {
+            c.dispatcher.wheel.cancel (c);
+        }
     }
 
     // called after a request has been completely read
@@ -802,81 +1021,21 @@ class ServerImpl implements TimeSource {
     void requestCompleted (HttpConnection c) {
         State s = c.getState();
         assert s == State.REQUEST : "State is not REQUEST ("+s+")";
-        reqConnections.remove (c);
         c.rspStartedTime = getTime();
-        rspConnections.add (c);
         c.setState (State.RESPONSE);
+        if (MAX_RSP_TIME != -1) {
+            c.dispatcher.wheel.schedule (c, c.rspStartedTime + MAX_RSP_TIME);
+        } else {
+            c.dispatcher.wheel.cancel (c);
+        }
     }
 
     // called after response has been sent
     void responseCompleted (HttpConnection c) {
         State s = c.getState();
         assert s == State.RESPONSE : "State is not RESPONSE ("+s+")";
-        rspConnections.remove (c);
         c.setState (State.IDLE);
-    }
-
-    /**
-     * TimerTask run every CLOCK_TICK ms
-     */
-    class ServerTimerTask extends TimerTask {
-        public void run () {
-            LinkedList<HttpConnection> toClose = new LinkedList<HttpConnection>();
-            time = System.currentTimeMillis();
-            ticks ++;
-            synchronized (idleConnections) {
-                for (HttpConnection c : idleConnections) {
-                    if (c.time <= time) {
-                        toClose.add (c);
-                    }
-                }
-                for (HttpConnection c : toClose) {
-                    idleConnections.remove (c);
-                    allConnections.remove (c);
-                    c.close();
-                }
-            }
-        }
-    }
-
-    class ServerTimerTask1 extends TimerTask {
-
-        // runs every TIMER_MILLIS
-        public void run () {
-            LinkedList<HttpConnection> toClose = new LinkedList<HttpConnection>();
-            time = System.currentTimeMillis();
-            synchronized (reqConnections) {
-                if (MAX_REQ_TIME != -1) {
-                    for (HttpConnection c : reqConnections) {
-                        if (c.creationTime + TIMER_MILLIS + MAX_REQ_TIME <= time) {
-                            toClose.add (c);
-                        }
-                    }
-                    for (HttpConnection c : toClose) {
-                        logger.log (Level.DEBUG, "closing: no request: " + c);
-                        reqConnections.remove (c);
-                        allConnections.remove (c);
-                        c.close();
-                    }
-                }
-            }
-            toClose = new LinkedList<HttpConnection>();
-            synchronized (rspConnections) {
-                if (MAX_RSP_TIME != -1) {
-                    for (HttpConnection c : rspConnections) {
-                        if (c.rspStartedTime + TIMER_MILLIS +MAX_RSP_TIME <= time) {
-                            toClose.add (c);
-                        }
-                    }
-                    for (HttpConnection c : toClose) {
-                        logger.log (Level.DEBUG, "closing: no response: " + c);
-                        rspConnections.remove (c);
-                        allConnections.remove (c);
-                        c.close();
-                    }
-                }
-            }
-        }
+        c.dispatcher.wheel.cancel (c);
     }
 
     void logStackTrace (String s) {
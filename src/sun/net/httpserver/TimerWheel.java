@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.net.httpserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hashed timing wheel holding the idle, request and response
+ * timeouts of the connections served by one dispatcher.
+ *
+ * Each connection has at most one live timeout. Scheduling a new one,
+ * or cancelling, bumps the connection's timer generation so that the
+ * entry previously scheduled is ignored when its bucket is swept,
+ * rather than searched for and unlinked. Scheduling and cancelling are
+ * therefore O(1); they may be called from any thread.
+ */
+class TimerWheel {
+
+    private static final int WHEEL_SIZE = 512;
+
+    static final class Entry {
+        final HttpConnection conn;
+        final long deadline;
+        final long generation;
+        Entry next;
+
+        Entry (HttpConnection conn, long deadline, long generation) {
+            this.conn = conn;
+            this.deadline = deadline;
+            this.generation = generation;
+        }
+
+        /* true if this is still the current timeout of the connection */
+        boolean isLive () {
+            return conn.timerGeneration == generation;
+        }
+    }
+
+    private final long tickMillis;
+    private final Entry[] buckets = new Entry[WHEEL_SIZE];
+    private long tick;    /* last tick swept */
+
+    TimerWheel (long tickMillis, long now) {
+        this.tickMillis = tickMillis;
+        this.tick = now / tickMillis - 1;
+    }
+
+    long getTickMillis () {
+        return tickMillis;
+    }
+
+    /**
+     * Arms the timeout of the given connection, replacing any
+     * timeout scheduled before.
+     */
+    synchronized void schedule (HttpConnection c, long deadline) {
+        long t = Math.max (deadline / tickMillis, tick + 1);
+        int i = (int) (t & (WHEEL_SIZE - 1));
+        Entry e = new Entry (c, deadline, ++c.timerGeneration);
+        e.next = buckets[i];
+        buckets[i] = e;
+    }
+
+    /**
+     * Disarms the timeout of the given connection, if any.
+     */
+    synchronized void cancel (HttpConnection c) {
+        c.timerGeneration++;
+    }
+
+    /**
+     * Sweeps the buckets of the ticks that have fully elapsed and returns
+     * the live entries whose deadline has passed. Stale entries are dropped,
+     * entries due in a later revolution of the wheel are kept.
+     */
+    synchronized List<Entry> expire (long now) {
+        List<Entry> expired = null;
+        long last = now / tickMillis - 1;
+        if (last - tick > WHEEL_SIZE) {
+            tick = last - WHEEL_SIZE;
+        }
+        while (tick < last) {
+            tick++;
+            int i = (int) (tick & (WHEEL_SIZE - 1));
+            Entry prev = null;
+            for (Entry e = buckets[i]; e != null; e = e.next) {
+                if (!e.isLive()) {
+                    unlink (i, prev, e);
+                } else if (e.deadline <= now) {
+                    unlink (i, prev, e);
+                    e.conn.timerGeneration++;
+                    if (expired == null) {
+                        expired = new ArrayList<>();
+                    }
+                    expired.add (e);
+                } else {
+                    prev = e;
+                }
+            }
+        }
+        return expired;
+    }
+
+    private void unlink (int i, Entry prev, Entry e) {
+        if (prev == null) {
+            buckets[i] = e.next;
+        } else {
+            prev.next = e.next;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.nio.ch;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.internal.misc.JavaNioAccess;
+import jdk.internal.misc.SharedSecrets;
+import jdk.internal.misc.TerminatingThreadLocal;
+import jdk.internal.ref.Cleaner;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * A pool of direct byte buffers organized in power-of-two size classes.
+ *
+ * <p> Buffers are obtained with {@link #allocate} and must be handed back
+ * exactly once with {@link #release}; the buffer must not be used after it
+ * has been released, as its memory is then reused for other allocations.
+ * Each size class has a small per-thread cache in front of a shared,
+ * lock-free arena. Requests larger than the largest size class are not
+ * pooled: they are served by {@link ByteBuffer#allocateDirect} and freed
+ * eagerly on release.
+ *
+ * <p> The pool is configured with the following system properties:
+ * <ul>
+ *   <li> {@code jdk.nio.bufferPool.maxBufferSize} - the largest pooled
+ *        buffer size in bytes, rounded up to a power of two (default 1MB) </li>
+ *   <li> {@code jdk.nio.bufferPool.maxRetainedSize} - the upper bound, in
+ *        bytes, on the free memory held by the pool, in the shared arenas
+ *        and the per-thread caches together; 0 disables pooling
+ *        (default 64MB) </li>
+ *   <li> {@code jdk.nio.bufferPool.leakDetection} - if true, buffers that
+ *        become unreachable without having been released are counted as
+ *        leaks and their memory is reclaimed (default false) </li>
+ * </ul>
+ *
+ * <p> Pooled memory that is never released is not lost: once it becomes
+ * unreachable it is freed by the garbage collector like any other direct
+ * buffer, and is then no longer counted as owned by the pool.
+ *
+ * <p> Usage is reported through a {@code BufferPoolMXBean} named
+ * "pooled"; see {@link #getBufferPool}.
+ */
+public final class DirectBufferPool {
+
+    // Smallest size class, in bytes
+    private static final int MIN_SHIFT = 12;
+
+    // Number of buffers per size class in each thread's cache
+    private static final int THREAD_CACHE_SIZE = 4;
+
+    // Largest size class, in bytes
+    private static final int MAX_BUFFER_SIZE =
+        roundUp(getProperty("jdk.nio.bufferPool.maxBufferSize", 1 << 20));
+
+    // Upper bound on the free memory retained by the arenas and thread caches
+    private static final long MAX_RETAINED_SIZE =
+        getProperty("jdk.nio.bufferPool.maxRetainedSize", 64L << 20);
+
+    private static final boolean LEAK_DETECTION =
+        Boolean.parseBoolean(GetPropertyAction
+            .privilegedGetProperty("jdk.nio.bufferPool.leakDetection"));
+
+    private static final int NUM_CLASSES =
+        Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE) - MIN_SHIFT + 1;
+
+    private static final JavaNioAccess NIO_ACCESS = SharedSecrets.getJavaNioAccess();
+
+    // Shared arenas, one per size class
+    private static final Arena[] arenas = new Arena[NUM_CLASSES];
+    static {
+        for (int i = 0; i < NUM_CLASSES; i++)
+            arenas[i] = new Arena();
+    }
+
+    // Per-thread caches, spilled to the shared arenas on thread exit
+    private static final TerminatingThreadLocal<Chunk[][]> threadCache =
+        new TerminatingThreadLocal<>() {
+            @Override
+            protected Chunk[][] initialValue() {
+                return new Chunk[NUM_CLASSES][];
+            }
+            @Override
+            protected void threadTerminated(Chunk[][] cache) {
+                for (Chunk[] chunks : cache) {
+                    if (chunks == null)
+                        continue;
+                    for (int j = 0; j < chunks.length; j++) {
+                        Chunk chunk = chunks[j];
+                        if (chunk != null) {
+                            chunks[j] = null;
+                            // already counted as retained
+                            retainedSize.addAndGet(-chunk.capacity());
+                            offerShared(chunk);
+                        }
+                    }
+                }
+            }
+        };
+
+    // Memory owned by the pool, whether leased out or cached
+    private static final AtomicLong count = new AtomicLong();
+    private static final AtomicLong totalCapacity = new AtomicLong();
+
+    // Free memory held by the shared arenas and the thread caches
+    private static final AtomicLong retainedSize = new AtomicLong();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder leaks = new LongAdder();
+
+    private DirectBufferPool() { }
+
+    /**
+     * A lock-free stack of free buffers of one size class.
+     */
+    private static class Arena {
+        final ConcurrentLinkedDeque<Chunk> free = new ConcurrentLinkedDeque<>();
+    }
+
+    /**
+     * A block of pooled memory: a direct buffer of one size class. The
+     * memory is counted as owned by the pool from the creation of the chunk
+     * until it is freed, either explicitly or, if the chunk is never handed
+     * back, by the garbage collector.
+     */
+    private static class Chunk {
+        final ByteBuffer buffer;
+        final int sizeClass;
+        private final Accounting accounting;
+        private final Cleaner cleaner;
+
+        Chunk(int sizeClass) {
+            this.buffer = ByteBuffer.allocateDirect(classSize(sizeClass));
+            this.sizeClass = sizeClass;
+            this.accounting = new Accounting(buffer.capacity());
+            this.cleaner = Cleaner.create(buffer, accounting);
+            count.incrementAndGet();
+            totalCapacity.addAndGet(buffer.capacity());
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        long address() {
+            return ((DirectBuffer)buffer).address();
+        }
+
+        // Frees the memory now rather than when the chunk is collected
+        void free() {
+            accounting.freed = true;
+            cleaner.clean();
+            ((DirectBuffer)buffer).cleaner().clean();
+        }
+    }
+
+    /**
+     * Removes the memory of a chunk from the pool's usage. Must not refer
+     * to the chunk, as it is run when the chunk becomes phantom reachable.
+     */
+    private static class Accounting implements Runnable {
+        private final int capacity;
+        volatile boolean freed;
+
+        Accounting(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void run() {
+            if (!freed)
+                leaks.increment();      // leased out and never released
+            count.decrementAndGet();
+            totalCapacity.addAndGet(-capacity);
+        }
+    }
+
+    /**
+     * The attachment of each leased buffer: identifies the buffer as coming
+     * from this pool and refers to the chunk it is a view of. Also serves
+     * as the action of the leak-detecting cleaner.
+     */
+    private static class Lease implements Runnable {
+        final Chunk chunk;
+        final AtomicBoolean released = new AtomicBoolean();
+        Cleaner cleaner;
+
+        Lease(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        // Invoked when the leased view becomes phantom reachable
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                leaks.increment();
+                offerShared(chunk);
+            }
+        }
+    }
+
+    /**
+     * Returns a direct buffer with a limit of the given size and a capacity
+     * of at least that size. The buffer's content is undefined.
+     *
+     * @throws IllegalArgumentException if size is negative
+     */
+    public static ByteBuffer allocate(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Negative size: " + size);
+        if (size > MAX_BUFFER_SIZE || MAX_RETAINED_SIZE <= 0) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        int sc = sizeClass(size);
+        Chunk chunk = pollThreadCache(sc);
+        if (chunk == null)
+            chunk = arenas[sc].free.pollFirst();
+        if (chunk != null) {
+            retainedSize.addAndGet(-chunk.capacity());
+            hits.increment();
+        } else {
+            misses.increment();
+            chunk = new Chunk(sc);
+        }
+        return lease(chunk, size);
+    }
+
+    /**
+     * Releases a buffer obtained from {@link #allocate}. Pooled buffers are
+     * returned to the pool, unpooled buffers are freed. The buffer must not
+     * be accessed after this method returns.
+     *
+     * @throws IllegalArgumentException if the buffer was not obtained
+     *         from {@code allocate}
+     * @throws IllegalStateException if the buffer was already released
+     */
+    public static void release(ByteBuffer buf) {
+        if (!recycle(buf, true)) {
+            Cleaner cl = (buf instanceof DirectBuffer) ?
+                ((DirectBuffer)buf).cleaner() : null;
+            if (cl == null)
+                throw new IllegalArgumentException("Not a pooled buffer");
+            cl.clean();
+        }
+    }
+
+    /**
+     * Returns the given buffer to the shared arenas if it was leased from
+     * the pool. Returns false, leaving the buffer untouched, otherwise.
+     * Used by Util, which keeps its own per-thread cache in front.
+     *
+     * @throws IllegalStateException if the buffer was already released
+     */
+    static boolean recycle(ByteBuffer buf) {
+        return recycle(buf, false);
+    }
+
+    private static boolean recycle(ByteBuffer buf, boolean useThreadCache) {
+        if (!(buf instanceof DirectBuffer))
+            return false;
+        Object att = ((DirectBuffer)buf).attachment();
+        if (!(att instanceof Lease))
+            return false;
+        Lease lease = (Lease)att;
+        if (!lease.released.compareAndSet(false, true))
+            throw new IllegalStateException("Buffer already released");
+        if (lease.cleaner != null)
+            lease.cleaner.clean();      // deregister, action is a no-op now
+        if (!useThreadCache || !offerThreadCache(lease.chunk))
+            offerShared(lease.chunk);
+        return true;
+    }
+
+    /**
+     * Creates the view of the given chunk that is handed out.
+     */
+    private static ByteBuffer lease(Chunk chunk, int size) {
+        Lease lease = new Lease(chunk);
+        ByteBuffer bb = NIO_ACCESS.newDirectByteBuffer(
+            chunk.address(), chunk.capacity(), lease);
+        if (LEAK_DETECTION)
+            lease.cleaner = Cleaner.create(bb, lease);
+        bb.limit(size);
+        return bb;
+    }
+
+    private static Chunk pollThreadCache(int sc) {
+        Chunk[] chunks = threadCache.get()[sc];
+        if (chunks != null) {
+            for (int i = chunks.length - 1; i >= 0; i--) {
+                Chunk chunk = chunks[i];
+                if (chunk != null) {
+                    chunks[i] = null;
+                    return chunk;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a chunk in the current thread's cache. Returns false if the
+     * cache is full or the pool already retains the maximum amount of
+     * memory.
+     */
+    private static boolean offerThreadCache(Chunk chunk) {
+        Chunk[][] cache = threadCache.get();
+        Chunk[] chunks = cache[chunk.sizeClass];
+        if (chunks == null)
+            chunks = cache[chunk.sizeClass] = new Chunk[THREAD_CACHE_SIZE];
+        for (int i = 0; i < chunks.length; i++) {
+            if (chunks[i] == null) {
+                if (!reserve(chunk.capacity()))
+                    return false;
+                chunks[i] = chunk;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a chunk to the shared arena of its size class, or frees it
+     * if the pool already retains the maximum amount of memory.
+     */
+    private static void offerShared(Chunk chunk) {
+        if (reserve(chunk.capacity())) {
+            arenas[chunk.sizeClass].free.offerFirst(chunk);
+        } else {
+            chunk.free();
+        }
+    }
+
+    /**
+     * Counts the given amount of free memory as retained by the pool.
+     * Returns false, counting nothing, if that would exceed the maximum.
+     */
+    private static boolean reserve(int cap) {
+        if (retainedSize.addAndGet(cap) <= MAX_RETAINED_SIZE)
+            return true;
+        retainedSize.addAndGet(-cap);
+        return false;
+    }
+
+    private static int sizeClass(int size) {
+        if (size <= (1 << MIN_SHIFT))
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    private static int classSize(int sc) {
+        return 1 << (sc + MIN_SHIFT);
+    }
+
+    private static int roundUp(long size) {
+        if (size <= (1 << MIN_SHIFT))
+            return 1 << MIN_SHIFT;
+        if (size >= (1 << 30))
+            return 1 << 30;
+        return Integer.highestOneBit((int)size - 1) << 1;
+    }
+
+    private static long getProperty(String name, long def) {
+        String s = GetPropertyAction.privilegedGetProperty(name);
+        if (s != null) {
+            try {
+                long v = Long.parseLong(s);
+                if (v >= 0)
+                    return v;
+            } catch (NumberFormatException e) {
+                // if the string is not well formed, ignore the system property
+            }
+        }
+        return def;
+    }
+
+    // -- Statistics --
+
+    /**
+     * Returns the number of allocations served from pooled memory.
+     */
+    public static long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of pooled allocations which had to allocate new
+     * memory.
+     */
+    public static long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of buffers which became unreachable without
+     * having been released. With leak detection enabled a leak is counted
+     * as soon as the buffer is found unreachable; otherwise it is counted
+     * when the garbage collector frees the pooled memory, which may be
+     * later, and not at all for memory that is never collected.
+     */
+    public static long leaks() {
+        return leaks.sum();
+    }
+
+    /**
+     * Invoked by sun.management.ManagementFactoryHelper to create the management
+     * interface for pooled buffers.
+     */
+    public static JavaNioAccess.BufferPool getBufferPool() {
+        return new JavaNioAccess.BufferPool() {
+            @Override
+            public String getName() {
+                return "pooled";
+            }
+            @Override
+            public long getCount() {
+                return count.get();
+            }
+            @Override
+            public long getTotalCapacity() {
+                return totalCapacity.get();
+            }
+            @Override
+            public long getMemoryUsed() {
+                return totalCapacity.get();
+            }
+        };
+    }
+}
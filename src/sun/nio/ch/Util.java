@@ -224,7 +224,7 @@ public class Util {
         // to remove the buffer from the cache (as this method does
         // below) given that we won't put the new buffer in the cache.
         if (isBufferTooLarge(size)) {
-            return ByteBuffer.allocateDirect(size);
+            return DirectBufferPool.allocate(size);
         }
 
         BufferCache cache = bufferCache.get();
@@ -234,12 +234,13 @@ public class Util {
         } else {
             // No suitable buffer in the cache so we need to allocate a new
             // one. To avoid the cache growing then we remove the first
-            // buffer from the cache and free it.
+            // buffer from the cache and free it (which returns it to the
+            // shared pool if it came from there).
             if (!cache.isEmpty()) {
                 buf = cache.removeFirst();
                 free(buf);
             }
-            return ByteBuffer.allocateDirect(size);
+            return DirectBufferPool.allocate(size);
         }
     }
 
@@ -321,10 +322,12 @@ public class Util {
     }
 
     /**
-     * Frees the memory for the given direct buffer
+     * Frees the memory for the given direct buffer, or returns it to the
+     * pool if it was obtained from DirectBufferPool
      */
     private static void free(ByteBuffer buf) {
-        ((DirectBuffer)buf).cleaner().clean();
+        if (!DirectBufferPool.recycle(buf))
+            ((DirectBuffer)buf).cleaner().clean();
     }
 
 
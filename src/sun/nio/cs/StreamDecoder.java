@@ -53,6 +53,12 @@ public class StreamDecoder extends Reader
     private boolean haveLeftoverChar = false;
     private char leftoverChar;
 
+    // Whether the line most recently returned by readAsciiLine was
+    // terminated by a carriage return, in which case a line feed that
+    // immediately follows it is still to be skipped by the caller.
+    //
+    private boolean lineEndedWithCR = false;
+
 
     // Factories for java.io.InputStreamReader
 
@@ -179,6 +185,80 @@ public class StreamDecoder extends Reader
         }
     }
 
+    /**
+     * Reads a line of text directly from the undecoded bytes, without going
+     * through the decoder.  This is only possible when the charset maps the
+     * bytes of the line one-to-one to chars: for ISO-8859-1 any byte will do,
+     * for UTF-8 and US-ASCII the bytes must all be ASCII.  The line is built
+     * as a compact (Latin-1) string straight from the byte buffer.
+     *
+     * <p> Returns null, having consumed no input, if the line cannot be read
+     * this way: a non-ASCII byte is found before the end of the line, the
+     * line does not fit in the byte buffer, end of stream is reached before
+     * any character, or this decoder does not support the fast path.  The
+     * caller then falls back to reading chars.
+     *
+     * @param  omitLF  If true, a line feed at the current position is the
+     *                 second half of a CR-LF pair and is skipped
+     */
+    public String readAsciiLine(boolean omitLF) throws IOException {
+        synchronized (lock) {
+            ensureOpen();
+            if (!asciiLines || haveLeftoverChar || !bb.hasArray())
+                return null;
+            boolean latin1 = (cs instanceof ISO_8859_1);
+
+            int skip = -1;      // leading '\n' to skip: 0 or 1, or -1 if undecided
+            int i = 0;          // bytes after bb.position() scanned so far
+            for (;;) {
+                byte[] ba = bb.array();
+                int base = bb.arrayOffset() + bb.position();
+                int rem = bb.remaining();
+                if (skip < 0 && rem > 0) {
+                    skip = (omitLF && ba[base] == '\n') ? 1 : 0;
+                    i = skip;
+                }
+                for (; i < rem; i++) {
+                    byte b = ba[base + i];
+                    if (b == '\n' || b == '\r') {
+                        String line = new String(ba, base + skip, i - skip,
+                                                 ISO_8859_1.INSTANCE);
+                        bb.position(bb.position() + i + 1);
+                        lineEndedWithCR = (b == '\r');
+                        return line;
+                    }
+                    if (b < 0 && !latin1)
+                        return null;    // leave non-ASCII input to the decoder
+                }
+
+                // No line terminator yet, so more bytes are needed
+                if (rem == bb.capacity())
+                    return null;        // line longer than the byte buffer
+                if (readBytes() < 0) {
+                    if (skip < 0 || rem == skip)
+                        return null;    // nothing but EOF
+                    // the unterminated last line, compacted to the buffer start
+                    base = bb.arrayOffset() + bb.position();
+                    String line = new String(bb.array(), base + skip, rem - skip,
+                                             ISO_8859_1.INSTANCE);
+                    bb.position(bb.limit());
+                    lineEndedWithCR = false;
+                    return line;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether the line most recently returned by {@link
+     * #readAsciiLine} was terminated by a carriage return.
+     */
+    public boolean lastLineEndedWithCR() {
+        synchronized (lock) {
+            return lineEndedWithCR;
+        }
+    }
+
     public boolean ready() throws IOException {
         synchronized (lock) {
             ensureOpen();
@@ -223,6 +303,10 @@ public class StreamDecoder extends Reader
     private CharsetDecoder decoder;
     private ByteBuffer bb;
 
+    // True if ASCII bytes decode to the same chars one-to-one, so that
+    // readAsciiLine may bypass the decoder
+    private boolean asciiLines;
+
     // Exactly one of these is non-null
     private InputStream in;
     private ReadableByteChannel ch;
@@ -238,6 +322,7 @@ public class StreamDecoder extends Reader
         super(lock);
         this.cs = dec.charset();
         this.decoder = dec;
+        this.asciiLines = isAsciiCompatible(cs);
 
         // This path disabled until direct buffers are faster
         if (false && in instanceof FileInputStream) {
@@ -258,6 +343,7 @@ public class StreamDecoder extends Reader
         this.ch = ch;
         this.decoder = dec;
         this.cs = dec.charset();
+        this.asciiLines = isAsciiCompatible(cs);
         this.bb = ByteBuffer.allocate(mbc < 0
                                   ? DEFAULT_BYTE_BUFFER_SIZE
                                   : (mbc < MIN_BYTE_BUFFER_SIZE
@@ -266,6 +352,12 @@ public class StreamDecoder extends Reader
         bb.flip();
     }
 
+    private static boolean isAsciiCompatible(Charset cs) {
+        return (cs instanceof UTF_8)
+            || (cs instanceof ISO_8859_1)
+            || (cs instanceof US_ASCII);
+    }
+
     private int readBytes() throws IOException {
         bb.compact();
         try {
@@ -72,6 +72,11 @@ abstract class ECDSASignature extends SignatureSpi {
     // public key, if initialized for verifying
     private ECPublicKey publicKey;
 
+    // DER OID of the key's curve and the public key's W point (in
+    // uncompressed form), computed once per key instead of per signature
+    private byte[] encodedParams;
+    private byte[] encodedW;
+
     // The format. true for the IEEE P1363 format. false (default) for ASN.1
     private final boolean p1363Format;
 
@@ -279,7 +284,17 @@ abstract class ECDSASignature extends SignatureSpi {
     @Override
     protected void engineInitVerify(PublicKey publicKey)
             throws InvalidKeyException {
-        this.publicKey = (ECPublicKey) ECKeyFactory.toECKey(publicKey);
+        ECPublicKey key = (ECPublicKey) ECKeyFactory.toECKey(publicKey);
+        ECParameterSpec params = key.getParams();
+        byte[] w;
+        if (key instanceof ECPublicKeyImpl) {
+            w = ((ECPublicKeyImpl)key).getEncodedPublicValue();
+        } else { // instanceof ECPublicKey
+            w = ECUtil.encodePoint(key.getW(), params.getCurve());
+        }
+        this.encodedParams = encodeParams(params);
+        this.encodedW = w;
+        this.publicKey = key;
 
         // Should check that the supplied key is appropriate for signature
         // algorithm (e.g. P-256 for SHA256withECDSA)
@@ -299,14 +314,28 @@ abstract class ECDSASignature extends SignatureSpi {
     protected void engineInitSign(PrivateKey privateKey, SecureRandom random)
             throws InvalidKeyException {
         this.privateKey = (ECPrivateKey) ECKeyFactory.toECKey(privateKey);
+        this.encodedParams = encodeParams(this.privateKey.getParams());
 
         // Should check that the supplied key is appropriate for signature
         // algorithm (e.g. P-256 for SHA256withECDSA)
         this.publicKey = null;
+        this.encodedW = null;
         this.random = random;
         resetDigest();
     }
 
+    /**
+     * Returns the DER OID of the curve. The keys of the SunEC provider use
+     * NamedCurve parameters, which already hold it, otherwise the curve
+     * is looked up through the EC AlgorithmParameters.
+     */
+    private static byte[] encodeParams(ECParameterSpec params) {
+        if (params instanceof NamedCurve) {
+            return ((NamedCurve)params).getEncoded();
+        }
+        return ECUtil.encodeECParameterSpec(null, params);
+    }
+
     /**
      * Resets the message digest if needed.
      */
@@ -359,8 +388,6 @@ abstract class ECDSASignature extends SignatureSpi {
     protected byte[] engineSign() throws SignatureException {
         byte[] s = privateKey.getS().toByteArray();
         ECParameterSpec params = privateKey.getParams();
-        // DER OID
-        byte[] encodedParams = ECUtil.encodeECParameterSpec(null, params);
         int keySize = params.getCurve().getField().getFieldSize();
 
         // seed is twice the key size (in bytes) plus 1
@@ -394,17 +421,6 @@ abstract class ECDSASignature extends SignatureSpi {
     @Override
     protected boolean engineVerify(byte[] signature) throws SignatureException {
 
-        byte[] w;
-        ECParameterSpec params = publicKey.getParams();
-        // DER OID
-        byte[] encodedParams = ECUtil.encodeECParameterSpec(null, params);
-
-        if (publicKey instanceof ECPublicKeyImpl) {
-            w = ((ECPublicKeyImpl)publicKey).getEncodedPublicValue();
-        } else { // instanceof ECPublicKey
-            w = ECUtil.encodePoint(publicKey.getW(), params.getCurve());
-        }
-
         byte[] sig;
         if (p1363Format) {
             sig = signature;
@@ -413,7 +429,8 @@ abstract class ECDSASignature extends SignatureSpi {
         }
 
         try {
-            return verifySignedDigest(sig, getDigestValue(), w, encodedParams);
+            return verifySignedDigest(sig, getDigestValue(), encodedW,
+                    encodedParams);
         } catch (GeneralSecurityException e) {
             throw new SignatureException("Could not verify signature", e);
         }
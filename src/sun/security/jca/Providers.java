@@ -184,6 +184,7 @@ public class Providers {
 
     private static void setSystemProviderList(ProviderList list) {
         providerList = list;
+        ServiceCache.providerListChanged();
     }
 
     public static ProviderList getThreadProviderList() {
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.security.jca;
+
+import java.security.Provider.Service;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A cache of service lookup results, e.g. the first usable Service for
+ * a Cipher transformation. An entry is only returned while the provider
+ * list it was computed from is still the current one (system wide or
+ * thread-local) and no Provider has changed its services since.
+ *
+ * Provider calls {@link #servicesChanged} whenever its services or
+ * legacy properties are modified. Loading a provider also modifies it,
+ * so a result computed while providers are being loaded is simply
+ * computed again the next time.
+ *
+ * The cached values refer to Services, and through them to Providers and
+ * their class loaders. So that a removed Provider can be unloaded, all
+ * caches are cleared whenever the system wide provider list is replaced
+ * or a Provider changes its services, and results computed from a
+ * thread-local provider list are not cached at all.
+ *
+ * @since   11
+ */
+public final class ServiceCache<V> {
+
+    // maximum number of entries per cache, lookups beyond it are not cached
+    private static final int MAX_ENTRIES = 256;
+
+    // incremented whenever a Provider changes its services or the system
+    // wide provider list is replaced
+    private static volatile int version;
+
+    // all caches, so that they can be cleared
+    private static final List<ServiceCache<?>> caches =
+        new CopyOnWriteArrayList<>();
+
+    private final ConcurrentMap<String, Entry<V>> entries =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Creates a cache. Caches are meant to be held in static fields, they
+     * are never unregistered.
+     */
+    public ServiceCache() {
+        caches.add(this);
+    }
+
+    /**
+     * Called by Provider whenever a service is added, removed or changed.
+     */
+    public static void servicesChanged() {
+        invalidate();
+    }
+
+    /**
+     * Called by Providers whenever the system wide provider list is
+     * replaced.
+     */
+    static void providerListChanged() {
+        invalidate();
+    }
+
+    private static void invalidate() {
+        synchronized (ServiceCache.class) {
+            version++;
+        }
+        for (ServiceCache<?> cache : caches) {
+            cache.entries.clear();
+        }
+    }
+
+    /**
+     * Captures the current provider list and version. Must be called
+     * before the lookup whose result is passed to {@link #put}.
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot(Providers.getProviderList(), version);
+    }
+
+    /**
+     * Return the value cached for the key, or null if there is none or
+     * it is out of date.
+     */
+    public V get(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.version != version) {
+            // put() raced with invalidate()
+            entries.remove(key, entry);
+            return null;
+        }
+        if (entry.list != Providers.getProviderList()) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Cache the value for the key, computed from the providers as they
+     * were when the snapshot was taken. Nothing is cached if the snapshot
+     * is out of date or was taken with a thread-local provider list.
+     */
+    public void put(String key, Snapshot snapshot, V value) {
+        if (snapshot.version != version
+                || Providers.getThreadProviderList() != null
+                || snapshot.list != Providers.getProviderList()) {
+            return;
+        }
+        if (entries.size() < MAX_ENTRIES || entries.containsKey(key)) {
+            entries.put(key, new Entry<>(snapshot.list, snapshot.version,
+                value));
+        }
+    }
+
+    /**
+     * Return an Iterator over the services in the specified List that
+     * follow the service s. The list is only traversed when the Iterator
+     * is first used, so it is cheap to create one in case a caller fails
+     * over from a cached service to the next one.
+     */
+    public static Iterator<Service> servicesAfter(List<Service> services,
+            Service s) {
+        return new Iterator<Service>() {
+            private Iterator<Service> t;
+
+            private Iterator<Service> iterator() {
+                if (t == null) {
+                    t = services.iterator();
+                    while (t.hasNext()) {
+                        if (t.next() == s) {
+                            break;
+                        }
+                    }
+                }
+                return t;
+            }
+
+            public boolean hasNext() {
+                return iterator().hasNext();
+            }
+
+            public Service next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return t.next();
+            }
+        };
+    }
+
+    /**
+     * The provider list and version a lookup result is computed from.
+     */
+    public static final class Snapshot {
+        final ProviderList list;
+        final int version;
+
+        Snapshot(ProviderList list, int version) {
+            this.list = list;
+            this.version = version;
+        }
+    }
+
+    private static final class Entry<V> {
+        final ProviderList list;
+        final int version;
+        final V value;
+
+        Entry(ProviderList list, int version, V value) {
+            this.list = list;
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -26,6 +26,7 @@
 package sun.security.pkcs12;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.security.AccessController;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -2162,6 +2163,17 @@ public final class PKCS12KeyStore extends KeyStoreSpi {
         /*
          * Match up private keys with certificate chains.
          */
+        Map<ByteBuffer, List<CertEntry>> keyIdMap = new HashMap<>();
+        Map<String, CertEntry> aliasMap = new HashMap<>();
+        for (CertEntry ce : certEntries) {
+            if (ce.keyId != null) {
+                keyIdMap.computeIfAbsent(ByteBuffer.wrap(ce.keyId),
+                        k -> new ArrayList<>(1)).add(ce);
+            }
+            if (ce.alias != null) {
+                aliasMap.put(foldCase(ce.alias), ce);
+            }
+        }
         PrivateKeyEntry[] list =
             keyList.toArray(new PrivateKeyEntry[keyList.size()]);
         for (int m = 0; m < list.length; m++) {
@@ -2169,7 +2181,8 @@ public final class PKCS12KeyStore extends KeyStoreSpi {
             if (entry.keyId != null) {
                 ArrayList<X509Certificate> chain =
                                 new ArrayList<X509Certificate>();
-                X509Certificate cert = findMatchedCertificate(entry);
+                X509Certificate cert =
+                        findMatchedCertificate(entry, keyIdMap, aliasMap);
 
                 mainloop:
                 while (cert != null) {
@@ -2223,27 +2236,43 @@ public final class PKCS12KeyStore extends KeyStoreSpi {
 
     /**
      * Locates a matched CertEntry from certEntries, and returns its cert.
+     * A CertEntry with both the keyId and the alias matching comes first,
+     * then the last one with the keyId matching, then the last one with
+     * the alias matching.
      * @param entry the KeyEntry to match
+     * @param keyIdMap the CertEntries by keyId, in the order of certEntries
+     * @param aliasMap the last CertEntry for every alias, by foldCase(alias)
      * @return a certificate, null if not found
      */
-    private X509Certificate findMatchedCertificate(PrivateKeyEntry entry) {
-        CertEntry keyIdMatch = null;
-        CertEntry aliasMatch = null;
-        for (CertEntry ce: certEntries) {
-            if (Arrays.equals(entry.keyId, ce.keyId)) {
-                keyIdMatch = ce;
+    private static X509Certificate findMatchedCertificate(
+            PrivateKeyEntry entry, Map<ByteBuffer, List<CertEntry>> keyIdMap,
+            Map<String, CertEntry> aliasMap) {
+        List<CertEntry> keyIdMatches =
+                keyIdMap.get(ByteBuffer.wrap(entry.keyId));
+        if (keyIdMatches != null) {
+            for (CertEntry ce : keyIdMatches) {
                 if (entry.alias.equalsIgnoreCase(ce.alias)) {
                     // Full match!
                     return ce.cert;
                 }
-            } else if (entry.alias.equalsIgnoreCase(ce.alias)) {
-                aliasMatch = ce;
             }
+            // keyId match first, for compatibility
+            return keyIdMatches.get(keyIdMatches.size() - 1).cert;
+        }
+        CertEntry aliasMatch = aliasMap.get(foldCase(entry.alias));
+        return aliasMatch != null ? aliasMatch.cert : null;
+    }
+
+    /**
+     * Returns a string that is equal for two aliases exactly when they
+     * are equal ignoring case, as compared by String.equalsIgnoreCase.
+     */
+    private static String foldCase(String alias) {
+        char[] chars = alias.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
         }
-        // keyId match first, for compatibility
-        if (keyIdMatch != null) return keyIdMatch.cert;
-        else if (aliasMatch != null) return aliasMatch.cert;
-        else return null;
+        return new String(chars);
     }
 
     private void loadSafeContents(DerInputStream stream)
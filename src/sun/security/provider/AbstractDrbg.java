@@ -494,8 +494,9 @@ public abstract class AbstractDrbg {
         return getEntropyInput(minLength, minLength, maxLength, isPr);
     }
 
-    private byte[] getEntropyInput(int minEntropy, int minLength,
-                                   int maxLength, boolean pr) {
+    // also used by DRBG to seed the per-thread instances
+    final byte[] getEntropyInput(int minEntropy, int minLength,
+                                 int maxLength, boolean pr) {
         if (debug != null) {
             debug.println(this, "getEntropy(" + minEntropy + "," + minLength +
                     "," + maxLength + "," + pr + ")");
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.security.provider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestException;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProviderException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes SHA-2 digests of many independent messages, or a tree digest
+ * of one large input, using the fork/join common pool.
+ *
+ * <p>{@link #digest(byte[][]) digest} hashes each message with a
+ * {@link SHA2} or {@link SHA5} instance that is reused for the whole
+ * batch, so every message costs only its own compression calls (which
+ * are compiler intrinsics on most platforms). Batches with enough data
+ * are split among the threads of the common pool.
+ *
+ * <p>{@link #treeDigest(ByteBuffer, int) treeDigest} hashes fixed size
+ * chunks of its input in parallel and combines them as the Merkle tree
+ * hash of RFC 6962, section 2.1: a chunk hashes to
+ * {@code H(0x00 || chunk)}, and a list of n > 1 chunks hashes to
+ * {@code H(0x01 || MTH(first k chunks) || MTH(the other chunks))},
+ * where k is the largest power of two smaller than n. An empty input is
+ * a single empty chunk. The result differs from the plain digest of the
+ * input and depends on the chunk size.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ *
+ * @since 11
+ */
+public final class BatchDigest {
+
+    /**
+     * A chunk size for {@code treeDigest} that keeps the tree small
+     * while giving large inputs enough chunks to spread among threads.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    // the number of bytes below which a batch is not worth splitting
+    private static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    // the largest read from a channel, so that neither the buffer nor the
+    // temporary direct buffer of the read grows with the chunk size
+    private static final int READ_SIZE = 64 * 1024;
+
+    private static final byte[] LEAF_PREFIX = { 0x00 };
+    private static final byte[] NODE_PREFIX = { 0x01 };
+
+    private final String algorithm;
+    private final int digestLength;
+
+    private BatchDigest(String algorithm, int digestLength) {
+        this.algorithm = algorithm;
+        this.digestLength = digestLength;
+    }
+
+    /**
+     * Returns a BatchDigest for one of the SHA-224, SHA-256, SHA-384,
+     * SHA-512, SHA-512/224 and SHA-512/256 algorithms.
+     *
+     * @param algorithm the standard name of the digest algorithm
+     * @return a BatchDigest for the algorithm
+     * @throws NoSuchAlgorithmException if the algorithm is not one of
+     *         the above
+     */
+    public static BatchDigest getInstance(String algorithm)
+            throws NoSuchAlgorithmException {
+        Objects.requireNonNull(algorithm, "null algorithm name");
+        DigestBase md = newDigest(algorithm);
+        if (md == null) {
+            throw new NoSuchAlgorithmException(
+                algorithm + " is not supported by BatchDigest");
+        }
+        return new BatchDigest(algorithm, md.engineGetDigestLength());
+    }
+
+    private static DigestBase newDigest(String algorithm) {
+        switch (algorithm.toUpperCase(Locale.ENGLISH)) {
+            case "SHA-224":
+                return new SHA2.SHA224();
+            case "SHA-256":
+                return new SHA2.SHA256();
+            case "SHA-384":
+                return new SHA5.SHA384();
+            case "SHA-512":
+                return new SHA5.SHA512();
+            case "SHA-512/224":
+                return new SHA5.SHA512_224();
+            case "SHA-512/256":
+                return new SHA5.SHA512_256();
+            default:
+                return null;
+        }
+    }
+
+    private DigestBase newDigest() {
+        return newDigest(algorithm);
+    }
+
+    /**
+     * Returns the name of the digest algorithm.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the length of a digest in bytes.
+     */
+    public int getDigestLength() {
+        return digestLength;
+    }
+
+    /**
+     * Returns the digests of the messages, in the same order.
+     *
+     * @param messages the messages
+     * @return an array holding the digest of each message
+     * @throws NullPointerException if messages or any message is null
+     */
+    public byte[][] digest(byte[][] messages) {
+        byte[][] digests = new byte[messages.length][];
+        for (int i = 0; i < digests.length; i++) {
+            digests[i] = new byte[digestLength];
+        }
+        digest(messages, digests, null, 0);
+        return digests;
+    }
+
+    /**
+     * Stores the digests of the messages one after another in out,
+     * starting at ofs. This avoids allocating an array per message.
+     *
+     * @param messages the messages
+     * @param out the array for the digests
+     * @param ofs the offset of the first digest in out
+     * @throws NullPointerException if messages, out or any message is null
+     * @throws IndexOutOfBoundsException if out is too short
+     * @throws ArithmeticException if the total length of the digests
+     *         overflows an int
+     */
+    public void digest(byte[][] messages, byte[] out, int ofs) {
+        Objects.checkFromIndexSize(ofs,
+                Math.multiplyExact(messages.length, digestLength), out.length);
+        digest(messages, null, out, ofs);
+    }
+
+    // stores the digests in digests[i] if digests is not null, or else
+    // in out at ofs + i * digestLength
+    private void digest(byte[][] messages, byte[][] digests, byte[] out,
+                        int ofs) {
+        long total = 0;
+        for (byte[] message : messages) {
+            total += message.length;
+        }
+        if (total < PARALLEL_THRESHOLD ||
+                ForkJoinPool.getCommonPoolParallelism() < 2) {
+            digest(newDigest(), messages, 0, messages.length, digests, out,
+                   ofs);
+        } else {
+            int pieces = ForkJoinPool.getCommonPoolParallelism() * 4;
+            long grain = Math.max(total / pieces, PARALLEL_THRESHOLD / 4);
+            new BatchTask(messages, 0, messages.length, digests, out, ofs,
+                          grain).invoke();
+        }
+    }
+
+    // hashes messages[from, to) with the given digest object
+    private void digest(DigestBase md, byte[][] messages, int from, int to,
+                        byte[][] digests, byte[] out, int ofs) {
+        try {
+            for (int i = from; i < to; i++) {
+                byte[] message = messages[i];
+                md.engineUpdate(message, 0, message.length);
+                if (digests != null) {
+                    md.engineDigest(digests[i], 0, digestLength);
+                } else {
+                    md.engineDigest(out, ofs + i * digestLength,
+                                    digestLength);
+                }
+            }
+        } catch (DigestException e) {
+            throw new ProviderException("Internal error", e);
+        }
+    }
+
+    /**
+     * Hashes a range of messages, splitting it in halves while it holds
+     * more than grain bytes.
+     */
+    private final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] messages;
+        private final int from, to;
+        private final byte[][] digests;
+        private final byte[] out;
+        private final int ofs;
+        private final long grain;
+
+        BatchTask(byte[][] messages, int from, int to, byte[][] digests,
+                  byte[] out, int ofs, long grain) {
+            this.messages = messages;
+            this.from = from;
+            this.to = to;
+            this.digests = digests;
+            this.out = out;
+            this.ofs = ofs;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                long size = 0;
+                for (int i = from; i < to && size <= grain; i++) {
+                    size += messages[i].length;
+                }
+                if (size > grain) {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new BatchTask(messages, from, mid, digests,
+                                            out, ofs, grain),
+                              new BatchTask(messages, mid, to, digests,
+                                            out, ofs, grain));
+                    return;
+                }
+            }
+            digest(newDigest(), messages, from, to, digests, out, ofs);
+        }
+    }
+
+    /**
+     * Returns the tree digest of the remaining bytes of data, hashing
+     * its chunks in parallel. The position of data is not changed.
+     *
+     * @param data the input
+     * @param chunkSize the size of a leaf chunk
+     * @return the tree digest
+     * @throws IllegalArgumentException if chunkSize is not positive
+     */
+    public byte[] treeDigest(ByteBuffer data, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        ByteBuffer input = data.duplicate();
+        int base = input.position();
+        int limit = input.limit();
+        Chunks chunks = (md, index) -> {
+            int start = base + (int)(index * chunkSize);
+            int end = (int)Math.min((long)start + chunkSize, limit);
+            ByteBuffer chunk = input.duplicate();
+            chunk.limit(end).position(start);
+            update(md, chunk);
+        };
+        return new TreeTask(chunks, 0, chunkCount(limit - base, chunkSize))
+            .invoke();
+    }
+
+    /**
+     * Returns the tree digest of the size bytes of the channel starting
+     * at position, reading and hashing its chunks in parallel with
+     * positional reads. The position of the channel is not changed.
+     *
+     * @param channel the input
+     * @param position the position of the first byte
+     * @param size the number of bytes
+     * @param chunkSize the size of a leaf chunk
+     * @return the tree digest
+     * @throws IllegalArgumentException if position or size is negative,
+     *         or chunkSize is not positive
+     * @throws IOException if reading fails or the channel ends before
+     *         size bytes are read
+     */
+    public byte[] treeDigest(FileChannel channel, long position, long size,
+                             int chunkSize) throws IOException {
+        if (position < 0 || size < 0) {
+            throw new IllegalArgumentException("negative position or size");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        int bufferSize = Math.min(chunkSize, READ_SIZE);
+        Chunks chunks = (md, index) -> {
+            long start = position + index * chunkSize;
+            long end = Math.min(start + chunkSize, position + size);
+            // a buffer per chunk, not kept by the threads of the pool
+            ByteBuffer buf = ByteBuffer.allocate(bufferSize);
+            try {
+                for (long pos = start; pos < end; ) {
+                    buf.clear().limit((int)Math.min(bufferSize, end - pos));
+                    int n = channel.read(buf, pos);
+                    if (n < 0) {
+                        throw new IOException("Unexpected end of channel at "
+                            + pos);
+                    }
+                    update(md, buf.flip());
+                    pos += n;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            return new TreeTask(chunks, 0, chunkCount(size, chunkSize))
+                .invoke();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long chunkCount(long size, int chunkSize) {
+        return size == 0 ? 1 : (size + chunkSize - 1) / chunkSize;
+    }
+
+    // feeds the remaining bytes of buf to md
+    private static void update(DigestBase md, ByteBuffer buf) {
+        if (buf.hasArray()) {
+            md.engineUpdate(buf.array(), buf.arrayOffset() + buf.position(),
+                            buf.remaining());
+        } else {
+            byte[] tmp = new byte[Math.min(buf.remaining(), 8192)];
+            while (buf.hasRemaining()) {
+                int n = Math.min(buf.remaining(), tmp.length);
+                buf.get(tmp, 0, n);
+                md.engineUpdate(tmp, 0, n);
+            }
+        }
+    }
+
+    /**
+     * The chunks of a tree digest input.
+     */
+    private interface Chunks {
+        /**
+         * Feeds the bytes of the chunk at index to md.
+         */
+        void hash(DigestBase md, long index);
+    }
+
+    /**
+     * Computes the Merkle tree hash of the chunks [from, to), forking the
+     * two subtrees.
+     */
+    private final class TreeTask extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Chunks chunks;
+        private final long from, to;
+
+        TreeTask(Chunks chunks, long from, long to) {
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected byte[] compute() {
+            DigestBase md = newDigest();
+            if (to - from == 1) {
+                md.engineUpdate(LEAF_PREFIX, 0, 1);
+                chunks.hash(md, from);
+                return md.engineDigest();
+            }
+            long k = Long.highestOneBit(to - from - 1);
+            TreeTask left = new TreeTask(chunks, from, from + k);
+            TreeTask right = new TreeTask(chunks, from + k, to);
+            ForkJoinTask.invokeAll(left, right);
+            md.engineUpdate(NODE_PREFIX, 0, 1);
+            md.engineUpdate(left.join(), 0, digestLength);
+            md.engineUpdate(right.join(), 0, digestLength);
+            return md.engineDigest();
+        }
+    }
+}
@@ -55,6 +55,20 @@ import static java.security.DrbgParameters.Capability.*;
  *
  * The default value is also mentioned in the @implNote part of
  * {@link DrbgParameters} class.
+ *
+ * About the "per_thread" aspect:
+ *
+ * A DRBG instance serializes its generate calls, which becomes the
+ * bottleneck when many threads share one SecureRandom. With "per_thread"
+ * in "securerandom.drbg.config" (or the perThread flag of
+ * MoreDrbgParameters), the configured DRBG becomes a master instance
+ * and each thread calling nextBytes or reseed gets its own instance of
+ * the same mechanism, algorithm, strength and capability. A thread
+ * instance draws its entropy input from the master instance (SP 800-90C
+ * allows a DRBG to seed another DRBG of equal or lower strength) or, when
+ * prediction resistance is requested, from the master's live entropy
+ * source, and gets its own nonce. Each instance still reseeds itself
+ * when its reseed interval is reached.
  */
 public final class DRBG extends SecureRandomSpi {
 
@@ -64,6 +78,10 @@ public final class DRBG extends SecureRandomSpi {
 
     private transient AbstractDrbg impl;
 
+    // The instance of each thread when "per_thread" is configured,
+    // otherwise null and impl is shared by all threads
+    private transient ThreadLocal<AbstractDrbg> threadImpl;
+
     /**
      * @serial
      */
@@ -77,6 +95,7 @@ public final class DRBG extends SecureRandomSpi {
         String mech = null;
         Boolean usedf = null;
         String algorithm = null;
+        Boolean perThread = null;
 
         // Default instantiate parameters also configurable with
         // "securerandom.drbg.config", and can be changed with params
@@ -128,6 +147,10 @@ public final class DRBG extends SecureRandomSpi {
                         checkTwice(usedf != null, "usedf flag");
                         usedf = true;
                         break;
+                    case "per_thread":
+                        checkTwice(perThread != null, "per_thread flag");
+                        perThread = true;
+                        break;
                     default:
                         // For all other parts of the property, it is
                         // either an algorithm name or a strength
@@ -168,6 +191,9 @@ public final class DRBG extends SecureRandomSpi {
                     algorithm = m.algorithm;
                 }
                 usedf = m.usedf;
+                if (m.perThread) {
+                    perThread = true;
+                }
             }
             if (params instanceof DrbgParameters.Instantiation) {
                 DrbgParameters.Instantiation dp =
@@ -199,38 +225,72 @@ public final class DRBG extends SecureRandomSpi {
         if (usedf == null) {
             usedf = true;
         }
+        if (perThread == null) {
+            perThread = false;
+        }
 
         mdp = new MoreDrbgParameters(
-                es, mech, algorithm, nonce, usedf,
+                es, mech, algorithm, nonce, usedf, perThread,
                 DrbgParameters.instantiation(strength, cap, ps));
 
         createImpl();
     }
 
     private void createImpl() {
-        switch (mdp.mech.toLowerCase(Locale.ROOT)) {
+        impl = newImpl(mdp);
+        if (mdp.perThread) {
+            threadImpl = ThreadLocal.withInitial(this::newThreadImpl);
+        }
+    }
+
+    private static AbstractDrbg newImpl(MoreDrbgParameters params) {
+        switch (params.mech.toLowerCase(Locale.ROOT)) {
             case "hash_drbg":
-                impl = new HashDrbg(mdp);
-                break;
+                return new HashDrbg(params);
             case "hmac_drbg":
-                impl = new HmacDrbg(mdp);
-                break;
+                return new HmacDrbg(params);
             case "ctr_drbg":
-                impl = new CtrDrbg(mdp);
-                break;
+                return new CtrDrbg(params);
             default:
-                throw new IllegalArgumentException("Unsupported mech: " + mdp.mech);
+                throw new IllegalArgumentException("Unsupported mech: " + params.mech);
         }
     }
 
+    /**
+     * Creates the DRBG instance of the calling thread. It is configured
+     * like the master instance {@link #impl} but gets a system-provided
+     * nonce and is seeded by the master instance.
+     */
+    private AbstractDrbg newThreadImpl() {
+        AbstractDrbg master = impl;
+        EntropySource seeder = (minEntropy, minLength, maxLength, pr) -> {
+            if (pr) {
+                return master.getEntropyInput(
+                        minEntropy, minLength, maxLength, true);
+            }
+            byte[] result = new byte[minLength];
+            master.engineNextBytes(result);
+            return result;
+        };
+        return newImpl(new MoreDrbgParameters(
+                seeder, mdp.mech, mdp.algorithm, null, mdp.usedf,
+                DrbgParameters.instantiation(mdp.strength,
+                        mdp.capability, mdp.personalizationString)));
+    }
+
+    // The instance serving the calling thread
+    private AbstractDrbg current() {
+        return threadImpl == null ? impl : threadImpl.get();
+    }
+
     @Override
     protected void engineSetSeed(byte[] seed) {
-        impl.engineSetSeed(seed);
+        current().engineSetSeed(seed);
     }
 
     @Override
     protected void engineNextBytes(byte[] bytes) {
-        impl.engineNextBytes(bytes);
+        current().engineNextBytes(bytes);
     }
 
     @Override
@@ -241,12 +301,17 @@ public final class DRBG extends SecureRandomSpi {
     @Override
     protected void engineNextBytes(
             byte[] bytes, SecureRandomParameters params) {
-        impl.engineNextBytes(bytes, params);
+        current().engineNextBytes(bytes, params);
     }
 
     @Override
     protected void engineReseed(SecureRandomParameters params) {
-        impl.engineReseed(params);
+        if (threadImpl != null) {
+            // Reseed the master too, so that instances created later
+            // for other threads also benefit from the additional input
+            impl.engineReseed(params);
+        }
+        current().engineReseed(params);
     }
 
     @Override
@@ -256,7 +321,8 @@ public final class DRBG extends SecureRandomSpi {
 
     @Override
     public String toString() {
-        return impl.toString();
+        return threadImpl == null ? impl.toString()
+                : impl.toString() + ",per_thread";
     }
 
     /**
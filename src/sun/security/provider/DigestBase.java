@@ -31,6 +31,7 @@ import java.security.ProviderException;
 import java.util.Objects;
 
 import jdk.internal.HotSpotIntrinsicCandidate;
+import sun.security.util.RestorableDigest;
 
 /**
  * Common base message digest implementation for the Sun provider.
@@ -48,7 +49,8 @@ import jdk.internal.HotSpotIntrinsicCandidate;
  * @since   1.5
  * @author  Andreas Sterbenz
  */
-abstract class DigestBase extends MessageDigestSpi implements Cloneable {
+abstract class DigestBase extends MessageDigestSpi
+        implements Cloneable, RestorableDigest {
 
     // one element byte array, temporary storage for update(byte)
     private byte[] oneByte;
@@ -228,6 +230,32 @@ abstract class DigestBase extends MessageDigestSpi implements Cloneable {
      */
     abstract void implReset();
 
+    /**
+     * Copy the subclass specific state of saved, an instance of the same
+     * class, to this object. Returns false if the subclass does not
+     * support it, which is the default.
+     */
+    boolean implRestore(DigestBase saved) {
+        return false;
+    }
+
+    // set the state to that of a clone. See RestorableDigest.
+    public final boolean restoreFrom(Object saved) {
+        if (saved == null || saved.getClass() != getClass()) {
+            return false;
+        }
+        DigestBase that = (DigestBase)saved;
+        if (!implRestore(that)) {
+            return false;
+        }
+        if (that.bufOfs != 0) {
+            System.arraycopy(that.buffer, 0, buffer, 0, that.bufOfs);
+        }
+        bufOfs = that.bufOfs;
+        bytesProcessed = that.bytesProcessed;
+        return true;
+    }
+
     public Object clone() throws CloneNotSupportedException {
         DigestBase copy = (DigestBase) super.clone();
         copy.buffer = copy.buffer.clone();
@@ -77,6 +77,14 @@ public final class MD5 extends DigestBase {
         return copy;
     }
 
+    /**
+     * Copies the hash value of saved, used to restart from a saved state.
+     */
+    boolean implRestore(DigestBase saved) {
+        System.arraycopy(((MD5)saved).state, 0, state, 0, state.length);
+        return true;
+    }
+
     /**
      * Reset the state of this object.
      */
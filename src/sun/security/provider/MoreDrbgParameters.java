@@ -44,6 +44,7 @@ public class MoreDrbgParameters implements SecureRandomParameters, Serializable
     final boolean usedf;
     final int strength;
     final DrbgParameters.Capability capability;
+    final boolean perThread;
 
     // The following 2 fields will be reassigned in readObject and
     // thus cannot be final
@@ -68,11 +69,37 @@ public class MoreDrbgParameters implements SecureRandomParameters, Serializable
     public MoreDrbgParameters(EntropySource es, String mech,
                               String algorithm, byte[] nonce, boolean usedf,
                               DrbgParameters.Instantiation config) {
+        this(es, mech, algorithm, nonce, usedf, false, config);
+    }
+
+    /**
+     * Creates a new {@code MoreDrbgParameters} object.
+     *
+     * @param es the {@link EntropySource} to use. If set to {@code null},
+     *           a default entropy source will be used.
+     * @param mech mech name. If set to {@code null}, the one in
+     *             securerandom.drbg.config is used. This argument is ignored
+     *             when passing to HashDrbg/HmacDrbg/CtrDrbg.
+     * @param algorithm the requested algorithm to use. If set to {@code null},
+     *                  the algorithm will be decided by strength.
+     * @param nonce the nonce to use. If set to {@code null},
+     *              a nonce will be assigned.
+     * @param usedf whether a derivation function should be used
+     * @param perThread whether each thread uses its own DRBG instance.
+     *                  This argument is ignored when passing to
+     *                  HashDrbg/HmacDrbg/CtrDrbg.
+     * @param config a {@link DrbgParameters.Instantiation} object
+     */
+    public MoreDrbgParameters(EntropySource es, String mech,
+                              String algorithm, byte[] nonce, boolean usedf,
+                              boolean perThread,
+                              DrbgParameters.Instantiation config) {
         this.mech = mech;
         this.algorithm = algorithm;
         this.es = es;
         this.nonce = (nonce == null) ? null : nonce.clone();
         this.usedf = usedf;
+        this.perThread = perThread;
 
         this.strength = config.getStrength();
         this.capability = config.getCapability();
@@ -82,7 +109,8 @@ public class MoreDrbgParameters implements SecureRandomParameters, Serializable
     @Override
     public String toString() {
         return mech + "," + algorithm + "," + usedf + "," + strength
-                + "," + capability + "," + personalizationString;
+                + "," + capability + "," + personalizationString
+                + (perThread ? ",per_thread" : "");
     }
 
     private void readObject(java.io.ObjectInputStream s)
@@ -75,6 +75,14 @@ public final class SHA extends DigestBase {
         return copy;
     }
 
+    /**
+     * Copies the hash value of saved, used to restart from a saved state.
+     */
+    boolean implRestore(DigestBase saved) {
+        System.arraycopy(((SHA)saved).state, 0, state, 0, state.length);
+        return true;
+    }
+
     /**
      * Resets the buffers and hash value to start a new hash.
      */
@@ -255,6 +255,14 @@ abstract class SHA2 extends DigestBase {
         return copy;
     }
 
+    /**
+     * Copies the hash value of saved, used to restart from a saved state.
+     */
+    boolean implRestore(DigestBase saved) {
+        System.arraycopy(((SHA2)saved).state, 0, state, 0, state.length);
+        return true;
+    }
+
     /**
      * SHA-224 implementation class.
      */
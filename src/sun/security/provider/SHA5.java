@@ -278,6 +278,14 @@ abstract class SHA5 extends DigestBase {
         return copy;
     }
 
+    /**
+     * Copies the hash value of saved, used to restart from a saved state.
+     */
+    boolean implRestore(DigestBase saved) {
+        System.arraycopy(((SHA5)saved).state, 0, state, 0, state.length);
+        return true;
+    }
+
     /**
      * SHA-512 implementation class.
      */
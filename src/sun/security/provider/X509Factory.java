@@ -66,10 +66,12 @@ public class X509Factory extends CertificateFactorySpi {
 
     private static final int ENC_MAX_LENGTH = 4096 * 1024; // 4 MB MAX
 
+    // The caches are sharded so that concurrent handshakes and parsers
+    // looking up different encodings do not contend on a single lock.
     private static final Cache<Object, X509CertImpl> certCache
-        = Cache.newSoftMemoryCache(750);
+        = Cache.newShardedSoftMemoryCache(750, 0);
     private static final Cache<Object, X509CRLImpl> crlCache
-        = Cache.newSoftMemoryCache(750);
+        = Cache.newShardedSoftMemoryCache(750, 0);
 
     /**
      * Generates an X.509 certificate object and initializes it with
@@ -144,13 +146,17 @@ public class X509Factory extends CertificateFactorySpi {
      * generateCertificate() and for converting other X509Certificate
      * implementations to an X509CertImpl.
      *
+     * Two threads interning the same new certificate at the same time
+     * may both get their own, equal, X509CertImpl; the one added last
+     * is returned from then on.
+     *
      * @param c The source X509Certificate
      * @return An X509CertImpl object that is either a cached certificate or a
      *      newly built X509CertImpl from the provided X509Certificate
      * @throws CertificateException if failures occur while obtaining the DER
      *      encoding for certificate data.
      */
-    public static synchronized X509CertImpl intern(X509Certificate c)
+    public static X509CertImpl intern(X509Certificate c)
             throws CertificateException {
         if (c == null) {
             return null;
@@ -186,7 +192,7 @@ public class X509Factory extends CertificateFactorySpi {
      * @throws CRLException if failures occur while obtaining the DER
      *      encoding for CRL data.
      */
-    public static synchronized X509CRLImpl intern(X509CRL c)
+    public static X509CRLImpl intern(X509CRL c)
             throws CRLException {
         if (c == null) {
             return null;
@@ -215,7 +221,7 @@ public class X509Factory extends CertificateFactorySpi {
     /**
      * Get the X509CertImpl or X509CRLImpl from the cache.
      */
-    private static synchronized <K,V> V getFromCache(Cache<K,V> cache,
+    private static <K,V> V getFromCache(Cache<K,V> cache,
             byte[] encoding) {
         Object key = new Cache.EqualByteArray(encoding);
         return cache.get(key);
@@ -224,7 +230,7 @@ public class X509Factory extends CertificateFactorySpi {
     /**
      * Add the X509CertImpl or X509CRLImpl to the cache.
      */
-    private static synchronized <V> void addToCache(Cache<Object, V> cache,
+    private static <V> void addToCache(Cache<Object, V> cache,
             byte[] encoding, V value) {
         if (encoding.length > ENC_MAX_LENGTH) {
             return;
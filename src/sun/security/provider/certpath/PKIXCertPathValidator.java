@@ -30,9 +30,11 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.cert.*;
 import java.util.*;
 
+import sun.security.action.GetIntegerAction;
 import sun.security.provider.certpath.PKIX.ValidatorParams;
 import sun.security.validator.Validator;
 import sun.security.x509.X509CertImpl;
+import sun.security.util.Cache;
 import sun.security.util.Debug;
 
 /**
@@ -48,6 +50,44 @@ public final class PKIXCertPathValidator extends CertPathValidatorSpi {
 
     private static final Debug debug = Debug.getInstance("certpath");
 
+    /**
+     * The maximum number of successful validation results to cache,
+     * 0 to disable the cache. Set with the system property
+     * jdk.certpath.resultCacheSize.
+     */
+    private static final int RESULT_CACHE_SIZE =
+        initCacheSetting("jdk.certpath.resultCacheSize", 1024);
+
+    /**
+     * The time in seconds that a validation result stays cached, which
+     * bounds how long later changes to the algorithm constraints or the
+     * untrusted certificates go unnoticed for a cached path. Set with the
+     * system property jdk.certpath.resultCacheLifetime.
+     */
+    private static final int RESULT_CACHE_LIFETIME =
+        initCacheSetting("jdk.certpath.resultCacheLifetime", 60);
+
+    /*
+     * The results of successful validations of the same path with the
+     * same trust anchors and parameters. Only validations that do not
+     * check revocation are cached; see ResultKey.of().
+     */
+    private static final boolean CACHE_RESULTS =
+        RESULT_CACHE_SIZE > 0 && RESULT_CACHE_LIFETIME > 0;
+    private static final Cache<ResultKey, CachedResult> resultCache =
+        CACHE_RESULTS ?
+            Cache.newShardedSoftMemoryCache(RESULT_CACHE_SIZE,
+                                            RESULT_CACHE_LIFETIME) :
+            Cache.newNullCache();
+
+    private static int initCacheSetting(String prop, int def) {
+        Integer tmp = GetIntegerAction.privilegedGetProperty(prop, def);
+        if (tmp == null || tmp < 0) {
+            return def;
+        }
+        return tmp;
+    }
+
     /**
      * Default constructor.
      */
@@ -108,6 +148,24 @@ public final class PKIXCertPathValidator extends CertPathValidatorSpi {
             }
         }
 
+        // Reuse the result of an earlier validation of the same path, but
+        // run the user-specified checkers again
+        ResultKey key = ResultKey.of(params);
+        if (key != null) {
+            CachedResult cached = resultCache.get(key);
+            if (cached != null && cached.isValid(key)) {
+                if (debug != null) {
+                    debug.println("PKIXCertPathValidator: using the cached "
+                        + "result of an earlier validation");
+                }
+                PKIXMasterCertPathValidator.validate(params.certPath(),
+                                                     params.certificates(),
+                                                     params.certPathCheckers(),
+                                                     false);
+                return (PKIXCertPathValidatorResult)cached.result.clone();
+            }
+        }
+
         CertPathValidatorException lastException = null;
 
         // We iterate through the set of trust anchors until we find
@@ -138,7 +196,7 @@ public final class PKIXCertPathValidator extends CertPathValidatorSpi {
             }
 
             try {
-                return validate(anchor, params);
+                return validate(anchor, params, key);
             } catch (CertPathValidatorException cpe) {
                 // remember this exception
                 lastException = cpe;
@@ -157,7 +215,8 @@ public final class PKIXCertPathValidator extends CertPathValidatorSpi {
     }
 
     private static PKIXCertPathValidatorResult validate(TrustAnchor anchor,
-                                                        ValidatorParams params)
+                                                        ValidatorParams params,
+                                                        ResultKey key)
         throws CertPathValidatorException
     {
         // check if anchor is untrusted
@@ -207,6 +266,10 @@ public final class PKIXCertPathValidator extends CertPathValidatorSpi {
                                            params.sigProvider(), false);
         certPathCheckers.add(bc);
 
+        // the checkers whose work the result cache stands for
+        List<PKIXCertPathChecker> standardCheckers =
+            new ArrayList<>(certPathCheckers);
+
         boolean revCheckerAdded = false;
         List<PKIXCertPathChecker> checkers = params.certPathCheckers();
         for (PKIXCertPathChecker checker : checkers) {
@@ -234,7 +297,150 @@ public final class PKIXCertPathValidator extends CertPathValidatorSpi {
                                              params.certificates(),
                                              certPathCheckers);
 
-        return new PKIXCertPathValidatorResult(anchor, pc.getPolicyTree(),
-                                               bc.getPublicKey());
+        PKIXCertPathValidatorResult result =
+            new PKIXCertPathValidatorResult(anchor, pc.getPolicyTree(),
+                                            bc.getPublicKey());
+        if (key != null && resolvesCriticalExtensions(standardCheckers,
+                                                      params.certificates())) {
+            resultCache.put(key, new CachedResult(result,
+                                                  params.certificates()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the given checkers support every critical extension
+     * of the certificates, so that a cached result does not depend on
+     * the user-specified checkers having resolved some of them.
+     */
+    private static boolean resolvesCriticalExtensions(
+            List<PKIXCertPathChecker> checkers, List<X509Certificate> certs) {
+        Set<String> supported = new HashSet<>();
+        for (PKIXCertPathChecker checker : checkers) {
+            Set<String> exts = checker.getSupportedExtensions();
+            if (exts != null) {
+                supported.addAll(exts);
+            }
+        }
+        for (X509Certificate cert : certs) {
+            Set<String> critical = cert.getCriticalExtensionOIDs();
+            if (critical != null && !supported.containsAll(critical)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The inputs of a validation that determine its result, apart from
+     * the time when the validation date is the current time.
+     */
+    private static final class ResultKey {
+        private final List<X509Certificate> certs;
+        private final Set<Object> anchors;
+        private final Date date;
+        private final Set<String> initialPolicies;
+        private final int policyFlags;
+        private final String sigProvider;
+        private final String variant;
+        private final int hash;
+
+        private ResultKey(ValidatorParams params, Set<Object> anchors) {
+            this.certs = params.certificates();
+            this.anchors = anchors;
+            this.date = params.getPKIXParameters().getDate();
+            this.initialPolicies = params.initialPolicies();
+            this.policyFlags = (params.explicitPolicyRequired() ? 1 : 0) |
+                               (params.policyMappingInhibited() ? 2 : 0) |
+                               (params.anyPolicyInhibited() ? 4 : 0) |
+                               (params.policyQualifiersRejected() ? 8 : 0);
+            this.sigProvider = params.sigProvider();
+            this.variant = params.variant();
+            this.hash = Objects.hash(certs, anchors, date, initialPolicies,
+                                     policyFlags, sigProvider, variant);
+        }
+
+        /**
+         * Returns the key of a validation whose result may be cached, or
+         * null. Results that depend on revocation checking, on a target
+         * selector or on a timestamp are not cached.
+         */
+        static ResultKey of(ValidatorParams params) {
+            if (!CACHE_RESULTS ||
+                    params.certificates().isEmpty() ||
+                    params.revocationEnabled() ||
+                    params.targetCertConstraints() != null ||
+                    params.timestamp() != null) {
+                return null;
+            }
+            for (PKIXCertPathChecker checker : params.certPathCheckers()) {
+                if (checker instanceof PKIXRevocationChecker) {
+                    return null;
+                }
+            }
+
+            Set<Object> anchors = new HashSet<>();
+            for (TrustAnchor anchor : params.trustAnchors()) {
+                X509Certificate trustedCert = anchor.getTrustedCert();
+                if (trustedCert != null) {
+                    anchors.add(trustedCert);
+                } else {
+                    anchors.add(List.of(anchor.getCA(),
+                                        anchor.getCAPublicKey()));
+                }
+            }
+            return new ResultKey(params, anchors);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ResultKey)) {
+                return false;
+            }
+            ResultKey other = (ResultKey)obj;
+            return hash == other.hash &&
+                   policyFlags == other.policyFlags &&
+                   Objects.equals(date, other.date) &&
+                   Objects.equals(sigProvider, other.sigProvider) &&
+                   Objects.equals(variant, other.variant) &&
+                   certs.equals(other.certs) &&
+                   initialPolicies.equals(other.initialPolicies) &&
+                   anchors.equals(other.anchors);
+        }
+    }
+
+    /**
+     * A cached validation result.
+     */
+    private static final class CachedResult {
+        final PKIXCertPathValidatorResult result;
+        // the end of the validity period of the path
+        private final long notAfter;
+
+        CachedResult(PKIXCertPathValidatorResult result,
+                     List<X509Certificate> certs) {
+            this.result = result;
+            long time = Long.MAX_VALUE;
+            for (X509Certificate cert : certs) {
+                time = Math.min(time, cert.getNotAfter().getTime());
+            }
+            this.notAfter = time;
+        }
+
+        /**
+         * Returns true if the result still holds for a validation at the
+         * current time, or for one at a fixed date.
+         */
+        boolean isValid(ResultKey key) {
+            return key.date != null || System.currentTimeMillis() <= notAfter;
+        }
     }
 }
@@ -65,6 +65,29 @@ class PKIXMasterCertPathValidator {
                          List<X509Certificate> reversedCertList,
                          List<PKIXCertPathChecker> certPathCheckers)
         throws CertPathValidatorException
+    {
+        validate(cpOriginal, reversedCertList, certPathCheckers, true);
+    }
+
+    /**
+     * Validates a certification path as above, but if
+     * <code>checkCriticalExts</code> is false, does not fail when a
+     * critical extension is left unresolved by the checkers. This is
+     * used when only some of the checkers are run again, the others
+     * having already resolved all critical extensions of the path.
+     *
+     * @param cpOriginal the original X509 CertPath passed in by the user
+     * @param reversedCertList the reversed X509 CertPath (as a List)
+     * @param certPathCheckers the PKIXCertPathCheckers
+     * @param checkCriticalExts whether unresolved critical extensions
+     *        fail the validation
+     * @throws CertPathValidatorException if cert path does not validate
+     */
+    static void validate(CertPath cpOriginal,
+                         List<X509Certificate> reversedCertList,
+                         List<PKIXCertPathChecker> certPathCheckers,
+                         boolean checkCriticalExts)
+        throws CertPathValidatorException
     {
         // we actually process reversedCertList, but we keep cpOriginal because
         // we need to return the original certPath when we throw an exception.
@@ -136,7 +159,7 @@ class PKIXMasterCertPathValidator {
                 }
             }
 
-            if (!unresCritExts.isEmpty()) {
+            if (checkCriticalExts && !unresCritExts.isEmpty()) {
                 throw new CertPathValidatorException("unrecognized " +
                     "critical extension(s)", null, cpOriginal, cpSize-(i+1),
                     PKIXReason.UNRECOGNIZED_CRIT_EXT);
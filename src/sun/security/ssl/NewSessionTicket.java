@@ -29,7 +29,6 @@ import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.ProviderException;
-import java.security.SecureRandom;
 import java.text.MessageFormat;
 import java.util.Locale;
 import java.util.Optional;
@@ -43,7 +42,7 @@ import sun.security.ssl.SSLHandshake.HandshakeMessage;
  * Pack of the NewSessionTicket handshake message.
  */
 final class NewSessionTicket {
-    private static final int MAX_TICKET_LIFETIME = 604800;  // seconds, 7 days
+    static final int MAX_TICKET_LIFETIME = 604800;  // seconds, 7 days
 
     static final SSLConsumer handshakeConsumer =
         new NewSessionTicketConsumer();
@@ -63,12 +62,12 @@ final class NewSessionTicket {
         final SSLExtensions extensions;
 
         NewSessionTicketMessage(HandshakeContext context,
-                int ticketLifetime, SecureRandom generator,
+                int ticketLifetime, int ticketAgeAdd,
                 byte[] ticketNonce, byte[] ticket) {
             super(context);
 
             this.ticketLifetime = ticketLifetime;
-            this.ticketAgeAdd = generator.nextInt();
+            this.ticketAgeAdd = ticketAgeAdd;
             this.ticketNonce = ticketNonce;
             this.ticket = ticket;
             this.extensions = new SSLExtensions(this);
@@ -218,11 +217,8 @@ final class NewSessionTicket {
                 return null;
             }
 
-            // get a new session ID
             SSLSessionContextImpl sessionCache = (SSLSessionContextImpl)
                 shc.sslContext.engineGetServerSessionContext();
-            SessionId newId = new SessionId(true,
-                shc.sslContext.getSecureRandom());
 
             Optional<SecretKey> resumptionMasterSecret =
                 shc.handshakeSession.getResumptionMasterSecret();
@@ -249,9 +245,24 @@ final class NewSessionTicket {
                 }
                 return null;
             }
+            int ticketAgeAdd = shc.sslContext.getSecureRandom().nextInt();
+
+            // Use a stateless ticket if possible, so that the session can
+            // be resumed without a server side cache.
+            byte[] ticket = null;
+            if (StatelessSessionTicket.isEnabled) {
+                ticket = StatelessSessionTicket.encode(shc, psk, ticketAgeAdd);
+            }
+
+            SessionId newId = null;
+            if (ticket == null) {
+                // get a new session ID
+                newId = new SessionId(true, shc.sslContext.getSecureRandom());
+                ticket = newId.getId();
+            }
+
             NewSessionTicketMessage nstm = new NewSessionTicketMessage(shc,
-                sessionTimeoutSeconds, shc.sslContext.getSecureRandom(),
-                nonceArr, newId.getId());
+                sessionTimeoutSeconds, ticketAgeAdd, nonceArr, ticket);
             if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake")) {
                 SSLLogger.fine(
                         "Produced NewSessionTicket handshake message", nstm);
@@ -260,14 +271,16 @@ final class NewSessionTicket {
             // create and cache the new session
             // The new session must be a child of the existing session so
             // they will be invalidated together, etc.
-            SSLSessionImpl sessionCopy = new SSLSessionImpl(shc,
-                    shc.handshakeSession.getSuite(), newId,
-                    shc.handshakeSession.getCreationTime());
-            shc.handshakeSession.addChild(sessionCopy);
-            sessionCopy.setPreSharedKey(psk);
-            sessionCopy.setPskIdentity(newId.getId());
-            sessionCopy.setTicketAgeAdd(nstm.ticketAgeAdd);
-            sessionCache.put(sessionCopy);
+            if (newId != null) {
+                SSLSessionImpl sessionCopy = new SSLSessionImpl(shc,
+                        shc.handshakeSession.getSuite(), newId,
+                        shc.handshakeSession.getCreationTime());
+                shc.handshakeSession.addChild(sessionCopy);
+                sessionCopy.setPreSharedKey(psk);
+                sessionCopy.setPskIdentity(newId.getId());
+                sessionCopy.setTicketAgeAdd(nstm.ticketAgeAdd);
+                sessionCache.put(sessionCopy);
+            }
 
             // Output the handshake message.
             nstm.write(shc.handshakeOutput);
@@ -147,6 +147,11 @@ abstract class OutputRecord
         throw new UnsupportedOperationException();
     }
 
+    // apply to SSLSocket only
+    void flushApplicationData() throws IOException {
+        // blank
+    }
+
     // Change write ciphers, may use change_cipher_spec record.
     synchronized void changeWriteCiphers(SSLWriteCipher writeCipher,
             boolean useChangeCipherSpec) throws IOException {
@@ -158,6 +163,9 @@ abstract class OutputRecord
             return;
         }
 
+        // The held back application data uses the current write cipher.
+        flushApplicationData();
+
         if (useChangeCipherSpec) {
             encodeChangeCipherSpec();
         }
@@ -33,6 +33,7 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
@@ -49,12 +50,28 @@ import javax.net.ssl.SSLSession;
 /**
  * Implementation of an non-blocking SSLEngine.
  *
+ * Once the handshake has completed, wrap() protects application data
+ * while holding only the writeLock, and unwrap() decrypts application
+ * data while holding only the readLock, so that one thread may wrap
+ * while another one unwraps.  Everything else, for example handshaking,
+ * post-handshake messages, alerts, closure and key updates, happens while
+ * holding the readLock, the engineLock and the writeLock, acquired in that
+ * order.  The engineLock also guards the configuration and state queried
+ * by the other public methods.  None of them use the engine's monitor, so
+ * that an application synchronizing on the engine cannot deadlock with it.
+ *
  * @author Brad Wetmore
  */
 final class SSLEngineImpl extends SSLEngine implements SSLTransport {
     private final SSLContextImpl        sslContext;
     final TransportContext              conContext;
 
+    // Locks for the inbound and outbound directions of the connection,
+    // and for everything else.
+    private final ReentrantLock         readLock = new ReentrantLock();
+    private final ReentrantLock         writeLock = new ReentrantLock();
+    private final ReentrantLock         engineLock = new ReentrantLock();
+
     /**
      * Constructor for an SSLEngine from SSLContext, without
      * host/port hints.
@@ -93,7 +110,26 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
     }
 
     @Override
-    public synchronized void beginHandshake() throws SSLException {
+    public void beginHandshake() throws SSLException {
+        readLock.lock();
+        try {
+            engineLock.lock();
+            try {
+                writeLock.lock();
+                try {
+                    kickstart();
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                engineLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void kickstart() throws SSLException {
         if (conContext.isUnsureMode) {
             throw new IllegalStateException(
                     "Client/Server mode has not yet been set.");
@@ -110,14 +146,149 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
         }
     }
 
+    /*
+     * Is the connection established and open in both directions, so that
+     * application data can be wrapped or unwrapped without touching the
+     * handshake state?
+     *
+     * The caller must hold the readLock or the writeLock.  The state is
+     * only changed while holding both of them.
+     */
+    private boolean isAppDataOnly() {
+        return !sslContext.isDTLS() &&
+                conContext.isNegotiated &&
+                (conContext.handshakeContext == null) &&
+                (conContext.delegatedThrown == null) &&
+                !conContext.isBroken &&
+                !conContext.isInboundClosed() &&
+                !conContext.isOutboundClosed();
+    }
+
     @Override
-    public synchronized SSLEngineResult wrap(ByteBuffer[] appData,
+    public SSLEngineResult wrap(ByteBuffer[] appData,
             int offset, int length, ByteBuffer netData) throws SSLException {
         return wrap(appData, offset, length, new ByteBuffer[]{ netData }, 0, 1);
     }
 
     // @Override
-    public synchronized SSLEngineResult wrap(
+    public SSLEngineResult wrap(
+        ByteBuffer[] srcs, int srcsOffset, int srcsLength,
+        ByteBuffer[] dsts, int dstsOffset, int dstsLength) throws SSLException {
+
+        // Try to protect the application data with only the writeLock held.
+        Exception failure = null;
+        writeLock.lock();
+        try {
+            if (isAppDataOnly()) {
+                checkParams(srcs, srcsOffset, srcsLength,
+                        dsts, dstsOffset, dstsLength);
+                try {
+                    SSLEngineResult result = wrapAppData(
+                        srcs, srcsOffset, srcsLength,
+                        dsts, dstsOffset, dstsLength);
+                    if (result != null) {
+                        return result;
+                    }
+                } catch (Exception ex) {
+                    // Close the connection with all locks held.
+                    failure = ex;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        readLock.lock();
+        try {
+            engineLock.lock();
+            try {
+                writeLock.lock();
+                try {
+                    if (failure != null) {
+                        wrapFailed(failure);
+                    }
+
+                    return wrapLocked(srcs, srcsOffset, srcsLength,
+                            dsts, dstsOffset, dstsLength);
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                engineLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /*
+     * Protects application data of an established connection.  Returns
+     * null, without consuming anything, if the general wrap() process is
+     * needed instead.
+     *
+     * The caller must hold the writeLock, and isAppDataOnly() is true.
+     */
+    private SSLEngineResult wrapAppData(
+        ByteBuffer[] srcs, int srcsOffset, int srcsLength,
+        ByteBuffer[] dsts, int dstsOffset, int dstsLength) throws IOException {
+
+        OutputRecord outputRecord = conContext.outputRecord;
+        if (!outputRecord.isEmpty() ||
+                outputRecord.seqNumIsHuge() ||
+                outputRecord.writeCipher.atKeyLimit()) {
+            return null;
+        }
+
+        int dstsRemains = 0;
+        for (int i = dstsOffset; i < dstsOffset + dstsLength; i++) {
+            dstsRemains += dsts[i].remaining();
+        }
+
+        if (dstsRemains < conContext.conSession.getPacketBufferSize()) {
+            return null;
+        }
+
+        int srcsRemains = 0;
+        for (int i = srcsOffset; i < srcsOffset + srcsLength; i++) {
+            srcsRemains += srcs[i].remaining();
+        }
+
+        if (srcsRemains == 0) {
+            return null;
+        }
+
+        Ciphertext ciphertext = outputRecord.encode(
+                srcs, srcsOffset, srcsLength, dsts, dstsOffset, dstsLength);
+
+        int deltaSrcs = srcsRemains;
+        for (int i = srcsOffset; i < srcsOffset + srcsLength; i++) {
+            deltaSrcs -= srcs[i].remaining();
+        }
+
+        int deltaDsts = dstsRemains;
+        for (int i = dstsOffset; i < dstsOffset + dstsLength; i++) {
+            deltaDsts -= dsts[i].remaining();
+        }
+
+        // The next wrap() will request the key update, if necessary.
+        return new SSLEngineResult(Status.OK, HandshakeStatus.NOT_HANDSHAKING,
+                deltaSrcs, deltaDsts,
+                ciphertext != null ? ciphertext.recordSN : -1L);
+    }
+
+    private void wrapFailed(Exception failure) throws SSLException {
+        if (failure instanceof SSLHandshakeException) {
+            // may be record sequence number overflow
+            conContext.fatal(Alert.HANDSHAKE_FAILURE, failure);
+        } else if (failure instanceof IOException) {
+            conContext.fatal(Alert.UNEXPECTED_MESSAGE, failure);
+        } else {    // including RuntimeException
+            conContext.fatal(Alert.INTERNAL_ERROR,
+                "Fail to wrap application data", failure);
+        }
+    }
+
+    private SSLEngineResult wrapLocked(
         ByteBuffer[] srcs, int srcsOffset, int srcsLength,
         ByteBuffer[] dsts, int dstsOffset, int dstsLength) throws SSLException {
 
@@ -417,14 +588,214 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
     }
 
     @Override
-    public synchronized SSLEngineResult unwrap(ByteBuffer src,
+    public SSLEngineResult unwrap(ByteBuffer src,
             ByteBuffer[] dsts, int offset, int length) throws SSLException {
         return unwrap(
                 new ByteBuffer[]{src}, 0, 1, dsts, offset, length);
     }
 
     // @Override
-    public synchronized SSLEngineResult unwrap(
+    public SSLEngineResult unwrap(
+        ByteBuffer[] srcs, int srcsOffset, int srcsLength,
+        ByteBuffer[] dsts, int dstsOffset, int dstsLength) throws SSLException {
+
+        readLock.lock();
+        try {
+            // Try to decrypt the application data with only the readLock
+            // held.  The other locks are acquired only if the record turns
+            // out to be something else.
+            if (isAppDataOnly()) {
+                checkParams(srcs, srcsOffset, srcsLength,
+                        dsts, dstsOffset, dstsLength);
+                SSLEngineResult result = unwrapAppData(
+                        srcs, srcsOffset, srcsLength,
+                        dsts, dstsOffset, dstsLength);
+                if (result != null) {
+                    return result;
+                }
+            }
+
+            engineLock.lock();
+            try {
+                writeLock.lock();
+                try {
+                    return unwrapLocked(srcs, srcsOffset, srcsLength,
+                            dsts, dstsOffset, dstsLength);
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                engineLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /*
+     * Decrypts application data of an established connection.  Returns
+     * null, without consuming anything, if the general unwrap() process is
+     * needed instead.
+     *
+     * The caller must hold the readLock, and isAppDataOnly() is true.
+     */
+    private SSLEngineResult unwrapAppData(
+        ByteBuffer[] srcs, int srcsOffset, int srcsLength,
+        ByteBuffer[] dsts, int dstsOffset, int dstsLength) throws SSLException {
+
+        InputRecord inputRecord = conContext.inputRecord;
+        if (inputRecord.seqNumIsHuge() ||
+                inputRecord.readCipher.atKeyLimit()) {
+            return null;
+        }
+
+        int srcsRemains = 0;
+        for (int i = srcsOffset; i < srcsOffset + srcsLength; i++) {
+            srcsRemains += srcs[i].remaining();
+        }
+
+        if (srcsRemains == 0) {
+            return new SSLEngineResult(Status.BUFFER_UNDERFLOW,
+                    HandshakeStatus.NOT_HANDSHAKING, 0, 0);
+        }
+
+        int packetLen;
+        try {
+            packetLen = inputRecord.bytesInCompletePacket(
+                    srcs, srcsOffset, srcsLength);
+        } catch (IOException ioe) {
+            return null;
+        }
+
+        if (packetLen > conContext.conSession.getPacketBufferSize()) {
+            return null;
+        }
+
+        if ((packetLen == -1) || (srcsRemains < packetLen)) {
+            return new SSLEngineResult(Status.BUFFER_UNDERFLOW,
+                    HandshakeStatus.NOT_HANDSHAKING, 0, 0);
+        }
+
+        int dstsRemains = 0;
+        for (int i = dstsOffset; i < dstsOffset + dstsLength; i++) {
+            dstsRemains += dsts[i].remaining();
+        }
+
+        if (inputRecord.estimateFragmentSize(packetLen) > dstsRemains) {
+            return null;
+        }
+
+        Plaintext[] plaintexts = null;
+        Exception failure = null;
+        try {
+            plaintexts = inputRecord.decode(srcs, srcsOffset, srcsLength);
+        } catch (Exception ex) {    // including RuntimeException
+            failure = ex;
+        }
+
+        // Anything other than application data is handled with all locks
+        // held.  The source data has been consumed, so finish the work here.
+        if ((failure != null) || !isAppData(plaintexts, dstsRemains)) {
+            engineLock.lock();
+            try {
+                writeLock.lock();
+                try {
+                    return unwrapDecoded(plaintexts, failure,
+                            srcs, srcsOffset, srcsLength, srcsRemains,
+                            dsts, dstsOffset, dstsLength, dstsRemains);
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                engineLock.unlock();
+            }
+        }
+
+        Plaintext plainText;
+        try {
+            plainText = SSLTransport.deliver(conContext,
+                    plaintexts, dsts, dstsOffset, dstsLength);
+        } catch (IOException ioe) {
+            // not expected, there is enough room in the destination buffers
+            throw new SSLException("unwrapAppData", ioe);
+        }
+
+        int deltaNet = srcsRemains;
+        for (int i = srcsOffset; i < srcsOffset + srcsLength; i++) {
+            deltaNet -= srcs[i].remaining();
+        }
+
+        int deltaApp = dstsRemains;
+        for (int i = dstsOffset; i < dstsOffset + dstsLength; i++) {
+            deltaApp -= dsts[i].remaining();
+        }
+
+        // The next unwrap() will request the key update, if necessary.
+        return new SSLEngineResult(Status.OK, HandshakeStatus.NOT_HANDSHAKING,
+                deltaNet, deltaApp, plainText.recordSN);
+    }
+
+    /*
+     * Are the decoded records application data only, and is there enough
+     * room in the destination buffers for all of them?
+     */
+    private static boolean isAppData(Plaintext[] plaintexts, int dstsRemains) {
+        if (plaintexts == null || plaintexts.length == 0) {
+            return false;
+        }
+
+        for (Plaintext plainText : plaintexts) {
+            if (plainText == null ||
+                    plainText.contentType != ContentType.APPLICATION_DATA.id) {
+                return false;
+            }
+
+            dstsRemains -= plainText.fragment.remaining();
+        }
+
+        return dstsRemains >= 0;
+    }
+
+    /*
+     * Completes the unwrap() of records decoded with only the readLock
+     * held, or handles the decoding failure.
+     *
+     * The caller must hold all locks.
+     */
+    private SSLEngineResult unwrapDecoded(
+            Plaintext[] plaintexts, Exception failure,
+            ByteBuffer[] srcs, int srcsOffset, int srcsLength, int srcsRemains,
+            ByteBuffer[] dsts, int dstsOffset, int dstsLength,
+            int dstsRemains) throws SSLException {
+
+        try {
+            if (failure != null) {
+                SSLTransport.decodeFailed(conContext, failure);
+            }
+
+            Plaintext plainText = SSLTransport.deliver(conContext,
+                    plaintexts, dsts, dstsOffset, dstsLength);
+            afterDecode(plainText);
+
+            return unwrapResult(plainText,
+                    srcs, srcsOffset, srcsLength, srcsRemains,
+                    dsts, dstsOffset, dstsLength, dstsRemains);
+        } catch (SSLProtocolException spe) {
+            // may be an unexpected handshake message
+            conContext.fatal(Alert.UNEXPECTED_MESSAGE,
+                    spe.getMessage(), spe);
+        } catch (IOException ioe) {
+            conContext.fatal(Alert.INTERNAL_ERROR,
+                    "problem unwrapping net record", ioe);
+        } catch (Exception ex) {     // including RuntimeException
+            conContext.fatal(Alert.INTERNAL_ERROR,
+                "Fail to unwrap network record", ex);
+        }
+
+        return null;    // make compiler happy
+    }
+
+    private SSLEngineResult unwrapLocked(
         ByteBuffer[] srcs, int srcsOffset, int srcsLength,
         ByteBuffer[] dsts, int dstsOffset, int dstsLength) throws SSLException {
 
@@ -634,6 +1005,16 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
             }
         }
 
+        return unwrapResult(plainText,
+                srcs, srcsOffset, srcsLength, srcsRemains,
+                dsts, dstsOffset, dstsLength, dstsRemains);
+    }
+
+    private SSLEngineResult unwrapResult(Plaintext plainText,
+            ByteBuffer[] srcs, int srcsOffset, int srcsLength, int srcsRemains,
+            ByteBuffer[] dsts, int dstsOffset, int dstsLength,
+            int dstsRemains) {
+
         /*
          * Check the various condition that we could be reporting.
          *
@@ -645,6 +1026,7 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
          * status above should cover:  FINISHED, NEED_TASK
          */
         Status status = (isInboundDone() ? Status.CLOSED : Status.OK);
+        HandshakeStatus hsStatus;
         if (plainText.handshakeStatus != null) {
             hsStatus = plainText.handshakeStatus;
         } else {
@@ -672,7 +1054,12 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
         Plaintext pt = SSLTransport.decode(conContext,
                             srcs, srcsOffset, srcsLength,
                             dsts, dstsOffset, dstsLength);
+        afterDecode(pt);
 
+        return pt;
+    }
+
+    private void afterDecode(Plaintext pt) throws IOException {
         // Is the handshake completed?
         if (pt != Plaintext.PLAINTEXT_NULL) {
             HandshakeStatus hsStatus = tryToFinishHandshake(pt.contentType);
@@ -689,24 +1076,46 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
                         tryKeyUpdate(pt.handshakeStatus);
             }
         }
-
-        return pt;
     }
 
     @Override
-    public synchronized Runnable getDelegatedTask() {
-        if (conContext.handshakeContext != null && // PRE or POST handshake
-                !conContext.handshakeContext.taskDelegated &&
-                !conContext.handshakeContext.delegatedActions.isEmpty()) {
-            conContext.handshakeContext.taskDelegated = true;
-            return new DelegatedTask(this);
-        }
+    public Runnable getDelegatedTask() {
+        engineLock.lock();
+        try {
+            if (conContext.handshakeContext != null && // PRE or POST handshake
+                    !conContext.handshakeContext.taskDelegated &&
+                    !conContext.handshakeContext.delegatedActions.isEmpty()) {
+                conContext.handshakeContext.taskDelegated = true;
+                return new DelegatedTask(this);
+            }
 
-        return null;
+            return null;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void closeInbound() throws SSLException {
+    public void closeInbound() throws SSLException {
+        readLock.lock();
+        try {
+            engineLock.lock();
+            try {
+                writeLock.lock();
+                try {
+                    closeInboundLocked();
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                engineLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void closeInboundLocked() throws SSLException {
         if (isInboundDone()) {
             return;
         }
@@ -729,12 +1138,36 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
     }
 
     @Override
-    public synchronized boolean isInboundDone() {
-        return conContext.isInboundClosed();
+    public boolean isInboundDone() {
+        engineLock.lock();
+        try {
+            return conContext.isInboundClosed();
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void closeOutbound() {
+    public void closeOutbound() {
+        readLock.lock();
+        try {
+            engineLock.lock();
+            try {
+                writeLock.lock();
+                try {
+                    closeOutboundLocked();
+                } finally {
+                    writeLock.unlock();
+                }
+            } finally {
+                engineLock.unlock();
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void closeOutboundLocked() {
         if (conContext.isOutboundClosed()) {
             return;
         }
@@ -747,8 +1180,13 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
     }
 
     @Override
-    public synchronized boolean isOutboundDone() {
-        return conContext.isOutboundDone();
+    public boolean isOutboundDone() {
+        engineLock.lock();
+        try {
+            return conContext.isOutboundDone();
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
@@ -757,14 +1195,25 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
     }
 
     @Override
-    public synchronized String[] getEnabledCipherSuites() {
-        return CipherSuite.namesOf(conContext.sslConfig.enabledCipherSuites);
+    public String[] getEnabledCipherSuites() {
+        engineLock.lock();
+        try {
+            return CipherSuite.namesOf(
+                    conContext.sslConfig.enabledCipherSuites);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setEnabledCipherSuites(String[] suites) {
-        conContext.sslConfig.enabledCipherSuites =
-                CipherSuite.validValuesOf(suites);
+    public void setEnabledCipherSuites(String[] suites) {
+        engineLock.lock();
+        try {
+            conContext.sslConfig.enabledCipherSuites =
+                    CipherSuite.validValuesOf(suites);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
@@ -774,119 +1223,214 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
     }
 
     @Override
-    public synchronized String[] getEnabledProtocols() {
-        return ProtocolVersion.toStringArray(
-                conContext.sslConfig.enabledProtocols);
+    public String[] getEnabledProtocols() {
+        engineLock.lock();
+        try {
+            return ProtocolVersion.toStringArray(
+                    conContext.sslConfig.enabledProtocols);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setEnabledProtocols(String[] protocols) {
-        if (protocols == null) {
-            throw new IllegalArgumentException("Protocols cannot be null");
-        }
+    public void setEnabledProtocols(String[] protocols) {
+        engineLock.lock();
+        try {
+            if (protocols == null) {
+                throw new IllegalArgumentException("Protocols cannot be null");
+            }
 
-        conContext.sslConfig.enabledProtocols =
-                ProtocolVersion.namesOf(protocols);
+            conContext.sslConfig.enabledProtocols =
+                    ProtocolVersion.namesOf(protocols);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized SSLSession getSession() {
-        return conContext.conSession;
+    public SSLSession getSession() {
+        engineLock.lock();
+        try {
+            return conContext.conSession;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized SSLSession getHandshakeSession() {
-        return conContext.handshakeContext == null ?
-                null : conContext.handshakeContext.handshakeSession;
+    public SSLSession getHandshakeSession() {
+        engineLock.lock();
+        try {
+            return conContext.handshakeContext == null ?
+                    null : conContext.handshakeContext.handshakeSession;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized SSLEngineResult.HandshakeStatus getHandshakeStatus() {
-        return conContext.getHandshakeStatus();
+    public SSLEngineResult.HandshakeStatus getHandshakeStatus() {
+        engineLock.lock();
+        try {
+            return conContext.getHandshakeStatus();
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setUseClientMode(boolean mode) {
-        conContext.setUseClientMode(mode);
+    public void setUseClientMode(boolean mode) {
+        engineLock.lock();
+        try {
+            conContext.setUseClientMode(mode);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized boolean getUseClientMode() {
-        return conContext.sslConfig.isClientMode;
+    public boolean getUseClientMode() {
+        engineLock.lock();
+        try {
+            return conContext.sslConfig.isClientMode;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setNeedClientAuth(boolean need) {
-        conContext.sslConfig.clientAuthType =
-                (need ? ClientAuthType.CLIENT_AUTH_REQUIRED :
-                        ClientAuthType.CLIENT_AUTH_NONE);
+    public void setNeedClientAuth(boolean need) {
+        engineLock.lock();
+        try {
+            conContext.sslConfig.clientAuthType =
+                    (need ? ClientAuthType.CLIENT_AUTH_REQUIRED :
+                            ClientAuthType.CLIENT_AUTH_NONE);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized boolean getNeedClientAuth() {
-        return (conContext.sslConfig.clientAuthType ==
-                        ClientAuthType.CLIENT_AUTH_REQUIRED);
+    public boolean getNeedClientAuth() {
+        engineLock.lock();
+        try {
+            return (conContext.sslConfig.clientAuthType ==
+                            ClientAuthType.CLIENT_AUTH_REQUIRED);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setWantClientAuth(boolean want) {
-        conContext.sslConfig.clientAuthType =
-                (want ? ClientAuthType.CLIENT_AUTH_REQUESTED :
-                        ClientAuthType.CLIENT_AUTH_NONE);
+    public void setWantClientAuth(boolean want) {
+        engineLock.lock();
+        try {
+            conContext.sslConfig.clientAuthType =
+                    (want ? ClientAuthType.CLIENT_AUTH_REQUESTED :
+                            ClientAuthType.CLIENT_AUTH_NONE);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized boolean getWantClientAuth() {
-        return (conContext.sslConfig.clientAuthType ==
-                        ClientAuthType.CLIENT_AUTH_REQUESTED);
+    public boolean getWantClientAuth() {
+        engineLock.lock();
+        try {
+            return (conContext.sslConfig.clientAuthType ==
+                            ClientAuthType.CLIENT_AUTH_REQUESTED);
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setEnableSessionCreation(boolean flag) {
-        conContext.sslConfig.enableSessionCreation = flag;
+    public void setEnableSessionCreation(boolean flag) {
+        engineLock.lock();
+        try {
+            conContext.sslConfig.enableSessionCreation = flag;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized boolean getEnableSessionCreation() {
-        return conContext.sslConfig.enableSessionCreation;
+    public boolean getEnableSessionCreation() {
+        engineLock.lock();
+        try {
+            return conContext.sslConfig.enableSessionCreation;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized SSLParameters getSSLParameters() {
-        return conContext.sslConfig.getSSLParameters();
+    public SSLParameters getSSLParameters() {
+        engineLock.lock();
+        try {
+            return conContext.sslConfig.getSSLParameters();
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setSSLParameters(SSLParameters params) {
-        conContext.sslConfig.setSSLParameters(params);
+    public void setSSLParameters(SSLParameters params) {
+        engineLock.lock();
+        try {
+            conContext.sslConfig.setSSLParameters(params);
 
-        if (conContext.sslConfig.maximumPacketSize != 0) {
-            conContext.outputRecord.changePacketSize(
-                    conContext.sslConfig.maximumPacketSize);
+            if (conContext.sslConfig.maximumPacketSize != 0) {
+                conContext.outputRecord.changePacketSize(
+                        conContext.sslConfig.maximumPacketSize);
+            }
+        } finally {
+            engineLock.unlock();
         }
     }
 
     @Override
-    public synchronized String getApplicationProtocol() {
-        return conContext.applicationProtocol;
+    public String getApplicationProtocol() {
+        engineLock.lock();
+        try {
+            return conContext.applicationProtocol;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized String getHandshakeApplicationProtocol() {
-        return conContext.handshakeContext == null ?
-                null : conContext.handshakeContext.applicationProtocol;
+    public String getHandshakeApplicationProtocol() {
+        engineLock.lock();
+        try {
+            return conContext.handshakeContext == null ?
+                    null : conContext.handshakeContext.applicationProtocol;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void setHandshakeApplicationProtocolSelector(
+    public void setHandshakeApplicationProtocolSelector(
             BiFunction<SSLEngine, List<String>, String> selector) {
-        conContext.sslConfig.engineAPSelector = selector;
+        engineLock.lock();
+        try {
+            conContext.sslConfig.engineAPSelector = selector;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
-    public synchronized BiFunction<SSLEngine, List<String>, String>
+    public BiFunction<SSLEngine, List<String>, String>
             getHandshakeApplicationProtocolSelector() {
-        return conContext.sslConfig.engineAPSelector;
+        engineLock.lock();
+        try {
+            return conContext.sslConfig.engineAPSelector;
+        } finally {
+            engineLock.unlock();
+        }
     }
 
     @Override
@@ -900,52 +1444,57 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
      * null, report back the Exception that happened in the delegated
      * task(s).
      */
-    private synchronized void checkTaskThrown() throws SSLException {
-
-        Exception exc = null;
+    private void checkTaskThrown() throws SSLException {
+        engineLock.lock();
+        try {
+            Exception exc = null;
 
-        // First check the handshake context.
-        HandshakeContext hc = conContext.handshakeContext;
-        if ((hc != null) && (hc.delegatedThrown != null)) {
-            exc = hc.delegatedThrown;
-            hc.delegatedThrown = null;
-        }
+            // First check the handshake context.
+            HandshakeContext hc = conContext.handshakeContext;
+            if ((hc != null) && (hc.delegatedThrown != null)) {
+                exc = hc.delegatedThrown;
+                hc.delegatedThrown = null;
+            }
 
-        /*
-         * hc.delegatedThrown and conContext.delegatedThrown are most likely
-         * the same, but it's possible we could have had a non-fatal
-         * exception and thus the new HandshakeContext is still valid
-         * (alert warning).  If so, then we may have a secondary exception
-         * waiting to be reported from the TransportContext, so we will
-         * need to clear that on a successive call.  Otherwise, clear it now.
-         */
-        if (conContext.delegatedThrown != null) {
-            if (exc != null) {
-                // hc object comparison
-                if (conContext.delegatedThrown == exc) {
-                    // clear if/only if both are the same
+            /*
+             * hc.delegatedThrown and conContext.delegatedThrown are most
+             * likely the same, but it's possible we could have had a
+             * non-fatal exception and thus the new HandshakeContext is still
+             * valid (alert warning).  If so, then we may have a secondary
+             * exception waiting to be reported from the TransportContext, so
+             * we will need to clear that on a successive call.  Otherwise,
+             * clear it now.
+             */
+            if (conContext.delegatedThrown != null) {
+                if (exc != null) {
+                    // hc object comparison
+                    if (conContext.delegatedThrown == exc) {
+                        // clear if/only if both are the same
+                        conContext.delegatedThrown = null;
+                    } // otherwise report the hc delegatedThrown
+                } else {
+                    // Nothing waiting in HandshakeContext, but one is in the
+                    // TransportContext.
+                    exc = conContext.delegatedThrown;
                     conContext.delegatedThrown = null;
-                } // otherwise report the hc delegatedThrown
-            } else {
-                // Nothing waiting in HandshakeContext, but one is in the
-                // TransportContext.
-                exc = conContext.delegatedThrown;
-                conContext.delegatedThrown = null;
+                }
             }
-        }
 
-        // Anything to report?
-        if (exc == null) {
-            return;
-        }
+            // Anything to report?
+            if (exc == null) {
+                return;
+            }
 
-        // If it wasn't a RuntimeException/SSLException, need to wrap it.
-        if (exc instanceof SSLException) {
-            throw (SSLException)exc;
-        } else if (exc instanceof RuntimeException) {
-            throw (RuntimeException)exc;
-        } else {
-            throw getTaskThrown(exc);
+            // If it wasn't a RuntimeException/SSLException, need to wrap it.
+            if (exc instanceof SSLException) {
+                throw (SSLException)exc;
+            } else if (exc instanceof RuntimeException) {
+                throw (RuntimeException)exc;
+            } else {
+                throw getTaskThrown(exc);
+            }
+        } finally {
+            engineLock.unlock();
         }
     }
 
@@ -989,64 +1538,81 @@ final class SSLEngineImpl extends SSLEngine implements SSLTransport {
 
         @Override
         public void run() {
-            synchronized (engine) {
-                HandshakeContext hc = engine.conContext.handshakeContext;
-                if (hc == null || hc.delegatedActions.isEmpty()) {
-                    return;
-                }
-
+            engine.readLock.lock();
+            try {
+                engine.engineLock.lock();
                 try {
-                    AccessController.doPrivileged(
-                            new DelegatedAction(hc), engine.conContext.acc);
-                } catch (PrivilegedActionException pae) {
-                    // Get the handshake context again in case the
-                    // handshaking has completed.
-                    Exception reportedException = pae.getException();
-
-                    // Report to both the TransportContext...
-                    if (engine.conContext.delegatedThrown == null) {
-                        engine.conContext.delegatedThrown = reportedException;
+                    engine.writeLock.lock();
+                    try {
+                        runLocked();
+                    } finally {
+                        engine.writeLock.unlock();
                     }
+                } finally {
+                    engine.engineLock.unlock();
+                }
+            } finally {
+                engine.readLock.unlock();
+            }
+        }
 
-                    // ...and the HandshakeContext in case condition
-                    // wasn't fatal and the handshakeContext is still
-                    // around.
-                    hc = engine.conContext.handshakeContext;
-                    if (hc != null) {
-                        hc.delegatedThrown = reportedException;
-                    } else if (engine.conContext.closeReason != null) {
-                        // Update the reason in case there was a previous.
-                        engine.conContext.closeReason =
-                                getTaskThrown(reportedException);
-                    }
-                } catch (RuntimeException rte) {
-                    // Get the handshake context again in case the
-                    // handshaking has completed.
+        private void runLocked() {
+            HandshakeContext hc = engine.conContext.handshakeContext;
+            if (hc == null || hc.delegatedActions.isEmpty()) {
+                return;
+            }
 
-                    // Report to both the TransportContext...
-                    if (engine.conContext.delegatedThrown == null) {
-                        engine.conContext.delegatedThrown = rte;
-                    }
+            try {
+                AccessController.doPrivileged(
+                        new DelegatedAction(hc), engine.conContext.acc);
+            } catch (PrivilegedActionException pae) {
+                // Get the handshake context again in case the
+                // handshaking has completed.
+                Exception reportedException = pae.getException();
 
-                    // ...and the HandshakeContext in case condition
-                    // wasn't fatal and the handshakeContext is still
-                    // around.
-                    hc = engine.conContext.handshakeContext;
-                    if (hc != null) {
-                        hc.delegatedThrown = rte;
-                    } else if (engine.conContext.closeReason != null) {
-                        // Update the reason in case there was a previous.
-                        engine.conContext.closeReason = rte;
-                    }
+                // Report to both the TransportContext...
+                if (engine.conContext.delegatedThrown == null) {
+                    engine.conContext.delegatedThrown = reportedException;
                 }
 
+                // ...and the HandshakeContext in case condition
+                // wasn't fatal and the handshakeContext is still
+                // around.
+                hc = engine.conContext.handshakeContext;
+                if (hc != null) {
+                    hc.delegatedThrown = reportedException;
+                } else if (engine.conContext.closeReason != null) {
+                    // Update the reason in case there was a previous.
+                    engine.conContext.closeReason =
+                            getTaskThrown(reportedException);
+                }
+            } catch (RuntimeException rte) {
                 // Get the handshake context again in case the
                 // handshaking has completed.
+
+                // Report to both the TransportContext...
+                if (engine.conContext.delegatedThrown == null) {
+                    engine.conContext.delegatedThrown = rte;
+                }
+
+                // ...and the HandshakeContext in case condition
+                // wasn't fatal and the handshakeContext is still
+                // around.
                 hc = engine.conContext.handshakeContext;
                 if (hc != null) {
-                    hc.taskDelegated = false;
+                    hc.delegatedThrown = rte;
+                } else if (engine.conContext.closeReason != null) {
+                    // Update the reason in case there was a previous.
+                    engine.conContext.closeReason = rte;
                 }
             }
+
+            // Get the handshake context again in case the
+            // handshaking has completed.
+            hc = engine.conContext.handshakeContext;
+            if (hc != null) {
+                hc.taskDelegated = false;
+            }
         }
 
         private static class DelegatedAction
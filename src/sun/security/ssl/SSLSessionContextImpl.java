@@ -35,6 +35,8 @@ import sun.security.util.Cache;
 
 
 final class SSLSessionContextImpl implements SSLSessionContext {
+    private static final int DEFAULT_MAX_CACHE_SIZE = 20480;
+
     private final Cache<SessionId, SSLSessionImpl> sessionCache;
                                         // session cache, session id as key
     private final Cache<String, SSLSessionImpl> sessionHostPortCache;
@@ -42,14 +44,19 @@ final class SSLSessionContextImpl implements SSLSessionContext {
     private int cacheLimit;             // the max cache size
     private int timeout;                // timeout in seconds
 
+    // keys protecting stateless session tickets, server side only
+    private volatile StatelessSessionTicket.TicketKeys ticketKeys;
+
     // package private
     SSLSessionContextImpl() {
         cacheLimit = getDefaultCacheLimit();    // default cache size
         timeout = 86400;                        // default, 24 hours
 
-        // use soft reference
-        sessionCache = Cache.newSoftMemoryCache(cacheLimit, timeout);
-        sessionHostPortCache = Cache.newSoftMemoryCache(cacheLimit, timeout);
+        // use soft reference, sharded to keep resumption lookups of
+        // concurrent handshakes from contending on a single lock
+        sessionCache = Cache.newShardedSoftMemoryCache(cacheLimit, timeout);
+        sessionHostPortCache =
+                Cache.newShardedSoftMemoryCache(cacheLimit, timeout);
     }
 
     /**
@@ -193,8 +200,24 @@ final class SSLSessionContextImpl implements SSLSessionContext {
         }
     }
 
+    // package-private method, the keys used to encrypt and decrypt the
+    // stateless session tickets of this server context
+    StatelessSessionTicket.TicketKeys getTicketKeys() {
+        StatelessSessionTicket.TicketKeys keys = ticketKeys;
+        if (keys == null) {
+            synchronized (this) {
+                keys = ticketKeys;
+                if (keys == null) {
+                    ticketKeys = keys = new StatelessSessionTicket.TicketKeys();
+                }
+            }
+        }
+
+        return keys;
+    }
+
     private static int getDefaultCacheLimit() {
-        int defaultCacheLimit = 0;
+        int defaultCacheLimit = DEFAULT_MAX_CACHE_SIZE;
         try {
             String s = java.security.AccessController.doPrivileged(
                     new java.security.PrivilegedAction<String>() {
@@ -204,12 +227,23 @@ final class SSLSessionContextImpl implements SSLSessionContext {
                             "javax.net.ssl.sessionCacheSize");
                     }
                 });
-                defaultCacheLimit = (s != null) ? Integer.parseInt(s) : 0;
+            if (s != null) {
+                defaultCacheLimit = Integer.parseInt(s);
+            }
         } catch (Exception e) {
             // swallow the exception
         }
 
-        return (defaultCacheLimit > 0) ? defaultCacheLimit : 0;
+        if (defaultCacheLimit >= 0) {
+            return defaultCacheLimit;
+        }
+
+        if (SSLLogger.isOn && SSLLogger.isOn("ssl")) {
+            SSLLogger.warning(
+                "invalid javax.net.ssl.sessionCacheSize value, use the " +
+                "default size of " + DEFAULT_MAX_CACHE_SIZE);
+        }
+        return DEFAULT_MAX_CACHE_SIZE;
     }
 
     private boolean isTimedout(SSLSession sess) {
@@ -820,6 +820,10 @@ public final class SSLSocketImpl
 
                 appDataIsAvailable = false;
                 try {
+                    // The peer may be waiting for the application data held
+                    // back for coalescing, so send it before waiting.
+                    conContext.outputRecord.flushApplicationData();
+
                     ByteBuffer bb = readApplicationRecord(buffer);
                     if (bb == null) {   // EOF
                         return -1;
@@ -996,6 +1000,19 @@ public final class SSLSocketImpl
             }
         }
 
+        @Override
+        public void flush() throws IOException {
+            // Deliver the application data held back for coalescing.
+            try {
+                conContext.outputRecord.flushApplicationData();
+            } catch (SSLHandshakeException she) {
+                // may be record sequence number overflow
+                conContext.fatal(Alert.HANDSHAKE_FAILURE, she);
+            } catch (IOException e) {
+                conContext.fatal(Alert.UNEXPECTED_MESSAGE, e);
+            }
+        }
+
         @Override
         public void close() throws IOException {
             if (SSLLogger.isOn && SSLLogger.isOn("ssl")) {
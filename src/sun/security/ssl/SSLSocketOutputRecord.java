@@ -38,6 +38,32 @@ import javax.net.ssl.SSLHandshakeException;
 final class SSLSocketOutputRecord extends OutputRecord implements SSLRecord {
     private OutputStream deliverStream = null;
 
+    /*
+     * Coalesce small application writes?
+     *
+     * If enabled, application data is held back until a full record can
+     * be sent, or until it is flushed: by SSLSocket.getOutputStream().flush(),
+     * before a read from the socket waits for more data, or before any
+     * other record is written.  Applications that neither flush nor read
+     * after writing must not enable it.
+     *
+     * A read only takes the lock of this record to send held back data;
+     * it may then wait for a concurrent write to the socket to complete.
+     */
+    private static final boolean coalesceAppData =
+        Utilities.getBooleanProperty("jdk.tls.coalesceAppData", false);
+
+    // The application data held back for coalescing.  The count is
+    // volatile so that readers can check it without taking the lock.
+    private byte[] pendingData = null;
+    private volatile int pendingCount = 0;
+
+    // Encrypted application records, written to the socket in one go
+    // when coalescing.
+    private static final int maxRecordsSize = 4 * SSLRecord.maxRecordSize;
+    private byte[] records = null;
+    private int recordsCount = 0;
+
     SSLSocketOutputRecord(HandshakeHash handshakeHash) {
         this(handshakeHash, null);
     }
@@ -53,6 +79,7 @@ final class SSLSocketOutputRecord extends OutputRecord implements SSLRecord {
     @Override
     synchronized void encodeAlert(
             byte level, byte description) throws IOException {
+        flushApplicationData();
         if (isClosed()) {
             if (SSLLogger.isOn && SSLLogger.isOn("ssl")) {
                 SSLLogger.warning("outbound has closed, ignore outbound " +
@@ -93,6 +120,7 @@ final class SSLSocketOutputRecord extends OutputRecord implements SSLRecord {
     @Override
     synchronized void encodeHandshake(byte[] source,
             int offset, int length) throws IOException {
+        flushApplicationData();
         if (isClosed()) {
             if (SSLLogger.isOn && SSLLogger.isOn("ssl")) {
                 SSLLogger.warning("outbound has closed, ignore outbound " +
@@ -200,6 +228,7 @@ final class SSLSocketOutputRecord extends OutputRecord implements SSLRecord {
 
     @Override
     synchronized void encodeChangeCipherSpec() throws IOException {
+        flushApplicationData();
         if (isClosed()) {
             if (SSLLogger.isOn && SSLLogger.isOn("ssl")) {
                 SSLLogger.warning("outbound has closed, ignore outbound " +
@@ -277,23 +306,18 @@ final class SSLSocketOutputRecord extends OutputRecord implements SSLRecord {
             throw new SSLHandshakeException("sequence number overflow");
         }
 
-        boolean isFirstRecordOfThePayload = true;
-        for (int limit = (offset + length); offset < limit;) {
-            int fragLen;
-            if (packetSize > 0) {
-                fragLen = Math.min(maxRecordSize, packetSize);
-                fragLen =
-                        writeCipher.calculateFragmentSize(fragLen, headerSize);
-
-                fragLen = Math.min(fragLen, Record.maxDataSize);
-            } else {
-                fragLen = Record.maxDataSize;
-            }
+        // Don't hold back the data if the payload has to be split.
+        if (coalesceAppData && !needToSplitPayload()) {
+            coalesce(source, offset, length);
+            return;
+        }
 
-            if (fragmentSize > 0) {
-                fragLen = Math.min(fragLen, fragmentSize);
-            }
+        // Splitting starts after the first record, data may be held back.
+        flushApplicationData();
 
+        boolean isFirstRecordOfThePayload = true;
+        for (int limit = (offset + length); offset < limit;) {
+            int fragLen = getFragLimit();
             if (isFirstRecordOfThePayload && needToSplitPayload()) {
                 fragLen = 1;
                 isFirstRecordOfThePayload = false;
@@ -301,38 +325,157 @@ final class SSLSocketOutputRecord extends OutputRecord implements SSLRecord {
                 fragLen = Math.min(fragLen, (limit - offset));
             }
 
-            // use the buf of ByteArrayOutputStream
-            int position = headerSize + writeCipher.getExplicitNonceSize();
-            count = position;
-            write(source, offset, fragLen);
+            encodeAppRecord(source, offset, fragLen);
+            offset += fragLen;
+        }
 
-            if (SSLLogger.isOn && SSLLogger.isOn("record")) {
-                SSLLogger.fine(
-                        "WRITE: " + protocolVersion +
-                        " " + ContentType.APPLICATION_DATA.name +
-                        ", length = " + (count - position));
+        deliverRecords();
+    }
+
+    /*
+     * Holds back the application data until a full record is available.
+     */
+    private void coalesce(
+            byte[] source, int offset, int length) throws IOException {
+        int fragLimit = getFragLimit();
+        if (pendingCount >= fragLimit) {    // the fragment size has changed
+            flushApplicationData();
+        }
+
+        if (pendingData == null || pendingData.length < fragLimit) {
+            byte[] newData = new byte[fragLimit];
+            if (pendingCount != 0) {
+                System.arraycopy(pendingData, 0, newData, 0, pendingCount);
             }
+            pendingData = newData;
+        }
 
-            // Encrypt the fragment and wrap up a record.
-            encrypt(writeCipher, ContentType.APPLICATION_DATA.id, headerSize);
+        // Fill up the held back data at first.
+        if (pendingCount != 0) {
+            int howmany = Math.min(fragLimit - pendingCount, length);
+            System.arraycopy(source, offset, pendingData, pendingCount, howmany);
+            pendingCount += howmany;
+            offset += howmany;
+            length -= howmany;
+
+            if (pendingCount < fragLimit) {
+                return;
+            }
+
+            encodeAppRecord(pendingData, 0, pendingCount);
+            pendingCount = 0;
+        }
+
+        // Full records can be encrypted from the source directly.
+        for (; length >= fragLimit; length -= fragLimit) {
+            encodeAppRecord(source, offset, fragLimit);
+            offset += fragLimit;
+        }
+
+        if (length != 0) {
+            System.arraycopy(source, offset, pendingData, 0, length);
+            pendingCount = length;
+        }
+
+        deliverRecords();
+    }
+
+    /*
+     * Encrypts and delivers the application data held back for coalescing,
+     * if any.  Does not take the lock otherwise, so that a reader is not
+     * blocked behind a writer that is blocked in a socket write.
+     */
+    @Override
+    void flushApplicationData() throws IOException {
+        if (coalesceAppData && pendingCount != 0) {
+            flushPendingData();
+        }
+    }
+
+    private synchronized void flushPendingData() throws IOException {
+        if (pendingCount == 0) {
+            return;
+        }
+
+        if (isClosed()) {
+            pendingCount = 0;
+            return;
+        }
+
+        int fragLimit = getFragLimit();
+        for (int offset = 0; offset < pendingCount; offset += fragLimit) {
+            encodeAppRecord(pendingData, offset,
+                    Math.min(fragLimit, pendingCount - offset));
+        }
+        pendingCount = 0;
+
+        deliverRecords();
+    }
+
+    /*
+     * Encrypts an application data record, and appends it to the records
+     * to be delivered.
+     */
+    private void encodeAppRecord(
+            byte[] source, int offset, int fragLen) throws IOException {
+        // use the buf of ByteArrayOutputStream
+        int position = headerSize + writeCipher.getExplicitNonceSize();
+        count = position;
+        write(source, offset, fragLen);
+
+        if (SSLLogger.isOn && SSLLogger.isOn("record")) {
+            SSLLogger.fine(
+                    "WRITE: " + protocolVersion +
+                    " " + ContentType.APPLICATION_DATA.name +
+                    ", length = " + (count - position));
+        }
+
+        // Encrypt the fragment and wrap up a record.
+        encrypt(writeCipher, ContentType.APPLICATION_DATA.id, headerSize);
+
+        if (SSLLogger.isOn && SSLLogger.isOn("packet")) {
+            SSLLogger.fine("Raw write",
+                    (new ByteArrayInputStream(buf, 0, count)));
+        }
+
+        if (!coalesceAppData || count > maxRecordsSize) {
+            deliverRecords();
 
             // deliver this message
             deliverStream.write(buf, 0, count);    // may throw IOException
             deliverStream.flush();                 // may throw IOException
+        } else {
+            if (records == null) {
+                records = new byte[maxRecordsSize];
+            }
 
-            if (SSLLogger.isOn && SSLLogger.isOn("packet")) {
-                SSLLogger.fine("Raw write",
-                        (new ByteArrayInputStream(buf, 0, count)));
+            if (recordsCount + count > records.length) {
+                deliverRecords();
             }
 
-            // reset the internal buffer
-            count = 0;
+            System.arraycopy(buf, 0, records, recordsCount, count);
+            recordsCount += count;
+        }
 
-            if (isFirstAppOutputRecord) {
-                isFirstAppOutputRecord = false;
-            }
+        // reset the internal buffer
+        count = 0;
 
-            offset += fragLen;
+        if (isFirstAppOutputRecord) {
+            isFirstAppOutputRecord = false;
+        }
+    }
+
+    /*
+     * Writes the encrypted application records to the socket.
+     */
+    private void deliverRecords() throws IOException {
+        if (recordsCount != 0) {
+            int length = recordsCount;
+            recordsCount = 0;
+
+            // deliver these messages
+            deliverStream.write(records, 0, length);   // may throw IOException
+            deliverStream.flush();                     // may throw IOException
         }
     }
 
@@ -106,7 +106,27 @@ interface SSLTransport {
         try {
             plaintexts =
                     context.inputRecord.decode(srcs, srcsOffset, srcsLength);
-        } catch (UnsupportedOperationException unsoe) {         // SSLv2Hello
+        } catch (UnsupportedOperationException |
+                BadPaddingException | IOException ex) {
+            decodeFailed(context, ex);
+        }
+
+        return deliver(context, plaintexts, dsts, dstsOffset, dstsLength);
+    }
+
+    /**
+     * Handles a failure to decode the inbound network data, usually by
+     * closing the connection with the appropriate fatal alert.
+     *
+     * @param context      the transportation context
+     * @param cause        the exception thrown by the input record
+     *
+     * @throws IOException if the connection was closed, or for an
+     *                      {@code EOFException}, which the caller handles
+     */
+    static void decodeFailed(TransportContext context,
+            Exception cause) throws IOException {
+        if (cause instanceof UnsupportedOperationException) {   // SSLv2Hello
             // Hack code to deliver SSLv2 error message for SSL/TLS connections.
             if (!context.sslContext.isDTLS()) {
                 context.outputRecord.encodeV2NoCipher();
@@ -115,8 +135,8 @@ interface SSLTransport {
                 }
             }
 
-            context.fatal(Alert.UNEXPECTED_MESSAGE, unsoe);
-        } catch (BadPaddingException bpe) {
+            context.fatal(Alert.UNEXPECTED_MESSAGE, cause);
+        } else if (cause instanceof BadPaddingException) {
             /*
              * The basic SSLv3 record protection involves (optional)
              * encryption for privacy, and an integrity check ensuring
@@ -126,16 +146,43 @@ interface SSLTransport {
             Alert alert = (context.handshakeContext != null) ?
                     Alert.HANDSHAKE_FAILURE :
                     Alert.BAD_RECORD_MAC;
-            context.fatal(alert, bpe);
-        } catch (SSLHandshakeException she) {
+            context.fatal(alert, cause);
+        } else if (cause instanceof SSLHandshakeException) {
             // may be record sequence number overflow
-            context.fatal(Alert.HANDSHAKE_FAILURE, she);
-        } catch (EOFException eofe) {
+            context.fatal(Alert.HANDSHAKE_FAILURE, cause);
+        } else if (cause instanceof EOFException) {
             // rethrow EOFException, the call will handle it if neede.
-            throw eofe;
-        } catch (IOException ioe) {
-            context.fatal(Alert.UNEXPECTED_MESSAGE, ioe);
+            throw (EOFException)cause;
+        } else if (cause instanceof IOException) {
+            context.fatal(Alert.UNEXPECTED_MESSAGE, cause);
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException)cause;
+        } else {
+            context.fatal(Alert.INTERNAL_ERROR, cause);
         }
+    }
+
+    /**
+     * Dispatches the decoded non-application records, and fills the
+     * destination application data buffers with the application data.
+     *
+     * @param context      the transportation context
+     * @param plaintexts   the records decoded from the network data, may
+     *                      be null if nothing was decoded
+     * @param dsts         an array of {@code ByteBuffers} to hold inbound
+     *                      application data
+     * @param dstsOffset   The offset within the {@code dsts} buffer array
+     *                      of the first buffer from which bytes are to be
+     *                      placed
+     * @param dstsLength   The maximum number of {@code dsts} buffers to be
+     *                      accessed
+     *
+     * @return             a {@code Plaintext} describing the last record
+     * @throws IOException if a problem was encountered while dispatching
+     *                      the records
+     */
+    static Plaintext deliver(TransportContext context, Plaintext[] plaintexts,
+        ByteBuffer[] dsts, int dstsOffset, int dstsLength) throws IOException {
 
         if (plaintexts == null || plaintexts.length == 0) {
             // Connection closed or record should be discarded.
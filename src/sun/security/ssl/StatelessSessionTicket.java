@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.security.ssl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.AccessController;
+import java.security.GeneralSecurityException;
+import java.security.PrivilegedExceptionAction;
+import java.security.SecureRandom;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import sun.security.action.GetIntegerAction;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * Stateless TLS 1.3 session tickets.
+ *
+ * When enabled, the server does not cache the sessions it issues tickets
+ * for.  Instead, the state needed to resume the session is encrypted and
+ * authenticated with AES-GCM, and the result is sent as the ticket of the
+ * NewSessionTicket message.  When the client offers the ticket as a PSK
+ * identity, the server decrypts it and rebuilds the session, so any server
+ * that knows the ticket keys can resume it.  The ticket also carries the
+ * requested server names and the peer certificate chain of the session, so
+ * a ticket is not resumed under other server names, and the resumed session
+ * authenticates the client as the original one did.
+ *
+ * The ticket keys are derived from a secret with HMAC-SHA256, one key per
+ * rotation period.  Servers sharing the secret file derive the same keys
+ * without any coordination; otherwise each server context uses a random
+ * secret of its own.  Only the current and the previous key are accepted,
+ * so a ticket lives for at most two rotation periods, and never longer
+ * than the session timeout of the server context.
+ *
+ * Unlike cached sessions, a stateless ticket can be presented more than
+ * once.  Resumption always requires a (EC)DHE key exchange, and early data
+ * is not supported, so a replayed ticket only saves the certificate
+ * authentication of the handshake.
+ *
+ * Related system properties:
+ *     jdk.tls.server.enableSessionTicketExtension  enable stateless tickets
+ *     jdk.tls.server.statelessKeyTimeout   key rotation period in seconds
+ *     jdk.tls.server.sessionTicketKeyFile  the shared secret, 32+ bytes
+ */
+final class StatelessSessionTicket {
+    static final boolean isEnabled = Utilities.getBooleanProperty(
+            "jdk.tls.server.enableSessionTicketExtension", false);
+
+    private static final int DEFAULT_KEY_TIMEOUT = 3600;    // seconds
+    private static final long keyTimeout;   // milliseconds
+    static {
+        int seconds = AccessController.doPrivileged(
+                new GetIntegerAction("jdk.tls.server.statelessKeyTimeout",
+                    DEFAULT_KEY_TIMEOUT));
+        keyTimeout = (seconds > 0 ? seconds : DEFAULT_KEY_TIMEOUT) * 1000L;
+    }
+
+    private static final int SECRET_LENGTH = 32;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+    private static final int HEADER_LENGTH = 8 + NONCE_LENGTH;
+    // the ticket is the opaque ticket<1..2^16-1> of NewSessionTicket
+    private static final int MAX_STATE_LENGTH =
+            0xFFFF - HEADER_LENGTH - TAG_LENGTH;
+    private static final byte[] KEY_LABEL =
+            "jdk.tls ticket key".getBytes(StandardCharsets.US_ASCII);
+
+    // Prevent instantiation of this class.
+    private StatelessSessionTicket() {
+        // blank
+    }
+
+    /**
+     * Encode the resumption state of the current session of the handshake
+     * into a stateless ticket.
+     *
+     * @return the ticket, or null if the state cannot be protected, in
+     *         which case the caller should fall back to the session cache
+     */
+    static byte[] encode(ServerHandshakeContext shc,
+            SecretKey psk, int ticketAgeAdd) throws IOException {
+        byte[] encodedPsk = psk.getEncoded();
+        if (encodedPsk == null) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake")) {
+                SSLLogger.fine("Unextractable PSK, use the session cache");
+            }
+            return null;
+        }
+
+        SSLSessionImpl session = shc.handshakeSession;
+        List<SNIServerName> serverNames = session.getRequestedServerNames();
+        X509Certificate[] peerCerts;
+        try {
+            peerCerts = session.getCertificateChain();
+        } catch (SSLPeerUnverifiedException pue) {
+            peerCerts = new X509Certificate[0];
+        }
+
+        int length = 17 + encodedPsk.length;
+        length += 1;
+        for (SNIServerName serverName : serverNames) {
+            length += 3 + serverName.getEncoded().length;
+        }
+        byte[][] encodedCerts = new byte[peerCerts.length][];
+        length += 1;
+        try {
+            for (int i = 0; i < peerCerts.length; i++) {
+                encodedCerts[i] = peerCerts[i].getEncoded();
+                length += 3 + encodedCerts[i].length;
+            }
+        } catch (CertificateException ce) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake")) {
+                SSLLogger.fine("Cannot encode the peer certificates, " +
+                        "use the session cache", ce);
+            }
+            return null;
+        }
+        if (length > MAX_STATE_LENGTH ||
+                serverNames.size() > 0xFF || peerCerts.length > 0xFF) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake")) {
+                SSLLogger.fine("Session state is too large for a " +
+                        "stateless ticket, use the session cache");
+            }
+            return null;
+        }
+
+        ByteBuffer m = ByteBuffer.allocate(length);
+        Record.putInt16(m, session.getProtocolVersion().id);
+        Record.putInt16(m, session.getSuite().id);
+        m.putLong(session.getCreationTime());
+        Record.putInt32(m, ticketAgeAdd);
+        Record.putBytes8(m, encodedPsk);
+        Record.putInt8(m, serverNames.size());
+        for (SNIServerName serverName : serverNames) {
+            Record.putInt8(m, serverName.getType());
+            Record.putBytes16(m, serverName.getEncoded());
+        }
+        Record.putInt8(m, encodedCerts.length);
+        for (byte[] encodedCert : encodedCerts) {
+            Record.putBytes24(m, encodedCert);
+        }
+
+        SSLSessionContextImpl sessionCache = (SSLSessionContextImpl)
+                shc.sslContext.engineGetServerSessionContext();
+        try {
+            return sessionCache.getTicketKeys().encrypt(
+                    m.array(), shc.sslContext.getSecureRandom());
+        } catch (GeneralSecurityException gse) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake")) {
+                SSLLogger.warning("Cannot encrypt session ticket", gse);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Decode a stateless ticket offered as a PSK identity.
+     *
+     * @return the resumable session, or null if the ticket was not issued
+     *         under a valid key, has expired, or does not match the
+     *         negotiated protocol or the requested server names
+     */
+    static SSLSessionImpl decode(ServerHandshakeContext shc,
+            byte[] ticket) throws IOException {
+        SSLSessionContextImpl sessionCache = (SSLSessionContextImpl)
+                shc.sslContext.engineGetServerSessionContext();
+        int timeout = sessionCache.getSessionTimeout();
+        byte[] state = sessionCache.getTicketKeys().decrypt(ticket,
+                timeout == 0 ? Long.MAX_VALUE : timeout * 1000L);
+        if (state == null) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake,verbose")) {
+                SSLLogger.finest("Not a valid stateless session ticket");
+            }
+            return null;
+        }
+
+        ByteBuffer m = ByteBuffer.wrap(state);
+        ProtocolVersion protocolVersion =
+                ProtocolVersion.valueOf(Record.getInt16(m));
+        CipherSuite suite = CipherSuite.valueOf(Record.getInt16(m));
+        long creationTime = m.getLong();
+        int ticketAgeAdd = Record.getInt32(m);
+        byte[] psk = Record.getBytes8(m);
+
+        if (protocolVersion != shc.negotiatedProtocol || suite == null) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake,verbose")) {
+                SSLLogger.finest(
+                    "Can't resume, incorrect protocol version or suite");
+            }
+            return null;
+        }
+
+        // The server names are consumed before the pre_shared_key
+        // extension, which is always the last one.
+        List<SNIServerName> serverNames = shc.getRequestedServerNames();
+        boolean sameNames = (Record.getInt8(m) == serverNames.size());
+        for (int i = 0; i < serverNames.size() && sameNames; i++) {
+            SNIServerName serverName = serverNames.get(i);
+            sameNames = (Record.getInt8(m) == serverName.getType()) &&
+                    Arrays.equals(Record.getBytes16(m),
+                            serverName.getEncoded());
+        }
+        if (!sameNames) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake,verbose")) {
+                SSLLogger.finest(
+                    "Can't resume, different server names requested");
+            }
+            return null;
+        }
+
+        X509Certificate[] peerCerts = null;
+        int numCerts = Record.getInt8(m);
+        if (numCerts != 0) {
+            peerCerts = new X509Certificate[numCerts];
+            try {
+                CertificateFactory cf = CertificateFactory.getInstance("X.509");
+                for (int i = 0; i < numCerts; i++) {
+                    peerCerts[i] = (X509Certificate)cf.generateCertificate(
+                            new ByteArrayInputStream(Record.getBytes24(m)));
+                }
+            } catch (CertificateException ce) {
+                if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake")) {
+                    SSLLogger.fine("Can't resume, " +
+                            "cannot decode the peer certificates", ce);
+                }
+                return null;
+            }
+        }
+
+        if (timeout != 0 && (creationTime + timeout * 1000L <=
+                System.currentTimeMillis())) {
+            if (SSLLogger.isOn && SSLLogger.isOn("ssl,handshake,verbose")) {
+                SSLLogger.finest("Can't resume, session has timed out");
+            }
+            return null;
+        }
+
+        SSLSessionImpl session = new SSLSessionImpl(shc, suite,
+                new SessionId(true, shc.sslContext.getSecureRandom()),
+                creationTime);
+        session.setPreSharedKey(new SecretKeySpec(psk, "TlsPreSharedKey"));
+        if (peerCerts != null) {
+            session.setPeerCertificates(peerCerts);
+        }
+        session.setPskIdentity(ticket);
+        session.setTicketAgeAdd(ticketAgeAdd);
+        session.setContext(sessionCache);
+
+        return session;
+    }
+
+    /**
+     * The rotating ticket keys of a server session context.
+     */
+    static final class TicketKeys {
+        private final SecretKey secret;
+        private final Map<Long, SecretKey> keys = new ConcurrentHashMap<>();
+
+        TicketKeys() {
+            byte[] bytes = readSecret();
+            if (bytes == null) {
+                bytes = new byte[SECRET_LENGTH];
+                new SecureRandom().nextBytes(bytes);
+            }
+            this.secret = new SecretKeySpec(bytes, "HmacSHA256");
+        }
+
+        private static byte[] readSecret() {
+            String file = GetPropertyAction.privilegedGetProperty(
+                    "jdk.tls.server.sessionTicketKeyFile");
+            if (file == null || file.isEmpty()) {
+                return null;
+            }
+
+            try {
+                byte[] bytes = AccessController.doPrivileged(
+                        (PrivilegedExceptionAction<byte[]>)
+                            () -> Files.readAllBytes(Paths.get(file)));
+                if (bytes.length >= SECRET_LENGTH) {
+                    return bytes;
+                }
+
+                if (SSLLogger.isOn && SSLLogger.isOn("ssl")) {
+                    SSLLogger.warning("The session ticket key file must " +
+                        "hold at least " + SECRET_LENGTH + " bytes, " +
+                        "use a random secret");
+                }
+            } catch (Exception e) {
+                if (SSLLogger.isOn && SSLLogger.isOn("ssl")) {
+                    SSLLogger.warning("Cannot read the session ticket " +
+                        "key file, use a random secret", e);
+                }
+            }
+
+            return null;
+        }
+
+        byte[] encrypt(byte[] state,
+                SecureRandom random) throws GeneralSecurityException {
+            long epoch = System.currentTimeMillis() / keyTimeout;
+            byte[] ticket =
+                    new byte[HEADER_LENGTH + state.length + TAG_LENGTH];
+            ByteBuffer.wrap(ticket).putLong(epoch);
+            byte[] nonce = new byte[NONCE_LENGTH];
+            random.nextBytes(nonce);
+            System.arraycopy(nonce, 0, ticket, 8, NONCE_LENGTH);
+
+            Cipher cipher = JsseJce.getCipher("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, getKey(epoch),
+                    new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+            cipher.updateAAD(ticket, 0, 8);
+            cipher.doFinal(state, 0, state.length, ticket, HEADER_LENGTH);
+
+            return ticket;
+        }
+
+        // Returns null if the ticket cannot be authenticated with the
+        // current or the previous key, or if the key is older than the
+        // last lifetime milliseconds.
+        byte[] decrypt(byte[] ticket, long lifetime) {
+            if (ticket.length <= HEADER_LENGTH + TAG_LENGTH) {
+                return null;
+            }
+
+            long now = System.currentTimeMillis();
+            long epoch = ByteBuffer.wrap(ticket).getLong();
+            long current = now / keyTimeout;
+            long oldest = Math.max(current - 1,
+                    Math.max(0, now - lifetime) / keyTimeout);
+            if (epoch < oldest || epoch > current) {
+                return null;
+            }
+
+            try {
+                Cipher cipher = JsseJce.getCipher("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, getKey(epoch),
+                        new GCMParameterSpec(TAG_LENGTH * 8,
+                                ticket, 8, NONCE_LENGTH));
+                cipher.updateAAD(ticket, 0, 8);
+                byte[] state = cipher.doFinal(ticket, HEADER_LENGTH,
+                        ticket.length - HEADER_LENGTH);
+                return state;
+            } catch (GeneralSecurityException gse) {
+                return null;
+            }
+        }
+
+        // Only the keys of the current and the previous epoch are cached.
+        private SecretKey getKey(long epoch) throws GeneralSecurityException {
+            SecretKey key = keys.get(epoch);
+            if (key == null) {
+                Mac mac = JsseJce.getMac("HmacSHA256");
+                mac.init(secret);
+                mac.update(KEY_LABEL);
+                mac.update(ByteBuffer.allocate(8).putLong(epoch).array());
+                key = new SecretKeySpec(mac.doFinal(), "AES");
+
+                long previous = System.currentTimeMillis() / keyTimeout - 1;
+                if (epoch >= previous && keys.putIfAbsent(epoch, key) == null) {
+                    keys.keySet().removeIf(e -> e < previous);
+                }
+            }
+
+            return key;
+        }
+    }
+}
@@ -44,6 +44,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.X509ExtendedKeyManager;
 import javax.security.auth.x500.X500Principal;
@@ -136,13 +138,19 @@ final class SunX509KeyManagerImpl extends X509ExtendedKeyManager {
             return;
         }
 
+        List<String> keyAliases = new ArrayList<String>();
         for (Enumeration<String> aliases = ks.aliases();
                                         aliases.hasMoreElements(); ) {
             String alias = aliases.nextElement();
-            if (!ks.isKeyEntry(alias)) {
-                continue;
+            if (ks.isKeyEntry(alias)) {
+                keyAliases.add(alias);
             }
-            Key key = ks.getKey(alias, password);
+        }
+
+        Key[] keys = getKeys(ks, keyAliases, password);
+        for (int i = 0; i < keys.length; i++) {
+            String alias = keyAliases.get(i);
+            Key key = keys[i];
             if (key instanceof PrivateKey == false) {
                 continue;
             }
@@ -166,6 +174,70 @@ final class SunX509KeyManagerImpl extends X509ExtendedKeyManager {
         }
     }
 
+    /*
+     * Recovers the keys of the aliases. Recovering a password protected
+     * key runs the iterations of its key derivation function, which takes
+     * most of the time for a keystore with many keys, so the keys are
+     * recovered in parallel if the keystore can be used concurrently.
+     */
+    private static Key[] getKeys(KeyStore ks, List<String> aliases,
+            char[] password) throws KeyStoreException,
+            NoSuchAlgorithmException, UnrecoverableKeyException {
+        Key[] keys = new Key[aliases.size()];
+        if (keys.length < 2 || !isConcurrent(ks) ||
+                ForkJoinPool.getCommonPoolParallelism() < 2) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = ks.getKey(aliases.get(i), password);
+            }
+            return keys;
+        }
+
+        Exception[] failures = new Exception[keys.length];
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            int index = i;
+            tasks[i] = ForkJoinTask.adapt(() -> {
+                try {
+                    keys[index] = ks.getKey(aliases.get(index), password);
+                } catch (KeyStoreException | NoSuchAlgorithmException |
+                        UnrecoverableKeyException e) {
+                    failures[index] = e;
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        // throw what the first failing alias threw, as if done in order
+        for (Exception e : failures) {
+            if (e instanceof KeyStoreException) {
+                throw (KeyStoreException)e;
+            } else if (e instanceof NoSuchAlgorithmException) {
+                throw (NoSuchAlgorithmException)e;
+            } else if (e instanceof UnrecoverableKeyException) {
+                throw (UnrecoverableKeyException)e;
+            }
+        }
+        return keys;
+    }
+
+    /*
+     * Whether getKey() of the keystore may be called from several threads
+     * at once. True for the JDK keystore types, which recover every key
+     * with objects of their own.
+     */
+    private static boolean isConcurrent(KeyStore ks) {
+        String provider = ks.getProvider().getName();
+        String type = ks.getType();
+        if (provider.equals("SUN")) {
+            return type.equalsIgnoreCase("PKCS12") ||
+                    type.equalsIgnoreCase("JKS") ||
+                    type.equalsIgnoreCase("CaseExactJKS");
+        } else if (provider.equals("SunJCE")) {
+            return type.equalsIgnoreCase("JCEKS");
+        }
+        return false;
+    }
+
     /*
      * Returns the certificate chain associated with the given alias.
      *
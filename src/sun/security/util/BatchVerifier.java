@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.security.util;
+
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProviderException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Verifies many independent signatures of one algorithm, e.g. the
+ * certificate and CertificateVerify signatures of a burst of TLS
+ * handshakes, using the fork/join common pool.
+ *
+ * <p>The batch is split into ranges of consecutive entries that are
+ * verified in parallel. Each range uses its own {@link Signature}
+ * object and only re-initializes it when the key differs from the key
+ * of the previous entry, so batches with entries for the same key next
+ * to each other (e.g. everything signed by one intermediate CA) skip
+ * most of the key setup.
+ *
+ * <p>Each signature is verified on its own; this is not a combined batch
+ * verification equation, so a batch gives the same results as verifying
+ * every entry with {@code Signature.verify}.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ * Applications use this class through
+ * {@link Signature#verifyBatch Signature.verifyBatch}.
+ *
+ * @since 11
+ */
+public final class BatchVerifier {
+
+    // the number of entries below which a range is not worth splitting
+    private static final int MIN_RANGE = 16;
+
+    private final String algorithm;
+
+    private BatchVerifier(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Returns a BatchVerifier for the specified signature algorithm.
+     *
+     * @param algorithm the standard name of the signature algorithm,
+     *        e.g. SHA256withECDSA
+     * @return a BatchVerifier for the algorithm
+     * @throws NoSuchAlgorithmException if no provider supports the
+     *         algorithm
+     */
+    public static BatchVerifier getInstance(String algorithm)
+            throws NoSuchAlgorithmException {
+        Objects.requireNonNull(algorithm, "null algorithm name");
+        Signature.getInstance(algorithm);
+        return new BatchVerifier(algorithm);
+    }
+
+    /**
+     * Returns the name of the signature algorithm.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Verifies the signature of each entry.
+     *
+     * @param keys the public key of each entry
+     * @param data the signed data of each entry
+     * @param signatures the signature of each entry
+     * @return whether each signature is valid. An entry whose key is
+     *         inappropriate or whose signature is improperly encoded is
+     *         not valid.
+     * @throws IllegalArgumentException if the arrays have different
+     *         lengths
+     * @throws NullPointerException if any of the arrays or their
+     *         elements is null
+     * @throws ProviderException if a Signature object cannot be created
+     */
+    public boolean[] verify(PublicKey[] keys, byte[][] data,
+            byte[][] signatures) {
+        if (keys.length != data.length || keys.length != signatures.length) {
+            throw new IllegalArgumentException("lengths do not match");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            Objects.requireNonNull(keys[i], "null key");
+            Objects.requireNonNull(data[i], "null data");
+            Objects.requireNonNull(signatures[i], "null signature");
+        }
+        boolean[] results = new boolean[keys.length];
+        Range all = new Range(keys, data, signatures, results,
+                0, keys.length);
+        if (keys.length < 2 * MIN_RANGE ||
+                ForkJoinPool.getCommonPoolParallelism() < 2) {
+            all.verifyAll();
+        } else {
+            ForkJoinPool.commonPool().invoke(all);
+        }
+        return results;
+    }
+
+    private final class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PublicKey[] keys;
+        private final byte[][] data;
+        private final byte[][] signatures;
+        private final boolean[] results;
+        private final int from;
+        private final int to;
+
+        Range(PublicKey[] keys, byte[][] data, byte[][] signatures,
+                boolean[] results, int from, int to) {
+            this.keys = keys;
+            this.data = data;
+            this.signatures = signatures;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from >= 2 * MIN_RANGE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(keys, data, signatures, results,
+                                from, mid),
+                          new Range(keys, data, signatures, results,
+                                mid, to));
+            } else {
+                verifyAll();
+            }
+        }
+
+        // verifies the entries of this range in the calling thread
+        void verifyAll() {
+            Signature sig;
+            try {
+                sig = Signature.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new ProviderException(e);
+            }
+            PublicKey current = null;
+            for (int i = from; i < to; i++) {
+                try {
+                    if (keys[i] != current) {
+                        current = null;
+                        sig.initVerify(keys[i]);
+                        current = keys[i];
+                    }
+                    sig.update(data[i]);
+                    results[i] = sig.verify(signatures[i]);
+                } catch (InvalidKeyException | SignatureException e) {
+                    // the Signature may be left in any state
+                    current = null;
+                    results[i] = false;
+                }
+            }
+        }
+    }
+}
@@ -132,6 +132,17 @@ public abstract class Cache<K,V> {
         return new MemoryCache<>(true, size, timeout);
     }
 
+    /**
+     * Return a new memory cache with the specified maximum size, the
+     * specified maximum lifetime (in seconds), with the values held
+     * by SoftReferences.  The cache is split into independently locked
+     * shards so that threads using different keys rarely contend.
+     */
+    public static <K,V> Cache<K,V> newShardedSoftMemoryCache(
+            int size, int timeout) {
+        return new ShardedMemoryCache<>(true, size, timeout);
+    }
+
     /**
      * Return a new memory cache with the specified maximum size, unlimited
      * lifetime for entries, with the values held by standard references.
@@ -546,3 +557,97 @@ class MemoryCache<K,V> extends Cache<K,V> {
     }
 
 }
+
+/**
+ * A memory cache made of several MemoryCache shards.  A key always maps
+ * to the same shard, and each shard holds an even part of the maximum
+ * size and does its own LRU and lifetime eviction under its own lock.
+ * The total number of entries may therefore exceed the maximum size by
+ * less than the number of shards; small caches use fewer shards to keep
+ * that error low.
+ */
+class ShardedMemoryCache<K,V> extends Cache<K,V> {
+
+    // the minimum number of entries per shard of a bounded cache
+    private static final int MIN_SHARD_SIZE = 16;
+
+    private static final int MAX_SHARDS = 64;
+
+    private final MemoryCache<K,V>[] shards;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    public ShardedMemoryCache(boolean soft, int maxSize, int lifetime) {
+        int count = MAX_SHARDS;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        while (count > 1 && (count >= cpus * 4 ||
+                (maxSize > 0 && maxSize / count < MIN_SHARD_SIZE))) {
+            count >>>= 1;
+        }
+
+        this.shards = (MemoryCache<K,V>[])new MemoryCache<?,?>[count];
+        this.mask = count - 1;
+        int shardSize = shardSize(maxSize);
+        for (int i = 0; i < count; i++) {
+            shards[i] = new MemoryCache<>(soft, shardSize, lifetime);
+        }
+    }
+
+    private int shardSize(int maxSize) {
+        return maxSize > 0 ? (maxSize + mask) / shards.length : 0;
+    }
+
+    private MemoryCache<K,V> shardFor(Object key) {
+        int h = key.hashCode();
+        return shards[(h ^ (h >>> 16)) & mask];
+    }
+
+    public int size() {
+        int size = 0;
+        for (MemoryCache<K,V> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (MemoryCache<K,V> shard : shards) {
+            shard.clear();
+        }
+    }
+
+    public void put(K key, V value) {
+        shardFor(key).put(key, value);
+    }
+
+    public V get(Object key) {
+        return shardFor(key).get(key);
+    }
+
+    public void remove(Object key) {
+        shardFor(key).remove(key);
+    }
+
+    public void setCapacity(int size) {
+        int shardSize = shardSize(size);
+        for (MemoryCache<K,V> shard : shards) {
+            shard.setCapacity(shardSize);
+        }
+    }
+
+    public void setTimeout(int timeout) {
+        for (MemoryCache<K,V> shard : shards) {
+            shard.setTimeout(timeout);
+        }
+    }
+
+    // it is a heavyweight method, visiting a snapshot of all shards.
+    public void accept(CacheVisitor<K,V> visitor) {
+        Map<K,V> cached = new HashMap<>();
+        for (MemoryCache<K,V> shard : shards) {
+            shard.accept(cached::putAll);
+        }
+
+        visitor.visit(cached);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package sun.security.util;
+
+/**
+ * Special interface for MessageDigestSpi implementations whose state can
+ * be set to a previously saved state without allocating, e.g. to restart
+ * an HMAC from its precomputed inner and outer pad states.
+ */
+public interface RestorableDigest {
+
+    /**
+     * Sets the state of this digest to the state of {@code saved}, a clone
+     * of this digest or of a digest of the same algorithm and provider.
+     * {@code saved} itself is not modified.
+     *
+     * @param saved the digest whose state is copied
+     * @return true if the state was copied, false if this digest is left
+     *         unchanged because the state of {@code saved} cannot be copied
+     */
+    boolean restoreFrom(Object saved);
+}
@@ -0,0 +1,76 @@
+package test.kang.asynchandler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.AsyncHandler;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/*
+ * 多线程写日志的耗时
+ *
+ * 同步的FileHandler在每条日志上都要加锁、格式化、写文件并刷新；
+ * AsyncHandler只把日志记录放入无锁环形缓冲区，由后台写线程成批格式化后一次性写入并刷新。
+ * 缓冲区满时，按溢出策略阻塞、丢弃或采样。
+ */
+public class AsyncHandlerTest01 {
+    private static final int THREADS = 8;
+    private static final int RECORDS = 50_000;   // 每个线程写入的日志条数
+    
+    public static void main(String[] args) throws Exception {
+        for(int round = 0; round < 3; round++) {
+            System.out.println("第" + (round + 1) + "轮");
+            
+            Path file = Files.createTempFile("sync", ".log");
+            FileHandler sync = newFileHandler(file);
+            run(sync, "同步FileHandler");
+            sync.close();
+            Files.delete(file);
+            
+            for(AsyncHandler.OverflowPolicy policy : AsyncHandler.OverflowPolicy.values()) {
+                file = Files.createTempFile("async", ".log");
+                AsyncHandler async = new AsyncHandler(newFileHandler(file), 8192, policy);
+                run(async, "AsyncHandler(" + policy + ")");
+                async.close();
+                System.out.println("    写入：" + async.getWrittenCount() + "，丢弃：" + async.getDroppedCount() + "，批次：" + async.getBatchCount());
+                Files.delete(file);
+            }
+        }
+    }
+    
+    private static FileHandler newFileHandler(Path file) throws IOException {
+        FileHandler handler = new FileHandler(file.toString());
+        handler.setFormatter(new SimpleFormatter());
+        return handler;
+    }
+    
+    // 多个线程同时写日志，flush返回时所有日志均已写入文件
+    private static void run(Handler handler, String name) throws InterruptedException {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        
+        CountDownLatch latch = new CountDownLatch(THREADS);
+        long start = System.nanoTime();
+        for(int t = 0; t < THREADS; t++) {
+            int id = t;
+            new Thread(() -> {
+                for(int i = 0; i < RECORDS; i++) {
+                    logger.info("worker-" + id + " request " + i + " served");
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        long enqueued = System.nanoTime();
+        handler.flush();
+        long end = System.nanoTime();
+        
+        logger.removeHandler(handler);
+        System.out.printf("  %-26s 调用方耗时：%5d ms，全部写入：%5d ms%n", name, (enqueued - start) / 1_000_000, (end - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,94 @@
+package test.kang.bufferedreader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/*
+ * 逐行读取大型日志文件的耗时
+ *
+ * 对UTF-8/ISO-8859-1编码的纯ASCII日志，BufferedReader#readLine会直接从InputStreamReader的字节缓冲区中扫描出一行，
+ * 并构造Latin-1编码的紧凑字符串，不经过解码器和char[]缓冲区。
+ * 作为对比，日志中混入非ASCII字符时，会退回到解码器路径。
+ * 快速路径只用于InputStreamReader与FileReader本身，子类重写的read()（过滤、计数等）不会被绕过。
+ */
+public class BufferedReaderTest01 {
+    private static final int LINES = 2_000_000;
+    
+    public static void main(String[] args) throws IOException {
+        Path ascii = createLog("2019-01-01 12:00:00,000 INFO  [main] request served in 12 ms, status=200");
+        Path mixed = createLog("2019-01-01 12:00:00,000 INFO  [main] 请求处理完毕，耗时12毫秒，状态码200");
+        
+        checkSubclass(ascii);
+        
+        for(int round = 0; round < 3; round++) {
+            System.out.println("第" + (round + 1) + "轮");
+            readLines(ascii, StandardCharsets.UTF_8, "ASCII日志, UTF-8");
+            readLines(ascii, StandardCharsets.ISO_8859_1, "ASCII日志, ISO-8859-1");
+            readLines(mixed, StandardCharsets.UTF_8, "中文日志, UTF-8");
+        }
+        
+        Files.delete(ascii);
+        Files.delete(mixed);
+    }
+    
+    // 生成日志文件，每行内容相同，只有行号不同
+    private static Path createLog(String text) throws IOException {
+        Path file = Files.createTempFile("log", ".txt");
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < LINES; i++) {
+                writer.write(text);
+                writer.write(" #" + i);
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+    
+    // 重写了read()的子类：把字符转为大写
+    static class UpperCaseReader extends InputStreamReader {
+        UpperCaseReader(InputStream in) {
+            super(in, StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int n = super.read(cbuf, off, len);
+            for(int i = off; i < off + n; i++) {
+                cbuf[i] = Character.toUpperCase(cbuf[i]);
+            }
+            return n;
+        }
+    }
+    
+    private static void checkSubclass(Path file) throws IOException {
+        try(BufferedReader reader = new BufferedReader(new UpperCaseReader(Files.newInputStream(file)))) {
+            String line = reader.readLine();
+            if(!line.equals(line.toUpperCase())) {
+                throw new AssertionError("绕过了子类重写的read()：" + line);
+            }
+            System.out.println("子类重写的read()生效：" + line);
+        }
+    }
+    
+    private static void readLines(Path file, Charset cs, String desc) throws IOException {
+        long start = System.nanoTime();
+        long chars = 0;
+        int count = 0;
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file), cs))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                chars += line.length();
+                count++;
+            }
+        }
+        long cost = System.nanoTime() - start;
+        System.out.println(desc + "：读取" + count + "行，" + chars + "个字符，耗时 " + cost / 1_000_000 + " ms");
+    }
+}
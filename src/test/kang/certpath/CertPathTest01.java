@@ -0,0 +1,197 @@
+package test.kang.certpath;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.net.InetAddress;
+import java.security.KeyStore;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+/*
+ * 多线程解析证书、校验证书链以及双向认证（mTLS）握手的吞吐量
+ *
+ * X509Factory的证书与CRL缓存（按编码的字节数组查找）分为多个独立加锁的分片，
+ * 解析证书时不再全部竞争同一个类锁；
+ * PKIX校验器会缓存成功的校验结果（证书链、信任锚与参数相同，且不检查吊销状态时），
+ * 再次校验同一条证书链时跳过签名验证等标准检查，只重新执行调用者提供的检查器。
+ * 缓存结果的有效期不超过链中证书的有效期。
+ *
+ * 相关系统属性：
+ * jdk.certpath.resultCacheSize - 缓存的校验结果数量，默认为1024，0表示不缓存
+ * jdk.certpath.resultCacheLifetime - 校验结果的缓存时间（秒），默认为60
+ *
+ * 先用keytool生成一个CA以及由它签发的证书：
+ * keytool -genkeypair -alias ca -keyalg EC -dname CN=TestCA -ext bc:c -storetype PKCS12 -keystore ca.p12 -storepass changeit
+ * keytool -exportcert -rfc -alias ca -keystore ca.p12 -storepass changeit -file ca.pem
+ * keytool -genkeypair -alias test -keyalg EC -dname CN=localhost -storetype PKCS12 -keystore test.p12 -storepass changeit
+ * keytool -importcert -noprompt -alias ca -file ca.pem -keystore test.p12 -storepass changeit
+ * keytool -certreq -alias test -keystore test.p12 -storepass changeit -file test.csr
+ * keytool -gencert -rfc -alias ca -keystore ca.p12 -storepass changeit -infile test.csr -outfile test.pem -ext san=dns:localhost
+ * keytool -importcert -alias test -file test.pem -keystore test.p12 -storepass changeit
+ *
+ * 用法：
+ * java -Djdk.certpath.resultCacheSize=0 test.kang.certpath.CertPathTest01 test.p12 ca.p12 changeit [线程数] [每个线程的握手次数]
+ */
+public class CertPathTest01 {
+
+    public static void main(String[] args) throws Exception {
+        String keystore = args.length > 0 ? args[0] : "test.p12";
+        String truststore = args.length > 1 ? args[1] : "ca.p12";
+        char[] password = (args.length > 2 ? args[2] : "changeit").toCharArray();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+        int handshakes = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+
+        KeyStore ks = load(keystore, password);
+        KeyStore ts = load(truststore, password);
+        System.out.println("jdk.certpath.resultCacheSize=" + System.getProperty("jdk.certpath.resultCacheSize", "1024"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for(int round = 0; round < 3; round++) {
+            System.out.println("第" + (round + 1) + "轮（" + threads + "个线程）：");
+            parse(executor, threads, ks);
+            validate(executor, threads, ks, ts);
+            handshake(executor, threads, handshakes, ks, ts, password);
+        }
+        executor.shutdown();
+    }
+
+    private static KeyStore load(String file, char[] password) throws Exception {
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        try(FileInputStream in = new FileInputStream(file)) {
+            ks.load(in, password);
+        }
+        return ks;
+    }
+
+    // 每个线程反复解析证书链中的证书（与握手时解析对端证书相同）
+    private static void parse(ExecutorService executor, int threads, KeyStore ks) throws Exception {
+        Certificate[] chain = ks.getCertificateChain("test");
+        List<byte[]> encodings = new ArrayList<>();
+        for(Certificate cert : chain) {
+            encodings.add(cert.getEncoded());
+        }
+        int count = 100_000;
+
+        long elapsed = run(executor, threads, () -> {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            for(int i = 0; i < count; i++) {
+                byte[] encoding = encodings.get(i % encodings.size());
+                Certificate cert = factory.generateCertificate(new ByteArrayInputStream(encoding));
+                if(!Arrays.equals(cert.getEncoded(), encoding)) {
+                    throw new AssertionError("证书不一致");
+                }
+            }
+            return null;
+        });
+        System.out.printf("  解析证书%d次：%d ms，%.0f 次/s%n", threads * count, elapsed / 1_000_000, threads * count * 1e9 / elapsed);
+    }
+
+    // 每个线程反复校验同一条证书链
+    private static void validate(ExecutorService executor, int threads, KeyStore ks, KeyStore ts) throws Exception {
+        Certificate[] chain = ks.getCertificateChain("test");
+        CertPath path = CertificateFactory.getInstance("X.509").generateCertPath(Arrays.asList(chain[0]));
+        // 信任库中的CA证书以密钥条目的形式保存，这里直接作为信任锚
+        Set<TrustAnchor> anchors = new HashSet<>();
+        for(String alias : Collections.list(ts.aliases())) {
+            anchors.add(new TrustAnchor((X509Certificate) ts.getCertificate(alias), null));
+        }
+        PKIXParameters params = new PKIXParameters(anchors);
+        params.setRevocationEnabled(false);
+        int count = 2_000;
+
+        long elapsed = run(executor, threads, () -> {
+            CertPathValidator validator = CertPathValidator.getInstance("PKIX");
+            for(int i = 0; i < count; i++) {
+                validator.validate(path, params);
+            }
+            return null;
+        });
+        System.out.printf("  校验证书链%d次：%d ms，%.0f 次/s%n", threads * count, elapsed / 1_000_000, threads * count * 1e9 / elapsed);
+    }
+
+    // 许多客户端同时与服务端进行双向认证的完整握手（不恢复会话）
+    private static void handshake(ExecutorService executor, int threads, int handshakes, KeyStore ks, KeyStore ts, char[] password) throws Exception {
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, password);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("PKIX");
+        tmf.init(ts);
+        SSLContext context = SSLContext.getInstance("TLSv1.3");
+        context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+        SSLServerSocket server = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        server.setNeedClientAuth(true);
+        AtomicInteger failures = new AtomicInteger();
+        // 服务端：每个连接由一个线程处理，握手后返回一个字节
+        Thread acceptor = new Thread(() -> {
+            ExecutorService workers = Executors.newCachedThreadPool();
+            try {
+                for(; ; ) {
+                    SSLSocket socket = (SSLSocket) server.accept();
+                    workers.execute(() -> {
+                        try(SSLSocket s = socket) {
+                            s.getOutputStream().write(s.getInputStream().read());
+                            s.getSession().invalidate();
+                        } catch(Exception e) {
+                            failures.incrementAndGet();
+                        }
+                    });
+                }
+            } catch(Exception e) {
+                // 服务端已关闭
+            } finally {
+                workers.shutdown();
+            }
+        });
+        acceptor.start();
+
+        long elapsed = run(executor, threads, () -> {
+            for(int i = 0; i < handshakes; i++) {
+                try(SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+                    socket.getOutputStream().write(1);
+                    if(socket.getInputStream().read() != 1) {
+                        throw new AssertionError("响应不正确");
+                    }
+                    // 使会话失效，下一次连接进行完整握手
+                    socket.getSession().invalidate();
+                }
+            }
+            return null;
+        });
+        server.close();
+        acceptor.join();
+        System.out.printf("  双向认证握手%d次：%d ms，%.0f 次/s，服务端失败%d次%n", threads * handshakes, elapsed / 1_000_000, threads * handshakes * 1e9 / elapsed, failures.get());
+    }
+
+    private static long run(ExecutorService executor, int threads, Callable<Void> task) throws Exception {
+        List<Future<Void>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for(int i = 0; i < threads; i++) {
+            futures.add(executor.submit(task));
+        }
+        for(Future<Void> future : futures) {
+            future.get();
+        }
+        return System.nanoTime() - start;
+    }
+}
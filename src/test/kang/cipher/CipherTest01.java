@@ -0,0 +1,115 @@
+package test.kang.cipher;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/*
+ * 大缓冲区的AES-GCM与ChaCha20-Poly1305并行分块加解密
+ *
+ * 输入达到阈值时，CTR模式的密钥流按块分段，在ForkJoinPool的公共线程池中并行生成并异或；
+ * GHASH与Poly1305对每段从零开始并行计算，再按顺序用H^k（或r^k，k为段中的块数）合并，
+ * 结果与串行计算完全相同。
+ *
+ * 这里用每次update()只传入4KB（低于阈值，走串行路径）的结果作为参照，
+ * 检查一次性加密大缓冲区得到的密文与认证标签一致，解密时标签能通过校验。
+ *
+ * 相关系统属性：
+ * jdk.crypto.parallelThreshold - 启用并行的最小输入长度（字节），默认为0表示不启用，至少为128KB
+ * java.util.concurrent.ForkJoinPool.common.parallelism - 公共线程池的线程数
+ *
+ * 用法：
+ * java -Djdk.crypto.parallelThreshold=262144 -Djava.util.concurrent.ForkJoinPool.common.parallelism=4 test.kang.cipher.CipherTest01
+ */
+public class CipherTest01 {
+
+    private static final int[] SIZES = {16 << 10, 256 << 10, 1 << 20, 4 << 20, 16 << 20, 64 << 20};
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("jdk.crypto.parallelThreshold=" + System.getProperty("jdk.crypto.parallelThreshold", "0")
+                           + "，公共线程池线程数：" + ForkJoinPool.getCommonPoolParallelism());
+
+        Random random = new Random(42);
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        byte[] data = new byte[SIZES[SIZES.length - 1] + 100];
+        random.nextBytes(data);
+
+        for(String algorithm : new String[]{"AES/GCM/NoPadding", "ChaCha20-Poly1305"}) {
+            // 长度不是16或64的整数倍时，最后不完整的块走串行路径
+            for(int size : new int[]{0, 1000, 300_000, 1 << 20, (4 << 20) + 77}) {
+                check(algorithm, key, Arrays.copyOf(data, size));
+            }
+            System.out.println(algorithm + "：并行与串行的结果一致");
+        }
+
+        for(String algorithm : new String[]{"AES/GCM/NoPadding", "ChaCha20-Poly1305"}) {
+            System.out.println(algorithm + "：");
+            for(int size : SIZES) {
+                benchmark(algorithm, key, Arrays.copyOf(data, size));
+            }
+        }
+    }
+
+    private static Cipher init(String algorithm, int mode, byte[] key, byte[] nonce) throws Exception {
+        Cipher cipher = Cipher.getInstance(algorithm);
+        if(algorithm.startsWith("AES")) {
+            cipher.init(mode, new SecretKeySpec(key, "AES"), new GCMParameterSpec(128, nonce));
+        } else {
+            cipher.init(mode, new SecretKeySpec(key, "ChaCha20"), new IvParameterSpec(nonce));
+        }
+        return cipher;
+    }
+
+    private static void check(String algorithm, byte[] key, byte[] plaintext) throws Exception {
+        byte[] nonce = new byte[12];
+        new Random(plaintext.length).nextBytes(nonce);
+
+        // 一次性加密整个缓冲区（达到阈值时并行）
+        Cipher cipher = init(algorithm, Cipher.ENCRYPT_MODE, key, nonce);
+        cipher.updateAAD("header".getBytes());
+        byte[] ciphertext = cipher.doFinal(plaintext);
+
+        // 每次只传入4KB，作为串行计算的参照
+        cipher = init(algorithm, Cipher.ENCRYPT_MODE, key, nonce);
+        cipher.updateAAD("header".getBytes());
+        byte[] expected = new byte[cipher.getOutputSize(plaintext.length)];
+        int length = 0;
+        for(int offset = 0; offset < plaintext.length; offset += 4096) {
+            length += cipher.update(plaintext, offset, Math.min(4096, plaintext.length - offset), expected, length);
+        }
+        cipher.doFinal(expected, length);
+        if(!Arrays.equals(ciphertext, expected)) {
+            throw new AssertionError(algorithm + "：" + plaintext.length + "字节的密文或标签与串行计算的不一致");
+        }
+
+        cipher = init(algorithm, Cipher.DECRYPT_MODE, key, nonce);
+        cipher.updateAAD("header".getBytes());
+        if(!Arrays.equals(cipher.doFinal(ciphertext), plaintext)) {
+            throw new AssertionError(algorithm + "：" + plaintext.length + "字节的解密结果不正确");
+        }
+    }
+
+    // 每种大小的缓冲区加密约256MB数据的吞吐量（每次使用新的nonce）
+    private static void benchmark(String algorithm, byte[] key, byte[] plaintext) throws Exception {
+        byte[] nonce = new byte[12];
+        byte[] out = new byte[plaintext.length + 16];
+        int count = Math.max(4, (256 << 20) / plaintext.length);
+        long best = Long.MAX_VALUE;
+        for(int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < count; i++) {
+                nonce[0] = (byte) i;
+                nonce[1] = (byte) (i >> 8);
+                nonce[2] = (byte) round;
+                init(algorithm, Cipher.ENCRYPT_MODE, key, nonce).doFinal(plaintext, 0, plaintext.length, out, 0);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %8d KB：%.1f MB/s%n", plaintext.length >> 10, (double) count * plaintext.length / (1 << 20) * 1e9 / best);
+    }
+}
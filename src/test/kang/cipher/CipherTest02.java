@@ -0,0 +1,224 @@
+package test.kang.cipher;
+
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.Security;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.CryptoPool;
+import javax.crypto.Mac;
+import javax.crypto.MacSpi;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/*
+ * Cipher/Mac/MessageDigest的getInstance()开销与对象池（CryptoPool）
+ *
+ * Cipher与Mac的getInstance()会把查找结果（变换或算法 -> 第一个可用的Provider服务）缓存起来，
+ * 提供者列表改变（Security.addProvider()等）或者任意Provider的服务改变时清空缓存，不再引用被移除的Provider；
+ * CryptoPool复用Cipher/Mac/MessageDigest对象，归还时重置：Cipher与Mac用创建池时的密钥重新初始化
+ * （Cipher初始化为加密模式，每次由Provider生成新的IV），无法重新初始化的对象不再放回池中。
+ *
+ * 用法（与未修改的JDK对比getInstance()的开销）：
+ * java test.kang.cipher.CipherTest02 [每轮的次数]
+ */
+public class CipherTest02 {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        checkInvalidation();
+        checkPool();
+
+        byte[] key = new byte[32];
+        new Random(42).nextBytes(key);
+        SecretKeySpec aesKey = new SecretKeySpec(key, "AES");
+        SecretKeySpec macKey = new SecretKeySpec(key, "HmacSHA256");
+        byte[] message = new byte[256];
+
+        for(int round = 0; round < 3; round++) {
+            System.out.println("第" + (round + 1) + "轮：");
+            measure("Cipher.getInstance(\"AES/GCM/NoPadding\")", count, () -> Cipher.getInstance("AES/GCM/NoPadding"));
+            measure("Mac.getInstance(\"HmacSHA256\")", count, () -> Mac.getInstance("HmacSHA256"));
+            measure("MessageDigest.getInstance(\"SHA-256\")", count, () -> MessageDigest.getInstance("SHA-256"));
+
+            // 模拟网关处理一个请求：每次创建新对象，或者从池中借用
+            measure("每次创建：AES-GCM加密256字节", count / 10, () -> {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, aesKey);
+                return cipher.doFinal(message);
+            });
+            CryptoPool<Cipher> ciphers = CryptoPool.ofCipher("AES/GCM/NoPadding", aesKey, 16);
+            measure("对象池：AES-GCM加密256字节", count / 10, () -> {
+                Cipher cipher = ciphers.acquire();
+                try {
+                    // 借出的Cipher已用池的密钥和随机IV初始化
+                    return cipher.doFinal(message);
+                } finally {
+                    ciphers.release(cipher);
+                }
+            });
+            measure("每次创建：HmacSHA256计算256字节", count / 10, () -> {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(macKey);
+                return mac.doFinal(message);
+            });
+            CryptoPool<Mac> macs = CryptoPool.ofMac("HmacSHA256", macKey, 16);
+            measure("对象池：HmacSHA256计算256字节", count / 10, () -> {
+                Mac mac = macs.acquire();
+                try {
+                    return mac.doFinal(message);
+                } finally {
+                    macs.release(mac);
+                }
+            });
+        }
+    }
+
+    private interface Task {
+        Object run() throws Exception;
+    }
+
+    // 保存结果，避免被优化掉
+    private static volatile Object sink;
+
+    private static void measure(String name, int count, Task task) throws Exception {
+        long start = System.nanoTime();
+        for(int i = 0; i < count; i++) {
+            sink = task.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("  %-45s %7.0f ns/次%n", name, (double) elapsed / count);
+    }
+
+    // 提供者列表改变、Provider的服务改变后，getInstance()应返回新的服务
+    private static void checkInvalidation() throws Exception {
+        String expected = Mac.getInstance("HmacSHA256").getProvider().getName();
+
+        Provider provider = new Provider("TestMac", "1.0", "测试用的MAC") {
+        };
+        Security.insertProviderAt(provider, 1);
+        check(Mac.getInstance("HmacSHA256").getProvider().getName().equals(expected), "未注册服务的Provider不应影响查找");
+
+        // Provider在加入列表之后才注册服务
+        provider.put("Mac.HmacSHA256", ZeroMac.class.getName());
+        check(Mac.getInstance("HmacSHA256").getProvider() == provider, "Provider新注册的服务没有生效");
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(new byte[32], "HmacSHA256"));
+        check(Arrays.equals(mac.doFinal(new byte[1]), new byte[32]), "没有使用新注册的实现");
+
+        provider.remove("Mac.HmacSHA256");
+        check(Mac.getInstance("HmacSHA256").getProvider().getName().equals(expected), "Provider移除的服务仍然被使用");
+
+        provider.put("Mac.HmacSHA256", ZeroMac.class.getName());
+        check(Mac.getInstance("HmacSHA256").getProvider() == provider, "Provider重新注册的服务没有生效");
+        Security.removeProvider(provider.getName());
+        check(Mac.getInstance("HmacSHA256").getProvider().getName().equals(expected), "移除的Provider仍然被使用");
+
+        // 变换的缓存：多次获取的Cipher都能正常加解密
+        for(int i = 0; i < 3; i++) {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, new byte[12]));
+            byte[] ciphertext = cipher.doFinal("message".getBytes());
+            cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, new byte[12]));
+            check(Arrays.equals(cipher.doFinal(ciphertext), "message".getBytes()), "解密结果不正确");
+        }
+        System.out.println("服务查找缓存：提供者列表或服务改变后缓存失效");
+    }
+
+    // 归还的对象被重置，池中最多保留maxIdle个对象
+    private static void checkPool() throws Exception {
+        CryptoPool<MessageDigest> digests = CryptoPool.ofMessageDigest("SHA-256", 2);
+        MessageDigest md = digests.acquire();
+        md.update("未完成的摘要".getBytes());
+        digests.release(md);
+        MessageDigest again = digests.acquire();
+        check(again == md, "没有复用归还的对象");
+        check(Arrays.equals(again.digest(), MessageDigest.getInstance("SHA-256").digest()), "归还的MessageDigest没有被重置");
+
+        MessageDigest[] many = new MessageDigest[4];
+        for(int i = 0; i < many.length; i++) {
+            many[i] = digests.acquire();
+        }
+        for(MessageDigest m : many) {
+            digests.release(m);
+        }
+        // 后归还的两个对象被丢弃，先借出最近归还的对象
+        check(digests.acquire() == many[1] && digests.acquire() == many[0], "池中保留的对象不正确");
+        check(!Arrays.asList(many).contains(digests.acquire()), "池中保留的对象数量超过了maxIdle");
+
+        SecretKeySpec key = new SecretKeySpec("key".getBytes(), "HmacSHA256");
+        CryptoPool<Mac> macs = CryptoPool.ofMac("HmacSHA256", key, 4);
+        Mac mac = macs.acquire();
+        mac.update("未完成的MAC".getBytes());
+        macs.release(mac);
+        Mac expected = Mac.getInstance("HmacSHA256");
+        expected.init(key);
+        check(Arrays.equals(macs.acquire().doFinal("data".getBytes()), expected.doFinal("data".getBytes())), "归还的Mac没有被重置");
+
+        // 借用者改用其他密钥后归还，下一个借用者仍然使用池的密钥
+        mac = macs.acquire();
+        mac.init(new SecretKeySpec("other".getBytes(), "HmacSHA256"));
+        macs.release(mac);
+        check(Arrays.equals(macs.acquire().doFinal("data".getBytes()), expected.doFinal("data".getBytes())), "归还的Mac没有恢复池的密钥");
+
+        SecretKeySpec aesKey = new SecretKeySpec(new byte[16], "AES");
+        CryptoPool<Cipher> ciphers = CryptoPool.ofCipher("AES/GCM/NoPadding", aesKey, 4);
+        Cipher cipher = ciphers.acquire();
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(new byte[32], "AES"), new GCMParameterSpec(128, new byte[12]));
+        cipher.updateAAD("未完成的解密".getBytes());
+        ciphers.release(cipher);
+        byte[][] ivs = new byte[2][];
+        for(int i = 0; i < ivs.length; i++) {
+            cipher = ciphers.acquire();
+            byte[] ciphertext = cipher.doFinal("message".getBytes());
+            ivs[i] = cipher.getIV();
+            ciphers.release(cipher);
+            Cipher decrypt = Cipher.getInstance("AES/GCM/NoPadding");
+            decrypt.init(Cipher.DECRYPT_MODE, aesKey, new GCMParameterSpec(128, ivs[i]));
+            check(Arrays.equals(decrypt.doFinal(ciphertext), "message".getBytes()), "归还的Cipher没有用池的密钥重新初始化");
+        }
+        check(!Arrays.equals(ivs[0], ivs[1]), "复用的Cipher重复使用了IV");
+        System.out.println("对象池：归还时重置，最多保留maxIdle个对象");
+    }
+
+    private static void check(boolean condition, String message) {
+        if(!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    // 结果总是全零的MAC
+    public static final class ZeroMac extends MacSpi {
+        @Override
+        protected int engineGetMacLength() {
+            return 32;
+        }
+
+        @Override
+        protected void engineInit(Key key, AlgorithmParameterSpec params) {
+        }
+
+        @Override
+        protected void engineUpdate(byte input) {
+        }
+
+        @Override
+        protected void engineUpdate(byte[] input, int offset, int len) {
+        }
+
+        @Override
+        protected byte[] engineDoFinal() {
+            return new byte[32];
+        }
+
+        @Override
+        protected void engineReset() {
+        }
+    }
+}
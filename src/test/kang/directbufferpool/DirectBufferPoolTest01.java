@@ -0,0 +1,95 @@
+package test.kang.directbufferpool;
+
+import java.nio.ByteBuffer;
+import jdk.internal.misc.JavaNioAccess;
+import sun.nio.ch.DirectBufferPool;
+
+/*
+ * 池化直接缓冲区的内存统计
+ *
+ * DirectBufferPool在空闲时最多保留jdk.nio.bufferPool.maxRetainedSize字节的内存，
+ * 这个上限同时约束共享的空闲列表与每个线程的缓存。
+ * 没有任何缓冲区被借出时，池所拥有的内存（"pooled"缓冲池的总容量）应当不超过这个上限：
+ * 1. 同一个线程归还大量缓冲区时，超出上限的部分立即释放，而不是都留在线程缓存里
+ * 2. 线程退出时，其缓存中的缓冲区转入共享空闲列表，仍然受上限约束
+ * 3. 借出后从未归还的缓冲区被GC回收后，不再计入池所拥有的内存，并计为泄漏
+ *
+ * 编译与运行时需要导出内部包：
+ * --add-exports=java.base/sun.nio.ch=ALL-UNNAMED --add-exports=java.base/jdk.internal.misc=ALL-UNNAMED
+ *
+ * 用法（上限设置得较小，便于观察）：
+ * java -Djdk.nio.bufferPool.maxRetainedSize=65536 --add-exports=... test.kang.directbufferpool.DirectBufferPoolTest01
+ */
+public class DirectBufferPoolTest01 {
+    private static final int SIZE = 16 * 1024;
+    private static final int COUNT = 32;
+    
+    public static void main(String[] args) throws Exception {
+        long maxRetained = Long.getLong("jdk.nio.bufferPool.maxRetainedSize", 64L << 20);
+        JavaNioAccess.BufferPool pool = DirectBufferPool.getBufferPool();
+        System.out.println("池最多保留的空闲内存：" + maxRetained + "字节");
+        
+        // 1. 同一个线程借出后全部归还
+        ByteBuffer[] bufs = new ByteBuffer[COUNT];
+        for(int i = 0; i < COUNT; i++) {
+            bufs[i] = DirectBufferPool.allocate(SIZE);
+        }
+        long leased = pool.getTotalCapacity();
+        for(ByteBuffer buf : bufs) {
+            DirectBufferPool.release(buf);
+        }
+        check("同一个线程归还" + COUNT + "个缓冲区（借出时占用" + leased + "字节）", pool, maxRetained);
+        
+        // 重复归还应当失败
+        try {
+            DirectBufferPool.release(bufs[0]);
+            throw new AssertionError("重复归还没有抛出异常");
+        } catch(IllegalStateException e) {
+            System.out.println("重复归还：" + e.getMessage());
+        }
+        
+        // 2. 多个线程各自借出、归还后退出
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                ByteBuffer[] local = new ByteBuffer[COUNT];
+                for(int i = 0; i < COUNT; i++) {
+                    local[i] = DirectBufferPool.allocate(SIZE);
+                }
+                for(ByteBuffer buf : local) {
+                    DirectBufferPool.release(buf);
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        check(threads.length + "个线程归还后退出", pool, maxRetained);
+        
+        // 3. 借出后不归还，丢弃引用
+        long leaks = DirectBufferPool.leaks();
+        for(int i = 0; i < COUNT; i++) {
+            bufs[i] = DirectBufferPool.allocate(SIZE);
+        }
+        System.out.println("借出" + COUNT + "个缓冲区后不归还，池拥有" + pool.getTotalCapacity() + "字节");
+        bufs = null;
+        for(int i = 0; i < 100 && DirectBufferPool.leaks() - leaks < COUNT; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        if(DirectBufferPool.leaks() - leaks != COUNT) {
+            throw new AssertionError("泄漏的缓冲区数量：" + (DirectBufferPool.leaks() - leaks) + "，应为" + COUNT);
+        }
+        check("GC回收了" + COUNT + "个泄漏的缓冲区", pool, maxRetained);
+    }
+    
+    // 没有借出的缓冲区时，池拥有的内存都是空闲内存，不应超过上限
+    private static void check(String step, JavaNioAccess.BufferPool pool, long maxRetained) {
+        long capacity = pool.getTotalCapacity();
+        System.out.println(step + "：池拥有" + pool.getCount() + "个缓冲区，共" + capacity + "字节");
+        if(capacity > maxRetained) {
+            throw new AssertionError("池保留的空闲内存超过了上限");
+        }
+    }
+}
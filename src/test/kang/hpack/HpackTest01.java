@@ -0,0 +1,105 @@
+package test.kang.hpack;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.internal.net.http.hpack.Decoder;
+import jdk.internal.net.http.hpack.DecodingCallback;
+import jdk.internal.net.http.hpack.Encoder;
+
+/*
+ * HPACK编码/解码的耗时与内存分配（HTTP/2头部压缩）
+ *
+ * 编码器会缓存常用值（如user-agent、content-type）的Huffman编码结果，重复发送时不再逐位编码；
+ * 解码器将常见的头部名称解析为共享的String实例，并复用最近解码过的字面量值，
+ * 回调方对名称/值调用toString()时不再产生新对象。
+ *
+ * JDK>=11
+ * java参数和javac参数中均要加入以下命令：
+ * --add-exports=java.net.http/jdk.internal.net.http.hpack=ALL-UNNAMED
+ *
+ * 用法：
+ * java --add-exports=java.net.http/jdk.internal.net.http.hpack=ALL-UNNAMED test.kang.hpack.HpackTest01 [头部块数量]
+ */
+public class HpackTest01 {
+
+    // 一组典型的响应头，对端未使用动态表（均以字面量形式发送）
+    private static final String[][] HEADERS = {
+        {":status", "200"},
+        {"content-type", "application/json;charset=utf-8"},
+        {"content-length", "1024"},
+        {"server", "nginx/1.25.3"},
+        {"date", "Mon, 19 Oct 2026 08:00:00 GMT"},
+        {"cache-control", "no-cache, no-store, must-revalidate"},
+        {"vary", "accept-encoding"},
+        {"x-content-type-options", "nosniff"},
+        {"x-frame-options", "DENY"},
+        {"access-control-allow-origin", "*"},
+        {"x-request-id", "6f1c2a7e-3b1d-4c8a-9f2e-7d5b0a1c9e34"},
+        {"strict-transport-security", "max-age=31536000; includeSubDomains"},
+    };
+
+    public static void main(String[] args) throws Exception {
+        int blocks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        Encoder encoder = new Encoder(4096);
+        Decoder decoder = new Decoder(4096);
+        ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+
+        // 验证编码后再解码能得到原来的头部
+        encode(encoder, buffer);
+        List<String> decoded = new ArrayList<>();
+        decoder.decode(buffer.flip(), true, (name, value) -> decoded.add(name + ": " + value));
+        for(int i = 0; i < HEADERS.length; i++) {
+            if(!decoded.get(i).equals(HEADERS[i][0] + ": " + HEADERS[i][1])) {
+                throw new AssertionError(decoded.get(i));
+            }
+        }
+        System.out.println("头部块大小：" + buffer.limit() + "字节，共" + HEADERS.length + "个头部");
+
+        // 模拟HTTP客户端的回调：把名称和值转换为String
+        String[] sink = new String[2];
+        DecodingCallback callback = (name, value) -> {
+            sink[0] = name.toString();
+            sink[1] = value.toString();
+        };
+
+        for(int round = 0; round < 3; round++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            for(int i = 0; i < blocks; i++) {
+                encode(encoder, buffer.clear());
+            }
+            print("编码", blocks, start, bytes);
+
+            encode(encoder, buffer.clear());
+            buffer.flip();
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            for(int i = 0; i < blocks; i++) {
+                decoder.decode(buffer.rewind(), true, callback);
+            }
+            print("解码", blocks, start, bytes);
+        }
+    }
+
+    private static void encode(Encoder encoder, ByteBuffer buffer) {
+        for(String[] header : HEADERS) {
+            encoder.header(header[0], header[1]);
+            if(!encoder.encode(buffer)) {
+                throw new IllegalStateException("buffer too small");
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void print(String action, int blocks, long start, long bytes) {
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - bytes;
+        System.out.printf("  %s%d个头部块，%d ns/块，内存分配%d字节/块%n", action, blocks, elapsed / blocks, allocated / blocks);
+    }
+}
@@ -0,0 +1,95 @@
+package test.kang.httpclient;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * HttpClient连接池在高并发下的表现（同一主机）
+ *
+ * 连接池按路由（CacheKey）划分，每个路由使用无锁双端队列保存空闲连接，
+ * 借出与归还连接时不再争用连接池的监视器锁。
+ * 每个连接在关闭前都计入其路由的连接数，路由上既无连接也无等待的请求时会被移出连接池。
+ *
+ * 相关系统属性：
+ * jdk.httpclient.maxConnectionsPerRoute - 每个路由最多打开的连接数，超出的请求排队等待，默认为0（不限制）
+ *
+ * 用法：
+ * java -Djdk.httpclient.maxConnectionsPerRoute=32 test.kang.httpclient.HttpClientTest01 [并发数] [请求数]
+ */
+public class HttpClientTest01 {
+    private static final byte[] BODY = "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8);
+    
+    // 服务端看到的客户端地址，每个地址对应客户端的一个连接
+    private static final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        
+        // 服务端默认最多保留200个空闲连接，超出时会关闭刚完成响应的连接，这里放宽限制，避免客户端复用到已关闭的连接
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(concurrency * 2));
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/metrics", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, BODY.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(executor);
+        server.start();
+        
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        
+        System.out.println("每个路由的连接上限：" + Integer.getInteger("jdk.httpclient.maxConnectionsPerRoute", 0) + "，并发：" + concurrency);
+        for(int round = 0; round < 3; round++) {
+            connections.clear();
+            run(client, uri, concurrency, requests);
+            System.out.println("  使用的连接数：" + connections.size());
+        }
+        
+        server.stop(0);
+        executor.shutdown();
+    }
+    
+    // 保持concurrency个请求同时在途，统计每秒完成的请求数
+    private static void run(HttpClient client, URI uri, int concurrency, int requests) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        Semaphore inflight = new Semaphore(concurrency);
+        AtomicLong errors = new AtomicLong();
+        
+        long start = System.nanoTime();
+        for(int i = 0; i < requests; i++) {
+            inflight.acquire();
+            CompletableFuture<HttpResponse<byte[]>> future = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+            future.whenComplete((response, ex) -> {
+                if(ex != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+                inflight.release();
+            });
+        }
+        inflight.acquire(concurrency);
+        long elapsed = System.nanoTime() - start;
+        
+        System.out.printf("  %d个请求，耗时%d ms，%.0f req/s，失败%d个%n", requests, elapsed / 1_000_000, requests * 1e9 / elapsed, errors.get());
+    }
+}
@@ -0,0 +1,99 @@
+package test.kang.httpclient;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * 多个选择器线程下HttpClient的吞吐量（回环地址）
+ *
+ * 通过HttpClient.Builder#selectorThreads（或系统属性jdk.httpclient.selectorThreads）设置选择器线程的数量，
+ * 每个线程拥有独立的Selector，一个连接上的所有读写事件始终由同一个线程处理。
+ *
+ * 内置的HttpServer不支持HTTP/2，以HTTP_2版本发送的明文请求会尝试h2c升级并回退到HTTP/1.1。
+ *
+ * 用法：
+ * java test.kang.httpclient.HttpClientTest02 [选择器线程数] [并发数] [请求数] [HTTP_1_1|HTTP_2]
+ */
+public class HttpClientTest02 {
+    private static final byte[] BODY = "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8);
+    
+    public static void main(String[] args) throws Exception {
+        int selectorThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        HttpClient.Version version = args.length > 3 ? HttpClient.Version.valueOf(args[3]) : HttpClient.Version.HTTP_1_1;
+        
+        // 避免服务端关闭刚完成响应的空闲连接
+        System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(concurrency * 2));
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/metrics", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, BODY.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(executor);
+        server.start();
+        
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+        
+        for(int threads : new int[]{1, selectorThreads}) {
+            HttpClient client = HttpClient.newBuilder().version(version).selectorThreads(threads).build();
+            System.out.println("选择器线程：" + threads + "，并发：" + concurrency + "，版本：" + version);
+            for(int round = 0; round < 3; round++) {
+                run(client, uri, concurrency, requests);
+            }
+            printSelectorThreads();
+        }
+        
+        server.stop(0);
+        executor.shutdown();
+    }
+    
+    // 保持concurrency个请求同时在途，统计每秒完成的请求数
+    private static void run(HttpClient client, URI uri, int concurrency, int requests) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        Semaphore inflight = new Semaphore(concurrency);
+        AtomicLong errors = new AtomicLong();
+        
+        long start = System.nanoTime();
+        for(int i = 0; i < requests; i++) {
+            inflight.acquire();
+            CompletableFuture<HttpResponse<byte[]>> future = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+            future.whenComplete((response, ex) -> {
+                if(ex != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+                inflight.release();
+            });
+        }
+        inflight.acquire(concurrency);
+        long elapsed = System.nanoTime() - start;
+        
+        System.out.printf("  %d个请求，耗时%d ms，%.0f req/s，失败%d个%n", requests, elapsed / 1_000_000, requests * 1e9 / elapsed, errors.get());
+    }
+    
+    // 输出当前存活的选择器线程
+    private static void printSelectorThreads() {
+        Thread.getAllStackTraces().keySet().stream()
+            .map(Thread::getName)
+            .filter(name -> name.contains("-SelectorManager"))
+            .sorted()
+            .forEach(name -> System.out.println("  " + name));
+    }
+}
@@ -0,0 +1,114 @@
+package test.kang.httpclient;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * 使用HttpClient上传与下载大文件（回环地址）
+ *
+ * BodyPublishers.ofFile将文件按区域映射到内存，发布的是直接缓冲区的只读切片（每片1MB），
+ * 明文连接直接将其写入套接字，HTTPS连接由SSLEngine直接加密，文件内容不再先复制到Java堆中。
+ * BodyHandlers.ofFile对每次收到的一组缓冲区执行一次聚集写入。
+ *
+ * 用法：
+ * java test.kang.httpclient.HttpClientTest03 [文件大小(MB)]
+ */
+public class HttpClientTest03 {
+    
+    public static void main(String[] args) throws Exception {
+        int sizeMB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        
+        Path source = Files.createTempFile("upload", ".bin");
+        Path target = Files.createTempFile("download", ".bin");
+        createFile(source, sizeMB * 1024L * 1024L);
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+        // 上传：读取并丢弃请求体，返回收到的字节数
+        server.createContext("/upload", exchange -> {
+            long total = 0;
+            byte[] buf = new byte[64 * 1024];
+            try(InputStream in = exchange.getRequestBody()) {
+                for(int n; (n = in.read(buf)) != -1; ) {
+                    total += n;
+                }
+            }
+            byte[] body = String.valueOf(total).getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // 下载：返回源文件的内容
+        server.createContext("/download", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, Files.size(source));
+            try(OutputStream out = exchange.getResponseBody()) {
+                Files.copy(source, out);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        server.setExecutor(executor);
+        server.start();
+        
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        
+        for(int round = 0; round < 3; round++) {
+            long cpu = processCpuTime();
+            long start = System.nanoTime();
+            HttpRequest upload = HttpRequest.newBuilder(URI.create(base + "/upload")).POST(HttpRequest.BodyPublishers.ofFile(source)).build();
+            HttpResponse<String> response = client.send(upload, HttpResponse.BodyHandlers.ofString());
+            print("上传", sizeMB, start, cpu, response.body());
+            
+            cpu = processCpuTime();
+            start = System.nanoTime();
+            HttpRequest download = HttpRequest.newBuilder(URI.create(base + "/download")).build();
+            HttpResponse<Path> file = client.send(download, HttpResponse.BodyHandlers.ofFile(target));
+            print("下载", sizeMB, start, cpu, String.valueOf(Files.size(file.body())));
+        }
+        
+        server.stop(0);
+        executor.shutdown();
+        Files.delete(source);
+        Files.delete(target);
+    }
+    
+    // 创建指定大小的文件
+    private static void createFile(Path path, long size) throws Exception {
+        ByteBuffer buf = ByteBuffer.allocate(1024 * 1024);
+        for(int i = 0; i < buf.capacity(); i++) {
+            buf.put((byte) i);
+        }
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            for(long written = 0; written < size; ) {
+                buf.clear().limit((int) Math.min(buf.capacity(), size - written));
+                written += channel.write(buf);
+            }
+        }
+    }
+    
+    private static long processCpuTime() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+    
+    private static void print(String action, int sizeMB, long start, long cpu, String bytes) {
+        long elapsed = System.nanoTime() - start;
+        long cpuTime = processCpuTime() - cpu;
+        System.out.printf("  %s %d MB（%s字节），耗时%d ms，%.0f MB/s，进程CPU时间%d ms%n", action, sizeMB, bytes, elapsed / 1_000_000, sizeMB * 1e9 / elapsed, cpuTime / 1_000_000);
+    }
+}
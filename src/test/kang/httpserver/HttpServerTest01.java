@@ -0,0 +1,82 @@
+package test.kang.httpserver;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * HttpServer的吞吐量压测（回环地址）
+ *
+ * 通过系统属性sun.net.httpserver.selectorThreads设置选择器线程的数量，
+ * 每个线程拥有独立的Selector，连接由接收线程轮流分配给各个选择器线程。
+ * 空闲/请求/响应超时由每个选择器线程上的时间轮驱动，不再使用java.util.Timer。
+ *
+ * 用法：
+ * java -Dsun.net.httpserver.selectorThreads=4 test.kang.httpserver.HttpServerTest01 [并发数] [请求数]
+ */
+public class HttpServerTest01 {
+    private static final byte[] BODY = "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8);
+    
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/metrics", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(200, BODY.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(executor);
+        server.start();
+        
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        
+        System.out.println("选择器线程：" + Integer.getInteger("sun.net.httpserver.selectorThreads", 1) + "，并发：" + concurrency);
+        for(int round = 0; round < 3; round++) {
+            run(client, uri, concurrency, requests);
+        }
+        
+        server.stop(0);
+        executor.shutdown();
+    }
+    
+    // 保持concurrency个请求同时在途，统计每秒完成的请求数
+    private static void run(HttpClient client, URI uri, int concurrency, int requests) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        Semaphore inflight = new Semaphore(concurrency);
+        AtomicLong errors = new AtomicLong();
+        
+        long start = System.nanoTime();
+        for(int i = 0; i < requests; i++) {
+            inflight.acquire();
+            CompletableFuture<HttpResponse<byte[]>> future = client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+            future.whenComplete((response, ex) -> {
+                if(ex != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+                inflight.release();
+            });
+        }
+        inflight.acquire(concurrency);
+        long elapsed = System.nanoTime() - start;
+        
+        System.out.printf("  %d个请求，耗时%d ms，%.0f req/s，失败%d个%n", requests, elapsed / 1_000_000, requests * 1e9 / elapsed, errors.get());
+    }
+}
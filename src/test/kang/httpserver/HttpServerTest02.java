@@ -0,0 +1,88 @@
+package test.kang.httpserver;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 大量慢速客户端下的HttpServer
+ *
+ * 对于普通HTTP连接，选择器线程以非阻塞方式预读请求头，请求头完整之后才把交换任务交给执行器，
+ * 所以发送请求头很慢的客户端不会占用任何线程。
+ * 通过系统属性sun.net.httpserver.maxExchanges限制同时执行的交换数量，超出的连接会暂停读取，
+ * 直到有交换结束（背压）。未调用setExecutor时，服务器使用内置的线程池，线程数不超过该上限。
+ *
+ * 用法：
+ * java -Dsun.net.httpserver.maxExchanges=4 test.kang.httpserver.HttpServerTest02
+ */
+public class HttpServerTest02 {
+    private static final int SLOW_CLIENTS = 1000;
+    
+    public static void main(String[] args) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        int port = server.getAddress().getPort();
+        
+        // 慢速客户端：只发送了一半的请求头
+        List<Socket> slow = new ArrayList<>();
+        for(int i = 0; i < SLOW_CLIENTS; i++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHo".getBytes(StandardCharsets.ISO_8859_1));
+            slow.add(socket);
+        }
+        Thread.sleep(500);
+        System.out.println(SLOW_CLIENTS + "个慢速客户端，服务器线程数：" + countServerThreads());
+        
+        // 此时正常的客户端依然能及时得到响应
+        long start = System.nanoTime();
+        for(int i = 0; i < 100; i++) {
+            try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                socket.getInputStream().readAllBytes();
+            }
+        }
+        System.out.println("100个正常请求耗时：" + (System.nanoTime() - start) / 1_000_000 + " ms");
+        
+        // 慢速客户端补全请求头，所有请求都会在交换数量的上限内依次得到处理
+        for(Socket socket : slow) {
+            socket.getOutputStream().write("st: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        int served = 0;
+        for(Socket socket : slow) {
+            if(readStatusLine(socket.getInputStream()).contains(" 200 ")) {
+                served++;
+            }
+            socket.close();
+        }
+        System.out.println("慢速客户端得到响应：" + served + "，服务器线程数：" + countServerThreads());
+        
+        server.stop(0);
+    }
+    
+    private static long countServerThreads() {
+        return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().startsWith("HTTP-")).count();
+    }
+    
+    private static String readStatusLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while((c = in.read()) != -1 && c != '\n') {
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+}
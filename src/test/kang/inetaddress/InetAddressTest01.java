@@ -0,0 +1,123 @@
+package test.kang.inetaddress;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * InetAddress的域名解析缓存：异步解析、提前刷新、容量上限
+ *
+ * 通过系统属性java.net.spi.InetAddressResolverProvider安装一个进程内的解析器（StandInProvider），
+ * 它以"*.test"结尾的域名解析为10.0.x.y，每次解析耗时50ms，并统计被调用的次数。
+ *
+ * 相关系统属性：
+ * sun.net.inetaddr.ttl                   - 解析成功的缓存时间（秒），这里设为3秒
+ * jdk.net.inetaddr.cache.refreshAhead    - 缓存过期前多少秒内再次访问会触发后台刷新，默认为5（最多为缓存时间的一半）
+ * jdk.net.inetaddr.cache.maxSize         - 缓存的域名数量上限，默认为4096
+ *
+ * 用法：
+ * java -Djdk.net.inetaddr.cache.maxSize=100 test.kang.inetaddress.InetAddressTest01
+ */
+public class InetAddressTest01 {
+
+    // 解析器被调用的次数
+    static final AtomicInteger lookups = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        // 需要在首次解析域名之前设置
+        System.setProperty("sun.net.inetaddr.ttl", "3");
+        System.setProperty("java.net.spi.InetAddressResolverProvider", StandInProvider.class.getName());
+
+        // 1. 异步解析：调用方立即返回，解析在后台完成
+        long start = System.nanoTime();
+        CompletableFuture<InetAddress[]> future = InetAddress.getAllByNameAsync("service-1.test");
+        long returned = System.nanoTime();
+        InetAddress[] addresses = future.join();
+        System.out.printf("异步解析：%d us后返回，%d ms后完成，结果：%s%n", (returned - start) / 1000, (System.nanoTime() - start) / 1_000_000, addresses[0]);
+
+        // 已缓存的域名直接返回已完成的CompletableFuture
+        System.out.println("已缓存的域名，返回时已完成：" + InetAddress.getAllByNameAsync("service-1.test").isDone());
+
+        // 2. 同时解析同一个域名，只会调用一次解析器
+        lookups.set(0);
+        List<CompletableFuture<InetAddress[]>> futures = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            futures.add(InetAddress.getAllByNameAsync("service-2.test"));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        System.out.println("并发解析100次同一域名，解析器被调用" + lookups.get() + "次");
+
+        // 3. 提前刷新：持续访问的域名在过期前被后台刷新，调用方不再被阻塞
+        lookups.set(0);
+        long maxLatency = 0;
+        long end = System.nanoTime() + 8_000_000_000L;
+        while(System.nanoTime() < end) {
+            long t = System.nanoTime();
+            InetAddress.getByName("service-1.test");
+            maxLatency = Math.max(maxLatency, System.nanoTime() - t);
+            Thread.sleep(20);
+        }
+        System.out.printf("持续访问8秒（缓存时间3秒）：解析器被调用%d次，单次解析最长耗时%d ms%n", lookups.get(), maxLatency / 1_000_000);
+
+        // 4. 解析失败
+        try {
+            InetAddress.getAllByNameAsync("unknown.invalid").join();
+        } catch(CompletionException e) {
+            System.out.println("解析失败：" + e.getCause());
+        }
+
+        // 5. 容量上限：超出上限时淘汰最久未访问的域名
+        lookups.set(0);
+        for(int i = 0; i < 1000; i++) {
+            InetAddress.getAllByNameAsync("host-" + i + ".test");
+        }
+        for(int i = 0; i < 1000; i++) {
+            InetAddress.getAllByNameAsync("host-" + i + ".test").join();
+        }
+        int first = lookups.get();
+        for(int i = 900; i < 1000; i++) {
+            InetAddress.getByName("host-" + i + ".test");
+        }
+        System.out.println("解析1000个域名调用解析器" + first + "次，再次访问最近的100个域名，解析器新增调用" + (lookups.get() - first) + "次");
+    }
+
+    // 进程内的解析器，用于替代操作系统的域名解析
+    public static class StandInProvider extends InetAddressResolverProvider {
+        @Override
+        public InetAddressResolver get(InetAddressResolver builtinResolver) {
+            return new InetAddressResolver() {
+                @Override
+                public InetAddress[] lookupByName(String host) throws UnknownHostException {
+                    if(!host.endsWith(".test")) {
+                        return builtinResolver.lookupByName(host);
+                    }
+                    lookups.incrementAndGet();
+                    try {
+                        Thread.sleep(50);
+                    } catch(InterruptedException e) {
+                        throw new UnknownHostException(host);
+                    }
+                    int hash = host.hashCode();
+                    byte[] addr = {10, 0, (byte) (hash >> 8), (byte) hash};
+                    return new InetAddress[]{InetAddress.getByAddress(host, addr)};
+                }
+
+                @Override
+                public String lookupByAddress(byte[] addr) throws UnknownHostException {
+                    return builtinResolver.lookupByAddress(addr);
+                }
+            };
+        }
+
+        @Override
+        public String name() {
+            return "stand-in";
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package test.kang.keystore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.X509KeyManager;
+import sun.security.tools.keytool.CertAndKeyGen;
+import sun.security.x509.X500Name;
+
+/*
+ * PBKDF2与大型PKCS12密钥库的启动开销
+ *
+ * HMAC在同一个密钥计算第二个MAC时保存填充了ipad与opad之后的摘要状态，之后直接恢复，
+ * 不再每次都重新压缩两个填充块（PBKDF2的每次迭代少两次压缩）；
+ * 设置了jdk.crypto.parallelThreshold时，PBKDF2的输出超过一个PRF块时各块在公共线程池中并行计算，
+ * PKCS#12的PBE密钥与IV也并行派生（默认不并行）；PKCS#12派生的迭代不再每次分配数组；
+ * PKCS12密钥库加载时按keyId与别名建立索引匹配私钥与证书链，不再逐对比较；
+ * SunX509密钥管理器初始化时并行恢复JDK密钥库（PKCS12、JKS、JCEKS）中的私钥。
+ * 私钥在密钥库中仍以加密形式保存，直到调用getKey()时才解密。
+ *
+ * 编译与运行时需要导出内部包（用于生成证书）：
+ * --add-exports=java.base/sun.security.tools.keytool=ALL-UNNAMED --add-exports=java.base/sun.security.x509=ALL-UNNAMED
+ *
+ * 用法（密钥库文件不存在时先生成，生成每个条目约需10毫秒）：
+ * java -Djdk.crypto.parallelThreshold=131072 --add-exports=java.base/sun.security.tools.keytool=ALL-UNNAMED --add-exports=java.base/sun.security.x509=ALL-UNNAMED test.kang.keystore.KeyStoreTest01 [密钥库文件] [条目数量]
+ */
+public class KeyStoreTest01 {
+
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    public static void main(String[] args) throws Exception {
+        String file = args.length > 0 ? args[0] : "large.p12";
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        System.out.println("公共线程池线程数：" + ForkJoinPool.getCommonPoolParallelism());
+
+        checkHmac();
+        checkPbkdf2();
+        benchmarkPbkdf2();
+
+        if(!new File(file).exists()) {
+            generate(file, count);
+        }
+        for(int round = 0; round < 3; round++) {
+            System.out.println("第" + (round + 1) + "轮：");
+            benchmarkKeyStore(file);
+        }
+    }
+
+    // 同一个密钥反复计算、分段输入、中途重置、克隆以及重新初始化，结果与按定义计算的HMAC相同
+    private static void checkHmac() throws Exception {
+        String[][] algorithms = {
+            {"HmacMD5", "MD5", "64"}, {"HmacSHA1", "SHA-1", "64"}, {"HmacSHA224", "SHA-224", "64"},
+            {"HmacSHA256", "SHA-256", "64"}, {"HmacSHA384", "SHA-384", "128"}, {"HmacSHA512", "SHA-512", "128"},
+            {"HmacSHA512/256", "SHA-512/256", "128"}
+        };
+        Random random = new Random(42);
+        for(String[] algorithm : algorithms) {
+            Mac mac = Mac.getInstance(algorithm[0]);
+            for(int keyLength : new int[]{0, 20, 64, 200}) {
+                byte[] key = new byte[keyLength];
+                random.nextBytes(key);
+                // SecretKeySpec不允许空密钥
+                mac.init(new SecretKey() {
+                    @Override
+                    public String getAlgorithm() {
+                        return algorithm[0];
+                    }
+
+                    @Override
+                    public String getFormat() {
+                        return "RAW";
+                    }
+
+                    @Override
+                    public byte[] getEncoded() {
+                        return key.clone();
+                    }
+                });
+                for(int i = 0; i < 5; i++) {
+                    byte[] data = new byte[random.nextInt(300)];
+                    random.nextBytes(data);
+                    byte[] expected = hmac(algorithm[1], Integer.parseInt(algorithm[2]), key, data);
+
+                    check(Arrays.equals(mac.doFinal(data), expected), algorithm[0] + "：结果不正确");
+                    mac.update(data, 0, data.length / 2);
+                    mac.update(data, data.length / 2, data.length - data.length / 2);
+                    check(Arrays.equals(mac.doFinal(), expected), algorithm[0] + "：分段输入的结果不正确");
+                    mac.update(new byte[17]);
+                    mac.reset();
+                    mac.update(data);
+                    Mac copy = (Mac) mac.clone();
+                    check(Arrays.equals(mac.doFinal(), expected), algorithm[0] + "：重置之后的结果不正确");
+                    check(Arrays.equals(copy.doFinal(), expected), algorithm[0] + "：克隆的结果不正确");
+                    check(Arrays.equals(copy.doFinal(data), expected), algorithm[0] + "：克隆后再次计算的结果不正确");
+                }
+            }
+        }
+        System.out.println("HMAC：复用密钥、分段、重置、克隆与重新初始化的结果正确");
+    }
+
+    // 按RFC 2104的定义计算HMAC
+    private static byte[] hmac(String digest, int blockLength, byte[] key, byte[] data) throws Exception {
+        MessageDigest md = MessageDigest.getInstance(digest);
+        if(key.length > blockLength) {
+            key = md.digest(key);
+        }
+        byte[] ipad = new byte[blockLength];
+        byte[] opad = new byte[blockLength];
+        for(int i = 0; i < blockLength; i++) {
+            int k = i < key.length ? key[i] : 0;
+            ipad[i] = (byte) (k ^ 0x36);
+            opad[i] = (byte) (k ^ 0x5c);
+        }
+        md.update(ipad);
+        md.update(data);
+        byte[] inner = md.digest();
+        md.update(opad);
+        md.update(inner);
+        return md.digest();
+    }
+
+    // RFC 6070的测试向量，以及输出多个块（并行计算）的PBKDF2
+    private static void checkPbkdf2() throws Exception {
+        Object[][] vectors = {
+            {"password", "salt", 1, 20, "0c60c80f961f0e71f3a9b524af6012062fe037a6"},
+            {"password", "salt", 2, 20, "ea6c014dc72d6f8ccd1ed92ace1d41f0d8de8957"},
+            {"password", "salt", 4096, 20, "4b007901b765489abead49d926f721d065a429c1"},
+            {"passwordPASSWORDpassword", "saltSALTsaltSALTsaltSALTsaltSALTsalt", 4096, 25, "3d2eec4fe41c849b80c8d83662c0e44a8b291a964cf2f07038"},
+            {"pass\0word", "sa\0lt", 4096, 16, "56fa6aa75548099dcc37d7f03425e0c3"}
+        };
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+        for(Object[] vector : vectors) {
+            PBEKeySpec spec = new PBEKeySpec(((String) vector[0]).toCharArray(), ((String) vector[1]).getBytes(StandardCharsets.UTF_8), (Integer) vector[2], (Integer) vector[3] * 8);
+            byte[] key = factory.generateSecret(spec).getEncoded();
+            check(toHex(key).equals(vector[4]), "PBKDF2与RFC 6070的测试向量不一致：" + toHex(key));
+        }
+
+        // 32字节的PRF输出，派生100字节需要4个块
+        byte[] salt = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        byte[] password = "密码".getBytes(StandardCharsets.UTF_8);
+        byte[] expected = pbkdf2("SHA-256", password, salt, 2000, 100);
+        byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(new PBEKeySpec("密码".toCharArray(), salt, 2000, 800)).getEncoded();
+        check(Arrays.equals(key, expected), "多个块的PBKDF2结果不正确");
+        System.out.println("PBKDF2：与RFC 6070的测试向量以及按定义计算的结果一致");
+    }
+
+    // 按RFC 8018的定义计算PBKDF2
+    private static byte[] pbkdf2(String digest, byte[] password, byte[] salt, int iterations, int length) throws Exception {
+        byte[] key = new byte[length];
+        for(int block = 1, offset = 0; offset < length; block++) {
+            byte[] first = Arrays.copyOf(salt, salt.length + 4);
+            first[salt.length + 3] = (byte) block;
+            byte[] u = hmac(digest, 64, password, first);
+            byte[] t = u.clone();
+            for(int i = 1; i < iterations; i++) {
+                u = hmac(digest, 64, password, u);
+                for(int j = 0; j < t.length; j++) {
+                    t[j] ^= u[j];
+                }
+            }
+            int n = Math.min(t.length, length - offset);
+            System.arraycopy(t, 0, key, offset, n);
+            offset += n;
+        }
+        return key;
+    }
+
+    private static void benchmarkPbkdf2() throws Exception {
+        for(String algorithm : new String[]{"PBKDF2WithHmacSHA1", "PBKDF2WithHmacSHA256", "PBKDF2WithHmacSHA512"}) {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(algorithm);
+            for(int bits : new int[]{256, 1024}) {
+                PBEKeySpec spec = new PBEKeySpec(PASSWORD, new byte[16], 100_000, bits);
+                factory.generateSecret(spec);
+                long start = System.nanoTime();
+                for(int i = 0; i < 3; i++) {
+                    factory.generateSecret(spec);
+                }
+                System.out.printf("%s（100000次迭代，%d位）：%.1f ms%n", algorithm, bits, (System.nanoTime() - start) / 3e6);
+            }
+        }
+    }
+
+    // 生成有count个私钥条目的PKCS12密钥库，每个条目有自己的EC密钥与自签名证书
+    private static void generate(String file, int count) throws Exception {
+        System.out.println("生成" + count + "个条目的密钥库：" + file);
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        ks.load(null, null);
+        for(int i = 0; i < count; i++) {
+            CertAndKeyGen gen = new CertAndKeyGen("EC", "SHA256withECDSA");
+            gen.generate(256);
+            Certificate cert = gen.getSelfCertificate(new X500Name("CN=server" + i), 365L * 24 * 3600);
+            ks.setKeyEntry("server" + i, gen.getPrivateKey(), PASSWORD, new Certificate[]{cert});
+        }
+        try(OutputStream out = new FileOutputStream(file)) {
+            ks.store(out, PASSWORD);
+        }
+    }
+
+    // 加载密钥库、初始化SunX509密钥管理器（恢复所有私钥）
+    private static void benchmarkKeyStore(String file) throws Exception {
+        long start = System.nanoTime();
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        try(InputStream in = new FileInputStream(file)) {
+            ks.load(in, PASSWORD);
+        }
+        long load = System.nanoTime() - start;
+        List<String> aliases = Collections.list(ks.aliases());
+
+        start = System.nanoTime();
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, PASSWORD);
+        long init = System.nanoTime() - start;
+
+        // 密钥管理器中的私钥与证书链和逐个从密钥库中取出的相同
+        X509KeyManager km = null;
+        for(KeyManager manager : kmf.getKeyManagers()) {
+            if(manager instanceof X509KeyManager) {
+                km = (X509KeyManager) manager;
+            }
+        }
+        for(int i = 0; i < aliases.size(); i += Math.max(1, aliases.size() / 20)) {
+            String alias = aliases.get(i);
+            Key key = ks.getKey(alias, PASSWORD);
+            check(Arrays.equals(km.getPrivateKey(alias).getEncoded(), key.getEncoded()), alias + "：私钥不一致");
+            check(Arrays.equals(km.getCertificateChain(alias), ks.getCertificateChain(alias)), alias + "：证书链不一致");
+            check(ks.getCertificateChain(alias).length == 1, alias + "：证书链没有匹配到证书");
+        }
+        System.out.printf("  %d个条目：加载密钥库 %d ms，初始化SunX509密钥管理器 %d ms%n", aliases.size(), load / 1_000_000, init / 1_000_000);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for(byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void check(boolean condition, String message) {
+        if(!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package test.kang.mappedbytebuffer;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * 滚动日志段的压力测试：显式解除映射、按范围刷新
+ *
+ * 依次创建SEGMENTS个大小为SEGMENT_SIZE的段文件，每个段文件：
+ * 1. 顺序追加写入记录，每写满FLUSH_SIZE字节就只刷新新写入的部分
+ * 2. 写满后立即解除映射
+ *
+ * 派生过切片/副本/视图的映射缓冲区不允许显式解除映射，只能等待GC。
+ *
+ * 如果不显式解除映射，则所有段的映射都要等到GC才会释放，
+ * 可以对比观察"mapped"缓冲池中映射内存的占用情况。
+ */
+public class MappedByteBufferTest01 {
+    private static final int SEGMENTS = 32;
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int FLUSH_SIZE = 1024 * 1024;
+    private static final int RECORD_SIZE = 512;
+    
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("segments");
+        byte[] record = new byte[RECORD_SIZE];
+        
+        long start = System.nanoTime();
+        for(int i = 0; i < SEGMENTS; i++) {
+            Path file = dir.resolve(String.format("%08d.seg", i));
+            
+            try(FileChannel fc = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buf = fc.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+                
+                int flushed = 0;
+                while(buf.remaining() >= RECORD_SIZE) {
+                    record[0] = (byte) buf.position();
+                    buf.put(record);
+                    
+                    // 只刷新新写入的部分
+                    if(buf.position() - flushed >= FLUSH_SIZE) {
+                        buf.force(flushed, buf.position() - flushed);
+                        flushed = buf.position();
+                    }
+                }
+                buf.force(flushed, buf.position() - flushed);
+                
+                // 该段已写满，立即解除映射
+                buf.unmap();
+            }
+            
+            System.out.println("段" + i + "写入完成，" + mappedUsage());
+        }
+        long cost = System.nanoTime() - start;
+        
+        System.out.println("共写入 " + (long) SEGMENTS * SEGMENT_SIZE / (1024 * 1024) + " MB，耗时 " + cost / 1_000_000 + " ms");
+        
+        // 派生过切片的映射缓冲区
+        try(FileChannel fc = FileChannel.open(dir.resolve(String.format("%08d.seg", 0)), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = fc.map(FileChannel.MapMode.READ_ONLY, 0, RECORD_SIZE);
+            ByteBuffer slice = buf.slice();
+            try {
+                buf.unmap();
+                throw new AssertionError("派生过切片的映射缓冲区被解除了映射");
+            } catch(IllegalStateException e) {
+                System.out.println("派生过切片的映射缓冲区不能解除映射：" + e.getMessage() + "，切片仍可访问：" + slice.get(0));
+            }
+        }
+        
+        // 清理段文件
+        for(int i = 0; i < SEGMENTS; i++) {
+            Files.deleteIfExists(dir.resolve(String.format("%08d.seg", i)));
+        }
+        Files.deleteIfExists(dir);
+    }
+    
+    // 查询当前仍处于映射状态的内存
+    private static String mappedUsage() {
+        for(BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if("mapped".equals(pool.getName())) {
+                return "映射数量：" + pool.getCount() + "，映射内存：" + pool.getMemoryUsed() / (1024 * 1024) + " MB";
+            }
+        }
+        return "";
+    }
+}
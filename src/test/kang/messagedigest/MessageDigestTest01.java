@@ -0,0 +1,164 @@
+package test.kang.messagedigest;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import sun.security.provider.BatchDigest;
+
+/*
+ * 批量计算SHA-2摘要与并行的树形摘要
+ *
+ * BatchDigest.digest()一次计算许多条互相独立的消息的摘要，整批复用同一个摘要对象，
+ * 数据量较大时拆分到ForkJoinPool的公共线程池中并行计算；
+ * BatchDigest.treeDigest()把大文件分为固定大小的块，并行计算每块的摘要，
+ * 再按RFC 6962的Merkle树合并（与整个文件的普通摘要不同，结果取决于块大小）。
+ *
+ * 编译与运行时需要导出内部包：
+ * --add-exports=java.base/sun.security.provider=ALL-UNNAMED
+ *
+ * 用法：
+ * java --add-exports=java.base/sun.security.provider=ALL-UNNAMED test.kang.messagedigest.MessageDigestTest01 [消息数量] [文件大小（MB）]
+ */
+public class MessageDigestTest01 {
+
+    private static final String[] ALGORITHMS = {"SHA-224", "SHA-256", "SHA-384", "SHA-512", "SHA-512/224", "SHA-512/256"};
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int fileSize = (args.length > 1 ? Integer.parseInt(args[1]) : 256) << 20;
+
+        check();
+
+        Random random = new Random(42);
+        for(int size : new int[]{64, 1024}) {
+            byte[][] messages = new byte[count][size];
+            for(byte[] message : messages) {
+                random.nextBytes(message);
+            }
+            for(int round = 0; round < 3; round++) {
+                batch(messages);
+            }
+        }
+
+        Path file = Files.createTempFile("digest", ".bin");
+        try {
+            byte[] block = new byte[1 << 20];
+            random.nextBytes(block);
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                for(int written = 0; written < fileSize; written += block.length) {
+                    channel.write(ByteBuffer.wrap(block));
+                }
+            }
+            for(int round = 0; round < 3; round++) {
+                tree(file);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // 与MessageDigest逐条计算的结果比较，树形摘要与直接按定义计算的结果比较
+    private static void check() throws Exception {
+        Random random = new Random(1);
+        byte[][] messages = new byte[600][];
+        for(int i = 0; i < messages.length; i++) {
+            messages[i] = new byte[i < 300 ? i : random.nextInt(4096)];
+            random.nextBytes(messages[i]);
+        }
+        byte[] data = new byte[10_000];
+        random.nextBytes(data);
+        for(String algorithm : ALGORITHMS) {
+            MessageDigest md = MessageDigest.getInstance(algorithm);
+            BatchDigest batch = BatchDigest.getInstance(algorithm);
+            byte[][] digests = batch.digest(messages);
+            for(int i = 0; i < messages.length; i++) {
+                if(!Arrays.equals(digests[i], md.digest(messages[i]))) {
+                    throw new AssertionError(algorithm + "：第" + i + "条消息的摘要不一致");
+                }
+            }
+            for(int chunkSize : new int[]{1, 7, 1000, 5000, 10_000, 20_000}) {
+                for(int length : new int[]{0, 1, 999, 1000, 1001, 10_000}) {
+                    ByteBuffer input = ByteBuffer.wrap(data, 0, length);
+                    if(!Arrays.equals(batch.treeDigest(input, chunkSize), merkle(md, data, 0, length, chunkSize))) {
+                        throw new AssertionError(algorithm + "：树形摘要不一致，块大小" + chunkSize + "，长度" + length);
+                    }
+                }
+            }
+        }
+        System.out.println("结果校验通过");
+    }
+
+    // RFC 6962：MTH({d0}) = H(0x00 || d0)，MTH(D[n]) = H(0x01 || MTH(D[0:k]) || MTH(D[k:n]))
+    private static byte[] merkle(MessageDigest md, byte[] data, int from, int to, int chunkSize) {
+        if(to - from <= chunkSize) {
+            md.update((byte) 0);
+            md.update(data, from, to - from);
+            return md.digest();
+        }
+        int chunks = (to - from + chunkSize - 1) / chunkSize;
+        int k = Integer.highestOneBit(chunks - 1);
+        byte[] left = merkle(md, data, from, from + k * chunkSize, chunkSize);
+        byte[] right = merkle(md, data, from + k * chunkSize, to, chunkSize);
+        md.update((byte) 1);
+        md.update(left);
+        md.update(right);
+        return md.digest();
+    }
+
+    private static void batch(byte[][] messages) throws Exception {
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        long start = System.nanoTime();
+        List<byte[]> expected = new ArrayList<>(messages.length);
+        for(byte[] message : messages) {
+            expected.add(md.digest(message));
+        }
+        long single = System.nanoTime() - start;
+
+        BatchDigest batch = BatchDigest.getInstance("SHA-256");
+        start = System.nanoTime();
+        byte[][] digests = batch.digest(messages);
+        long batched = System.nanoTime() - start;
+        for(int i = 0; i < messages.length; i++) {
+            if(!Arrays.equals(digests[i], expected.get(i))) {
+                throw new AssertionError("摘要不一致");
+            }
+        }
+        System.out.printf("  %d条%d字节的消息：MessageDigest逐条%d ms（%.0f 条/s），BatchDigest %d ms（%.0f 条/s）%n",
+            messages.length, messages[0].length, single / 1_000_000, messages.length * 1e9 / single,
+            batched / 1_000_000, messages.length * 1e9 / batched);
+    }
+
+    private static void tree(Path file) throws Exception {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+            long start = System.nanoTime();
+            for(long position = 0; channel.read(buffer.clear(), position) > 0; position += buffer.position()) {
+                md.update(buffer.flip());
+            }
+            md.digest();
+            long sequential = System.nanoTime() - start;
+
+            BatchDigest batch = BatchDigest.getInstance("SHA-256");
+            start = System.nanoTime();
+            byte[] root = batch.treeDigest(channel, 0, size, BatchDigest.DEFAULT_CHUNK_SIZE);
+            long parallel = System.nanoTime() - start;
+            if(!Arrays.equals(root, batch.treeDigest(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), BatchDigest.DEFAULT_CHUNK_SIZE))) {
+                throw new AssertionError("树形摘要不一致");
+            }
+            double mb = size / (1024.0 * 1024);
+            System.out.printf("  %.0f MB文件：MessageDigest顺序计算%d ms（%.0f MB/s），BatchDigest.treeDigest %d ms（%.0f MB/s，%d个线程）%n",
+                mb, sequential / 1_000_000, mb * 1e9 / sequential, parallel / 1_000_000, mb * 1e9 / parallel,
+                ForkJoinPool.getCommonPoolParallelism());
+        }
+    }
+}
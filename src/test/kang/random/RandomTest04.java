@@ -0,0 +1,118 @@
+package test.kang.random;
+
+import java.security.DrbgParameters;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import sun.security.provider.MoreDrbgParameters;
+
+import static java.security.DrbgParameters.Capability.RESEED_ONLY;
+
+/*
+ * 多线程共享同一个SecureRandom（DRBG）生成令牌的吞吐量
+ *
+ * DRBG实例的生成操作是同步的，许多线程共享一个SecureRandom时大部分时间在等待锁。
+ * securerandom.drbg.config中包含per_thread时（或者MoreDrbgParameters的perThread为true），
+ * 每个线程使用自己的DRBG实例（机制、算法、强度、能力与主实例相同），
+ * 线程的实例由主实例提供熵输入（要求预测抗性时直接读取系统熵源）并使用自己的nonce，
+ * 达到重新播种间隔时各自重新播种。
+ *
+ * 相关安全属性：
+ * securerandom.drbg.config - 例如"Hash_DRBG,SHA-256,per_thread"或"CTR_DRBG,AES-256,per_thread"
+ *
+ * 编译与运行时需要导出内部包：
+ * --add-exports=java.base/sun.security.provider=ALL-UNNAMED
+ *
+ * 用法：
+ * java --add-exports=java.base/sun.security.provider=ALL-UNNAMED test.kang.random.RandomTest04 [每个线程生成的令牌数量]
+ */
+public class RandomTest04 {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        for(String mech : new String[]{"Hash_DRBG", "CTR_DRBG"}) {
+            for(boolean perThread : new boolean[]{false, true}) {
+                SecureRandom random = SecureRandom.getInstance("DRBG", new MoreDrbgParameters(
+                    null, mech, null, null, true, perThread, DrbgParameters.instantiation(256, RESEED_ONLY, null)));
+                System.out.println(random + "：");
+                check(random);
+                for(int threads : new int[]{1, 4, 16, 64, 200}) {
+                    benchmark(random, threads, Math.max(count / threads, 1000));
+                }
+            }
+        }
+    }
+
+    // 多个线程生成的令牌不应重复，每个线程仍可以重新播种以及使用附加输入
+    private static void check(SecureRandom random) throws Exception {
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < 16; i++) {
+            Thread thread = new Thread(() -> {
+                byte[] token = new byte[16];
+                for(int j = 0; j < 1000; j++) {
+                    random.nextBytes(token);
+                    if(!tokens.add(Base64.getEncoder().encodeToString(token))) {
+                        throw new AssertionError("令牌重复");
+                    }
+                }
+                random.reseed(DrbgParameters.reseed(false, "reseed".getBytes()));
+                random.nextBytes(token, DrbgParameters.nextBytes(-1, false, "input".getBytes()));
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for(Thread thread : threads) {
+            thread.join();
+        }
+        if(tokens.size() != 16 * 1000) {
+            throw new AssertionError("部分线程失败");
+        }
+        Set<Integer> first = new HashSet<>();
+        for(int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> first.add(random.nextInt()));
+            thread.start();
+            thread.join();
+        }
+        if(first.size() != 4) {
+            throw new AssertionError("不同线程生成了相同的随机数");
+        }
+    }
+
+    // 每个线程生成count个32字节的令牌
+    private static void benchmark(SecureRandom random, int threads, int count) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder total = new LongAdder();
+        List<Thread> list = new ArrayList<>();
+        for(int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                byte[] token = new byte[32];
+                try {
+                    start.await();
+                } catch(InterruptedException e) {
+                    return;
+                }
+                for(int j = 0; j < count; j++) {
+                    random.nextBytes(token);
+                }
+                total.add(count);
+            });
+            list.add(thread);
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for(Thread thread : list) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("  %3d个线程：%d个令牌，%d ms，%.0f 个/s%n", threads, total.sum(), elapsed / 1_000_000, total.sum() * 1e9 / elapsed);
+    }
+}
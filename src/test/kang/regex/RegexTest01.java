@@ -0,0 +1,139 @@
+package test.kang.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * 线性时间的正则匹配（Pattern.LINEAR）
+ *
+ * 默认的匹配引擎是回溯式的，像(a|aa)+?b这样的表达式在不匹配的输入上需要指数级的时间；
+ * 使用Pattern.LINEAR标记编译后，匹配过程同时模拟表达式的所有分支（Pike VM），
+ * 耗时与输入长度×表达式大小成正比，且得到的匹配和分组与默认引擎完全一致。
+ * 在运行模拟之前，还会用一个按需构建的DFA扫描输入，绝大多数不匹配的输入只需对每个字符查一次表。
+ *
+ * 反向引用、零宽断言（lookahead/lookbehind）、占有量词、独立分组等结构不受支持，
+ * 包含这些结构的表达式仍然使用回溯引擎。
+ *
+ * 用法：
+ * java test.kang.regex.RegexTest01 [行数]
+ */
+public class RegexTest01 {
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        // 1. 匹配结果与默认引擎一致
+        String[] regexes = {
+            "(\\d{4})-(\\d{2})-(\\d{2}) (\\w+) \\[(.*?)\\] (.*)",
+            "(a|ab)(c|bcd)(d*)",
+            "(a+|b+)*c",
+            "\\b(\\w+)@(\\w+)\\.com\\b",
+            "(?i)ERROR|WARN",
+            "^([^,]*),([^,]*),(.*)$",
+            "x*",
+            "(?m)^\\s*#.*$",
+            "(?:ab){2,3}?c?",
+            "[\\x{1F600}-\\x{1F64F}]+(\\p{L}+)",
+            // 以4个以上字符的字面量开头，默认引擎使用Boyer-Moore查找
+            "abcd(a|aa)+?b?",
+            "😀😁😀😁(o|ok)",
+        };
+        String[] inputs = {
+            "2018-06-01 INFO [main] server started on port 8080",
+            "abcd", "abbbaaac", "mail kang@example.com now", "a Warning and an error",
+            "x,y,z,w", "xxyxx", "code\n  # comment\n# another", "ababababc",
+            "smile 😀😁ok", "", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa",
+            "xabcdaab abcdab", "😀😁😀😁😀😁ok",
+        };
+        int checked = 0;
+        for(String regex : regexes) {
+            Pattern backtracking = Pattern.compile(regex);
+            Pattern linear = Pattern.compile(regex, Pattern.LINEAR);
+            for(String input : inputs) {
+                String expected = findAll(backtracking.matcher(input));
+                String actual = findAll(linear.matcher(input));
+                if(!expected.equals(actual)) {
+                    throw new AssertionError(regex + " 匹配 \"" + input + "\"：期望" + expected + "，实际" + actual);
+                }
+                if(backtracking.matcher(input).matches() != linear.matcher(input).matches()
+                   || backtracking.matcher(input).lookingAt() != linear.matcher(input).lookingAt()) {
+                    throw new AssertionError(regex + " 匹配 \"" + input + "\"：matches/lookingAt不一致");
+                }
+                if(!ends(backtracking.matcher(input)).equals(ends(linear.matcher(input)))) {
+                    throw new AssertionError(regex + " 匹配 \"" + input + "\"：hitEnd/requireEnd不一致");
+                }
+                checked++;
+            }
+        }
+        System.out.println("匹配结果一致：" + regexes.length + "个表达式 × " + inputs.length + "个输入（" + checked + "组）");
+
+        // 2. 灾难性回溯：(a|aa)+?b匹配n个a，回溯引擎的耗时随n指数增长
+        for(int n : new int[]{24, 28, 32}) {
+            String input = "a".repeat(n);
+            long t0 = System.nanoTime();
+            boolean r1 = Pattern.compile("(a|aa)+?b").matcher(input).find();
+            long t1 = System.nanoTime();
+            boolean r2 = Pattern.compile("(a|aa)+?b", Pattern.LINEAR).matcher(input).find();
+            long t2 = System.nanoTime();
+            System.out.printf("(a|aa)+?b匹配%d个a：回溯引擎%s %.2f ms，线性引擎%s %.2f ms%n", n, r1, (t1 - t0) / 1e6, r2, (t2 - t1) / 1e6);
+        }
+        String input = "a".repeat(100_000);
+        long t0 = System.nanoTime();
+        boolean r = Pattern.compile("(a|aa)+?b", Pattern.LINEAR).matcher(input).find();
+        System.out.printf("(a|aa)+?b匹配100000个a：线性引擎%s %.2f ms%n", r, (System.nanoTime() - t0) / 1e6);
+        // 以字面量开头的表达式同样使用线性引擎，而不是Boyer-Moore查找后回溯
+        input = "abcd" + "a".repeat(100_000);
+        t0 = System.nanoTime();
+        r = Pattern.compile("abcd(a|aa)+?b", Pattern.LINEAR).matcher(input).find();
+        System.out.printf("abcd(a|aa)+?b匹配abcd加100000个a：线性引擎%s %.2f ms%n", r, (System.nanoTime() - t0) / 1e6);
+
+        // 3. 日志过滤：大多数行不匹配
+        List<String> log = new ArrayList<>(lines);
+        for(int i = 0; i < lines; i++) {
+            log.add(i % 100 == 0
+                ? "2018-06-01 12:00:" + (i % 60) + " ERROR [worker-" + i % 8 + "] request " + i + " failed: timeout after 30000 ms"
+                : "2018-06-01 12:00:" + (i % 60) + " INFO [worker-" + i % 8 + "] request " + i + " completed in " + (i % 500) + " ms");
+        }
+        String filter = "(ERROR|FATAL) \\[([\\w-]+)\\] request (\\d+) failed: (.*)";
+        for(int round = 0; round < 3; round++) {
+            System.out.printf("  日志过滤（%d行）：回溯引擎%d ms，线性引擎%d ms%n", lines,
+                scan(Pattern.compile(filter), log), scan(Pattern.compile(filter, Pattern.LINEAR), log));
+        }
+    }
+
+    // 第一次find之后的hitEnd与requireEnd
+    private static String ends(Matcher m) {
+        return m.find() + " " + m.hitEnd() + " " + m.requireEnd();
+    }
+
+    private static String findAll(Matcher m) {
+        StringBuilder sb = new StringBuilder();
+        while(m.find()) {
+            sb.append('[').append(m.start()).append(',').append(m.end());
+            for(int g = 1; g <= m.groupCount(); g++) {
+                sb.append(' ').append(m.start(g)).append(':').append(m.end(g));
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+
+    private static long scan(Pattern pattern, List<String> log) {
+        long start = System.nanoTime();
+        int count = 0;
+        for(int i = 0; i < 20; i++) {
+            for(String line : log) {
+                Matcher m = pattern.matcher(line);
+                if(m.find() && m.group(3) != null) {
+                    count++;
+                }
+            }
+        }
+        if(count != log.size() / 100 * 20) {
+            throw new AssertionError("匹配行数：" + count);
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
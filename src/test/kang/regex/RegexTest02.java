@@ -0,0 +1,115 @@
+package test.kang.regex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSet;
+
+/*
+ * 多模式匹配（PatternSet）：一次扫描输入，得到所有能匹配的模式
+ *
+ * 纯字面量的模式使用Aho-Corasick自动机查找，其他受Pattern.LINEAR支持的模式合并为一个按需构建的DFA，
+ * 两者都只需对每个字符检查一次，耗时基本不随模式数量增长；
+ * 含有^、\b等边界的模式在DFA找到后再用Matcher确认，含有反向引用等结构的模式单独用Matcher查找。
+ * 支持CharSequence与Latin-1编码的byte[]输入。
+ *
+ * 用法：
+ * java test.kang.regex.RegexTest02 [请求行数]
+ */
+public class RegexTest02 {
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        Random random = new Random(1);
+        List<String> lines = new ArrayList<>(requests);
+        for(int i = 0; i < requests; i++) {
+            lines.add(i % 50 == 0
+                ? "GET /search?q=x' or 1=1 union select password from users where '1'-- HTTP/1.1"
+                : "GET /api/v1/items/" + random.nextInt(100000) + "?page=" + random.nextInt(10) + "&sort=name HTTP/1.1");
+        }
+
+        for(int count : new int[]{30, 300, 3000}) {
+            List<String> rules = rules(count, random);
+            PatternSet set = PatternSet.compile(rules, Pattern.CASE_INSENSITIVE);
+            List<Pattern> patterns = new ArrayList<>();
+            for(String rule : rules) {
+                patterns.add(Pattern.compile(rule, Pattern.CASE_INSENSITIVE));
+            }
+
+            // 与逐个调用Matcher.find()的结果一致
+            for(int i = 0; i < 100; i++) {
+                String line = lines.get(i);
+                BitSet expected = new BitSet();
+                for(int p = 0; p < patterns.size(); p++) {
+                    if(patterns.get(p).matcher(line).find()) {
+                        expected.set(p);
+                    }
+                }
+                byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+                if(!expected.equals(set.matches(line)) || !expected.equals(set.matches(bytes, 0, bytes.length))) {
+                    throw new AssertionError(line + "：期望" + expected + "，实际" + set.matches(line));
+                }
+            }
+
+            for(int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                int hits = 0;
+                for(String line : lines) {
+                    for(Pattern pattern : patterns) {
+                        if(pattern.matcher(line).find()) {
+                            hits++;
+                        }
+                    }
+                }
+                long separate = System.nanoTime() - start;
+                start = System.nanoTime();
+                int hits2 = 0;
+                for(String line : lines) {
+                    hits2 += set.matches(line).cardinality();
+                }
+                long together = System.nanoTime() - start;
+                if(hits != hits2) {
+                    throw new AssertionError("匹配次数：" + hits + " / " + hits2);
+                }
+                System.out.printf("  %d个模式，%d行：逐个find %d ms，PatternSet %d ms（命中%d次）%n",
+                    count, requests, separate / 1_000_000, together / 1_000_000, hits);
+            }
+        }
+    }
+
+    // 生成规则：大部分为字面量，其余为简单的正则表达式，少量带有\b或反向引用
+    private static List<String> rules(int count, Random random) {
+        List<String> rules = new ArrayList<>(count);
+        rules.add("union\\s+select");
+        rules.add("<script");
+        rules.add("\\.\\./");
+        rules.add("\\bor\\b\\s+1=1");
+        rules.add("(['\"]).*\\1\\s*--");
+        while(rules.size() < count) {
+            String word = word(random);
+            switch(rules.size() % 4) {
+                case 0:
+                    rules.add(word + "\\d{2,4}=");
+                    break;
+                case 1:
+                    rules.add("/" + word + "(/|\\?)");
+                    break;
+                default:
+                    rules.add(word + word(random));
+            }
+        }
+        return rules;
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[4 + random.nextInt(4)];
+        for(int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
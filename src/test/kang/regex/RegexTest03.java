@@ -0,0 +1,91 @@
+package test.kang.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * 正则查找的字面量预过滤
+ *
+ * 编译时从表达式中提取每个匹配都必须包含的字面量（例如.*ERROR.*中的"ERROR"），
+ * 或者必须包含其中之一的一组字面量（例如(?:GET|POST)中的"GET"、"POST"），
+ * 查找前先用String.indexOf（JIT会将其编译为向量化的扫描）检查输入中是否存在，不存在则直接失败；
+ * 另外计算匹配可能的首字符集合，只在这些字符处尝试匹配。
+ * 以Boyer-Moore查找的字面量开头的表达式不受影响。
+ * 零宽断言（lookahead/lookbehind）可能读到输入末尾并设置hitEnd与requireEnd，其后的字面量与首字符不参与预过滤。
+ *
+ * 用法：
+ * java test.kang.regex.RegexTest03 [日志行数]
+ */
+public class RegexTest03 {
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        // 预过滤不改变hitEnd与requireEnd：(?!b.*$)在下标0处读到了输入末尾
+        String[][] cases = {
+            {"(?!b.*$)a", "ba", "true true true"},
+            {"(?!b.*$)abc", "bxxabc", "true true true"},
+            {"(?!b.*$)abc", "bxxab", "false true true"},
+        };
+        for(String[] c : cases) {
+            Matcher m = Pattern.compile(c[0]).matcher(c[1]);
+            String actual = m.find() + " " + m.hitEnd() + " " + m.requireEnd();
+            if(!actual.equals(c[2])) {
+                throw new AssertionError(c[0] + " 查找 \"" + c[1] + "\"：find/hitEnd/requireEnd期望" + c[2] + "，实际" + actual);
+            }
+        }
+
+        Random random = new Random(1);
+        String[] levels = {"INFO", "INFO", "INFO", "DEBUG", "WARN"};
+        List<String> log = new ArrayList<>(lines);
+        for(int i = 0; i < lines; i++) {
+            String ip = "10.0." + random.nextInt(256) + "." + random.nextInt(256);
+            String method = random.nextInt(4) == 0 ? "POST" : "GET";
+            String level = i % 1000 == 0 ? "ERROR" : levels[random.nextInt(levels.length)];
+            log.add("2018-06-01T12:" + (10 + i % 50) + ":00.123 " + level + " [worker-" + i % 16 + "] " + ip
+                + " \"" + method + " /api/v1/items/" + random.nextInt(100000) + " HTTP/1.1\" 200 " + random.nextInt(5000)
+                + (i % 5000 == 0 ? " timeout after 30000 ms" : ""));
+        }
+
+        String[] regexes = {
+            ".*ERROR.*",                                // 必须包含ERROR
+            "\\[worker-\\d+\\] .*timeout after \\d+ ms",  // 必须包含"timeout after "
+            "(?:POST|PUT) /api/v\\d+/items/\\d+",        // 必须包含" /api/v"，首字符为P
+            "\\d+\\.\\d+\\.\\d+\\.\\d+ \"POST",           // 必须包含" \"POST"，首字符为数字
+            "\\s(?:ERROR|WARN)\\s",                      // 必须包含ERROR或WARN之一
+        };
+        int[] expected = {lines / 1000, lines / 5000, -1, -1, -1};
+        for(int round = 0; round < 3; round++) {
+            for(int r = 0; r < regexes.length; r++) {
+                Pattern pattern = Pattern.compile(regexes[r]);
+                long start = System.nanoTime();
+                int count = 0;
+                for(String line : log) {
+                    if(pattern.matcher(line).find()) {
+                        count++;
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                if(expected[r] >= 0 && count != expected[r]) {
+                    throw new AssertionError(regexes[r] + "：期望" + expected[r] + "行，实际" + count + "行");
+                }
+                // 与逐个字符查找的结果一致（StringBuffer不使用预过滤的indexOf）
+                int count2 = 0;
+                for(String line : log) {
+                    if(pattern.matcher(new StringBuffer(line)).find()) {
+                        count2++;
+                    }
+                }
+                if(count != count2) {
+                    throw new AssertionError(regexes[r] + "：" + count + " / " + count2);
+                }
+                System.out.printf("  %-42s 匹配%6d行，%4d ms（%.0f MB/s）%n", regexes[r], count, elapsed / 1_000_000,
+                    log.size() * (double) log.get(0).length() / (1 << 20) * 1e9 / elapsed);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package test.kang.serializable.test08;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/*
+ * 使用生成的字段访问器进行序列化/反序列化，并粗略统计耗时
+ *
+ * 分别使用以下两种参数运行，对比耗时：
+ * -Djdk.serialGenerateFieldAccessors=false   使用FieldReflector中基于查表的循环读写字段
+ * -Djdk.serialGenerateFieldAccessors=true    使用为User08生成的直线式字段访问器读写字段
+ */
+public class SerializableTest08 {
+    private static final int COUNT = 200_000;
+    
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        System.out.println("jdk.serialGenerateFieldAccessors = " + Boolean.getBoolean("jdk.serialGenerateFieldAccessors"));
+        
+        User08 user = new User08("张三", 1001L, 20, 99.5, true, 'A', new int[]{1, 2, 3});
+        
+        // 预热
+        roundTrip(user, COUNT / 10);
+        
+        long start = System.nanoTime();
+        Object last = roundTrip(user, COUNT);
+        long cost = System.nanoTime() - start;
+        
+        System.out.println(last);
+        System.out.println("序列化+反序列化 " + COUNT + " 次，耗时 " + cost / 1_000_000 + " ms");
+    }
+    
+    // 将对象写入内存中的对象流，再从中读取出来，重复count次
+    private static Object roundTrip(Object obj, int count) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        for(int i = 0; i < count; i++) {
+            oos.writeUnshared(obj);
+        }
+        oos.close();
+        
+        Object u = null;
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+        for(int i = 0; i < count; i++) {
+            u = ois.readUnshared();
+        }
+        ois.close();
+        
+        return u;
+    }
+}
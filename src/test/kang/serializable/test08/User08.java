@@ -0,0 +1,29 @@
+package test.kang.serializable.test08;
+
+import java.io.Serializable;
+
+// 包含多种基本类型字段与引用类型字段的待序列化类
+public class User08 implements Serializable {
+    private final String name;
+    private final long id;
+    private int age;
+    private double score;
+    private boolean vip;
+    private char level;
+    private int[] tags;
+    
+    public User08(String name, long id, int age, double score, boolean vip, char level, int[] tags) {
+        this.name = name;
+        this.id = id;
+        this.age = age;
+        this.score = score;
+        this.vip = vip;
+        this.level = level;
+        this.tags = tags;
+    }
+    
+    @Override
+    public String toString() {
+        return "User08{" + "name='" + name + '\'' + ", id=" + id + ", age=" + age + ", score=" + score + ", vip=" + vip + ", level=" + level + ", tags=" + tags.length + '}';
+    }
+}
@@ -0,0 +1,115 @@
+package test.kang.signature;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * 批量验证ECDSA签名
+ *
+ * Signature.verifyBatch()把一批签名分段，在ForkJoinPool的公共线程池中并行验证（由内部的BatchVerifier实现），
+ * 每段使用自己的Signature对象，相邻条目的公钥相同时不重新初始化（同一个CA签发的证书等）；
+ * 每个签名单独验证，结果与逐个调用Signature.verify()相同。
+ * ECDSASignature在initVerify()时编码曲线OID与公钥，同一个公钥验证多个签名时不再重复编码。
+ *
+ * 用法：
+ * java test.kang.signature.SignatureTest01 [每批的签名数量]
+ */
+public class SignatureTest01 {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        System.out.println("公共线程池线程数：" + ForkJoinPool.getCommonPoolParallelism());
+
+        for(String[] curve : new String[][]{{"secp256r1", "SHA256withECDSA"}, {"secp384r1", "SHA384withECDSA"}}) {
+            // 模拟mTLS终端：少量CA的公钥签发了大部分证书
+            KeyPair[] pairs = new KeyPair[8];
+            KeyPairGenerator kpg = KeyPairGenerator.getInstance("EC");
+            kpg.initialize(new ECGenParameterSpec(curve[0]));
+            for(int i = 0; i < pairs.length; i++) {
+                pairs[i] = kpg.generateKeyPair();
+            }
+
+            Random random = new Random(42);
+            PublicKey[] keys = new PublicKey[count];
+            byte[][] data = new byte[count][];
+            byte[][] signatures = new byte[count][];
+            Signature signer = Signature.getInstance(curve[1]);
+            for(int i = 0; i < count; i++) {
+                // 按公钥分组排列，同一个公钥的条目相邻
+                KeyPair pair = pairs[i * pairs.length / count];
+                data[i] = new byte[100 + random.nextInt(200)];
+                random.nextBytes(data[i]);
+                signer.initSign(pair.getPrivate());
+                signer.update(data[i]);
+                signatures[i] = signer.sign();
+                keys[i] = pair.getPublic();
+            }
+            // 一部分签名被篡改、编码错误，或者用错了公钥
+            for(int i = 0; i < count; i += 97) {
+                switch(i % 3) {
+                    case 0:
+                        data[i] = data[i].clone();
+                        data[i][0] ^= 1;
+                        break;
+                    case 1:
+                        signatures[i] = Arrays.copyOf(signatures[i], signatures[i].length - 1);
+                        break;
+                    default:
+                        keys[i] = pairs[(i * pairs.length / count + 1) % pairs.length].getPublic();
+                }
+            }
+
+            check(curve[1], keys, data, signatures, Signature.verifyBatch(curve[1], keys, data, signatures));
+
+            System.out.println(curve[1] + "：");
+            for(int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for(int i = 0; i < count; i++) {
+                    Signature sig = Signature.getInstance(curve[1]);
+                    sig.initVerify(keys[i]);
+                    sig.update(data[i]);
+                    try {
+                        sig.verify(signatures[i]);
+                    } catch(Exception e) {
+                        // 编码错误的签名
+                    }
+                }
+                long sequential = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                Signature.verifyBatch(curve[1], keys, data, signatures);
+                long batch = System.nanoTime() - start;
+                System.out.printf("  逐个验证：%.0f 次/s，批量验证：%.0f 次/s%n", count * 1e9 / sequential, count * 1e9 / batch);
+            }
+        }
+    }
+
+    // 批量验证的结果应与逐个验证的相同
+    private static void check(String algorithm, PublicKey[] keys, byte[][] data, byte[][] signatures, boolean[] results) throws Exception {
+        int valid = 0;
+        for(int i = 0; i < keys.length; i++) {
+            Signature sig = Signature.getInstance(algorithm);
+            sig.initVerify(keys[i]);
+            sig.update(data[i]);
+            boolean expected;
+            try {
+                expected = sig.verify(signatures[i]);
+            } catch(Exception e) {
+                expected = false;
+            }
+            if(results[i] != expected) {
+                throw new AssertionError(algorithm + "：第" + i + "个签名的验证结果不一致");
+            }
+            if(expected) {
+                valid++;
+            }
+        }
+        System.out.println(algorithm + "：批量验证与逐个验证的结果一致，有效签名" + valid + "个，无效签名" + (keys.length - valid) + "个");
+    }
+}
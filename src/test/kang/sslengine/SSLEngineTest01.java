@@ -0,0 +1,230 @@
+package test.kang.sslengine;
+
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.TrustManagerFactory;
+
+/*
+ * 同一个SSLEngine上并发执行wrap与unwrap（全双工）
+ *
+ * 握手完成后，wrap加密应用数据时只持有写方向的锁，unwrap解密应用数据时只持有读方向的锁，
+ * 因此一个线程发送数据的同时，另一个线程可以接收数据；
+ * 握手消息、警报、关闭以及密钥更新等仍然在同时持有两个方向的锁时处理。
+ * 引擎内部只使用私有的锁，不使用SSLEngine对象自身的监视器锁，应用在引擎上同步时不会与其死锁。
+ *
+ * 先用keytool生成一个自签名证书：
+ * keytool -genkeypair -alias test -keyalg EC -dname CN=localhost -storetype PKCS12 -keystore test.p12 -storepass changeit
+ *
+ * 用法：
+ * java test.kang.sslengine.SSLEngineTest01 test.p12 changeit [记录数量]
+ */
+public class SSLEngineTest01 {
+
+    public static void main(String[] args) throws Exception {
+        String keystore = args.length > 0 ? args[0] : "test.p12";
+        char[] password = (args.length > 1 ? args[1] : "changeit").toCharArray();
+        int records = args.length > 2 ? Integer.parseInt(args[2]) : 4000;
+
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        try(FileInputStream in = new FileInputStream(keystore)) {
+            ks.load(in, password);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, password);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
+        tmf.init(ks);
+        SSLContext context = SSLContext.getInstance("TLSv1.3");
+        context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+        SSLEngine client = context.createSSLEngine("localhost", 443);
+        client.setUseClientMode(true);
+        SSLEngine server = context.createSSLEngine();
+        server.setUseClientMode(false);
+        handshake(client, server);
+        System.out.println("握手完成：" + client.getSession().getProtocol() + " " + client.getSession().getCipherSuite());
+
+        int appSize = client.getSession().getApplicationBufferSize();
+        int packetSize = client.getSession().getPacketBufferSize();
+        ByteBuffer data = ByteBuffer.allocate(16 * 1024);
+        for(int i = 0; i < data.capacity(); i++) {
+            data.put((byte) i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        for(int round = 0; round < 3; round++) {
+            // 服务端预先加密好发给客户端的记录
+            List<ByteBuffer> inbound = wrapAll(server, data, records, packetSize);
+
+            // 先发后收
+            long start = System.nanoTime();
+            List<ByteBuffer> outbound = wrapAll(client, data, records, packetSize);
+            long bytes = unwrapAll(client, inbound, data, appSize);
+            long sequential = System.nanoTime() - start;
+            unwrapAll(server, outbound, data, appSize);
+
+            // 一个线程持续wrap，另一个线程同时持续unwrap
+            List<ByteBuffer> inbound2 = wrapAll(server, data, records, packetSize);
+            start = System.nanoTime();
+            Future<List<ByteBuffer>> written = executor.submit(() -> wrapAll(client, data, records, packetSize));
+            Future<Long> read = executor.submit(() -> unwrapAll(client, inbound2, data, appSize));
+            outbound = written.get();
+            bytes += read.get();
+            long concurrent = System.nanoTime() - start;
+
+            // 服务端解密客户端并发发送的记录，校验内容
+            unwrapAll(server, outbound, data, appSize);
+
+            double mb = 2.0 * records * data.capacity() / (1024 * 1024);
+            System.out.printf("  双向各%d条记录（共收到%d字节）：先发后收%d ms（%.0f MB/s），并发收发%d ms（%.0f MB/s）%n",
+                records, bytes, sequential / 1_000_000, mb * 1e9 / sequential, concurrent / 1_000_000, mb * 1e9 / concurrent);
+        }
+        executor.shutdown();
+
+        checkMonitor(context);
+    }
+
+    // 应用持有引擎的监视器锁时调用closeOutbound，同时另一个线程调用closeInbound，不应死锁
+    private static void checkMonitor(SSLContext context) throws Exception {
+        SSLEngine client = context.createSSLEngine("localhost", 443);
+        client.setUseClientMode(true);
+        SSLEngine server = context.createSSLEngine();
+        server.setUseClientMode(false);
+        handshake(client, server);
+
+        Thread closer = new Thread(() -> {
+            try {
+                client.closeInbound();
+            } catch(SSLException e) {
+                // 未收到对端的close_notify，预期会抛出异常
+            }
+        });
+        Thread app = new Thread(() -> {
+            synchronized(client) {
+                closer.start();
+                try {
+                    // 等待closer进入closeInbound
+                    Thread.sleep(200);
+                } catch(InterruptedException e) {
+                    return;
+                }
+                client.closeOutbound();
+            }
+        });
+        closer.setDaemon(true);
+        app.setDaemon(true);
+        app.start();
+        app.join(5000);
+        if(app.isAlive()) {
+            throw new AssertionError("应用在引擎上同步时发生死锁");
+        }
+        System.out.println("在引擎上同步时关闭连接：正常");
+    }
+
+    // 将count份数据加密为TLS记录
+    private static List<ByteBuffer> wrapAll(SSLEngine engine, ByteBuffer data, int count, int packetSize) throws Exception {
+        List<ByteBuffer> packets = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            ByteBuffer src = data.duplicate().clear();
+            while(src.hasRemaining()) {
+                ByteBuffer dst = ByteBuffer.allocate(packetSize);
+                SSLEngineResult result = engine.wrap(src, dst);
+                if(result.getStatus() != SSLEngineResult.Status.OK) {
+                    throw new IllegalStateException("wrap: " + result);
+                }
+                packets.add(dst.flip());
+            }
+        }
+        return packets;
+    }
+
+    // 解密TLS记录，并校验得到的应用数据
+    private static long unwrapAll(SSLEngine engine, List<ByteBuffer> packets, ByteBuffer expected, int appSize) throws Exception {
+        ByteBuffer dst = ByteBuffer.allocate(appSize);
+        long total = 0;
+        for(ByteBuffer packet : packets) {
+            while(packet.hasRemaining()) {
+                SSLEngineResult result = engine.unwrap(packet, dst.clear());
+                if(result.getStatus() != SSLEngineResult.Status.OK) {
+                    throw new IllegalStateException("unwrap: " + result);
+                }
+                // 每条应用数据记录恰好包含一份完整的数据（密钥更新等握手消息不产生应用数据）
+                if(dst.flip().hasRemaining() && !dst.equals(expected.duplicate().clear())) {
+                    throw new AssertionError("数据不一致，位置：" + total);
+                }
+                total += dst.remaining();
+            }
+        }
+        return total;
+    }
+
+    // 在内存中完成客户端与服务端的握手
+    private static void handshake(SSLEngine client, SSLEngine server) throws Exception {
+        int packetSize = client.getSession().getPacketBufferSize();
+        int appSize = client.getSession().getApplicationBufferSize();
+        ByteBuffer toServer = ByteBuffer.allocate(packetSize * 4);
+        ByteBuffer toClient = ByteBuffer.allocate(packetSize * 4);
+        ByteBuffer app = ByteBuffer.allocate(appSize);
+        ByteBuffer empty = ByteBuffer.allocate(0);
+
+        client.beginHandshake();
+        server.beginHandshake();
+        while(!isDone(client) || !isDone(server)) {
+            step(client, empty, toServer, toClient, app);
+            step(server, empty, toClient, toServer, app);
+        }
+
+        // TLSv1.3的服务端在握手完成后还会发送NewSessionTicket
+        drain(client, toClient, app);
+        drain(server, toServer, app);
+    }
+
+    private static void drain(SSLEngine engine, ByteBuffer in, ByteBuffer app) throws Exception {
+        for(in.flip(); in.hasRemaining(); ) {
+            engine.unwrap(in, app.clear());
+        }
+        in.clear();
+    }
+
+    private static boolean isDone(SSLEngine engine) {
+        HandshakeStatus status = engine.getHandshakeStatus();
+        return status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED;
+    }
+
+    private static void step(SSLEngine engine, ByteBuffer empty, ByteBuffer out, ByteBuffer in, ByteBuffer app) throws Exception {
+        for(; ; ) {
+            switch(engine.getHandshakeStatus()) {
+                case NEED_WRAP:
+                    engine.wrap(empty, out);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    in.flip();
+                    SSLEngineResult result = engine.unwrap(in, app.clear());
+                    in.compact();
+                    if(result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                        return;
+                    }
+                    break;
+                case NEED_TASK:
+                    for(Runnable task; (task = engine.getDelegatedTask()) != null; ) {
+                        task.run();
+                    }
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package test.kang.sslsession;
+
+import java.io.FileInputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+
+/*
+ * TLSv1.3的会话恢复：分片的会话缓存与无状态会话票据（Session Ticket）
+ *
+ * 服务端的会话缓存被拆分为多个分片，每个分片单独加锁并各自按LRU和超时淘汰，并发握手时不再争用同一把锁；
+ * 未设置javax.net.ssl.sessionCacheSize时，缓存容量默认为20480个会话。
+ *
+ * 开启无状态票据后，服务端不再缓存会话，而是将恢复会话所需的状态用AES-GCM加密后作为票据发给客户端，
+ * 客户端恢复会话时出示该票据，服务端解密后即可恢复会话。
+ * 加密票据的密钥由共享密钥文件派生，并按固定周期轮换，因此使用同一密钥文件的多台服务器都能恢复彼此签发的会话；
+ * 只接受当前与上一个周期的密钥签发的票据，因此票据最多在两个轮换周期内有效，且不超过会话超时时间。
+ * 票据中还包含客户端请求的服务器名称（SNI）与客户端的证书链，服务器名称不同时不恢复会话，
+ * 要求客户端认证时，恢复的会话仍然带有客户端的证书。
+ *
+ * 相关系统属性：
+ * jdk.tls.server.enableSessionTicketExtension - 是否使用无状态票据，默认为false
+ * jdk.tls.server.statelessKeyTimeout          - 票据密钥的轮换周期（秒），默认为3600
+ * jdk.tls.server.sessionTicketKeyFile         - 共享密钥文件（至少32字节），未设置时每个SSLContext随机生成
+ *
+ * 这里用两个独立的SSLContext模拟两台服务器，通过统计服务端选择证书的次数判断是否进行了完整握手。
+ * 关闭无状态票据时，会话只缓存在签发票据的服务器上，客户端连接另一台服务器时只能完整握手。
+ *
+ * 先用keytool生成一个自签名证书：
+ * keytool -genkeypair -alias test -keyalg EC -dname CN=localhost -storetype PKCS12 -keystore test.p12 -storepass changeit
+ *
+ * 用法：
+ * java test.kang.sslsession.SSLSessionTest01 test.p12 changeit [握手次数]
+ * java -Djdk.tls.server.enableSessionTicketExtension=false test.kang.sslsession.SSLSessionTest01 test.p12 changeit [握手次数]
+ */
+public class SSLSessionTest01 {
+
+    public static void main(String[] args) throws Exception {
+        String keystore = args.length > 0 ? args[0] : "test.p12";
+        char[] password = (args.length > 1 ? args[1] : "changeit").toCharArray();
+        int handshakes = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        // 多台服务器共享的密钥文件，需要在使用TLS之前设置
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        Path keyFile = Files.createTempFile("ticket", ".key");
+        Files.write(keyFile, secret);
+        keyFile.toFile().deleteOnExit();
+        if(System.getProperty("jdk.tls.server.enableSessionTicketExtension") == null) {
+            System.setProperty("jdk.tls.server.enableSessionTicketExtension", "true");
+        }
+        System.out.println("jdk.tls.server.enableSessionTicketExtension=" + Boolean.getBoolean("jdk.tls.server.enableSessionTicketExtension"));
+        System.setProperty("jdk.tls.server.sessionTicketKeyFile", keyFile.toString());
+
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        try(FileInputStream in = new FileInputStream(keystore)) {
+            ks.load(in, password);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, password);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
+        tmf.init(ks);
+
+        SSLContext clientContext = SSLContext.getInstance("TLSv1.3");
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        // 两台"服务器"
+        CountingKeyManager km1 = new CountingKeyManager((X509ExtendedKeyManager) kmf.getKeyManagers()[0]);
+        CountingKeyManager km2 = new CountingKeyManager((X509ExtendedKeyManager) kmf.getKeyManagers()[0]);
+        SSLContext server1 = SSLContext.getInstance("TLSv1.3");
+        server1.init(new CountingKeyManager[]{km1}, null, null);
+        SSLContext server2 = SSLContext.getInstance("TLSv1.3");
+        server2.init(new CountingKeyManager[]{km2}, null, null);
+
+        // 1. 在服务器1上完整握手，获得票据
+        connect(clientContext, server1);
+        System.out.println("服务器1完整握手，选择证书" + km1.count.get() + "次，服务端缓存的会话数：" + count(server1));
+
+        // 2. 用服务器1签发的票据在服务器2上恢复会话
+        connect(clientContext, server2);
+        System.out.println("用服务器1签发的票据连接服务器2，选择证书" + km2.count.get() + "次");
+
+        // 3. 轮流连接两台服务器，每次都恢复会话
+        for(int round = 0; round < 3; round++) {
+            km1.count.set(0);
+            km2.count.set(0);
+            long start = System.nanoTime();
+            for(int i = 0; i < handshakes; i++) {
+                connect(clientContext, (i & 1) == 0 ? server1 : server2);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("  %d次握手，%.0f 次/s，其中完整握手%d次%n", handshakes, handshakes * 1e9 / elapsed, km1.count.get() + km2.count.get());
+        }
+
+        // 4. 要求客户端认证：在服务器2上恢复服务器1签发的会话，仍然能得到客户端的证书
+        SSLContext authClientContext = SSLContext.getInstance("TLSv1.3");
+        authClientContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+        SSLContext authServer1 = SSLContext.getInstance("TLSv1.3");
+        authServer1.init(new CountingKeyManager[]{km1}, tmf.getTrustManagers(), null);
+        SSLContext authServer2 = SSLContext.getInstance("TLSv1.3");
+        authServer2.init(new CountingKeyManager[]{km2}, tmf.getTrustManagers(), null);
+        km1.count.set(0);
+        km2.count.set(0);
+        connect(authClientContext, authServer1, true);
+        SSLSession resumed = connect(authClientContext, authServer2, true);
+        System.out.println("要求客户端认证，连接服务器2时选择证书" + km2.count.get() + "次，恢复的会话中客户端的证书：" + resumed.getPeerPrincipal());
+
+        System.out.println("服务端会话超时时间：" + server1.getServerSessionContext().getSessionTimeout() + "秒，缓存容量：" + server1.getServerSessionContext().getSessionCacheSize());
+    }
+
+    private static int count(SSLContext context) {
+        return Collections.list(context.getServerSessionContext().getIds()).size();
+    }
+
+    // 选择证书时计数，恢复会话时服务端不会选择证书
+    static class CountingKeyManager extends X509ExtendedKeyManager {
+        final X509ExtendedKeyManager delegate;
+        final AtomicInteger count = new AtomicInteger();
+
+        CountingKeyManager(X509ExtendedKeyManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+            count.incrementAndGet();
+            return delegate.chooseEngineServerAlias(keyType, issuers, engine);
+        }
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return delegate.getClientAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            return delegate.chooseClientAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return delegate.getServerAliases(keyType, issuers);
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            count.incrementAndGet();
+            return delegate.chooseServerAlias(keyType, issuers, socket);
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return delegate.getCertificateChain(alias);
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return delegate.getPrivateKey(alias);
+        }
+    }
+
+    private static void connect(SSLContext clientContext, SSLContext serverContext) throws Exception {
+        connect(clientContext, serverContext, false);
+    }
+
+    // 在内存中完成一次握手，客户端在收到服务端的票据后结束，返回服务端的会话
+    private static SSLSession connect(SSLContext clientContext, SSLContext serverContext, boolean needClientAuth) throws Exception {
+        SSLEngine client = clientContext.createSSLEngine("localhost", 443);
+        client.setUseClientMode(true);
+        SSLEngine server = serverContext.createSSLEngine();
+        server.setUseClientMode(false);
+        server.setNeedClientAuth(needClientAuth);
+
+        int packetSize = client.getSession().getPacketBufferSize();
+        int appSize = client.getSession().getApplicationBufferSize();
+        ByteBuffer toServer = ByteBuffer.allocate(packetSize * 4);
+        ByteBuffer toClient = ByteBuffer.allocate(packetSize * 4);
+        ByteBuffer app = ByteBuffer.allocate(appSize);
+        ByteBuffer empty = ByteBuffer.allocate(0);
+
+        client.beginHandshake();
+        server.beginHandshake();
+        while(!isDone(client) || !isDone(server)) {
+            step(client, empty, toServer, toClient, app);
+            step(server, empty, toClient, toServer, app);
+        }
+
+        // TLSv1.3的服务端在握手完成后发送NewSessionTicket
+        for(toClient.flip(); toClient.hasRemaining(); ) {
+            client.unwrap(toClient, app.clear());
+        }
+        return server.getSession();
+    }
+
+    private static boolean isDone(SSLEngine engine) {
+        HandshakeStatus status = engine.getHandshakeStatus();
+        return status == HandshakeStatus.NOT_HANDSHAKING || status == HandshakeStatus.FINISHED;
+    }
+
+    private static void step(SSLEngine engine, ByteBuffer empty, ByteBuffer out, ByteBuffer in, ByteBuffer app) throws Exception {
+        for(; ; ) {
+            switch(engine.getHandshakeStatus()) {
+                case NEED_WRAP:
+                    engine.wrap(empty, out);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    in.flip();
+                    SSLEngineResult result = engine.unwrap(in, app.clear());
+                    in.compact();
+                    if(result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                        return;
+                    }
+                    break;
+                case NEED_TASK:
+                    for(Runnable task; (task = engine.getDelegatedTask()) != null; ) {
+                        task.run();
+                    }
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+}
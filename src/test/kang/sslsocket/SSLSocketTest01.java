@@ -0,0 +1,101 @@
+package test.kang.sslsocket;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.net.InetAddress;
+import java.security.KeyStore;
+import java.util.Arrays;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+/*
+ * 通过SSLSocket进行小消息的请求/响应（回环地址）
+ *
+ * 默认情况下，每次向SSLSocket的输出流写入数据都会单独加密为一条记录并立即写入套接字，
+ * 例如DataOutputStream.writeInt()会产生4条只有1个字节的记录。
+ * 开启jdk.tls.coalesceAppData后，小块数据会先暂存起来，凑满一条记录（16KB）、
+ * 调用flush()、从套接字读取数据或发送其他记录时，才加密并一次性写入套接字。
+ *
+ * 相关系统属性：
+ * jdk.tls.coalesceAppData - 是否合并较小的应用数据写入，默认为false
+ *
+ * 先用keytool生成一个自签名证书：
+ * keytool -genkeypair -alias test -keyalg EC -dname CN=localhost -storetype PKCS12 -keystore test.p12 -storepass changeit
+ *
+ * 用法：
+ * java -Djdk.tls.coalesceAppData=true test.kang.sslsocket.SSLSocketTest01 test.p12 changeit [请求数]
+ */
+public class SSLSocketTest01 {
+
+    public static void main(String[] args) throws Exception {
+        String keystore = args.length > 0 ? args[0] : "test.p12";
+        char[] password = (args.length > 1 ? args[1] : "changeit").toCharArray();
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 20_000;
+
+        KeyStore ks = KeyStore.getInstance("PKCS12");
+        try(FileInputStream in = new FileInputStream(keystore)) {
+            ks.load(in, password);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+        kmf.init(ks, password);
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("SunX509");
+        tmf.init(ks);
+        SSLContext context = SSLContext.getInstance("TLSv1.3");
+        context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+
+        SSLServerSocket server = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0, 16, InetAddress.getLoopbackAddress());
+        // 服务端：读取请求，返回同样大小的响应
+        Thread thread = new Thread(() -> {
+            try(SSLSocket socket = (SSLSocket) server.accept()) {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                byte[] body = new byte[1024];
+                for(int length; (length = in.readInt()) >= 0; ) {
+                    in.readFully(body, 0, length);
+                    writeMessage(out, body, length);
+                }
+            } catch(Exception e) {
+                e.printStackTrace();
+            }
+        });
+        thread.start();
+
+        System.out.println("jdk.tls.coalesceAppData=" + Boolean.getBoolean("jdk.tls.coalesceAppData"));
+        try(SSLSocket socket = (SSLSocket) context.getSocketFactory().createSocket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            socket.setTcpNoDelay(true);
+            socket.startHandshake();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            byte[] request = new byte[100];
+            Arrays.fill(request, (byte) 'k');
+            byte[] response = new byte[1024];
+            for(int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for(int i = 0; i < requests; i++) {
+                    writeMessage(out, request, request.length);
+                    in.readFully(response, 0, in.readInt());
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("  %d次请求（%d字节），耗时%d ms，%.0f req/s%n", requests, request.length, elapsed / 1_000_000, requests * 1e9 / elapsed);
+            }
+            out.writeInt(-1);
+            out.flush();
+        }
+        thread.join();
+        server.close();
+    }
+
+    // 消息格式：4字节长度 + 8字节时间戳 + 消息体，分多次写入
+    private static void writeMessage(DataOutputStream out, byte[] body, int length) throws Exception {
+        out.writeInt(length);
+        out.writeLong(System.nanoTime());
+        out.write(body, 8, length - 8);
+        out.flush();
+    }
+}